@@ -0,0 +1,530 @@
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hrw.webservice.logic.CalculateJHKeyFigures;
+import hrw.webservice.logic.CalculateRKIKeyFigures;
+import hrw.webservice.logic.DatasetSnapshotFile;
+import hrw.webservice.logic.IncrementalSeriesIngest;
+import hrw.webservice.logic.PrecomputeKeyFigures;
+import hrw.webservice.mapper.JsonObjectMapper;
+import hrw.webservice.model.CountrySeriesStore;
+import hrw.webservice.model.DatasetSnapshot;
+import hrw.webservice.model.JHTimeSeries;
+import hrw.webservice.model.JohnHDailyInfos;
+import hrw.webservice.model.RKIDailyInfosTotal;
+import hrw.webservice.model.RKIDistrictTable;
+import hrw.webservice.model.RKIStateTable;
+import hrw.webservice.rest.distribution.ResponseFormat;
+import hrw.webservice.rest.distribution.SeriesWriter;
+import hrw.webservice.source.DataSources;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Benchmarks of the web service, kept apart from the unit tests because they measure heap and time
+ * instead of asserting behaviour. Run it with the classes of the service and of Jackson on the classpath,
+ * e.g. java -cp target/classes:... Covid19Benchmark [name ...]. Without arguments all benchmarks are run.
+ * The process exits with 1 if a benchmark misses its budget.
+ *
+ * @author Lars Karbach
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class Covid19Benchmark {
+
+    /**
+     * Number of countries of the synthetic timeseries, roughly the size of the real feed.
+     */
+    private static final int COUNTRIES = 190;
+
+    /**
+     * Number of days per country of the synthetic timeseries.
+     */
+    private static final int DAYS = 700;
+
+    /**
+     * Number of warm-up and of measured runs per benchmark.
+     */
+    private static final int RUNS = 5;
+
+    /**
+     * Number of measured window scans per representation of the series.
+     */
+    private static final int SCANS = 200;
+
+    /**
+     * Number of days of the long series that is streamed as NDJSON.
+     */
+    private static final int LONG_SERIES_DAYS = 500000;
+
+    /**
+     * Budget of the heap retained by the series of all countries in bytes.
+     */
+    private static final long MEMORY_BUDGET = 8L * 1024 * 1024;
+
+    /**
+     * Number of transcodings and decodings per response format.
+     */
+    private static final int FORMAT_ITERATIONS = 2000;
+
+    /**
+     * Budget of loading the snapshot file of the warm start in milliseconds.
+     */
+    private static final long SNAPSHOT_LOAD_BUDGET = 1000;
+
+    /**
+     * Date format of the John Hopkins timeseries
+     */
+    private static final DateTimeFormatter JH_DATE = DateTimeFormatter.ofPattern("yyyy-M-d");
+
+    /**
+     * Thread bean to read the bytes allocated by the current thread
+     */
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Runs the benchmarks.
+     *
+     * @param args Names of the benchmarks to run, all if empty: parser, series, ndjson, ingest, formats,
+     *             synthetic, snapshot
+     * @throws IOException Throws an IO exception if a benchmark fails to read or write its data.
+     */
+    public static void main(String[] args) throws IOException {
+        List<String> names = Arrays.asList(args);
+        boolean failed = false;
+
+        if (names.isEmpty() || names.contains("parser")) {
+            failed |= !benchmarkStreamingAgainstTree();
+        }
+        if (names.isEmpty() || names.contains("series")) {
+            failed |= !benchmarkSeriesAgainstList();
+        }
+        if (names.isEmpty() || names.contains("ndjson")) {
+            failed |= !benchmarkLongSeries();
+        }
+        if (names.isEmpty() || names.contains("ingest")) {
+            failed |= !benchmarkRefreshOfAllCountries();
+        }
+        if (names.isEmpty() || names.contains("formats")) {
+            failed |= !benchmarkFormats();
+        }
+        if (names.isEmpty() || names.contains("synthetic")) {
+            failed |= !benchmarkSyntheticLoad();
+        }
+        if (names.isEmpty() || names.contains("snapshot")) {
+            failed |= !benchmarkSnapshotLoad();
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Compares the allocated heap and the parse time of the streaming and the former tree based parser
+     * of the John Hopkins timeseries.
+     *
+     * @return true if the streaming parser allocates less than the tree based parser
+     * @throws IOException Throws an IO exception if an error occurs while reading the JSON stream.
+     */
+    private static boolean benchmarkStreamingAgainstTree() throws IOException {
+        JsonObjectMapper mapper = new JsonObjectMapper();
+        JavaType type = mapper.getObjectMapper().getTypeFactory().constructCollectionType(List.class, JohnHDailyInfos.class);
+        byte[] timeseries = timeseries();
+        long treeBytes = 0, treeNanos = 0, streamBytes = 0, streamNanos = 0;
+
+        for (int i = 0; i < 2 * RUNS; i++) {
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            JsonNode node = mapper.getSpecificNodeFromInputStream(new ByteArrayInputStream(timeseries), "Germany");
+            mapper.getObjectMapper().convertValue(node, type);
+            long treeRun = System.nanoTime() - start;
+            long treeAllocated = allocatedBytes() - bytes;
+
+            bytes = allocatedBytes();
+            start = System.nanoTime();
+            mapper.getCountrySeriesFromInputStream(new ByteArrayInputStream(timeseries), "Germany");
+            // The first runs are the warm-up of both paths.
+            if (i >= RUNS) {
+                streamNanos += System.nanoTime() - start;
+                streamBytes += allocatedBytes() - bytes;
+                treeNanos += treeRun;
+                treeBytes += treeAllocated;
+            }
+        }
+
+        System.out.printf("parser: timeseries %d KB, tree %d KB / %.2f ms, streaming %d KB / %.2f ms per parse%n",
+                timeseries.length / 1024,
+                treeBytes / RUNS / 1024, treeNanos / RUNS / 1e6,
+                streamBytes / RUNS / 1024, streamNanos / RUNS / 1e6);
+        return streamBytes < treeBytes;
+    }
+
+    /**
+     * Compares the heap retained by lists of daily objects and by columnar series of all countries
+     * and the time of a window scan over both.
+     *
+     * @return true if the series retain less heap than the lists and both scans return the same result
+     */
+    private static boolean benchmarkSeriesAgainstList() {
+        CalculateJHKeyFigures calculator = new CalculateJHKeyFigures();
+        long listBytes = retainedBytes(Covid19Benchmark::lists);
+        long seriesBytes = retainedBytes(Covid19Benchmark::seriesList);
+        List<List<JohnHDailyInfos>> lists = lists();
+        List<JHTimeSeries> seriesList = seriesList();
+        long listNanos = 0, seriesNanos = 0;
+        double listResult = 0, seriesResult = 0;
+
+        for (int i = 0; i < SCANS; i++) {
+            long start = System.nanoTime();
+            listResult = 0;
+            for (List<JohnHDailyInfos> list : lists) {
+                listResult += scanList(list);
+            }
+            listNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            seriesResult = 0;
+            for (JHTimeSeries series : seriesList) {
+                seriesResult += calculator.calcAvgDecrease(series, DAYS - 1);
+            }
+            seriesNanos += System.nanoTime() - start;
+        }
+
+        System.out.printf("series: %d countries x %d days, list retains %d KB / %.3f ms, series retain %d KB / %.3f ms per scan%n",
+                COUNTRIES, DAYS, listBytes / 1024, listNanos / SCANS / 1e6, seriesBytes / 1024, seriesNanos / SCANS / 1e6);
+        return seriesBytes < listBytes && Math.abs(listResult - seriesResult) < 1e-6;
+    }
+
+    /**
+     * Measures streaming a very long series as NDJSON into a client that consumes the rows immediately.
+     *
+     * @return true if the rows have been written
+     * @throws IOException Throws an IO exception if the rows can not be written.
+     */
+    private static boolean benchmarkLongSeries() throws IOException {
+        JHTimeSeries series = new JHTimeSeries(LONG_SERIES_DAYS);
+        SeriesWriter writer = new SeriesWriter(new JsonObjectMapper().getObjectMapper().getFactory());
+        long[] written = new long[1];
+        OutputStream out = new OutputStream() {
+            @Override
+            public void write(int b) {
+                written[0]++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                written[0] += len;
+            }
+        };
+        long allocated;
+        long start;
+
+        for (int day = 0; day < LONG_SERIES_DAYS; day++) {
+            series.append(18283 + day, day * 100, day, day * 50);
+        }
+        allocated = allocatedBytes();
+        start = System.nanoTime();
+        writer.writeNdjson("Germany", series, 0, series.size(), out);
+        allocated = allocatedBytes() - allocated;
+
+        System.out.printf("ndjson: %d rows (%d KB) streamed in %d ms, allocated %d KB%n", series.size(), written[0] / 1024,
+                (System.nanoTime() - start) / 1000000, allocated / 1024);
+        return written[0] > LONG_SERIES_DAYS * 80L;
+    }
+
+    /**
+     * Measures the heap retained by the series of all countries and the time of a complete refresh,
+     * parsing and key figures of all countries.
+     *
+     * @return true if the retained heap is within the budget
+     * @throws IOException Throws an IO exception if an error occurs while reading the JSON stream.
+     */
+    private static boolean benchmarkRefreshOfAllCountries() throws IOException {
+        PrecomputeKeyFigures precompute = new PrecomputeKeyFigures(new CalculateJHKeyFigures(), new CalculateRKIKeyFigures());
+        IncrementalSeriesIngest ingest = new IncrementalSeriesIngest(new JsonObjectMapper());
+        byte[] timeseries = timeseries();
+        long retained = retainedBytes(() -> {
+            try {
+                return ingest.ingest(null, timeseries);
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        });
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        CountrySeriesStore store = ingest.ingest(null, timeseries);
+        long parseMillis = (System.nanoTime() - start) / 1000000;
+
+        allocated = allocatedBytes() - allocated;
+        precompute.precomputeAll(store, null);
+
+        System.out.printf("ingest: %d countries x %d days (%d KB JSON), retained %d KB, allocated while parsing %d KB, "
+                        + "parse %d ms, refresh incl. key figures %d ms%n",
+                COUNTRIES, DAYS, timeseries.length / 1024, retained / 1024, allocated / 1024, parseMillis,
+                (System.nanoTime() - start) / 1000000);
+        return retained < MEMORY_BUDGET;
+    }
+
+    /**
+     * Measures payload size and encode and decode cost of every response format for a body like the district endpoint.
+     *
+     * @return true if no binary format is larger than JSON
+     * @throws IOException Throws an IO exception if a body can not be serialized or decoded.
+     */
+    private static boolean benchmarkFormats() throws IOException {
+        List<Map<String, Object>> districts = new ArrayList<>();
+        byte[] json;
+        boolean smaller = true;
+
+        for (int district = 1; district <= 401; district++) {
+            Map<String, Object> model = new LinkedHashMap<>();
+
+            model.put("id", String.format("%05d", district));
+            model.put("name", "District " + district);
+            model.put("stateId", district % 16 + 1);
+            model.put("citizens", 50000 + district * 700);
+            model.put("cases", 2500 + district * 13);
+            model.put("cases7", district % 251);
+            model.put("incidence", (district % 251) * 100000.0 / (50000 + district * 700));
+            model.put("rank", district);
+            districts.add(model);
+        }
+        json = new ObjectMapper().writeValueAsBytes(districts);
+
+        for (ResponseFormat format : ResponseFormat.values()) {
+            ObjectMapper mapper = new ObjectMapper(format.getFactory());
+            byte[] encoded = format.encode(json);
+            long encodeNanos;
+            long decodeNanos;
+            long start;
+
+            // Warm-up, so that the measured iterations run compiled code.
+            for (int i = 0; i < FORMAT_ITERATIONS; i++) {
+                mapper.readTree(format.encode(json));
+            }
+            start = System.nanoTime();
+            for (int i = 0; i < FORMAT_ITERATIONS; i++) {
+                encoded = format.encode(json);
+            }
+            encodeNanos = (System.nanoTime() - start) / FORMAT_ITERATIONS;
+            start = System.nanoTime();
+            for (int i = 0; i < FORMAT_ITERATIONS; i++) {
+                mapper.readTree(encoded);
+            }
+            decodeNanos = (System.nanoTime() - start) / FORMAT_ITERATIONS;
+
+            System.out.printf("formats: %-5s %6d bytes (%3d %% of JSON), transcode %5d us, decode %5d us%n", format,
+                    encoded.length, encoded.length * 100 / json.length, encodeNanos / 1000, decodeNanos / 1000);
+            smaller &= encoded.length <= json.length;
+        }
+        return smaller;
+    }
+
+    /**
+     * Measures the ingest and the calculation of the key figures at ten times the real data size.
+     *
+     * @return true if all countries have been ingested
+     */
+    private static boolean benchmarkSyntheticLoad() {
+        AtomicReference<CountrySeriesStore> published = new AtomicReference<>();
+        DataSources sources = DataSources.synthetic(10 * COUNTRIES, 400, 16, 4010, new JsonObjectMapper(), published::get);
+        PrecomputeKeyFigures precompute = new PrecomputeKeyFigures(new CalculateJHKeyFigures(), new CalculateRKIKeyFigures());
+        long start = System.nanoTime();
+        long ingestMillis;
+        long incrementalMillis;
+
+        published.set(sources.getJohnHopkins().fetch().join());
+        ingestMillis = (System.nanoTime() - start) / 1000000;
+        start = System.nanoTime();
+        published.set(sources.getJohnHopkins().fetch().join());
+        incrementalMillis = (System.nanoTime() - start) / 1000000;
+        start = System.nanoTime();
+        precompute.precomputeAll(published.get(), null);
+
+        System.out.printf("synthetic: %d countries x 400 days, ingest %d ms, incremental ingest %d ms, key figures %d ms, "
+                        + "%d districts%n", 10 * COUNTRIES, ingestMillis, incrementalMillis, (System.nanoTime() - start) / 1000000,
+                sources.getRkiDistricts().fetch().join().size());
+        return published.get().size() == 10 * COUNTRIES;
+    }
+
+    /**
+     * Measures loading the snapshot file of the warm start with the series and key figures of all countries.
+     *
+     * @return true if the snapshot is loaded within the budget
+     * @throws IOException Throws an IO exception if the snapshot file can not be written or read.
+     */
+    private static boolean benchmarkSnapshotLoad() throws IOException {
+        Map<String, JHTimeSeries> seriesByCountry = new LinkedHashMap<>();
+        List<JHTimeSeries> seriesList = seriesList();
+        RKIDailyInfosTotal rkiTotal = new RKIDailyInfosTotal(57.3, 2346876);
+        RKIStateTable states = new RKIStateTable(new String[]{"09", "11"}, new String[]{"Bayern", "Berlin"},
+                new int[]{6500, 2300}, new int[]{420000, 130000}, new int[]{13100000, 3660000});
+        RKIDistrictTable districts = new RKIDistrictTable(2);
+        Path directory = Files.createTempDirectory("covid19-snapshot");
+        DatasetSnapshotFile file = new DatasetSnapshotFile(directory.resolve("dataset.bin"));
+        CountrySeriesStore store;
+        DatasetSnapshot loaded = null;
+        long loadNanos = 0;
+
+        for (int country = 0; country < COUNTRIES; country++) {
+            seriesByCountry.put(country == 0 ? "Germany" : "Country " + country, seriesList.get(country));
+        }
+        store = new CountrySeriesStore(seriesByCountry);
+        districts.set(0, "09162", "München", 9, 1488000, 60000, 1500);
+        districts.set(1, "11000", "Berlin", 11, 3660000, 130000, 2300);
+        try {
+            file.write(new DatasetSnapshot(42, 1613469600000L, store, districts.complete(2), states, rkiTotal,
+                    new PrecomputeKeyFigures(new CalculateJHKeyFigures(), new CalculateRKIKeyFigures()).precomputeAll(store, rkiTotal)));
+            for (int i = 0; i < 2 * RUNS; i++) {
+                long start = System.nanoTime();
+
+                loaded = file.read();
+                // The first runs are the warm-up.
+                if (i >= RUNS) {
+                    loadNanos += System.nanoTime() - start;
+                }
+            }
+        } finally {
+            Files.deleteIfExists(directory.resolve("dataset.bin"));
+            Files.deleteIfExists(directory);
+        }
+
+        System.out.printf("snapshot: %d countries x %d days loaded in %.2f ms%n", COUNTRIES, DAYS, loadNanos / RUNS / 1e6);
+        return loaded != null && loaded.getJHStore().size() == COUNTRIES && loadNanos / RUNS / 1000000 < SNAPSHOT_LOAD_BUDGET;
+    }
+
+    /**
+     * Creates the days of all countries as lists of daily objects, the representation before the columnar series.
+     *
+     * @return lists of all countries
+     */
+    private static List<List<JohnHDailyInfos>> lists() {
+        List<List<JohnHDailyInfos>> lists = new ArrayList<>();
+
+        for (int country = 0; country < COUNTRIES; country++) {
+            List<JohnHDailyInfos> list = new ArrayList<>();
+            for (int day = 0; day < DAYS; day++) {
+                list.add(new JohnHDailyInfos(LocalDate.ofEpochDay(18283 + day).toString(), day * 100 + country, day * 2, day * 50));
+            }
+            lists.add(list);
+        }
+        return lists;
+    }
+
+    /**
+     * Creates the days of all countries as columnar series.
+     *
+     * @return series of all countries
+     */
+    private static List<JHTimeSeries> seriesList() {
+        List<JHTimeSeries> seriesList = new ArrayList<>();
+
+        for (int country = 0; country < COUNTRIES; country++) {
+            JHTimeSeries series = new JHTimeSeries(DAYS);
+            for (int day = 0; day < DAYS; day++) {
+                series.append(18283 + day, day * 100 + country, day * 2, day * 50);
+            }
+            seriesList.add(series);
+        }
+        return seriesList;
+    }
+
+    /**
+     * Calculates the average decrease over all days of a list the way the key figures were calculated
+     * before the columnar series.
+     *
+     * @param list days of a country
+     * @return average decrease
+     */
+    private static double scanList(List<JohnHDailyInfos> list) {
+        double sum = 0;
+
+        for (int i = list.size() - DAYS + 1; i < list.size(); i++) {
+            JohnHDailyInfos day = list.get(i);
+            JohnHDailyInfos previous = list.get(i - 1);
+            sum += (double) (previous.getConfirmed() - previous.getRecovered() - previous.getDeaths())
+                    - (day.getConfirmed() - day.getRecovered() - day.getDeaths());
+        }
+        return sum / (DAYS - 1);
+    }
+
+    /**
+     * Creates a synthetic timeseries in the format of https://pomber.github.io/covid19/timeseries.json
+     * with "Germany" among the countries.
+     *
+     * @return the timeseries as UTF-8
+     */
+    private static byte[] timeseries() {
+        StringBuilder json = new StringBuilder("{");
+
+        for (int country = 0; country < COUNTRIES; country++) {
+            json.append(country == 0 ? "" : ",").append('"').append(country == COUNTRIES / 2 ? "Germany" : "Country" + country).append("\":[");
+            for (int day = 0; day < DAYS; day++) {
+                json.append(day == 0 ? "" : ",")
+                        .append("{\"date\":\"").append(LocalDate.of(2020, 1, 22).plusDays(day).format(JH_DATE))
+                        .append("\",\"confirmed\":").append(day * (100 + country))
+                        .append(",\"deaths\":").append(day * 2)
+                        .append(",\"recovered\":").append(day * (50 + country % 13)).append('}');
+            }
+            json.append(']');
+        }
+        return json.append('}').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the bytes allocated by the current thread so far.
+     *
+     * @return allocated bytes
+     */
+    private static long allocatedBytes() {
+        return THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Measures the heap retained by an object graph as the used heap after a garbage collection
+     * while the graph is reachable minus the used heap after it has been released.
+     *
+     * @param factory Creates the object graph
+     * @return retained bytes
+     */
+    private static long retainedBytes(Supplier<?> factory) {
+        Object graph = factory.get();
+        long live = usedHeapAfterGc();
+
+        Reference.reachabilityFence(graph);
+        graph = null;
+        return live - usedHeapAfterGc();
+    }
+
+    /**
+     * Reads the used heap after a few garbage collections.
+     *
+     * @return used heap in bytes
+     */
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,59 @@
+package hrw.config;
+
+import hrw.webservice.threads.RequestExecutors;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * The ThreadConfig runs the requests on virtual threads if covid19.threads.virtual=true, see RequestExecutors.
+ * The connector of the embedded Tomcat then starts a virtual thread per request instead of using its worker pool,
+ * which applies to the REST controllers and the SOAP servlet alike. Streamed responses, e.g. the daily series,
+ * run on virtual threads as well. When deployed to an external Tomcat, its connector has to be configured there.
+ * The property is read from the environment of the application, so it can be set as system property as well.
+ *
+ * @author Lars Karbach
+ * @version 1.0
+ * @since 2021-02-16
+ */
+
+@Configuration
+
+public class ThreadConfig implements WebMvcConfigurer {
+
+    /**
+     * Whether virtual threads have been enabled with the property covid19.threads.virtual
+     */
+    @Value("${covid19.threads.virtual:false}")
+    private boolean virtualThreads;
+
+    /**
+     * Replaces the worker pool of the Tomcat connector with virtual threads
+     * @return customizer of the protocol handler
+     */
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadCustomizer() {
+        return protocolHandler -> {
+            if (RequestExecutors.useVirtualThreads(virtualThreads)) {
+                protocolHandler.setExecutor(RequestExecutors.newVirtualThreadPerTaskExecutor());
+                System.out.println("Requests run on virtual threads.");
+            }
+        };
+    }
+
+    /**
+     * Runs the asynchronous parts of the requests on virtual threads
+     * @param configurer configurer of the asynchronous request processing
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        if (RequestExecutors.useVirtualThreads(virtualThreads)) {
+            configurer.setTaskExecutor(new TaskExecutorAdapter(RequestExecutors.newVirtualThreadPerTaskExecutor()));
+        }
+    }
+}
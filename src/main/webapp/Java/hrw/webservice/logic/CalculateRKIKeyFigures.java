@@ -2,6 +2,7 @@ package hrw.webservice.logic;
 
 import hrw.webservice.model.Attributes;
 import hrw.webservice.model.RKIDailyInfosTotal;
+import hrw.webservice.model.RKIStateTable;
 
 import java.util.List;
 
@@ -48,6 +49,30 @@ public class CalculateRKIKeyFigures {
         return new RKIDailyInfosTotal(incidenceGermany, sumCases);
     }
 
+    /**
+     * Pre-calculations to offset the data of the state table to total values.
+     * The table itself keeps the figures of every state.
+     *
+     * @param stateTable The RKI daily data of all states
+     * @return The RKI daily data for all of Germany. (RKIDailyInfosTotal)
+     */
+    public RKIDailyInfosTotal preCalcRkiValues(RKIStateTable stateTable) {
+        // Summation of german citizens
+        int sumCitizens = 0;
+        // Summation of cases within 7 days
+        int sumCases7Bl = 0;
+        // Summation of cases for all of Germany
+        int sumCases = 0;
+
+        for (int state = 0; state < stateTable.size(); state++) {
+            sumCases7Bl += stateTable.getCases7(state);
+            sumCitizens += stateTable.getCitizens(state);
+            sumCases += stateTable.getCases(state);
+        }
+
+        return new RKIDailyInfosTotal(calcIncidenceGermany(sumCitizens, sumCases7Bl), sumCases);
+    }
+
     /**
      * Realizes task 2.a of the task description.
      * Method calculates the incidence value for all of Germany,
@@ -1,16 +1,25 @@
 package hrw.webservice.logic;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import hrw.apicovidbot.ApiCovidBot;
 import hrw.config.SwaggerConfig;
 import hrw.webservice.mapper.JsonObjectMapper;
-import hrw.webservice.model.JohnHDailyInfos;
+import hrw.webservice.model.CountrySeriesStore;
+import hrw.webservice.model.DatasetSnapshot;
+import hrw.webservice.model.JHTimeSeries;
 import hrw.webservice.model.RKIDailyInfosTotal;
+import hrw.webservice.model.RKIDistrictTable;
+import hrw.webservice.model.RKIStateTable;
 import hrw.webservice.model.endpoint.RestEndpointModel;
 import hrw.webservice.rest.consumption.RestConsumption;
 import hrw.webservice.rest.distribution.RestDataController;
+import hrw.webservice.rest.distribution.ResponseCache;
 import hrw.webservice.rest.distribution.RestErrorController;
 import hrw.webservice.soap.SoapServiceImpl;
+import hrw.webservice.source.DataSources;
+import hrw.webservice.threads.IngestionScheduler;
 import hrw.webservice.threads.RestConsumptionThreads;
+import hrw.webservice.threads.UpdateBroadcaster;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.builder.SpringApplicationBuilder;
@@ -26,10 +35,10 @@ import org.telegram.telegrambots.starter.TelegramBotInitializer;
 
 import javax.jws.WebService;
 import javax.xml.ws.Endpoint;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.List;
-import java.util.Timer;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Covid19WebService is the main class of the web service.
@@ -50,6 +59,16 @@ import java.util.Timer;
 
 public class Covid19WebService extends SpringBootServletInitializer {
 
+    /**
+     * File of the RKI history, can be changed with the system property covid19.rki.history.
+     */
+    public static final String RKI_HISTORY_FILE = System.getProperty("covid19.rki.history", "data/rki-history.bin");
+
+    /**
+     * File of the dataset snapshot used for a warm start, can be changed with the system property covid19.snapshot.
+     */
+    public static final String SNAPSHOT_FILE = System.getProperty("covid19.snapshot", "data/dataset-snapshot.bin");
+
     /**
      * RESTConsumption is used to send requests to
      * the Robert Koch Institute and John Hopkins University within the beside thread.
@@ -57,10 +76,10 @@ public class Covid19WebService extends SpringBootServletInitializer {
     private RestConsumption restConsumption;
 
     /**
-     * The timer object is used to control the execution of the next thread to ensure
-     * regular retrieval of Robert Koch Institute and John Hopkins University data.
+     * The scheduler controls the execution of the ingest to ensure regular retrieval of
+     * Robert Koch Institute and John Hopkins University data, see IngestionScheduler.
      */
-    private Timer consumptionTimer;
+    private IngestionScheduler ingestionScheduler;
 
     /**
      * The Jackson Mapper object is used within the web service to serialize and deserialize
@@ -69,14 +88,30 @@ public class Covid19WebService extends SpringBootServletInitializer {
     private JsonObjectMapper jacksonObjMapper;
 
     /**
-     * The list includes all days since John Hopkins University records began.
+     * The currently published dataset. Ingest builds a new immutable snapshot and swaps it in atomically,
+     * so that requests read a consistent dataset without locking.
      */
-    private List<JohnHDailyInfos> jHDailyInfosList;
+    private final AtomicReference<DatasetSnapshot> dataset = new AtomicReference<>(DatasetSnapshot.EMPTY);
 
     /**
-     * Since the start of the service, the list includes the daily data of the Robert Koch Institute
+     * Pre-serialized REST responses of the current dataset, invalidated whenever a new dataset is published.
      */
-    private List<RKIDailyInfosTotal> rkiTotalData;
+    private final ResponseCache responseCache = new ResponseCache();
+
+    /**
+     * Pushes the key figures of every published dataset to the subscribers of the update stream.
+     */
+    private final UpdateBroadcaster updateBroadcaster = UpdateBroadcaster.fromSystemProperties();
+
+    /**
+     * The daily totals of the Robert Koch Institute of the last year, persisted and replayed at the start.
+     */
+    private RKIHistory rkiHistory;
+
+    /**
+     * The last published dataset is written to this file after every ingest and loaded at the start.
+     */
+    private DatasetSnapshotFile snapshotFile;
 
     /**
      * The RestController handles all the functionality of the REST API endpoints.
@@ -94,6 +129,11 @@ public class Covid19WebService extends SpringBootServletInitializer {
      */
     private CalculateJHKeyFigures calcJHKeyFigures;
 
+    /**
+     * Precompute stage that builds the key figure table of every published snapshot.
+     */
+    private PrecomputeKeyFigures precomputeKeyFigures;
+
     /**
      * The Endpoint Handler works as a middleman between the endpoints and the computations.
      */
@@ -136,14 +176,18 @@ public class Covid19WebService extends SpringBootServletInitializer {
         handler = new WebServiceEndpointHandler(this);
         restController = new RestDataController(this);
         soapService = new SoapServiceImpl(this);
-        rkiTotalData = Collections.synchronizedList(new ArrayList<>());
         calcRKIKeyFigures = new CalculateRKIKeyFigures();
         calcJHKeyFigures = new CalculateJHKeyFigures();
+        precomputeKeyFigures = new PrecomputeKeyFigures(calcJHKeyFigures, calcRKIKeyFigures);
         jacksonObjMapper = new JsonObjectMapper();
-        consumptionTimer = new Timer();
+        rkiHistory = openRkiHistory();
+        snapshotFile = new DatasetSnapshotFile(Paths.get(SNAPSHOT_FILE));
+        restoreDataset();
 
-        // Timer runs sub thread every 24 hours to update RKI and JHI data.
-        consumptionTimer.schedule(new RestConsumptionThreads(restConsumption, this), 1000, 86400000);
+        // The scheduler runs the ingest with a cadence adapted to the publication times of the institutes.
+        ingestionScheduler = IngestionScheduler.fromSystemProperties(new RestConsumptionThreads(
+                DataSources.fromSystemProperties(restConsumption, jacksonObjMapper, this::getJHStore), this)::ingest);
+        ingestionScheduler.start();
 
     }
 
@@ -200,20 +244,163 @@ public class Covid19WebService extends SpringBootServletInitializer {
      * Basic getter to returns the RKI TotalData-List Object.
      * Maintains encapsulation
      *
-     * @return List of total daily RKI information
+     * @return Copy of the daily RKI totals of the history, from the oldest to the latest
      */
     public List<RKIDailyInfosTotal> getRkiTotalData() {
-        return rkiTotalData;
+        return rkiHistory.toList();
     }
 
     /**
-     * Basic setter to set the JohnHDailyInfo List as a class variable.
-     * Maintains encapsulation
+     * Basic getter to return the history of the daily RKI totals.
+     *
+     * @return RKIHistory
+     */
+    public RKIHistory getRkiHistory() {
+        return rkiHistory;
+    }
+
+    /**
+     * Basic getter to return the cache of pre-serialized REST responses.
+     *
+     * @return ResponseCache
+     */
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Basic getter to return the broadcaster of the update stream.
+     *
+     * @return UpdateBroadcaster
+     */
+    public UpdateBroadcaster getUpdateBroadcaster() {
+        return updateBroadcaster;
+    }
+
+    /**
+     * Calculates the time of the next scheduled retrieval of the RKI and JHI data.
+     *
+     * @return time of the next retrieval in milliseconds since the epoch
+     */
+    public long getNextRefreshAt() {
+        return ingestionScheduler.getNextRunAt();
+    }
+
+    /**
+     * Basic getter to return the scheduler of the ingest.
+     *
+     * @return IngestionScheduler
+     */
+    public IngestionScheduler getIngestionScheduler() {
+        return ingestionScheduler;
+    }
+
+    /**
+     * Basic getter to return the currently published dataset.
+     * The snapshot is immutable, a request should read it once and work on that instance only.
      *
-     * @param jHDailyInfosList The current list from the John Hopkins Institute is passed as input.
+     * @return current dataset snapshot, DatasetSnapshot.EMPTY as long as nothing has been ingested
      */
-    public void setJHDailyInfosList(List<JohnHDailyInfos> jHDailyInfosList) {
-        this.jHDailyInfosList = Collections.synchronizedList(jHDailyInfosList);
+    public DatasetSnapshot getDataset() {
+        return dataset.get();
+    }
+
+    /**
+     * Publishes a new dataset snapshot. Sources that have not changed are passed as null and taken over from the
+     * previous snapshot. The key figure tables of all countries are precomputed before the snapshot becomes visible to the requests,
+     * the cached responses of the previous snapshot are discarded right after the swap and the responses of the
+     * federal states and districts are rendered once for the new snapshot. The key figures are pushed to the
+     * subscribers of the update stream. Finally the snapshot is written to the snapshot file for the next start.
+     *
+     * @param jHStore      The new series of all countries from the John Hopkins Institute or null if unchanged
+     * @param rkiStates    The new data per federal state of the Robert Koch Institute or null if unchanged
+     * @param rkiDistricts The new completed data per district of the Robert Koch Institute or null if unchanged
+     * @return the published snapshot
+     */
+    public synchronized DatasetSnapshot publishDataset(CountrySeriesStore jHStore, RKIStateTable rkiStates,
+                                                       RKIDistrictTable rkiDistricts) {
+        DatasetSnapshot previous = dataset.get();
+        CountrySeriesStore store = jHStore != null ? jHStore : previous.getJHStore();
+        RKIDistrictTable districts = rkiDistricts != null ? rkiDistricts : previous.getRkiDistricts();
+        RKIStateTable states = rkiStates != null ? rkiStates : previous.getRkiStates();
+        RKIDailyInfosTotal rkiTotal = rkiStates != null ? calcRKIKeyFigures.preCalcRkiValues(rkiStates) : previous.getRkiTotal();
+        DatasetSnapshot next = new DatasetSnapshot(previous.getVersion() + 1, System.currentTimeMillis(), store, districts,
+                states, rkiTotal, precomputeKeyFigures.precomputeAll(store, rkiTotal));
+
+        if (rkiStates != null) {
+            try {
+                rkiHistory.append(next.getPublishedAt(), rkiTotal);
+            } catch (IOException ioException) {
+                System.out.println("An exception occurred when trying to persist the RKI history! " + ioException);
+            }
+        }
+        dataset.set(next);
+        responseCache.invalidate(next.getVersion(), next.getPublishedAt());
+        restController.precomputeRegionResponses();
+        pushDataset(next);
+        try {
+            snapshotFile.write(next);
+        } catch (IOException ioException) {
+            System.out.println("An exception occurred when trying to write the dataset snapshot! " + ioException);
+        }
+
+        return next;
+    }
+
+    /**
+     * Opens the RKI history file. If the file can not be opened, the history is only held in memory.
+     *
+     * @return the history
+     */
+    private RKIHistory openRkiHistory() {
+        try {
+            return new RKIHistory(Paths.get(RKI_HISTORY_FILE), RKIHistory.DEFAULT_CAPACITY);
+        } catch (IOException ioException) {
+            System.out.println("RKI history " + RKI_HISTORY_FILE + " can not be opened, it is only held in memory! " + ioException);
+            return new RKIHistory(RKIHistory.DEFAULT_CAPACITY);
+        }
+    }
+
+    /**
+     * Publishes the dataset of the snapshot file, so that all endpoints can be answered right after the start,
+     * before the first retrieval has finished. Without a snapshot file, the latest total of the replayed RKI history
+     * is published, so that at least the RKI figures are available.
+     */
+    private synchronized void restoreDataset() {
+        DatasetSnapshot restored = null;
+        RKIDailyInfosTotal rkiTotal = rkiHistory.getLatest();
+
+        try {
+            restored = snapshotFile.read();
+        } catch (IOException ioException) {
+            System.out.println("The dataset snapshot can not be loaded, the service starts without it! " + ioException);
+        }
+        if (restored == null && rkiTotal != null) {
+            restored = new DatasetSnapshot(dataset.get().getVersion() + 1, rkiHistory.getRecordedAt(rkiHistory.size() - 1),
+                    CountrySeriesStore.EMPTY, RKIDistrictTable.EMPTY, RKIStateTable.EMPTY, rkiTotal,
+                    precomputeKeyFigures.precomputeAll(CountrySeriesStore.EMPTY, rkiTotal));
+        }
+        if (restored == null) {
+            return;
+        }
+        dataset.set(restored);
+        responseCache.invalidate(restored.getVersion(), restored.getPublishedAt());
+        restController.precomputeRegionResponses();
+        pushDataset(restored);
+    }
+
+    /**
+     * Pushes the key figures of a published dataset to the subscribers of the update stream.
+     * The event is rendered once and sent to all subscribers.
+     *
+     * @param snapshot The snapshot that has just been published
+     */
+    private void pushDataset(DatasetSnapshot snapshot) {
+        try {
+            updateBroadcaster.publish(snapshot.getVersion(), handler.generateUpdate(snapshot));
+        } catch (JsonProcessingException | GenerateException exception) {
+            System.out.println("An exception occurred when trying to push the dataset! " + exception);
+        }
     }
 
     /**
@@ -236,13 +423,23 @@ public class Covid19WebService extends SpringBootServletInitializer {
     }
 
     /**
-     * Basic getter to returns the JHDailyInfoList.
+     * Basic getter to returns the John Hopkins series of the default country of the current dataset.
+     * Maintains encapsulation
+     *
+     * @return Series of total daily Johns Hopkins information
+     */
+    public JHTimeSeries getJHSeries() {
+        return dataset.get().getJHSeries();
+    }
+
+    /**
+     * Basic getter to returns the John Hopkins series of all countries of the current dataset.
      * Maintains encapsulation
      *
-     * @return List of total daily Johns Hopkins information
+     * @return Store of the series of all countries
      */
-    public List<JohnHDailyInfos> getJHDailyInfosList() {
-        return jHDailyInfosList;
+    public CountrySeriesStore getJHStore() {
+        return dataset.get().getJHStore();
     }
 
     /**
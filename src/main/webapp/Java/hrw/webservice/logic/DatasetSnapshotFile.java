@@ -0,0 +1,438 @@
+package hrw.webservice.logic;
+
+import hrw.webservice.model.CountrySeriesStore;
+import hrw.webservice.model.DatasetSnapshot;
+import hrw.webservice.model.JHTimeSeries;
+import hrw.webservice.model.KeyFigureTable;
+import hrw.webservice.model.RKIDailyInfosTotal;
+import hrw.webservice.model.RKIDistrictTable;
+import hrw.webservice.model.RKIStateTable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary file of the last published dataset snapshot, used for a warm start of the service.
+ * The file holds the John Hopkins series of all countries as raw columns, the RKI data of the states and districts,
+ * the RKI daily total and the precomputed key figure tables. It is written after every ingest and memory-mapped at
+ * startup, so the service answers with the last dataset before the first retrieval has finished.
+ * The file is written to a temporary file of its own next to the old one and moved over it, so services sharing the
+ * file never write into the same temporary file. A CRC32 at the end detects incomplete files.
+ *
+ * @author Lars Karbach
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class DatasetSnapshotFile {
+
+    /**
+     * Magic number at the start of the file, "C19S".
+     */
+    private static final int MAGIC = 0x43313953;
+
+    /**
+     * Version of the file format, files of other versions are ignored.
+     */
+    private static final int FORMAT_VERSION = 2;
+
+    /**
+     * The snapshot file
+     */
+    private final Path file;
+
+    /**
+     * Constructor of the snapshot file.
+     *
+     * @param file path of the snapshot file
+     */
+    public DatasetSnapshotFile(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Writes the snapshot to the file. The file is only replaced once the new snapshot has been forced to disk.
+     *
+     * @param snapshot the published snapshot
+     * @throws IOException Throws an IO exception if the file can not be written.
+     */
+    public void write(DatasetSnapshot snapshot) throws IOException {
+        long start = System.nanoTime();
+        Path directory = file.toAbsolutePath().getParent();
+        Path written;
+        CRC32 crc = new CRC32();
+
+        Files.createDirectories(directory);
+        written = Files.createTempFile(directory, file.getFileName() + ".", ".tmp");
+        try {
+            try (FileOutputStream fileOut = new FileOutputStream(written.toFile());
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(fileOut, crc), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(snapshot.getVersion());
+                out.writeLong(snapshot.getPublishedAt());
+                writeSeries(out, snapshot.getJHStore());
+                writeTotal(out, snapshot.getRkiTotal());
+                writeStates(out, snapshot.getRkiStates());
+                writeDistricts(out, snapshot.getRkiDistricts());
+                writeKeyFigures(out, snapshot);
+                out.flush();
+                // The checksum itself is not part of the checksum, it is written behind the checked stream.
+                new DataOutputStream(fileOut).writeInt((int) crc.getValue());
+                fileOut.getChannel().force(false);
+            }
+            Files.move(written, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(written);
+        }
+
+        System.out.println("Dataset snapshot " + snapshot.getVersion() + " written to " + file + ": "
+                + Files.size(file) / 1024 + " KB, " + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+
+    /**
+     * Reads the snapshot from the file. The file is memory-mapped and the columns are copied in bulk.
+     *
+     * @return the snapshot, null if there is no file
+     * @throws IOException Throws an IO exception if the file can not be read, is incomplete or has another format.
+     */
+    public DatasetSnapshot read() throws IOException {
+        long start = System.nanoTime();
+        MappedByteBuffer buffer;
+        CRC32 crc = new CRC32();
+        DatasetSnapshot snapshot;
+
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < 4 * Integer.BYTES) {
+                throw new IOException("Dataset snapshot " + file + " is incomplete!");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        crc.update(buffer.duplicate().limit(buffer.capacity() - Integer.BYTES));
+        if ((int) crc.getValue() != buffer.getInt(buffer.capacity() - Integer.BYTES)) {
+            throw new IOException("Dataset snapshot " + file + " has an invalid checksum!");
+        }
+        if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+            throw new IOException("Dataset snapshot " + file + " has an unknown format!");
+        }
+        try {
+            long version = buffer.getLong();
+            long publishedAt = buffer.getLong();
+            CountrySeriesStore store = readSeries(buffer);
+            RKIDailyInfosTotal rkiTotal = readTotal(buffer);
+            RKIStateTable states = readStates(buffer);
+            RKIDistrictTable districts = readDistricts(buffer);
+
+            snapshot = new DatasetSnapshot(version, publishedAt, store, districts, states, rkiTotal, readKeyFigures(buffer));
+        } catch (RuntimeException exception) {
+            throw new IOException("Dataset snapshot " + file + " can not be decoded!", exception);
+        }
+
+        System.out.println("Dataset snapshot " + snapshot.getVersion() + " loaded from " + file + ": "
+                + snapshot.getJHStore().size() + " countries, " + (System.nanoTime() - start) / 1000000 + " ms");
+        return snapshot;
+    }
+
+    /**
+     * Writes the John Hopkins series of all countries, every series as four columns.
+     *
+     * @param out   output of the file
+     * @param store series of all countries
+     * @throws IOException Throws an IO exception if the file can not be written.
+     */
+    private void writeSeries(DataOutputStream out, CountrySeriesStore store) throws IOException {
+        out.writeInt(store.size());
+        for (Map.Entry<String, JHTimeSeries> entry : store.getSeriesByCountry().entrySet()) {
+            JHTimeSeries series = entry.getValue();
+
+            writeString(out, entry.getKey());
+            out.writeInt(series.size());
+            for (int day = 0; day < series.size(); day++) {
+                out.writeInt(series.getEpochDay(day));
+            }
+            for (int day = 0; day < series.size(); day++) {
+                out.writeInt(series.getConfirmed(day));
+            }
+            for (int day = 0; day < series.size(); day++) {
+                out.writeInt(series.getDeaths(day));
+            }
+            for (int day = 0; day < series.size(); day++) {
+                out.writeInt(series.getRecovered(day));
+            }
+        }
+    }
+
+    /**
+     * Reads the John Hopkins series of all countries.
+     *
+     * @param buffer mapped file
+     * @return series of all countries
+     */
+    private CountrySeriesStore readSeries(ByteBuffer buffer) {
+        int countries = buffer.getInt();
+        Map<String, JHTimeSeries> seriesByCountry = new LinkedHashMap<>(countries * 2);
+
+        for (int country = 0; country < countries; country++) {
+            String name = readString(buffer);
+            int days = buffer.getInt();
+            int[] epochDays = readInts(buffer, days);
+            int[] confirmed = readInts(buffer, days);
+            int[] deaths = readInts(buffer, days);
+            int[] recovered = readInts(buffer, days);
+            JHTimeSeries series = new JHTimeSeries(days);
+
+            for (int day = 0; day < days; day++) {
+                series.append(epochDays[day], confirmed[day], deaths[day], recovered[day]);
+            }
+            seriesByCountry.put(name, series);
+        }
+        return new CountrySeriesStore(seriesByCountry);
+    }
+
+    /**
+     * Writes the RKI daily total.
+     *
+     * @param out      output of the file
+     * @param rkiTotal daily total, may be null
+     * @throws IOException Throws an IO exception if the file can not be written.
+     */
+    private void writeTotal(DataOutputStream out, RKIDailyInfosTotal rkiTotal) throws IOException {
+        out.writeBoolean(rkiTotal != null);
+        if (rkiTotal != null) {
+            out.writeDouble(rkiTotal.getIncidenceGermany());
+            out.writeInt(rkiTotal.getSumCases());
+        }
+    }
+
+    /**
+     * Reads the RKI daily total.
+     *
+     * @param buffer mapped file
+     * @return daily total, null if none has been written
+     */
+    private RKIDailyInfosTotal readTotal(ByteBuffer buffer) {
+        if (buffer.get() == 0) {
+            return null;
+        }
+        return new RKIDailyInfosTotal(buffer.getDouble(), buffer.getInt());
+    }
+
+    /**
+     * Writes the RKI data of the federal states.
+     *
+     * @param out    output of the file
+     * @param states state table
+     * @throws IOException Throws an IO exception if the file can not be written.
+     */
+    private void writeStates(DataOutputStream out, RKIStateTable states) throws IOException {
+        out.writeInt(states.size());
+        for (int state = 0; state < states.size(); state++) {
+            writeString(out, states.getId(state));
+            writeString(out, states.getName(state));
+            out.writeInt(states.getCases7(state));
+            out.writeInt(states.getCases(state));
+            out.writeInt(states.getCitizens(state));
+        }
+    }
+
+    /**
+     * Reads the RKI data of the federal states.
+     *
+     * @param buffer mapped file
+     * @return state table
+     */
+    private RKIStateTable readStates(ByteBuffer buffer) {
+        int size = buffer.getInt();
+        String[] ids = new String[size];
+        String[] names = new String[size];
+        int[] cases7 = new int[size];
+        int[] cases = new int[size];
+        int[] citizens = new int[size];
+
+        for (int state = 0; state < size; state++) {
+            ids[state] = readString(buffer);
+            names[state] = readString(buffer);
+            cases7[state] = buffer.getInt();
+            cases[state] = buffer.getInt();
+            citizens[state] = buffer.getInt();
+        }
+        return size == 0 ? RKIStateTable.EMPTY : new RKIStateTable(ids, names, cases7, cases, citizens);
+    }
+
+    /**
+     * Writes the RKI data of the districts.
+     *
+     * @param out       output of the file
+     * @param districts district table
+     * @throws IOException Throws an IO exception if the file can not be written.
+     */
+    private void writeDistricts(DataOutputStream out, RKIDistrictTable districts) throws IOException {
+        out.writeInt(districts.size());
+        for (int row = 0; row < districts.size(); row++) {
+            writeString(out, districts.getId(row));
+            writeString(out, districts.getName(row));
+            out.writeInt(districts.getStateId(row));
+            out.writeInt(districts.getCitizens(row));
+            out.writeInt(districts.getCases(row));
+            out.writeInt(districts.getCases7(row));
+        }
+    }
+
+    /**
+     * Reads the RKI data of the districts. Incidence, ranking and index are rebuilt by completing the table.
+     *
+     * @param buffer mapped file
+     * @return completed district table
+     */
+    private RKIDistrictTable readDistricts(ByteBuffer buffer) {
+        int size = buffer.getInt();
+        RKIDistrictTable districts = new RKIDistrictTable(size);
+
+        if (size == 0) {
+            return RKIDistrictTable.EMPTY;
+        }
+        for (int row = 0; row < size; row++) {
+            districts.set(row, readString(buffer), readString(buffer), buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt());
+        }
+        return districts.complete(size);
+    }
+
+    /**
+     * Writes the precomputed key figure tables of all countries.
+     *
+     * @param out      output of the file
+     * @param snapshot the published snapshot
+     * @throws IOException Throws an IO exception if the file can not be written.
+     */
+    private void writeKeyFigures(DataOutputStream out, DatasetSnapshot snapshot) throws IOException {
+        Map<String, KeyFigureTable> keyFigures = snapshot.getAllKeyFigures();
+
+        out.writeInt(keyFigures.size());
+        for (Map.Entry<String, KeyFigureTable> entry : keyFigures.entrySet()) {
+            KeyFigureTable table = entry.getValue();
+
+            writeString(out, entry.getKey());
+            out.writeBoolean(table.isJohnHopkinsAvailable());
+            if (table.isJohnHopkinsAvailable()) {
+                out.writeInt(table.getNewInf24H());
+                out.writeInt(table.getTrueInfected());
+                out.writeInt(table.getRaisedInf24H());
+                out.writeInt(table.getMaxDays() + 1);
+                out.writeDouble(0);
+                for (int days = 1; days <= table.getMaxDays(); days++) {
+                    out.writeDouble(table.getAverageRaise(days));
+                }
+            }
+            out.writeBoolean(table.isRkiAvailable());
+            if (table.isRkiAvailable()) {
+                out.writeDouble(table.getIncidence());
+            }
+            out.writeBoolean(table.isTargetInfectionAvailable());
+            out.writeDouble(table.isTargetInfectionAvailable() ? table.getTargetInfection() : 0);
+            out.writeBoolean(table.isRemainingLockdownAvailable());
+            out.writeDouble(table.isRemainingLockdownAvailable() ? table.getRemainingLockdown() : 0);
+        }
+    }
+
+    /**
+     * Reads the precomputed key figure tables of all countries.
+     *
+     * @param buffer mapped file
+     * @return unmodifiable map of the key figure tables by country name
+     */
+    private Map<String, KeyFigureTable> readKeyFigures(ByteBuffer buffer) {
+        int countries = buffer.getInt();
+        Map<String, KeyFigureTable> keyFigures = new LinkedHashMap<>(countries * 2);
+
+        for (int country = 0; country < countries; country++) {
+            String name = readString(buffer);
+            boolean johnHopkinsAvailable = buffer.get() != 0;
+            int newInf24H = 0;
+            int trueInfected = 0;
+            int raisedInf24H = 0;
+            double[] averageRaise = new double[0];
+            boolean rkiAvailable;
+            double incidence = 0;
+            boolean targetInfectionAvailable;
+            double targetInfection;
+
+            if (johnHopkinsAvailable) {
+                newInf24H = buffer.getInt();
+                trueInfected = buffer.getInt();
+                raisedInf24H = buffer.getInt();
+                averageRaise = new double[buffer.getInt()];
+                buffer.asDoubleBuffer().get(averageRaise);
+                buffer.position(buffer.position() + averageRaise.length * Double.BYTES);
+            }
+            rkiAvailable = buffer.get() != 0;
+            if (rkiAvailable) {
+                incidence = buffer.getDouble();
+            }
+            targetInfectionAvailable = buffer.get() != 0;
+            targetInfection = buffer.getDouble();
+            keyFigures.put(name, new KeyFigureTable(johnHopkinsAvailable, newInf24H, trueInfected, raisedInf24H,
+                    averageRaise, rkiAvailable, incidence, targetInfectionAvailable, targetInfection,
+                    buffer.get() != 0, buffer.getDouble()));
+        }
+        return Collections.unmodifiableMap(keyFigures);
+    }
+
+    /**
+     * Copies a column of ints from the mapped file in bulk.
+     *
+     * @param buffer mapped file
+     * @param size   number of ints
+     * @return the column
+     */
+    private int[] readInts(ByteBuffer buffer, int size) {
+        int[] column = new int[size];
+
+        buffer.asIntBuffer().get(column);
+        buffer.position(buffer.position() + size * Integer.BYTES);
+        return column;
+    }
+
+    /**
+     * Writes a string as UTF-8 with its length in bytes.
+     *
+     * @param out    output of the file
+     * @param string the string, at most 65535 bytes long
+     * @throws IOException Throws an IO exception if the file can not be written.
+     */
+    private void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by writeString.
+     *
+     * @param buffer mapped file
+     * @return the string
+     */
+    private String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
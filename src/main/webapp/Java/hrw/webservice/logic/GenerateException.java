@@ -0,0 +1,23 @@
+package hrw.webservice.logic;
+
+/**
+ * Signals that the WebServiceEndpointHandler could not generate a response, e.g. because the data has not been
+ * ingested yet. The message is the message of the error response. The endpoints answer with an error response
+ * instead, which is neither cached nor sent with validators.
+ *
+ * @author Lars Karbach
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class GenerateException extends RuntimeException {
+
+    /**
+     * Constructor of the exception
+     *
+     * @param method Name of the handler method that failed
+     * @param cause  The exception that occurred while generating the response
+     */
+    public GenerateException(String method, Throwable cause) {
+        super("A generic error occurred on the server, in Method " + method + "!", cause);
+    }
+}
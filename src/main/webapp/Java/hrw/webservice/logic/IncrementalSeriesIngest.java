@@ -0,0 +1,187 @@
+package hrw.webservice.logic;
+
+import hrw.webservice.mapper.JsonObjectMapper;
+import hrw.webservice.model.CountrySeriesStore;
+import hrw.webservice.model.JHTimeSeries;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Class ingests the John Hopkins timeseries of all countries incrementally.
+ * Historic days never change, so only the days after the last ingested day are decoded and appended to the existing
+ * series. Upstream revisions of the most recent days are patched by decoding a small trailing window again.
+ * All countries are decoded in a single pass over the timeseries. If the series of any country can not be aligned
+ * with the new data, the whole store is rebuilt.
+ *
+ * @author Lars Karbach
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class IncrementalSeriesIngest {
+
+    /**
+     * Number of trailing days that are decoded again on every ingest to take over upstream revisions.
+     */
+    public static final int REVISION_WINDOW = 14;
+
+    /**
+     * The Jackson Mapper object is used to stream the timeseries.
+     */
+    private final JsonObjectMapper jacksonObjMapper;
+
+    /**
+     * Date of the last ingested day, null as long as nothing has been ingested.
+     */
+    private String lastIngestedDate;
+
+    /**
+     * Constructor to create an incremental ingest.
+     *
+     * @param jacksonObjMapper Mapper used to stream the timeseries
+     */
+    public IncrementalSeriesIngest(JsonObjectMapper jacksonObjMapper) {
+        this.jacksonObjMapper = jacksonObjMapper;
+    }
+
+    /**
+     * Merges the timeseries payload into the current store. Only the days of the revision window and the new days
+     * are decoded, all older days are taken over from the current series of the countries.
+     *
+     * @param currentStore The currently published store, may be null if nothing has been ingested yet.
+     *                     The store is not modified.
+     * @param payload      The John Hopkins timeseries JSON
+     * @return A new store holding all days of all countries
+     * @throws IOException Throws an IO exception if an error occurs while reading the JSON stream.
+     */
+    public CountrySeriesStore ingest(CountrySeriesStore currentStore, byte[] payload) throws IOException {
+        long start = System.nanoTime();
+        Map<String, Integer> skipDays = new HashMap<>();
+        Map<String, JHTimeSeries> tails;
+        Map<String, JHTimeSeries> merged = new LinkedHashMap<>();
+        int newDays = 0;
+        int revisedDays = 0;
+
+        if (currentStore == null || currentStore.size() == 0) {
+            return rebuild(payload, start);
+        }
+        for (Map.Entry<String, JHTimeSeries> entry : currentStore.getSeriesByCountry().entrySet()) {
+            if (entry.getValue().size() > REVISION_WINDOW) {
+                skipDays.put(entry.getKey(), entry.getValue().size() - REVISION_WINDOW);
+            }
+        }
+        tails = jacksonObjMapper.getAllCountrySeriesFromInputStream(new ByteArrayInputStream(payload), skipDays);
+
+        for (Map.Entry<String, JHTimeSeries> entry : tails.entrySet()) {
+            JHTimeSeries current = currentStore.get(entry.getKey());
+            JHTimeSeries tail = entry.getValue();
+            Integer skip = skipDays.get(entry.getKey());
+
+            if (skip == null) {
+                // New or short series have been decoded completely.
+                merged.put(entry.getKey(), tail);
+                continue;
+            }
+            // The tail has to start at the same day as the revision window, otherwise upstream has reshaped the series.
+            if (tail.size() < REVISION_WINDOW || tail.getEpochDay(0) != current.getEpochDay(skip)) {
+                System.out.println("John Hopkins series of " + entry.getKey() + " can not be aligned.");
+                return rebuild(payload, start);
+            }
+            for (int i = 0; i < REVISION_WINDOW; i++) {
+                if (isRevised(current, skip + i, tail, i)) {
+                    revisedDays++;
+                }
+            }
+            newDays += tail.size() - REVISION_WINDOW;
+            merged.put(entry.getKey(), merge(current, skip, tail));
+        }
+        lastIngestedDate = findLastDate(merged);
+
+        System.out.println("John Hopkins series of " + merged.size() + " countries: " + newDays + " new days, "
+                + revisedDays + " revised days, last day " + lastIngestedDate + ", "
+                + (System.nanoTime() - start) / 1000000 + " ms");
+
+        return new CountrySeriesStore(merged);
+    }
+
+    /**
+     * Basic getter to return the date of the last ingested day.
+     *
+     * @return date of the last ingested day of all countries, null if nothing has been ingested yet
+     */
+    public String getLastIngestedDate() {
+        return lastIngestedDate;
+    }
+
+    /**
+     * Decodes the complete series of all countries.
+     *
+     * @param payload The John Hopkins timeseries JSON
+     * @param start   Start of the ingest as System.nanoTime()
+     * @return A new store holding all days of all countries
+     * @throws IOException Throws an IO exception if an error occurs while reading the JSON stream.
+     */
+    private CountrySeriesStore rebuild(byte[] payload, long start) throws IOException {
+        CountrySeriesStore store = new CountrySeriesStore(
+                jacksonObjMapper.getAllCountrySeriesFromInputStream(new ByteArrayInputStream(payload), new HashMap<>()));
+
+        lastIngestedDate = findLastDate(store.getSeriesByCountry());
+        System.out.println("John Hopkins series of " + store.size() + " countries rebuilt: " + store.getTotalDays()
+                + " days, last day " + lastIngestedDate + ", " + (System.nanoTime() - start) / 1000000 + " ms");
+
+        return store;
+    }
+
+    /**
+     * Creates a new series from the historic days of the current series and the decoded tail.
+     *
+     * @param current The series as currently published
+     * @param skip    Number of historic days that are taken over
+     * @param tail    The decoded days from the revision window on
+     * @return new series
+     */
+    private JHTimeSeries merge(JHTimeSeries current, int skip, JHTimeSeries tail) {
+        JHTimeSeries series = current.copyOf(skip, skip + tail.size());
+
+        for (int i = 0; i < tail.size(); i++) {
+            series.append(tail.getEpochDay(i), tail.getConfirmed(i), tail.getDeaths(i), tail.getRecovered(i));
+        }
+        return series;
+    }
+
+    /**
+     * Finds the date of the latest day of all countries.
+     *
+     * @param seriesByCountry The series of all countries
+     * @return date of the latest day, null if no series contains a day
+     */
+    private String findLastDate(Map<String, JHTimeSeries> seriesByCountry) {
+        JHTimeSeries latest = null;
+
+        for (JHTimeSeries series : seriesByCountry.values()) {
+            if (series.size() > 0 && (latest == null
+                    || series.getEpochDay(series.size() - 1) > latest.getEpochDay(latest.size() - 1))) {
+                latest = series;
+            }
+        }
+        return latest == null ? null : latest.getDate(latest.size() - 1);
+    }
+
+    /**
+     * Checks whether upstream has revised the figures of a day.
+     *
+     * @param current    The series as currently published
+     * @param currentDay Index of the day within the published series
+     * @param update     The series decoded from the new data
+     * @param updateDay  Index of the day within the new series
+     * @return true if any figure differs
+     */
+    private boolean isRevised(JHTimeSeries current, int currentDay, JHTimeSeries update, int updateDay) {
+        return current.getConfirmed(currentDay) != update.getConfirmed(updateDay)
+                || current.getDeaths(currentDay) != update.getDeaths(updateDay)
+                || current.getRecovered(currentDay) != update.getRecovered(updateDay);
+    }
+}
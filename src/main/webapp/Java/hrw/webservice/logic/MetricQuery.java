@@ -0,0 +1,351 @@
+package hrw.webservice.logic;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import hrw.webservice.model.DatasetSnapshot;
+import hrw.webservice.model.KeyFigureTable;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Validated list of the metrics requested from the batch endpoint.
+ * A metric is named like the property of the single value endpoints, e.g. "newInfections24H". The average raise
+ * takes the number of days after a colon, e.g. "averageRaise:7", so one query may request several windows.
+ * All metrics of a query are looked up in the key figure table of one dataset snapshot, so they stem from the
+ * same ingest and the client needs a single round-trip for a whole view.
+ *
+ * @author Lars Karbach
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public final class MetricQuery {
+
+    /**
+     * Largest number of metrics of one query.
+     */
+    public static final int MAX_METRICS = 32;
+
+    /**
+     * Metrics that can be requested, each named like the property of the single value endpoints.
+     */
+    public enum Metric {
+        NEW_INFECTIONS_24H("newInfections24H", false),
+        TOTAL_INFECTIONS("totalInfections", false),
+        RAISED_INFECTIONS("raisedInfections", false),
+        AVERAGE_RAISE("averageRaise", false),
+        INCIDENCE("incidence", true),
+        TARGET_INFECTION("targetInfection", true),
+        REMAINING_LOCKDOWN("remainingLockdown", true);
+
+        /**
+         * Name of the metric within a query and a response
+         */
+        private final String name;
+
+        /**
+         * Whether the metric is a figure of the Robert Koch Institute
+         */
+        private final boolean rki;
+
+        /**
+         * Constructor of a metric
+         *
+         * @param name Name of the metric within a query and a response
+         * @param rki  Whether the metric is a figure of the Robert Koch Institute
+         */
+        Metric(String name, boolean rki) {
+            this.name = name;
+            this.rki = rki;
+        }
+
+        /**
+         * Basic getter to return the name
+         *
+         * @return name of the metric within a query and a response
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Checks whether the metric is a figure of the Robert Koch Institute, which only exist for Germany
+         *
+         * @return true for the incidence, the target infection and the remaining lockdown
+         */
+        public boolean isRki() {
+            return rki;
+        }
+
+        /**
+         * Looks up a metric by its name.
+         *
+         * @param name Name of the metric
+         * @return the metric, null if the name is unknown
+         */
+        public static Metric byName(String name) {
+            for (Metric metric : values()) {
+                if (metric.name.equals(name)) {
+                    return metric;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Requested metrics in the order of the query, without duplicates
+     */
+    private final List<String> specs;
+
+    /**
+     * Metric of every spec
+     */
+    private final Metric[] metrics;
+
+    /**
+     * Number of days of every spec, 0 for metrics without a window
+     */
+    private final int[] days;
+
+    /**
+     * Constructor of a query, see parse.
+     *
+     * @param specs   Requested metrics without duplicates
+     * @param metrics Metric of every spec
+     * @param days    Number of days of every spec
+     */
+    private MetricQuery(List<String> specs, Metric[] metrics, int[] days) {
+        this.specs = Collections.unmodifiableList(specs);
+        this.metrics = metrics;
+        this.days = days;
+    }
+
+    /**
+     * Parses and validates the requested metrics. Blank entries are ignored, repeated metrics are answered once.
+     *
+     * @param specs Requested metrics, e.g. ["newInfections24H", "averageRaise:7", "averageRaise:14"]
+     * @return validated query
+     * @throws IllegalArgumentException if no metric, too many metrics or an unknown metric is requested, or if
+     *                                  the number of days of the average raise is missing or not positive
+     */
+    public static MetricQuery parse(List<String> specs) {
+        Set<String> unique = new LinkedHashSet<>();
+        Metric[] metrics;
+        int[] days;
+        int i = 0;
+
+        if (specs != null) {
+            for (String spec : specs) {
+                if (spec != null && !spec.trim().isEmpty()) {
+                    unique.add(spec.trim());
+                }
+            }
+        }
+        if (unique.isEmpty()) {
+            throw new IllegalArgumentException("At least one metric has to be requested");
+        } else if (unique.size() > MAX_METRICS) {
+            throw new IllegalArgumentException("At most " + MAX_METRICS + " metrics can be requested at once");
+        }
+        metrics = new Metric[unique.size()];
+        days = new int[unique.size()];
+
+        for (String spec : unique) {
+            int colon = spec.indexOf(':');
+            Metric metric = Metric.byName(colon < 0 ? spec : spec.substring(0, colon));
+
+            if (metric == null) {
+                throw new IllegalArgumentException("Unknown metric " + spec);
+            } else if (metric == Metric.AVERAGE_RAISE) {
+                days[i] = parseDays(spec, colon);
+            } else if (colon >= 0) {
+                throw new IllegalArgumentException("The metric " + metric.getName() + " takes no parameter");
+            }
+            metrics[i++] = metric;
+        }
+        return new MetricQuery(new ArrayList<>(unique), metrics, days);
+    }
+
+    /**
+     * Parses the number of days of an average raise.
+     *
+     * @param spec  Requested metric, e.g. "averageRaise:7"
+     * @param colon Index of the colon within the spec, -1 if there is none
+     * @return number of days, at least 1
+     * @throws IllegalArgumentException if the number of days is missing or not positive
+     */
+    private static int parseDays(String spec, int colon) {
+        int days;
+
+        try {
+            days = colon < 0 ? 0 : Integer.parseInt(spec.substring(colon + 1));
+        } catch (NumberFormatException exception) {
+            days = 0;
+        }
+        if (days < 1) {
+            throw new IllegalArgumentException("The metric " + spec + " needs a positive number of days, e.g. averageRaise:7");
+        }
+        return days;
+    }
+
+    /**
+     * Basic getter to return the requested metrics
+     *
+     * @return unmodifiable list of the requested metrics in the order of the query, without duplicates
+     */
+    public List<String> getSpecs() {
+        return specs;
+    }
+
+    /**
+     * Checks whether the query contains a figure of the Robert Koch Institute.
+     *
+     * @return true if any metric only exists for Germany
+     */
+    public boolean requiresRki() {
+        for (Metric metric : metrics) {
+            if (metric.isRki()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the largest number of days of all average raises of the query.
+     *
+     * @return largest window, 0 if the query contains no average raise
+     */
+    public int getMaxDays() {
+        int max = 0;
+
+        for (int window : days) {
+            max = Math.max(max, window);
+        }
+        return max;
+    }
+
+    /**
+     * Returns the metrics in a canonical form, e.g. for cache keys and ETags.
+     *
+     * @return the requested metrics separated by commas
+     */
+    public String getKey() {
+        return String.join(",", specs);
+    }
+
+    /**
+     * Writes the requested metrics of a country as one JSON object. All figures are looked up in the passed
+     * snapshot, so they stem from the same ingest.
+     * The response is {"country":..., "publishedAt":..., "metrics":{"newInfections24H":..., "averageRaise:7":...}}.
+     *
+     * @param factory Factory of the JSON generator
+     * @param country Name of the country as used by John Hopkins University, e.g. "Germany"
+     * @param dataset The published dataset snapshot
+     * @return Returns a JSON string containing the requested metrics. (String)
+     * @throws IOException              Throws an IO exception if an error occurs while writing the JSON.
+     * @throws IllegalStateException    if the data of a requested metric has not been ingested yet
+     * @throws IndexOutOfBoundsException if an average raise window exceeds the series of the country
+     */
+    public String render(JsonFactory factory, String country, DatasetSnapshot dataset) throws IOException {
+        return render(factory, country, dataset, false);
+    }
+
+    /**
+     * Writes the requested metrics of a country as one JSON object, see render. Metrics that are not available in
+     * the snapshot are either left out or rejected.
+     *
+     * @param factory         Factory of the JSON generator
+     * @param country         Name of the country as used by John Hopkins University, e.g. "Germany"
+     * @param dataset         The published dataset snapshot
+     * @param skipUnavailable Whether metrics that are not available are left out instead of rejected
+     * @return Returns a JSON string containing the requested metrics. (String)
+     * @throws IOException              Throws an IO exception if an error occurs while writing the JSON.
+     * @throws IllegalStateException    if the data of a requested metric has not been ingested yet
+     * @throws IndexOutOfBoundsException if an average raise window exceeds the series of the country
+     */
+    public String render(JsonFactory factory, String country, DatasetSnapshot dataset, boolean skipUnavailable) throws IOException {
+        KeyFigureTable keyFigures = dataset.getKeyFigures(country);
+        StringWriter writer = new StringWriter(64 + 32 * specs.size());
+
+        try (JsonGenerator generator = factory.createGenerator(writer)) {
+            generator.writeStartObject();
+            generator.writeStringField("country", country);
+            generator.writeNumberField("publishedAt", dataset.getPublishedAt());
+            generator.writeObjectFieldStart("metrics");
+            for (int i = 0; i < metrics.length; i++) {
+                if (skipUnavailable && !isAvailable(keyFigures, metrics[i], days[i])) {
+                    continue;
+                }
+                generator.writeFieldName(specs.get(i));
+                writeValue(generator, keyFigures, metrics[i], days[i]);
+            }
+            generator.writeEndObject();
+            generator.writeEndObject();
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Checks whether a metric can be looked up in a key figure table.
+     *
+     * @param keyFigures Key figure table of the country
+     * @param metric     The requested metric
+     * @param days       Number of days of an average raise
+     * @return true if writeValue does not throw
+     */
+    private static boolean isAvailable(KeyFigureTable keyFigures, Metric metric, int days) {
+        switch (metric) {
+            case AVERAGE_RAISE:
+                return days <= keyFigures.getMaxDays();
+            case INCIDENCE:
+                return keyFigures.isRkiAvailable();
+            case TARGET_INFECTION:
+                return keyFigures.isTargetInfectionAvailable();
+            case REMAINING_LOCKDOWN:
+                return keyFigures.isRemainingLockdownAvailable();
+            default:
+                return keyFigures.isJohnHopkinsAvailable();
+        }
+    }
+
+    /**
+     * Writes the value of one metric.
+     *
+     * @param generator  Generator positioned after the field name
+     * @param keyFigures Key figure table of the country
+     * @param metric     The requested metric
+     * @param days       Number of days of an average raise
+     * @throws IOException Throws an IO exception if an error occurs while writing the JSON.
+     */
+    private static void writeValue(JsonGenerator generator, KeyFigureTable keyFigures, Metric metric, int days) throws IOException {
+        switch (metric) {
+            case NEW_INFECTIONS_24H:
+                generator.writeNumber(keyFigures.getNewInf24H());
+                break;
+            case TOTAL_INFECTIONS:
+                generator.writeNumber(keyFigures.getTrueInfected());
+                break;
+            case RAISED_INFECTIONS:
+                generator.writeNumber(keyFigures.getRaisedInf24H());
+                break;
+            case AVERAGE_RAISE:
+                generator.writeNumber(keyFigures.getAverageRaise(days));
+                break;
+            case INCIDENCE:
+                generator.writeNumber(keyFigures.getIncidence());
+                break;
+            case TARGET_INFECTION:
+                generator.writeNumber(keyFigures.getTargetInfection());
+                break;
+            default:
+                generator.writeNumber(keyFigures.getRemainingLockdown());
+                break;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package hrw.webservice.logic;
+
+import hrw.webservice.model.CountrySeriesStore;
+import hrw.webservice.model.JHTimeSeries;
+import hrw.webservice.model.KeyFigureTable;
+import hrw.webservice.model.RKIDailyInfosTotal;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * Class precomputes all key figures of an ingest into a KeyFigureTable.
+ * It runs once per ingest, before the new dataset snapshot is published,
+ * so the endpoints only look up the figures and do no arithmetic on the request path.
+ * The tables of all countries are built in parallel on a fork-join pool, the RKI figures only apply to Germany.
+ *
+ * @author Lars Karbach, Philip Klein
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class PrecomputeKeyFigures {
+
+    /**
+     * Number of days the average decrease of the lockdown prediction is based on.
+     */
+    public static final int LOCKDOWN_WINDOW = 7;
+
+    /**
+     * The country the figures of the Robert Koch Institute belong to.
+     */
+    public static final String RKI_COUNTRY = "Germany";
+
+    /**
+     * Calculation of the John Hopkins key figures
+     */
+    private final CalculateJHKeyFigures calcJHKeyFigures;
+
+    /**
+     * Calculation of the RKI key figures
+     */
+    private final CalculateRKIKeyFigures calcRKIKeyFigures;
+
+    /**
+     * Fork-join pool the tables of the countries are built on.
+     */
+    private final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Constructor of the precompute stage
+     *
+     * @param calcJHKeyFigures  Calculation of the John Hopkins key figures
+     * @param calcRKIKeyFigures Calculation of the RKI key figures
+     */
+    public PrecomputeKeyFigures(CalculateJHKeyFigures calcJHKeyFigures, CalculateRKIKeyFigures calcRKIKeyFigures) {
+        this.calcJHKeyFigures = calcJHKeyFigures;
+        this.calcRKIKeyFigures = calcRKIKeyFigures;
+    }
+
+    /**
+     * Builds the key figure tables of all countries in parallel and logs the time the build took.
+     *
+     * @param store    The series of all countries, may be empty
+     * @param rkiTotal The daily total of the Robert Koch Institute, may be null
+     * @return immutable map of the key figure tables by country name
+     */
+    public Map<String, KeyFigureTable> precomputeAll(CountrySeriesStore store, RKIDailyInfosTotal rkiTotal) {
+        long start = System.nanoTime();
+        Map<String, KeyFigureTable> tables = new HashMap<>(pool.submit(() -> store.getSeriesByCountry().entrySet()
+                .parallelStream()
+                .collect(Collectors.toMap(Map.Entry::getKey,
+                        entry -> build(entry.getValue(), RKI_COUNTRY.equals(entry.getKey()) ? rkiTotal : null))))
+                .join());
+
+        if (rkiTotal != null && !tables.containsKey(RKI_COUNTRY)) {
+            tables.put(RKI_COUNTRY, build(null, rkiTotal));
+        }
+        System.out.println("Key figure tables of " + tables.size() + " countries built in "
+                + (System.nanoTime() - start) / 1e6 + " ms");
+
+        return Collections.unmodifiableMap(tables);
+    }
+
+    /**
+     * Builds the key figure table of a single series and logs the time the build took.
+     *
+     * @param jHSeries The series of the John Hopkins Institute, may be null
+     * @param rkiTotal The daily total of the Robert Koch Institute, may be null
+     * @return immutable key figure table
+     */
+    public KeyFigureTable precompute(JHTimeSeries jHSeries, RKIDailyInfosTotal rkiTotal) {
+        long start = System.nanoTime();
+        KeyFigureTable table = build(jHSeries, rkiTotal);
+
+        System.out.println("Key figure table with " + table.getMaxDays() + " windows built in "
+                + (System.nanoTime() - start) / 1e6 + " ms");
+
+        return table;
+    }
+
+    /**
+     * Builds the key figure table of a single series.
+     *
+     * @param jHSeries The series of the John Hopkins Institute, may be null
+     * @param rkiTotal The daily total of the Robert Koch Institute, may be null
+     * @return immutable key figure table
+     */
+    private KeyFigureTable build(JHTimeSeries jHSeries, RKIDailyInfosTotal rkiTotal) {
+        boolean johnHopkinsAvailable = jHSeries != null && jHSeries.size() > 1;
+        boolean rkiAvailable = rkiTotal != null;
+        int newInf24H = 0;
+        int trueInfected = 0;
+        int raisedInf24H = 0;
+        double[] averageRaise = new double[0];
+        double incidence = rkiAvailable ? rkiTotal.getIncidenceGermany() : 0;
+        boolean targetInfectionAvailable = johnHopkinsAvailable && rkiAvailable;
+        boolean remainingLockdownAvailable = targetInfectionAvailable && jHSeries.size() > LOCKDOWN_WINDOW;
+        double targetInfection = 0;
+        double remainingLockdown = 0;
+
+        if (johnHopkinsAvailable) {
+            newInf24H = calcJHKeyFigures.calcNewInf24H(jHSeries, 1);
+            trueInfected = calcJHKeyFigures.calcTrueInfected(jHSeries, 1);
+            raisedInf24H = calcJHKeyFigures.calcRaisedInf24H(jHSeries, 1);
+
+            // Every window fits into the series except the whole series, its first day has no predecessor.
+            averageRaise = new double[jHSeries.size()];
+            for (int days = 1; days < averageRaise.length; days++) {
+                averageRaise[days] = calcJHKeyFigures.calcAvgRaiseN(jHSeries, days);
+            }
+        }
+        if (targetInfectionAvailable) {
+            targetInfection = calcRKIKeyFigures.calcTargetInfection(trueInfected, incidence);
+        }
+        if (remainingLockdownAvailable) {
+            remainingLockdown = calcRKIKeyFigures.calcRemLockdown(
+                    calcJHKeyFigures.calcAvgDecrease(jHSeries, LOCKDOWN_WINDOW), targetInfection, trueInfected);
+        }
+        return new KeyFigureTable(johnHopkinsAvailable, newInf24H, trueInfected, raisedInf24H, averageRaise,
+                rkiAvailable, incidence, targetInfectionAvailable, targetInfection, remainingLockdownAvailable, remainingLockdown);
+    }
+}
@@ -0,0 +1,446 @@
+package hrw.webservice.logic;
+
+import hrw.webservice.model.RKIDailyInfosTotal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * History of the daily RKI totals with a fixed capacity.
+ * The totals are held in a ring buffer of primitive arrays, once the capacity is reached the oldest total is
+ * overwritten, so the memory stays constant however long the service runs.
+ * Every total is also appended to a file and forced to disk before append returns. At startup the file is replayed,
+ * so the latest totals are available before the first retrieval. The file consists of fixed size records with a
+ * checksum, a record torn by a crash is ignored. It is compacted to the capacity once it holds twice as many records.
+ * Several histories may share the file, e.g. the instances of the service created by Spring and by the SOAP endpoint.
+ * Every write to the file holds a lock on a lock file next to it, appends at the current end of the file and compacts
+ * from the records of the file, so the records of one history are never overwritten by another one.
+ * As every instance of the service ingests the same totals, a total that equals the last record of the file and was
+ * ingested on the same day is not appended again.
+ *
+ * @author Lars Karbach, Philip Klein
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class RKIHistory implements Closeable {
+
+    /**
+     * Default capacity, the totals of one year.
+     */
+    public static final int DEFAULT_CAPACITY = 366;
+
+    /**
+     * Size of a record in the file: time of the ingest (long), incidence (double), sum of cases (int) and CRC32 (int).
+     */
+    static final int RECORD_SIZE = Long.BYTES + Double.BYTES + Integer.BYTES + Integer.BYTES;
+
+    /**
+     * Monitors of the files used within this JVM by absolute path. A file lock is held for the whole JVM,
+     * so the histories of one JVM sharing a file have to take turns before they lock it.
+     */
+    private static final ConcurrentHashMap<Path, Object> FILE_MONITORS = new ConcurrentHashMap<>();
+
+    /**
+     * Length of a day in milliseconds, the totals are compared by their UTC day.
+     */
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    /**
+     * Time of the ingest of each total in milliseconds since the epoch
+     */
+    private final long[] recordedAt;
+
+    /**
+     * Incidence of Germany of each total
+     */
+    private final double[] incidences;
+
+    /**
+     * Sum of cases of each total
+     */
+    private final int[] sumCases;
+
+    /**
+     * Index of the oldest total within the arrays
+     */
+    private int first;
+
+    /**
+     * Number of held totals
+     */
+    private int size;
+
+    /**
+     * File the totals are appended to, null if the history is only held in memory
+     */
+    private final Path file;
+
+    /**
+     * Monitor of the file within this JVM, null if the history is only held in memory
+     */
+    private final Object fileMonitor;
+
+    /**
+     * Channel of the lock file next to the file, locked while the file is written
+     */
+    private FileChannel lockChannel;
+
+    /**
+     * Constructor to create a history that is only held in memory.
+     *
+     * @param capacity maximum number of totals
+     */
+    public RKIHistory(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity of the history has to be at least 1!");
+        }
+        this.recordedAt = new long[capacity];
+        this.incidences = new double[capacity];
+        this.sumCases = new int[capacity];
+        this.file = null;
+        this.fileMonitor = null;
+    }
+
+    /**
+     * Constructor to create a history backed by a file. The records of the file are replayed.
+     *
+     * @param file     file the totals are appended to, created if it does not exist
+     * @param capacity maximum number of totals
+     * @throws IOException Throws an IO exception if the file can not be read or opened.
+     */
+    public RKIHistory(Path file, int capacity) throws IOException {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity of the history has to be at least 1!");
+        }
+        this.recordedAt = new long[capacity];
+        this.incidences = new double[capacity];
+        this.sumCases = new int[capacity];
+        this.file = file.toAbsolutePath().normalize();
+        this.fileMonitor = FILE_MONITORS.computeIfAbsent(this.file, path -> new Object());
+
+        Files.createDirectories(this.file.getParent());
+        lockChannel = FileChannel.open(this.file.resolveSibling(this.file.getFileName() + ".lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        synchronized (fileMonitor) {
+            try (FileLock lock = lockChannel.lock()) {
+                replay();
+            }
+        }
+    }
+
+    /**
+     * Appends a total. If the history is backed by a file, the record is forced to disk before the method returns.
+     * A total that equals the latest total of the history or the last record of the file and was ingested on the
+     * same day is skipped, e.g. when another history sharing the file has already appended it.
+     *
+     * @param time  time of the ingest in milliseconds since the epoch
+     * @param total daily total of the RKI
+     * @throws IOException Throws an IO exception if the record can not be written. The total is held in memory anyway.
+     */
+    public synchronized void append(long time, RKIDailyInfosTotal total) throws IOException {
+        double incidence = total.getIncidenceGermany();
+        int cases = total.getSumCases();
+
+        if (size > 0 && isSameTotal(recordedAt[slot(size - 1)], incidences[slot(size - 1)], sumCases[slot(size - 1)],
+                time, incidence, cases)) {
+            return;
+        }
+        add(time, incidence, cases);
+        if (lockChannel == null) {
+            return;
+        }
+        synchronized (fileMonitor) {
+            long fileRecords;
+
+            try (FileLock lock = lockChannel.lock();
+                 FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                         StandardOpenOption.WRITE)) {
+                fileRecords = channel.size() / RECORD_SIZE;
+                // A torn record at the end is overwritten by this append.
+                channel.truncate(fileRecords * RECORD_SIZE);
+                if (fileRecords > 0 && isLastRecord(channel, fileRecords, time, incidence, cases)) {
+                    return;
+                }
+                channel.position(fileRecords * RECORD_SIZE);
+                write(channel, encode(time, incidence, cases));
+                channel.force(false);
+                if (++fileRecords >= 2L * recordedAt.length) {
+                    compact();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of held totals
+     *
+     * @return number of totals, at most the capacity
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns a total of the history
+     *
+     * @param index 0 is the oldest held total
+     * @return daily total
+     */
+    public synchronized RKIDailyInfosTotal get(int index) {
+        int slot = slot(index);
+
+        return new RKIDailyInfosTotal(incidences[slot], sumCases[slot]);
+    }
+
+    /**
+     * Returns the time of a total of the history
+     *
+     * @param index 0 is the oldest held total
+     * @return time of the ingest in milliseconds since the epoch
+     */
+    public synchronized long getRecordedAt(int index) {
+        return recordedAt[slot(index)];
+    }
+
+    /**
+     * Returns the latest total
+     *
+     * @return latest daily total, null if the history is empty
+     */
+    public synchronized RKIDailyInfosTotal getLatest() {
+        return size == 0 ? null : get(size - 1);
+    }
+
+    /**
+     * Copies all held totals into a list
+     *
+     * @return totals from the oldest to the latest
+     */
+    public synchronized List<RKIDailyInfosTotal> toList() {
+        List<RKIDailyInfosTotal> totals = new ArrayList<>(size);
+
+        for (int index = 0; index < size; index++) {
+            totals.add(get(index));
+        }
+        return totals;
+    }
+
+    /**
+     * Closes the file of the history.
+     *
+     * @throws IOException Throws an IO exception if the file can not be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (lockChannel != null) {
+            lockChannel.close();
+            lockChannel = null;
+        }
+    }
+
+    /**
+     * Reads all complete records of the file into the ring buffer. Reading stops at the first record whose checksum
+     * does not match.
+     *
+     * @throws IOException Throws an IO exception if the file can not be read.
+     */
+    private void replay() throws IOException {
+        ByteBuffer buffer = readRecords();
+
+        while (buffer.hasRemaining()) {
+            add(buffer.getLong(), buffer.getDouble(), buffer.getInt());
+            buffer.getInt();
+        }
+        System.out.println("RKI history " + file + ": " + size + " totals replayed");
+    }
+
+    /**
+     * Reads the complete records of the file. Reading stops at the first record whose checksum does not match.
+     *
+     * @return buffer holding the valid records, empty if the file does not exist
+     * @throws IOException Throws an IO exception if the file can not be read.
+     */
+    private ByteBuffer readRecords() throws IOException {
+        ByteBuffer buffer;
+
+        if (!Files.exists(file)) {
+            return ByteBuffer.allocate(0);
+        }
+        buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        while (buffer.remaining() >= RECORD_SIZE) {
+            int record = buffer.position();
+            long time = buffer.getLong();
+            double incidence = buffer.getDouble();
+            int cases = buffer.getInt();
+
+            if (buffer.getInt() != checksum(time, incidence, cases)) {
+                System.out.println("RKI history " + file + ": invalid record " + record / RECORD_SIZE + ", the rest of the file is ignored.");
+                buffer.position(record);
+                break;
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Checks whether the last record of the file holds the same total of the same day. Must be called while the file
+     * is locked.
+     *
+     * @param channel     channel of the file
+     * @param fileRecords number of complete records of the file, at least 1
+     * @param time        time of the ingest
+     * @param incidence   incidence of Germany
+     * @param cases       sum of cases
+     * @return true if the total is already the last record, false if it differs or the record is invalid
+     * @throws IOException Throws an IO exception if the file can not be read.
+     */
+    private boolean isLastRecord(FileChannel channel, long fileRecords, long time, double incidence, int cases)
+            throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        long lastTime;
+        double lastIncidence;
+        int lastCases;
+
+        while (record.hasRemaining()) {
+            if (channel.read(record, (fileRecords - 1) * RECORD_SIZE + record.position()) < 0) {
+                return false;
+            }
+        }
+        record.flip();
+        lastTime = record.getLong();
+        lastIncidence = record.getDouble();
+        lastCases = record.getInt();
+        return record.getInt() == checksum(lastTime, lastIncidence, lastCases)
+                && isSameTotal(lastTime, lastIncidence, lastCases, time, incidence, cases);
+    }
+
+    /**
+     * Checks whether two totals are the same, i.e. they have the same figures and were ingested on the same day.
+     *
+     * @param time           time of the ingest of the first total
+     * @param incidence      incidence of the first total
+     * @param cases          sum of cases of the first total
+     * @param otherTime      time of the ingest of the second total
+     * @param otherIncidence incidence of the second total
+     * @param otherCases     sum of cases of the second total
+     * @return true if the totals are the same
+     */
+    private static boolean isSameTotal(long time, double incidence, int cases, long otherTime, double otherIncidence,
+                                       int otherCases) {
+        return Math.floorDiv(time, DAY_MILLIS) == Math.floorDiv(otherTime, DAY_MILLIS)
+                && Double.compare(incidence, otherIncidence) == 0 && cases == otherCases;
+    }
+
+    /**
+     * Rewrites the file with its latest records up to the capacity. The new file is written next to the old one and
+     * moved over it, so a crash leaves either the old or the new file. Must be called while the file is locked.
+     *
+     * @throws IOException Throws an IO exception if the file can not be written.
+     */
+    private void compact() throws IOException {
+        ByteBuffer records = readRecords();
+        Path compacted = Files.createTempFile(file.getParent(), file.getFileName() + ".", ".tmp");
+
+        records.position(Math.max(0, records.limit() - recordedAt.length * RECORD_SIZE));
+        try {
+            try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.WRITE)) {
+                write(out, records);
+                out.force(false);
+            }
+            Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(compacted);
+        }
+    }
+
+    /**
+     * Adds a total to the ring buffer, the oldest total is overwritten if the buffer is full.
+     *
+     * @param time      time of the ingest
+     * @param incidence incidence of Germany
+     * @param cases     sum of cases
+     */
+    private void add(long time, double incidence, int cases) {
+        int slot;
+
+        if (size == recordedAt.length) {
+            slot = first;
+            first = (first + 1) % recordedAt.length;
+        } else {
+            slot = (first + size) % recordedAt.length;
+            size++;
+        }
+        recordedAt[slot] = time;
+        incidences[slot] = incidence;
+        sumCases[slot] = cases;
+    }
+
+    /**
+     * Maps an index of the history to a slot of the arrays.
+     *
+     * @param index 0 is the oldest held total
+     * @return slot within the arrays
+     */
+    private int slot(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " of a history with " + size + " totals");
+        }
+        return (first + index) % recordedAt.length;
+    }
+
+    /**
+     * Writes a record completely.
+     *
+     * @param out    channel of the file
+     * @param record record to be written
+     * @throws IOException Throws an IO exception if the record can not be written.
+     */
+    private static void write(FileChannel out, ByteBuffer record) throws IOException {
+        while (record.hasRemaining()) {
+            out.write(record);
+        }
+    }
+
+    /**
+     * Encodes a record of the file.
+     *
+     * @param time      time of the ingest
+     * @param incidence incidence of Germany
+     * @param cases     sum of cases
+     * @return buffer holding the record, ready to be written
+     */
+    private static ByteBuffer encode(long time, double incidence, int cases) {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+
+        record.putLong(time).putDouble(incidence).putInt(cases).putInt(checksum(time, incidence, cases));
+        return record.flip();
+    }
+
+    /**
+     * Calculates the checksum of a record.
+     *
+     * @param time      time of the ingest
+     * @param incidence incidence of Germany
+     * @param cases     sum of cases
+     * @return CRC32 of the record fields
+     */
+    private static int checksum(long time, double incidence, int cases) {
+        CRC32 crc = new CRC32();
+        ByteBuffer fields = ByteBuffer.allocate(RECORD_SIZE - Integer.BYTES);
+
+        fields.putLong(time).putDouble(incidence).putInt(cases);
+        crc.update(fields.array());
+        return (int) crc.getValue();
+    }
+}
@@ -1,40 +1,47 @@
 package hrw.webservice.logic;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import hrw.webservice.model.DatasetSnapshot;
+import hrw.webservice.model.KeyFigureTable;
+import hrw.webservice.model.RKIDistrictTable;
+import hrw.webservice.model.RKIStateTable;
+import hrw.webservice.model.endpoint.DistrictEndpointModel;
 import hrw.webservice.model.endpoint.ErrorResponseModel;
 import hrw.webservice.model.endpoint.RestEndpointModel;
+import hrw.webservice.model.endpoint.StateEndpointModel;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * The Handler class serves as a middleman between the endpoints and the computation of the data. Thus,
  * the requests to the endpoints invoke the methods of the handler. Within the Handler then the respective computations
  * take place around so the demanded data to receive.
+ * Every method reads the key figure table of the published dataset snapshot once, so all figures of a response stem
+ * from the same ingest. The figures are precomputed at ingest, the methods only look them up.
+ * The methods without a country parameter refer to Germany.
+ * The handler is shared by all REST and SOAP threads and holds no mutable state. Single values are written without
+ * an intermediate map in order not to return the whole infection model with empty properties.
+ * A response that can not be generated throws a GenerateException instead of returning an error response, so that
+ * the endpoints can tell it apart from the data and do not cache it.
  *
  * @author Lars Karbach, Furkan Kilic, Philip Klein
  * @version 1.0
  * @since 2021-02-16
  */
 public class WebServiceEndpointHandler {
+    /**
+     * Metrics of the default country that are pushed to the subscribers of the update stream.
+     */
+    private static final MetricQuery UPDATE_QUERY = MetricQuery.parse(Arrays.asList("newInfections24H", "totalInfections",
+            "raisedInfections", "averageRaise:7", "incidence", "targetInfection", "remainingLockdown"));
+
     /**
      * The handler needs a reference of the web service within the class to retrieve
      * the functionality of the web service.
      */
     private final Covid19WebService webService;
-    /**
-     * The infection model is used as a serialization object to create a JSON string using the object mapper.
-     */
-    private RestEndpointModel infectionsModel;
-    /**
-     * The HashMap is holds individual integer data of the infection model in order not to return the whole object
-     * with empty properties in case of single requests.
-     */
-    private HashMap<String, Integer> responseIntMap;
-    /**
-     * The HashMap is holds individual double data of the infection model in order not to return the whole object
-     * with empty properties in case of single requests.
-     */
-    private HashMap<String, Double> responseDblMap;
 
     /**
      * Constructor of the EndpointHandler
@@ -47,175 +54,400 @@ public class WebServiceEndpointHandler {
     }
 
     /**
-     * The method calculates all values that can be retrieved from the WebService and then creates an infection model.
+     * The method looks up all values that can be retrieved from the WebService and then creates an infection model.
      *
      * @param days The Days parameter describes the number of days for which the calculations should be performed.
      * @return Returns a JSON string containing all the properties of the infection model. (String)
      * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
      *                                 serialization/deserialization.
+     * @throws GenerateException       Throws a generate exception if the response can not be generated, e.g. before the first ingest.
      */
     public String generateAllData(int days) throws JsonProcessingException {
-        double avgDecrease;
-        double targetInfections;
-        double lockdownForecast;
-        int trueInfections;
-
-        try {
-            infectionsModel = new RestEndpointModel();
+        return generateAllData(DatasetSnapshot.DEFAULT_COUNTRY, days);
+    }
 
-            infectionsModel.setIncidence(webService.getRkiTotalData().get(webService.getRkiTotalData().size() - 1).getIncidenceGermany());
-            infectionsModel.setTargetInfection(webService.getCalcRKIKeyFigures().calcTargetInfection(webService.getCalcJHKeyFigures().getTrueInfected(), webService.getRkiTotalData().get(webService.getRkiTotalData().size() - 1).getIncidenceGermany()));
-            infectionsModel.setNewInfections24H(webService.getCalcJHKeyFigures().getNewInf24H());
-            infectionsModel.setTotalInfections(webService.getCalcJHKeyFigures().getTrueInfected());
-            infectionsModel.setRaisedInfections(webService.getCalcJHKeyFigures().getRaisedInf24H());
-            infectionsModel.setAverageRaise(webService.getCalcJHKeyFigures().calcAvgRaiseN(webService.getJHDailyInfosList(), days));
+    /**
+     * The method looks up all values of a country and then creates an infection model.
+     * The figures of the Robert Koch Institute are only set for Germany.
+     *
+     * @param country Name of the country as used by John Hopkins University, e.g. "Germany"
+     * @param days    The Days parameter describes the number of days for which the calculations should be performed.
+     * @return Returns a JSON string containing all the properties of the infection model. (String)
+     * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
+     *                                 serialization/deserialization.
+     * @throws GenerateException       Throws a generate exception if the response can not be generated, e.g. before the first ingest.
+     */
+    public String generateAllData(String country, int days) throws JsonProcessingException {
+        KeyFigureTable keyFigures = webService.getDataset().getKeyFigures(country);
+        RestEndpointModel infectionsModel = new RestEndpointModel();
 
-            avgDecrease = webService.getCalcJHKeyFigures().calcAvgDecrease(webService.getJHDailyInfosList(), 7);
-            targetInfections = webService.getCalcRKIKeyFigures().calcTargetInfection(webService.getCalcJHKeyFigures().getTrueInfected(), webService.getRkiTotalData().get(webService.getRkiTotalData().size() - 1).getIncidenceGermany());
-            trueInfections = webService.getCalcJHKeyFigures().getTrueInfected();
-            lockdownForecast = webService.getCalcRKIKeyFigures().calcRemLockdown(avgDecrease, targetInfections, trueInfections);
+        try {
 
-            infectionsModel.setRemainingLockdown(lockdownForecast);
+            if (PrecomputeKeyFigures.RKI_COUNTRY.equals(country)) {
+                infectionsModel.setIncidence(keyFigures.getIncidence());
+                infectionsModel.setTargetInfection(keyFigures.getTargetInfection());
+                infectionsModel.setRemainingLockdown(keyFigures.getRemainingLockdown());
+            }
+            infectionsModel.setNewInfections24H(keyFigures.getNewInf24H());
+            infectionsModel.setTotalInfections(keyFigures.getTrueInfected());
+            infectionsModel.setRaisedInfections(keyFigures.getRaisedInf24H());
+            infectionsModel.setAverageRaise(keyFigures.getAverageRaise(days));
 
             return webService.getJacksonObjMapper().objectToString(infectionsModel);
         } catch (Exception ex) {
-            return webService.getJacksonObjMapper().objectToString(new ErrorResponseModel(500, "A generic error occurred on the server, in Method generateAllData!"));
+            throw new GenerateException("generateAllData", ex);
         }
     }
 
     /**
-     * The method calls the calculation of the new infections within 24 hours and
+     * The method looks up the precomputed new infections within 24 hours and
      * then creates a JSON string using the Jackson Object mapper.
      *
      * @return Returns a JSON string containing the new infections within 24 hours. (String)
      * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
      *                                 serialization/deserialization.
+     * @throws GenerateException       Throws a generate exception if the response can not be generated, e.g. before the first ingest.
      */
     public String generateLatestInfections() throws JsonProcessingException {
+        return generateLatestInfections(DatasetSnapshot.DEFAULT_COUNTRY);
+    }
+
+    /**
+     * The method looks up the precomputed new infections within 24 hours of a country and then creates a JSON string.
+     *
+     * @param country Name of the country as used by John Hopkins University, e.g. "Germany"
+     * @return Returns a JSON string containing the new infections within 24 hours. (String)
+     * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
+     *                                 serialization/deserialization.
+     * @throws GenerateException       Throws a generate exception if the response can not be generated, e.g. before the first ingest.
+     */
+    public String generateLatestInfections(String country) throws JsonProcessingException {
         try {
-            responseIntMap = new HashMap<>();
-            responseIntMap.put("newInfections24H", webService.getCalcJHKeyFigures().getNewInf24H());
-            return webService.getJacksonObjMapper().getJsonFromIntMap(responseIntMap);
+            return webService.getJacksonObjMapper().getJsonFromInt("newInfections24H", webService.getDataset().getKeyFigures(country).getNewInf24H());
         } catch (Exception ex) {
-            return webService.getJacksonObjMapper().objectToString(new ErrorResponseModel(500, "A generic error occurred on the server, in Method generateLatestInfections!"));
+            throw new GenerateException("generateLatestInfections", ex);
         }
     }
 
     /**
-     * The method calls the calculation of the target total infections and then creates
-     * a JSON string from the calculated values.
+     * The method looks up the precomputed target total infections and then creates
+     * a JSON string from the looked up value.
      *
      * @return Returns a JSON string containing the target infections value. (String)
      * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
      *                                 serialization/deserialization.
+     * @throws GenerateException       Throws a generate exception if the response can not be generated, e.g. before the first ingest.
      */
     public String generateTargetInfections() throws JsonProcessingException {
+        return generateTargetInfections(DatasetSnapshot.DEFAULT_COUNTRY);
+    }
+
+    /**
+     * The method looks up the precomputed target total infections of a country and then creates a JSON string.
+     *
+     * @param country Name of the country as used by John Hopkins University, e.g. "Germany"
+     * @return Returns a JSON string containing the target total infections. (String)
+     * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
+     *                                 serialization/deserialization.
+     * @throws GenerateException       Throws a generate exception if the response can not be generated, e.g. before the first ingest.
+     */
+    public String generateTargetInfections(String country) throws JsonProcessingException {
         try {
-            responseDblMap = new HashMap<>();
-            responseDblMap.put("targetInfection", webService.getCalcRKIKeyFigures().calcTargetInfection(
-                    webService.getCalcJHKeyFigures().getTrueInfected(), webService.getRkiTotalData().get(webService.getRkiTotalData().size() - 1).getIncidenceGermany()));
-            return webService.getJacksonObjMapper().getJsonFromDoubleMap(responseDblMap);
+            return webService.getJacksonObjMapper().getJsonFromDouble("targetInfection", webService.getDataset().getKeyFigures(country).getTargetInfection());
         } catch (Exception ex) {
-            return webService.getJacksonObjMapper().objectToString(new ErrorResponseModel(500, "A generic error occurred on the server, in Method generateTargetInfections!"));
+            throw new GenerateException("generateTargetInfections", ex);
         }
     }
 
     /**
-     * The method calls the calculation of the genuine number of infections from
+     * The method looks up the precomputed genuine number of infections from
      * the web service and then creates a JSON string using the Jackson Object mapper.
      *
      * @return Returns a JSON string containing the genuine number of infections. (String)
      * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
      *                                 serialization/deserialization.
+     * @throws GenerateException       Throws a generate exception if the response can not be generated, e.g. before the first ingest.
      */
     public String generateTrueInfections() throws JsonProcessingException {
+        return generateTrueInfections(DatasetSnapshot.DEFAULT_COUNTRY);
+    }
+
+    /**
+     * The method looks up the precomputed genuine number of infections of a country and then creates a JSON string.
+     *
+     * @param country Name of the country as used by John Hopkins University, e.g. "Germany"
+     * @return Returns a JSON string containing the genuine number of infections. (String)
+     * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
+     *                                 serialization/deserialization.
+     * @throws GenerateException       Throws a generate exception if the response can not be generated, e.g. before the first ingest.
+     */
+    public String generateTrueInfections(String country) throws JsonProcessingException {
         try {
-            responseIntMap = new HashMap<>();
-            responseIntMap.put("totalInfections", webService.getCalcJHKeyFigures().getTrueInfected());
-            return webService.getJacksonObjMapper().getJsonFromIntMap(responseIntMap);
+            return webService.getJacksonObjMapper().getJsonFromInt("totalInfections", webService.getDataset().getKeyFigures(country).getTrueInfected());
         } catch (Exception ex) {
-            return webService.getJacksonObjMapper().objectToString(new ErrorResponseModel(500, "A generic error occurred on the server, in Method generateTrueInfections!"));
+            throw new GenerateException("generateTrueInfections", ex);
         }
     }
 
     /**
-     * The method calls the calculation of the average increase in infections in n days from
+     * The method looks up the precomputed average increase in infections in n days from
      * the web service and then creates a JSON string using the Jackson Object mapper.
      *
      * @param days The Days parameter defines the number of days for which the calculation should be performed.
      * @return Returns a JSON string containing the average increase in infections in n days. (String)
      * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
      *                                 serialization/deserialization.
+     * @throws GenerateException       Throws a generate exception if the response can not be generated, e.g. before the first ingest.
      */
     public String generateAvgInfectionRaise(int days) throws JsonProcessingException {
-        try {
-            responseDblMap = new HashMap<>();
-            responseDblMap.put("averageRaise", webService.getCalcJHKeyFigures().calcAvgRaiseN(webService.getJHDailyInfosList(), days));
+        return generateAvgInfectionRaise(DatasetSnapshot.DEFAULT_COUNTRY, days);
+    }
 
-            return webService.getJacksonObjMapper().getJsonFromDoubleMap(responseDblMap);
+    /**
+     * The method looks up the precomputed average increase in infections in n days of a country and then creates a JSON string.
+     *
+     * @param country Name of the country as used by John Hopkins University, e.g. "Germany"
+     * @param days    The Days parameter defines the number of days for which the calculation should be performed.
+     * @return Returns a JSON string containing the average increase in infections in n days. (String)
+     * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
+     *                                 serialization/deserialization.
+     * @throws GenerateException       Throws a generate exception if the response can not be generated, e.g. before the first ingest.
+     */
+    public String generateAvgInfectionRaise(String country, int days) throws JsonProcessingException {
+        try {
+            return webService.getJacksonObjMapper().getJsonFromDouble("averageRaise", webService.getDataset().getKeyFigures(country).getAverageRaise(days));
         } catch (Exception ex) {
-            return webService.getJacksonObjMapper().objectToString(new ErrorResponseModel(500, "A generic error occurred on the server, in Method generateAvgRaise!"));
+            throw new GenerateException("generateAvgRaise", ex);
         }
 
     }
 
     /**
-     * The method calls the calculation of the daily increase in infections from
+     * The method looks up the precomputed daily increase in infections from
      * the web service and then creates a JSON string using the Jackson Object mapper.
      *
      * @return Returns a JSON string containing the daily increase in infections. (String)
      * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
      *                                 serialization/deserialization.
+     * @throws GenerateException       Throws a generate exception if the response can not be generated, e.g. before the first ingest.
      */
     public String generateDailyInfectionsRaise() throws JsonProcessingException {
-        responseIntMap = new HashMap<>();
-        responseIntMap.put("raisedInfections", webService.getCalcJHKeyFigures().getRaisedInf24H());
-        return webService.getJacksonObjMapper().getJsonFromIntMap(responseIntMap);
+        return generateDailyInfectionsRaise(DatasetSnapshot.DEFAULT_COUNTRY);
+    }
+
+    /**
+     * The method looks up the precomputed daily increase in infections of a country and then creates a JSON string.
+     *
+     * @param country Name of the country as used by John Hopkins University, e.g. "Germany"
+     * @return Returns a JSON string containing the daily increase in infections. (String)
+     * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
+     *                                 serialization/deserialization.
+     * @throws GenerateException       Throws a generate exception if the response can not be generated, e.g. before the first ingest.
+     */
+    public String generateDailyInfectionsRaise(String country) throws JsonProcessingException {
+        try {
+            return webService.getJacksonObjMapper().getJsonFromInt("raisedInfections", webService.getDataset().getKeyFigures(country).getRaisedInf24H());
+        } catch (Exception ex) {
+            throw new GenerateException("generateDailyInfectionsRaise", ex);
+        }
     }
 
     /**
-     * Calls the calculation of the daily incidence value and creates a JSON string using the Jackson Object mapper.
+     * Looks up the daily incidence value and creates a JSON string using the Jackson Object mapper.
      *
      * @return Returns a JSON string containing the incidence value. (String)
      * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
      *                                 serialization/deserialization.
+     * @throws GenerateException       Throws a generate exception if the response can not be generated, e.g. before the first ingest.
      */
     public String generateIncidences() throws JsonProcessingException {
         try {
-            responseDblMap = new HashMap<>();
-            responseDblMap.put("incidence", webService.getRkiTotalData().get(webService.getRkiTotalData().size() - 1).getIncidenceGermany());
-
-            return webService.getJacksonObjMapper().getJsonFromDoubleMap(responseDblMap);
+            return webService.getJacksonObjMapper().getJsonFromDouble("incidence", webService.getDataset().getKeyFigures().getIncidence());
         } catch (Exception e) {
-            return webService.getJacksonObjMapper().objectToString(new ErrorResponseModel(500, "A generic error occurred on the server, in Method generateIncidences!"));
+            throw new GenerateException("generateIncidences", e);
         }
     }
 
     /**
-     * Calls the calculation of the  remaining lockdown days and creates a JSON string using the Jackson Object mapper.
+     * Looks up the precomputed remaining lockdown days and creates a JSON string using the Jackson Object mapper.
      *
      * @return Returns JSON string containing the remaining lockdown days. (String)
      * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
      *                                 serialization/deserialization.
+     * @throws GenerateException       Throws a generate exception if the response can not be generated, e.g. before the first ingest.
      */
     public String generateForecast() throws JsonProcessingException {
-        double avgDecrease;
-        double lockdownForecast;
-        double targetInfections;
-        int trueInfections;
+        try {
+            return webService.getJacksonObjMapper().getJsonFromDouble("remainingLockdown", webService.getDataset().getKeyFigures().getRemainingLockdown());
+        } catch (Exception exception) {
+            throw new GenerateException("generateForecast", exception);
+        }
+    }
 
+    /**
+     * Looks up several precomputed metrics of a country in one dataset snapshot and creates one JSON string.
+     * The snapshot is passed instead of read, so that the body matches the snapshot the request has been
+     * validated against and whose version is sent as ETag.
+     *
+     * @param country Name of the country as used by John Hopkins University, e.g. "Germany"
+     * @param query   The validated metrics, see MetricQuery
+     * @param dataset The snapshot the metrics are read from
+     * @return Returns a JSON string containing all requested metrics. (String)
+     * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
+     *                                 serialization/deserialization.
+     * @throws GenerateException       Throws a generate exception if the response can not be generated, e.g. before the first ingest.
+     */
+    public String generateBatch(String country, MetricQuery query, DatasetSnapshot dataset) throws JsonProcessingException {
         try {
-            responseDblMap = new HashMap<>();
-            avgDecrease = webService.getCalcJHKeyFigures().calcAvgDecrease(webService.getJHDailyInfosList(), 7);
-            targetInfections = webService.getCalcRKIKeyFigures().calcTargetInfection(
-                    webService.getCalcJHKeyFigures().getTrueInfected(), webService.getRkiTotalData().get(webService.getRkiTotalData().size() - 1).getIncidenceGermany());
-            trueInfections = webService.getCalcJHKeyFigures().getTrueInfected();
-            lockdownForecast = webService.getCalcRKIKeyFigures().calcRemLockdown(avgDecrease, targetInfections, trueInfections);
-
-            responseDblMap.put("remainingLockdown", lockdownForecast);
-            return webService.getJacksonObjMapper().getJsonFromDoubleMap(responseDblMap);
+            return query.render(webService.getJacksonObjMapper().getObjectMapper().getFactory(), country, dataset);
         } catch (Exception exception) {
-            return webService.getJacksonObjMapper().objectToString(new ErrorResponseModel(500, "A generic error occurred on the server, in Method generateForecast!"));
+            throw new GenerateException("generateBatch", exception);
         }
     }
+
+    /**
+     * Looks up the key figures of the default country that are pushed to the subscribers of the update stream.
+     * Figures that are not available in the snapshot are left out. The snapshot is passed instead of read, so that
+     * the event carries exactly the figures of the version it is sent for.
+     *
+     * @param dataset The snapshot that has just been published
+     * @return Returns a JSON string containing the key figures, see MetricQuery. (String)
+     * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
+     *                                 serialization/deserialization.
+     * @throws GenerateException       Throws a generate exception if the response can not be generated, e.g. before the first ingest.
+     */
+    public String generateUpdate(DatasetSnapshot dataset) throws JsonProcessingException {
+        try {
+            return UPDATE_QUERY.render(webService.getJacksonObjMapper().getObjectMapper().getFactory(), DatasetSnapshot.DEFAULT_COUNTRY, dataset, true);
+        } catch (Exception exception) {
+            throw new GenerateException("generateUpdate", exception);
+        }
+    }
+
+    /**
+     * Looks up the RKI figures of all federal states and creates a JSON array using the Jackson Object mapper.
+     *
+     * @return Returns a JSON string containing the figures of all states. (String)
+     * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
+     *                                 serialization/deserialization.
+     * @throws GenerateException       Throws a generate exception if the response can not be generated, e.g. before the first ingest.
+     */
+    public String generateStates() throws JsonProcessingException {
+        RKIStateTable states = webService.getDataset().getRkiStates();
+        List<StateEndpointModel> stateModels = new ArrayList<>(states.size());
+
+        try {
+            if (states.size() == 0) {
+                throw new IllegalStateException("No RKI data has been ingested yet.");
+            }
+            for (int state = 0; state < states.size(); state++) {
+                stateModels.add(toStateModel(states, state));
+            }
+            return webService.getJacksonObjMapper().objectToString(stateModels);
+        } catch (Exception exception) {
+            throw new GenerateException("generateStates", exception);
+        }
+    }
+
+    /**
+     * Looks up the RKI figures of a single federal state and creates a JSON string using the Jackson Object mapper.
+     *
+     * @param id Official key or name of the state
+     * @return Returns a JSON string containing the figures of the state. (String)
+     * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
+     *                                 serialization/deserialization.
+     * @throws GenerateException       Throws a generate exception if the response can not be generated, e.g. before the first ingest.
+     */
+    public String generateState(String id) throws JsonProcessingException {
+        RKIStateTable states = webService.getDataset().getRkiStates();
+
+        try {
+            return webService.getJacksonObjMapper().objectToString(toStateModel(states, states.indexOf(id)));
+        } catch (Exception exception) {
+            throw new GenerateException("generateState", exception);
+        }
+    }
+
+    /**
+     * Creates the endpoint model of a federal state.
+     *
+     * @param states The state table of the published dataset
+     * @param state  Index of the state within the table
+     * @return endpoint model of the state
+     */
+    private StateEndpointModel toStateModel(RKIStateTable states, int state) {
+        return new StateEndpointModel(states.getId(state), states.getName(state), states.getIncidence(state),
+                states.getCases7(state), states.getCases(state), states.getCitizens(state));
+    }
+
+    /**
+     * Looks up the RKI figures of the districts with the highest incidence and creates a JSON array using the
+     * Jackson Object mapper. The districts are ordered by their rank.
+     *
+     * @param top Number of districts, at most the number of districts
+     * @return Returns a JSON string containing the figures of the districts. (String)
+     * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
+     *                                 serialization/deserialization.
+     * @throws GenerateException       Throws a generate exception if the response can not be generated, e.g. before the first ingest.
+     */
+    public String generateDistricts(int top) throws JsonProcessingException {
+        RKIDistrictTable districts = webService.getDataset().getRkiDistricts();
+        List<DistrictEndpointModel> districtModels = new ArrayList<>(Math.min(top, districts.size()));
+
+        try {
+            if (districts.size() == 0) {
+                throw new IllegalStateException("No district data has been ingested yet.");
+            }
+            for (int rank = 1; rank <= Math.min(top, districts.size()); rank++) {
+                districtModels.add(toDistrictModel(districts, districts.getRowByRank(rank)));
+            }
+            return webService.getJacksonObjMapper().objectToString(districtModels);
+        } catch (Exception exception) {
+            throw new GenerateException("generateDistricts", exception);
+        }
+    }
+
+    /**
+     * Looks up the RKI figures of a single district and creates a JSON string using the Jackson Object mapper.
+     *
+     * @param id Official key of the district
+     * @return Returns a JSON string containing the figures of the district. (String)
+     * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
+     *                                 serialization/deserialization.
+     * @throws GenerateException       Throws a generate exception if the response can not be generated, e.g. before the first ingest.
+     */
+    public String generateDistrict(String id) throws JsonProcessingException {
+        RKIDistrictTable districts = webService.getDataset().getRkiDistricts();
+
+        try {
+            return webService.getJacksonObjMapper().objectToString(toDistrictModel(districts, districts.indexOf(id)));
+        } catch (Exception exception) {
+            throw new GenerateException("generateDistrict", exception);
+        }
+    }
+
+    /**
+     * Creates the error response of a response that could not be generated.
+     *
+     * @param exception The exception thrown by the generating method
+     * @return Returns a JSON string containing the error model. (String)
+     * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
+     *                                 serialization/deserialization.
+     */
+    public String generateError(GenerateException exception) throws JsonProcessingException {
+        return webService.getJacksonObjMapper().objectToString(new ErrorResponseModel(500, exception.getMessage()));
+    }
+
+    /**
+     * Creates the endpoint model of a district.
+     *
+     * @param districts The district table of the published dataset
+     * @param row       Row of the district within the table
+     * @return endpoint model of the district
+     */
+    private DistrictEndpointModel toDistrictModel(RKIDistrictTable districts, int row) {
+        return new DistrictEndpointModel(districts.getId(row), districts.getName(row), districts.getStateId(row),
+                districts.getIncidence(row), districts.getRank(row), districts.getCases7(row), districts.getCases(row),
+                districts.getCitizens(row));
+    }
 }
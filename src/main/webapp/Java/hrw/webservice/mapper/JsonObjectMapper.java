@@ -1,13 +1,19 @@
 package hrw.webservice.mapper;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import hrw.webservice.model.JHTimeSeries;
+import hrw.webservice.model.RKIDistrictTable;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * The Object Mapper class contains methods to extend various methods of the Jackson Mapper.
@@ -18,6 +24,11 @@ import java.util.HashMap;
  */
 public class JsonObjectMapper {
 
+    /**
+     * Buffer of every thread to write the small single-value responses, reused for all responses of the thread.
+     */
+    private static final ThreadLocal<StringBuilder> SCALAR_BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(64));
+
     /**
      * Class variable of the Jackson object mapper to perform serialization and deserialization.
      */
@@ -98,6 +109,339 @@ public class JsonObjectMapper {
         return node;
     }
 
+    /**
+     * Reads the daily series of a single country from the John Hopkins timeseries stream.
+     * In contrast to getSpecificNodeFromInputStream, no JSON tree is built. The stream is walked token by token,
+     * the series of all other countries are skipped without being materialized and the wanted series is decoded
+     * directly into the columns of a JHTimeSeries. Reading stops as soon as the country has been decoded.
+     *
+     * @param inputStream Contains the timeseries JSON, an object with one array of daily entries per country
+     * @param country     Name of the country whose series is required, e.g. "Germany"
+     * @return The daily series of the country, or an empty series if the country is not contained.
+     * @throws IOException Throws an IO exception if an error occurs while reading the JSON stream.
+     */
+    public JHTimeSeries getCountrySeriesFromInputStream(InputStream inputStream, String country) throws IOException {
+        return getCountrySeriesFromInputStream(inputStream, country, 0);
+    }
+
+    /**
+     * Reads the daily series of a single country from the John Hopkins timeseries stream, starting at the given day.
+     * The leading days are skipped on token level without being decoded, so that the decoding effort only depends on
+     * the number of days that are actually needed.
+     *
+     * @param inputStream Contains the timeseries JSON, an object with one array of daily entries per country
+     * @param country     Name of the country whose series is required, e.g. "Germany"
+     * @param skipDays    Number of leading days of the series that are skipped
+     * @return The daily series of the country without the skipped days, or an empty series if the country is not contained.
+     * @throws IOException Throws an IO exception if an error occurs while reading the JSON stream.
+     */
+    public JHTimeSeries getCountrySeriesFromInputStream(InputStream inputStream, String country, int skipDays) throws IOException {
+        JHTimeSeries series = new JHTimeSeries();
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Timeseries JSON has to start with an object!");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+
+                if (parser.nextToken() == JsonToken.START_ARRAY && name.equals(country)) {
+                    for (int day = 0; parser.nextToken() == JsonToken.START_OBJECT; day++) {
+                        if (day < skipDays) {
+                            parser.skipChildren();
+                        } else {
+                            readDailyInfos(parser, series);
+                        }
+                    }
+                    return series.trimToSize();
+                }
+                parser.skipChildren();
+            }
+        }
+        return series.trimToSize();
+    }
+
+    /**
+     * Reads the daily series of all countries from the John Hopkins timeseries stream in a single pass.
+     * Like getCountrySeriesFromInputStream, no JSON tree is built, every country is decoded directly into the columns
+     * of its own JHTimeSeries. Leading days of a country can be skipped on token level, so that an incremental ingest
+     * only decodes the days it actually needs.
+     *
+     * @param inputStream Contains the timeseries JSON, an object with one array of daily entries per country
+     * @param skipDays    Number of leading days that are skipped per country, countries without entry are read completely
+     * @return The series of all countries by country name, in the order of the timeseries
+     * @throws IOException Throws an IO exception if an error occurs while reading the JSON stream.
+     */
+    public Map<String, JHTimeSeries> getAllCountrySeriesFromInputStream(InputStream inputStream, Map<String, Integer> skipDays) throws IOException {
+        Map<String, JHTimeSeries> seriesByCountry = new LinkedHashMap<>();
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Timeseries JSON has to start with an object!");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String country = parser.getCurrentName();
+                int skip = skipDays.getOrDefault(country, 0);
+                JHTimeSeries series = new JHTimeSeries();
+
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+                for (int day = 0; parser.nextToken() == JsonToken.START_OBJECT; day++) {
+                    if (day < skip) {
+                        parser.skipChildren();
+                    } else {
+                        readDailyInfos(parser, series);
+                    }
+                }
+                seriesByCountry.put(country, series.trimToSize());
+            }
+        }
+        return seriesByCountry;
+    }
+
+    /**
+     * Decodes a single day of the John Hopkins timeseries and appends it to the series. The parser has to be
+     * positioned on the START_OBJECT token of the day, afterwards it is positioned on the matching END_OBJECT token.
+     *
+     * @param parser Parser positioned on the start of a daily entry
+     * @param series Series the day is appended to
+     * @throws IOException Throws an IO exception if an error occurs while reading the JSON stream.
+     */
+    private void readDailyInfos(JsonParser parser, JHTimeSeries series) throws IOException {
+        int epochDay = Integer.MIN_VALUE;
+        int confirmed = 0;
+        int deaths = 0;
+        int recovered = 0;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+
+            switch (field) {
+                case "date":
+                    epochDay = JHTimeSeries.parseDate(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                    break;
+                case "confirmed":
+                    confirmed = parser.getValueAsInt();
+                    break;
+                case "deaths":
+                    deaths = parser.getValueAsInt();
+                    break;
+                case "recovered":
+                    recovered = parser.getValueAsInt();
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        if (epochDay == Integer.MIN_VALUE) {
+            throw new IOException("Daily entry without date in timeseries JSON!");
+        }
+        series.append(epochDay, confirmed, deaths, recovered);
+    }
+
+    /**
+     * Reads the record count of an ArcGIS query with returnCountOnly=true.
+     *
+     * @param inputStream Contains the count JSON, e.g. {"count":411}
+     * @return number of records of the query
+     * @throws IOException Throws an IO exception if the response contains an error or no count.
+     */
+    public int getArcGisCountFromInputStream(InputStream inputStream) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("ArcGIS response has to start with an object!");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+
+                if (field.equals("count")) {
+                    return parser.getValueAsInt();
+                } else if (field.equals("error")) {
+                    throw new IOException("ArcGIS query failed: " + parser.readValueAsTree());
+                }
+                parser.skipChildren();
+            }
+        }
+        throw new IOException("ArcGIS response contains no count!");
+    }
+
+    /**
+     * Counts the features of an ArcGIS query response without decoding them.
+     *
+     * @param inputStream Contains the query JSON with a features array
+     * @return number of features, 0 if the response contains no features
+     * @throws IOException Throws an IO exception if the response contains an error.
+     */
+    public int countArcGisFeatures(InputStream inputStream) throws IOException {
+        int features = 0;
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("ArcGIS response has to start with an object!");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+
+                if (field.equals("error")) {
+                    throw new IOException("ArcGIS query failed: " + parser.readValueAsTree());
+                } else if (!field.equals("features") || parser.currentToken() != JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+                for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+                    if (token == null) {
+                        throw new IOException("ArcGIS response ends within the features!");
+                    }
+                    parser.skipChildren();
+                    features++;
+                }
+            }
+        }
+        return features;
+    }
+
+    /**
+     * Reads a page of the RKI district query directly into the rows of the district table.
+     * Like the timeseries, the page is streamed token by token without building a JSON tree. The records of the page
+     * are written to the rows starting at the offset, so the pages of a query can be decoded concurrently.
+     *
+     * @param inputStream Contains a page of the ArcGIS feature service, the records are in the "features" array
+     * @param table       Table the records are written to
+     * @param offset      Row of the first record of the page
+     * @param limit       Maximum number of records of the page
+     * @return number of records of the page
+     * @throws IOException Throws an IO exception if the response contains an error or more records than expected.
+     */
+    public int readDistrictPage(InputStream inputStream, RKIDistrictTable table, int offset, int limit) throws IOException {
+        int records = 0;
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("ArcGIS response has to start with an object!");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+
+                if (field.equals("error")) {
+                    throw new IOException("ArcGIS query failed: " + parser.readValueAsTree());
+                } else if (!field.equals("features") || parser.currentToken() != JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    if (records == limit || offset + records >= table.capacity()) {
+                        throw new IOException("ArcGIS page at offset " + offset + " contains more than " + limit + " records!");
+                    }
+                    readDistrictFeature(parser, table, offset + records);
+                    records++;
+                }
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Decodes a single feature of the RKI district query into a row of the table. The parser has to be positioned on
+     * the START_OBJECT token of the feature, afterwards it is positioned on the matching END_OBJECT token.
+     *
+     * @param parser Parser positioned on the start of a feature
+     * @param table  Table the district is written to
+     * @param row    Row of the district
+     * @throws IOException Throws an IO exception if an error occurs while reading the JSON stream.
+     */
+    private void readDistrictFeature(JsonParser parser, RKIDistrictTable table, int row) throws IOException {
+        String id = null;
+        String name = null;
+        int stateId = 0;
+        int citizens = 0;
+        int cases = 0;
+        int cases7 = 0;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String section = parser.getCurrentName();
+
+            if (parser.nextToken() != JsonToken.START_OBJECT || !section.equals("attributes")) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+
+                switch (field) {
+                    case "RS":
+                        id = parser.getValueAsString();
+                        break;
+                    case "GEN":
+                        name = parser.getValueAsString();
+                        break;
+                    case "BL_ID":
+                        stateId = parser.getValueAsInt();
+                        break;
+                    case "EWZ":
+                        citizens = parser.getValueAsInt();
+                        break;
+                    case "cases":
+                        cases = parser.getValueAsInt();
+                        break;
+                    case "cases7_lk":
+                        cases7 = parser.getValueAsInt();
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        }
+        if (id == null) {
+            throw new IOException("District feature without RS in ArcGIS response!");
+        }
+        table.set(row, id, name != null ? name : id, stateId, citizens, cases, cases7);
+    }
+
+    /**
+     * Writes a JSON object with a single integer property, e.g. {"newInfections24H":11869}.
+     * The object is written into a buffer of the calling thread, so neither a map nor a boxed value is created and
+     * concurrent calls never share state. The output equals the serialization of a map with the Jackson mapper.
+     *
+     * @param field Name of the property, must not need escaping
+     * @param value Value of the property
+     * @return JSON string.
+     */
+    public String getJsonFromInt(String field, int value) {
+        StringBuilder buffer = SCALAR_BUFFER.get();
+
+        buffer.setLength(0);
+        buffer.append("{\"").append(field).append("\":").append(value).append('}');
+        return buffer.toString();
+    }
+
+    /**
+     * Writes a JSON object with a single double property, e.g. {"incidence":57.3}, see getJsonFromInt.
+     * Like the Jackson mapper, NaN and infinite values are written as strings.
+     *
+     * @param field Name of the property, must not need escaping
+     * @param value Value of the property
+     * @return JSON string.
+     */
+    public String getJsonFromDouble(String field, double value) {
+        StringBuilder buffer = SCALAR_BUFFER.get();
+
+        buffer.setLength(0);
+        buffer.append("{\"").append(field).append("\":");
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            buffer.append('"').append(value).append('"');
+        } else {
+            buffer.append(value);
+        }
+        return buffer.append('}').toString();
+    }
+
     /**
      * Method converts the map with string and integer values passed as parameters to a JSON string.
      *
@@ -0,0 +1,97 @@
+package hrw.webservice.model;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable store of the John Hopkins series of all countries.
+ * The store is built once per ingest and published in a DatasetSnapshot, the series must not be modified afterwards.
+ *
+ * @author Lars Karbach
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public final class CountrySeriesStore {
+
+    /**
+     * Store that is used as long as no John Hopkins data has been ingested.
+     */
+    public static final CountrySeriesStore EMPTY = new CountrySeriesStore(Collections.emptyMap());
+
+    /**
+     * Series of all countries by country name, in the order of the timeseries
+     */
+    private final Map<String, JHTimeSeries> seriesByCountry;
+
+    /**
+     * Constructor of the store, the map is copied.
+     *
+     * @param seriesByCountry Series of all countries by country name
+     */
+    public CountrySeriesStore(Map<String, JHTimeSeries> seriesByCountry) {
+        this.seriesByCountry = Collections.unmodifiableMap(new LinkedHashMap<>(seriesByCountry));
+    }
+
+    /**
+     * Returns the series of a country.
+     *
+     * @param country Name of the country as used by John Hopkins University, e.g. "Germany"
+     * @return series of the country, null if the country is not contained
+     */
+    public JHTimeSeries get(String country) {
+        return seriesByCountry.get(country);
+    }
+
+    /**
+     * Checks whether the store contains a country.
+     *
+     * @param country Name of the country
+     * @return true if the series of the country is contained
+     */
+    public boolean contains(String country) {
+        return seriesByCountry.containsKey(country);
+    }
+
+    /**
+     * Basic getter to return the names of all countries
+     *
+     * @return unmodifiable set of country names
+     */
+    public Set<String> getCountries() {
+        return seriesByCountry.keySet();
+    }
+
+    /**
+     * Basic getter to return the series of all countries
+     *
+     * @return unmodifiable map of the series by country name
+     */
+    public Map<String, JHTimeSeries> getSeriesByCountry() {
+        return seriesByCountry;
+    }
+
+    /**
+     * Returns the number of countries
+     *
+     * @return number of countries
+     */
+    public int size() {
+        return seriesByCountry.size();
+    }
+
+    /**
+     * Returns the number of days of all countries
+     *
+     * @return sum of the days of all series
+     */
+    public long getTotalDays() {
+        long days = 0;
+
+        for (JHTimeSeries series : seriesByCountry.values()) {
+            days += series.size();
+        }
+        return days;
+    }
+}
@@ -0,0 +1,188 @@
+package hrw.webservice.model;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of all data published by the web service.
+ * A snapshot holds the John Hopkins series of all countries, the latest RKI data per district, per state and in total
+ * and the tables of key figures
+ * precomputed from them. Every ingest creates a new snapshot, so a request that works on one snapshot always sees
+ * figures of the same refresh.
+ *
+ * @author Lars Karbach, Philip Klein
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public final class DatasetSnapshot {
+
+    /**
+     * Country whose figures are returned if a request does not name a country.
+     */
+    public static final String DEFAULT_COUNTRY = "Germany";
+
+    /**
+     * Snapshot that is published as long as no data has been ingested.
+     */
+    public static final DatasetSnapshot EMPTY = new DatasetSnapshot(0, 0, CountrySeriesStore.EMPTY, RKIDistrictTable.EMPTY,
+            RKIStateTable.EMPTY, null, Collections.emptyMap());
+
+    /**
+     * Consecutive number of the snapshot, increased with every ingest.
+     */
+    private final long version;
+
+    /**
+     * Time of the ingest in milliseconds since the epoch.
+     */
+    private final long publishedAt;
+
+    /**
+     * All days since John Hopkins University records began, for all countries.
+     */
+    private final CountrySeriesStore jHStore;
+
+    /**
+     * Latest daily data of the Robert Koch Institute per district, empty if no district data has been ingested yet.
+     */
+    private final RKIDistrictTable rkiDistricts;
+
+    /**
+     * Latest daily data of the Robert Koch Institute per federal state, empty if no RKI data has been ingested yet.
+     */
+    private final RKIStateTable rkiStates;
+
+    /**
+     * Latest daily data of the Robert Koch Institute, null if no RKI data has been ingested yet.
+     */
+    private final RKIDailyInfosTotal rkiTotal;
+
+    /**
+     * Key figures precomputed from the series and the daily total, by country name.
+     */
+    private final Map<String, KeyFigureTable> keyFigures;
+
+    /**
+     * Constructor of the snapshot
+     *
+     * @param version      consecutive number of the snapshot
+     * @param publishedAt  time of the ingest in milliseconds since the epoch
+     * @param jHStore      John Hopkins series of all countries. The store must not be modified afterwards.
+     * @param rkiDistricts latest RKI data per district, completed
+     * @param rkiStates    latest RKI data per state
+     * @param rkiTotal     latest RKI daily total, may be null
+     * @param keyFigures   unmodifiable map of the precomputed key figures by country name
+     */
+    public DatasetSnapshot(long version, long publishedAt, CountrySeriesStore jHStore,
+                           RKIDistrictTable rkiDistricts, RKIStateTable rkiStates, RKIDailyInfosTotal rkiTotal,
+                           Map<String, KeyFigureTable> keyFigures) {
+        this.version = version;
+        this.publishedAt = publishedAt;
+        this.jHStore = jHStore;
+        this.rkiDistricts = rkiDistricts;
+        this.rkiStates = rkiStates;
+        this.rkiTotal = rkiTotal;
+        this.keyFigures = keyFigures;
+    }
+
+    /**
+     * Basic getter to return the version
+     *
+     * @return consecutive number of the snapshot
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Basic getter to return the time of the ingest
+     *
+     * @return time of the ingest in milliseconds since the epoch
+     */
+    public long getPublishedAt() {
+        return publishedAt;
+    }
+
+    /**
+     * Basic getter to return the John Hopkins series of all countries
+     *
+     * @return store of all series, empty if no John Hopkins data has been ingested yet
+     */
+    public CountrySeriesStore getJHStore() {
+        return jHStore;
+    }
+
+    /**
+     * Basic getter to return the John Hopkins series of the default country
+     *
+     * @return series of all days, null if no John Hopkins data has been ingested yet
+     */
+    public JHTimeSeries getJHSeries() {
+        return jHStore.get(DEFAULT_COUNTRY);
+    }
+
+    /**
+     * Basic getter to return the latest RKI data per district
+     *
+     * @return district table, RKIDistrictTable.EMPTY if no district data has been ingested yet
+     */
+    public RKIDistrictTable getRkiDistricts() {
+        return rkiDistricts;
+    }
+
+    /**
+     * Basic getter to return the latest RKI data per federal state
+     *
+     * @return state table, RKIStateTable.EMPTY if no RKI data has been ingested yet
+     */
+    public RKIStateTable getRkiStates() {
+        return rkiStates;
+    }
+
+    /**
+     * Basic getter to return the latest RKI daily total
+     *
+     * @return latest RKI daily total, null if no RKI data has been ingested yet
+     */
+    public RKIDailyInfosTotal getRkiTotal() {
+        return rkiTotal;
+    }
+
+    /**
+     * Basic getter to return the precomputed key figures of the default country
+     *
+     * @return key figure table, KeyFigureTable.EMPTY if nothing has been ingested yet
+     */
+    public KeyFigureTable getKeyFigures() {
+        return getKeyFigures(DEFAULT_COUNTRY);
+    }
+
+    /**
+     * Returns the precomputed key figures of a country
+     *
+     * @param country Name of the country as used by John Hopkins University, e.g. "Germany"
+     * @return key figure table, KeyFigureTable.EMPTY if the country is not contained
+     */
+    public KeyFigureTable getKeyFigures(String country) {
+        return keyFigures.getOrDefault(country, KeyFigureTable.EMPTY);
+    }
+
+    /**
+     * Basic getter to return the precomputed key figures of all countries
+     *
+     * @return unmodifiable map of the key figure tables by country name
+     */
+    public Map<String, KeyFigureTable> getAllKeyFigures() {
+        return keyFigures;
+    }
+
+    /**
+     * Checks whether figures of a country are available
+     *
+     * @param country Name of the country
+     * @return true if the snapshot contains a key figure table of the country
+     */
+    public boolean hasCountry(String country) {
+        return keyFigures.containsKey(country);
+    }
+}
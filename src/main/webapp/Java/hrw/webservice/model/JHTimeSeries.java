@@ -0,0 +1,295 @@
+package hrw.webservice.model;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Columnar store of the John Hopkins daily data of a country.
+ * Instead of one JohnHDailyInfos object per day, every figure is kept in its own primitive array,
+ * the date is stored as epoch day. Day index 0 is the first day of the records.
+ * The daily raises of genuinely infected persons telescope, so the raise over any window of days is the
+ * difference of the genuinely infected persons of its last day and of the day before it.
+ * The series grows while it is ingested and must not be modified once it has been published in a DatasetSnapshot.
+ *
+ * @author Lars Karbach
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public final class JHTimeSeries {
+
+    /**
+     * Initial capacity, enough for about one and a half years of daily data.
+     */
+    private static final int DEFAULT_CAPACITY = 512;
+
+    /**
+     * Date of each day as epoch day (days since 1970-01-01)
+     */
+    private int[] epochDays;
+
+    /**
+     * Confirmed cases of each day
+     */
+    private int[] confirmed;
+
+    /**
+     * Deaths of each day
+     */
+    private int[] deaths;
+
+    /**
+     * Recovered cases of each day
+     */
+    private int[] recovered;
+
+    /**
+     * Number of stored days
+     */
+    private int size;
+
+    /**
+     * Constructor to create an empty series with the default capacity.
+     */
+    public JHTimeSeries() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor to create an empty series.
+     *
+     * @param capacity number of days that can be stored before the arrays have to grow
+     */
+    public JHTimeSeries(int capacity) {
+        epochDays = new int[capacity];
+        confirmed = new int[capacity];
+        deaths = new int[capacity];
+        recovered = new int[capacity];
+    }
+
+    /**
+     * Creates a series from a list of daily objects.
+     *
+     * @param dailyInfosList The list represents all days since 22.01.2020.
+     * @return series holding the same days
+     */
+    public static JHTimeSeries fromList(List<JohnHDailyInfos> dailyInfosList) {
+        JHTimeSeries series = new JHTimeSeries(dailyInfosList.size());
+
+        for (JohnHDailyInfos dailyInfos : dailyInfosList) {
+            series.append(parseDate(dailyInfos.getDate()), dailyInfos.getConfirmed(), dailyInfos.getDeaths(), dailyInfos.getRecovered());
+        }
+        return series;
+    }
+
+    /**
+     * Converts a John Hopkins date like "2020-1-22" to an epoch day.
+     *
+     * @param date date in the format year-month-day, month and day without leading zeros
+     * @return epoch day of the date
+     */
+    public static int parseDate(String date) {
+        return parseDate(date.toCharArray(), 0, date.length());
+    }
+
+    /**
+     * Converts a John Hopkins date like "2020-1-22" to an epoch day without creating a string.
+     *
+     * @param chars  characters holding the date
+     * @param offset index of the first character of the date
+     * @param length number of characters of the date
+     * @return epoch day of the date
+     * @throws IllegalArgumentException if the characters do not hold a date
+     */
+    public static int parseDate(char[] chars, int offset, int length) {
+        int year = 0;
+        int month = 0;
+        int dayOfMonth = 0;
+        int separators = 0;
+
+        for (int i = offset; i < offset + length; i++) {
+            char c = chars[i];
+
+            if (c == '-') {
+                separators++;
+            } else if (c < '0' || c > '9' || separators > 2) {
+                throw new IllegalArgumentException("Invalid date: " + new String(chars, offset, length));
+            } else if (separators == 0) {
+                year = year * 10 + (c - '0');
+            } else if (separators == 1) {
+                month = month * 10 + (c - '0');
+            } else {
+                dayOfMonth = dayOfMonth * 10 + (c - '0');
+            }
+        }
+        if (separators != 2) {
+            throw new IllegalArgumentException("Invalid date: " + new String(chars, offset, length));
+        }
+        return (int) LocalDate.of(year, month, dayOfMonth).toEpochDay();
+    }
+
+    /**
+     * Appends a day to the series, the arrays grow if necessary.
+     *
+     * @param epochDay       date of the day as epoch day
+     * @param confirmedCases confirmed cases
+     * @param deathCases     deaths
+     * @param recoveredCases recovered cases
+     */
+    public void append(int epochDay, int confirmedCases, int deathCases, int recoveredCases) {
+        if (size == epochDays.length) {
+            grow(Math.max(DEFAULT_CAPACITY, size + (size >> 1)));
+        }
+        epochDays[size] = epochDay;
+        confirmed[size] = confirmedCases;
+        deaths[size] = deathCases;
+        recovered[size] = recoveredCases;
+        size++;
+    }
+
+    /**
+     * Creates a new series holding the first days of this series.
+     *
+     * @param length   number of days that are copied
+     * @param capacity capacity of the new series, at least length
+     * @return new series, independent of this series
+     * @throws IndexOutOfBoundsException if the series holds less than length days
+     */
+    public JHTimeSeries copyOf(int length, int capacity) {
+        JHTimeSeries copy = new JHTimeSeries(0);
+        int newCapacity = Math.max(length, capacity);
+
+        if (length < 0 || length > size) {
+            throw new IndexOutOfBoundsException("Cannot copy " + length + " days of a series of " + size + " days!");
+        }
+        copy.epochDays = Arrays.copyOf(epochDays, newCapacity);
+        copy.confirmed = Arrays.copyOf(confirmed, newCapacity);
+        copy.deaths = Arrays.copyOf(deaths, newCapacity);
+        copy.recovered = Arrays.copyOf(recovered, newCapacity);
+        copy.size = length;
+
+        return copy;
+    }
+
+    /**
+     * Reduces the capacity to the number of stored days, should be called before the series is published.
+     *
+     * @return this series
+     */
+    public JHTimeSeries trimToSize() {
+        if (size < epochDays.length) {
+            grow(size);
+        }
+        return this;
+    }
+
+    /**
+     * Basic getter to return the number of days
+     *
+     * @return number of days
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the date of a day as epoch day.
+     *
+     * @param day day index
+     * @return epoch day
+     */
+    public int getEpochDay(int day) {
+        checkIndex(day);
+        return epochDays[day];
+    }
+
+    /**
+     * Returns the date of a day in the John Hopkins format, e.g. "2020-1-22".
+     *
+     * @param day day index
+     * @return date
+     */
+    public String getDate(int day) {
+        LocalDate date = LocalDate.ofEpochDay(getEpochDay(day));
+
+        return date.getYear() + "-" + date.getMonthValue() + "-" + date.getDayOfMonth();
+    }
+
+    /**
+     * Returns the confirmed cases of a day.
+     *
+     * @param day day index
+     * @return confirmed cases
+     */
+    public int getConfirmed(int day) {
+        checkIndex(day);
+        return confirmed[day];
+    }
+
+    /**
+     * Returns the deaths of a day.
+     *
+     * @param day day index
+     * @return deaths
+     */
+    public int getDeaths(int day) {
+        checkIndex(day);
+        return deaths[day];
+    }
+
+    /**
+     * Returns the recovered cases of a day.
+     *
+     * @param day day index
+     * @return recovered cases
+     */
+    public int getRecovered(int day) {
+        checkIndex(day);
+        return recovered[day];
+    }
+
+    /**
+     * Returns the genuinely infected persons of a day, confirmed cases - recovered - deaths.
+     *
+     * @param day day index
+     * @return genuinely infected persons
+     */
+    public int getTrueInfected(int day) {
+        checkIndex(day);
+        return trueInfected(day);
+    }
+
+    /**
+     * Changes the capacity of all columns.
+     *
+     * @param capacity new capacity, at least the number of stored days
+     */
+    private void grow(int capacity) {
+        epochDays = Arrays.copyOf(epochDays, capacity);
+        confirmed = Arrays.copyOf(confirmed, capacity);
+        deaths = Arrays.copyOf(deaths, capacity);
+        recovered = Arrays.copyOf(recovered, capacity);
+    }
+
+    /**
+     * Calculates the genuinely infected persons of a day without checking the index.
+     *
+     * @param day day index
+     * @return confirmed cases - recovered - deaths
+     */
+    private int trueInfected(int day) {
+        return confirmed[day] - recovered[day] - deaths[day];
+    }
+
+    /**
+     * Checks that the day index refers to a stored day, the arrays may be larger than the series.
+     *
+     * @param day day index
+     * @throws IndexOutOfBoundsException if the day is not stored
+     */
+    private void checkIndex(int day) {
+        if (day < 0 || day >= size) {
+            throw new IndexOutOfBoundsException("Day " + day + " is not within the series of " + size + " days!");
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package hrw.webservice.model;
+
+/**
+ * Immutable table of all key figures that can be requested from the web service.
+ * The table is precomputed once per ingest, including the average increase in infections for every
+ * window length, so that answering a request is a pure lookup.
+ * Figures whose source data has not been ingested yet are marked as unavailable.
+ *
+ * @author Lars Karbach, Philip Klein
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public final class KeyFigureTable {
+
+    /**
+     * Table that is used as long as no data has been ingested.
+     */
+    public static final KeyFigureTable EMPTY = new KeyFigureTable(false, 0, 0, 0, new double[0],
+            false, 0, false, Double.NaN, false, Double.NaN);
+
+    /**
+     * Whether the figures of the John Hopkins University are available
+     */
+    private final boolean johnHopkinsAvailable;
+
+    /**
+     * New infections in all of Germany within 24 hours
+     */
+    private final int newInf24H;
+
+    /**
+     * Number of genuinely infected persons within Germany.
+     */
+    private final int trueInfected;
+
+    /**
+     * Increase in infections in all of Germany within 24 hours
+     */
+    private final int raisedInf24H;
+
+    /**
+     * Average increase in infections, indexed by the number of days. Index 0 is unused.
+     */
+    private final double[] averageRaise;
+
+    /**
+     * Whether the figures of the Robert Koch Institute are available
+     */
+    private final boolean rkiAvailable;
+
+    /**
+     * Incidence value for all of Germany
+     */
+    private final double incidence;
+
+    /**
+     * Whether the target total infections have been calculated
+     */
+    private final boolean targetInfectionAvailable;
+
+    /**
+     * Target total infections
+     */
+    private final double targetInfection;
+
+    /**
+     * Whether the remaining lockdown days have been calculated
+     */
+    private final boolean remainingLockdownAvailable;
+
+    /**
+     * Remaining lockdown days, may be NaN or infinite if the infections do not decrease
+     */
+    private final double remainingLockdown;
+
+    /**
+     * Constructor of the table. The array of average raises is taken over and must not be modified afterwards.
+     *
+     * @param johnHopkinsAvailable whether the John Hopkins figures are available
+     * @param newInf24H            new infections within 24 hours
+     * @param trueInfected         genuinely infected persons
+     * @param raisedInf24H         increase in infections within 24 hours
+     * @param averageRaise         average increase in infections indexed by the number of days
+     * @param rkiAvailable         whether the RKI figures are available
+     * @param incidence                  incidence value for all of Germany
+     * @param targetInfectionAvailable   whether the target total infections have been calculated
+     * @param targetInfection            target total infections
+     * @param remainingLockdownAvailable whether the remaining lockdown days have been calculated
+     * @param remainingLockdown          remaining lockdown days
+     */
+    public KeyFigureTable(boolean johnHopkinsAvailable, int newInf24H, int trueInfected, int raisedInf24H,
+                          double[] averageRaise, boolean rkiAvailable, double incidence,
+                          boolean targetInfectionAvailable, double targetInfection,
+                          boolean remainingLockdownAvailable, double remainingLockdown) {
+        this.johnHopkinsAvailable = johnHopkinsAvailable;
+        this.newInf24H = newInf24H;
+        this.trueInfected = trueInfected;
+        this.raisedInf24H = raisedInf24H;
+        this.averageRaise = averageRaise;
+        this.rkiAvailable = rkiAvailable;
+        this.incidence = incidence;
+        this.targetInfectionAvailable = targetInfectionAvailable;
+        this.targetInfection = targetInfection;
+        this.remainingLockdownAvailable = remainingLockdownAvailable;
+        this.remainingLockdown = remainingLockdown;
+    }
+
+    /**
+     * Basic getter to return the new infections within 24 hours
+     *
+     * @return new infections within 24 hours
+     * @throws IllegalStateException if no John Hopkins data has been ingested yet
+     */
+    public int getNewInf24H() {
+        requireJohnHopkins();
+        return newInf24H;
+    }
+
+    /**
+     * Basic getter to return the genuinely infected persons
+     *
+     * @return genuinely infected persons
+     * @throws IllegalStateException if no John Hopkins data has been ingested yet
+     */
+    public int getTrueInfected() {
+        requireJohnHopkins();
+        return trueInfected;
+    }
+
+    /**
+     * Basic getter to return the increase in infections within 24 hours
+     *
+     * @return increase in infections within 24 hours
+     * @throws IllegalStateException if no John Hopkins data has been ingested yet
+     */
+    public int getRaisedInf24H() {
+        requireJohnHopkins();
+        return raisedInf24H;
+    }
+
+    /**
+     * Returns the average increase in infections within n days.
+     *
+     * @param days number of days, from 1 to getMaxDays()
+     * @return average increase in infections
+     * @throws IndexOutOfBoundsException if the series does not hold enough days
+     */
+    public double getAverageRaise(int days) {
+        if (days < 1 || days >= averageRaise.length) {
+            throw new IndexOutOfBoundsException("No average raise for " + days + " days, the maximum is " + getMaxDays() + "!");
+        }
+        return averageRaise[days];
+    }
+
+    /**
+     * Returns the largest number of days for which an average increase is available.
+     *
+     * @return largest window, 0 if no John Hopkins data has been ingested yet
+     */
+    public int getMaxDays() {
+        return Math.max(averageRaise.length - 1, 0);
+    }
+
+    /**
+     * Basic getter to return the incidence value for all of Germany
+     *
+     * @return incidence value
+     * @throws IllegalStateException if no RKI data has been ingested yet
+     */
+    public double getIncidence() {
+        if (!rkiAvailable) {
+            throw new IllegalStateException("No RKI data has been ingested yet!");
+        }
+        return incidence;
+    }
+
+    /**
+     * Basic getter to return the target total infections
+     *
+     * @return target total infections
+     * @throws IllegalStateException if the John Hopkins or the RKI data is missing
+     */
+    public double getTargetInfection() {
+        return requireAvailable(targetInfectionAvailable, targetInfection, "target infection");
+    }
+
+    /**
+     * Basic getter to return the remaining lockdown days
+     *
+     * @return remaining lockdown days
+     * @throws IllegalStateException if the John Hopkins or the RKI data is missing
+     */
+    public double getRemainingLockdown() {
+        return requireAvailable(remainingLockdownAvailable, remainingLockdown, "remaining lockdown");
+    }
+
+    /**
+     * Checks whether the John Hopkins figures are available
+     *
+     * @return true if John Hopkins data has been ingested
+     */
+    public boolean isJohnHopkinsAvailable() {
+        return johnHopkinsAvailable;
+    }
+
+    /**
+     * Checks whether the RKI figures are available
+     *
+     * @return true if RKI data has been ingested
+     */
+    public boolean isRkiAvailable() {
+        return rkiAvailable;
+    }
+
+    /**
+     * Checks whether the target total infections have been calculated
+     *
+     * @return true if getTargetInfection returns a value
+     */
+    public boolean isTargetInfectionAvailable() {
+        return targetInfectionAvailable;
+    }
+
+    /**
+     * Checks whether the remaining lockdown days have been calculated
+     *
+     * @return true if getRemainingLockdown returns a value
+     */
+    public boolean isRemainingLockdownAvailable() {
+        return remainingLockdownAvailable;
+    }
+
+    /**
+     * Ensures that the John Hopkins figures are available.
+     *
+     * @throws IllegalStateException if no John Hopkins data has been ingested yet
+     */
+    private void requireJohnHopkins() {
+        if (!johnHopkinsAvailable) {
+            throw new IllegalStateException("No John Hopkins data has been ingested yet!");
+        }
+    }
+
+    /**
+     * Ensures that a combined figure has been calculated.
+     *
+     * @param available whether the figure has been calculated
+     * @param value     precomputed figure
+     * @param figure    name of the figure for the error message
+     * @return the passed figure
+     * @throws IllegalStateException if the figure is not available
+     */
+    private double requireAvailable(boolean available, double value, String figure) {
+        if (!available) {
+            throw new IllegalStateException("The " + figure + " is not available yet!");
+        }
+        return value;
+    }
+}
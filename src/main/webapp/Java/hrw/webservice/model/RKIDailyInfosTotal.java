@@ -41,4 +41,13 @@ public class RKIDailyInfosTotal {
     public double getTargetInfection() {
         return targetInfection;
     }
+
+    /**
+     * Basic getter to return the sum of cases
+     *
+     * @return sum of cases of all of Germany
+     */
+    public int getSumCases() {
+        return sumCases;
+    }
 }
@@ -0,0 +1,290 @@
+package hrw.webservice.model;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Columnar table of the daily data of the Robert Koch Institute per district (Landkreis).
+ * Every attribute is kept in its own primitive array indexed by row. The pages of the ArcGIS feature service are
+ * decoded concurrently, each page writes its records directly into its own range of rows.
+ * Once all pages have been decoded, complete() calculates the incidence and the ranking of every district and builds
+ * the index of the district ids. The table must not be modified once it has been completed.
+ *
+ * @author Lars Karbach, Philip Klein
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public final class RKIDistrictTable {
+
+    /**
+     * Table that is used as long as no district data has been ingested.
+     */
+    public static final RKIDistrictTable EMPTY = new RKIDistrictTable(0).complete(0);
+
+    /**
+     * Official key of each district (RS), e.g. "09162" for München.
+     */
+    private final String[] ids;
+
+    /**
+     * Name of each district (GEN).
+     */
+    private final String[] names;
+
+    /**
+     * Number of the federal state of each district (BL_ID).
+     */
+    private final int[] stateIds;
+
+    /**
+     * Number of citizens of each district (EWZ).
+     */
+    private final int[] citizens;
+
+    /**
+     * Total cases of each district (cases).
+     */
+    private final int[] cases;
+
+    /**
+     * Cases of each district within the last 7 days (cases7_lk).
+     */
+    private final int[] cases7;
+
+    /**
+     * 7 day incidence of each district, calculated by complete().
+     */
+    private final double[] incidence;
+
+    /**
+     * Rank of each district by incidence, 1 is the highest incidence. Calculated by complete().
+     */
+    private int[] ranks;
+
+    /**
+     * Rows ordered by rank, entry 0 holds the row of the district with the highest incidence.
+     */
+    private int[] rowsByRank;
+
+    /**
+     * Row of every district by its official key.
+     */
+    private Map<String, Integer> rowById;
+
+    /**
+     * Number of rows of the completed table
+     */
+    private int size;
+
+    /**
+     * Constructor to create an empty table.
+     *
+     * @param capacity number of districts announced by the feature service
+     */
+    public RKIDistrictTable(int capacity) {
+        ids = new String[capacity];
+        names = new String[capacity];
+        stateIds = new int[capacity];
+        citizens = new int[capacity];
+        cases = new int[capacity];
+        cases7 = new int[capacity];
+        incidence = new double[capacity];
+    }
+
+    /**
+     * Returns the number of rows that can be set
+     *
+     * @return capacity of the table
+     */
+    public int capacity() {
+        return ids.length;
+    }
+
+    /**
+     * Sets the figures of a district. Different rows may be set concurrently.
+     *
+     * @param row      row of the district
+     * @param id       official key of the district
+     * @param name     name of the district
+     * @param stateId  number of the federal state
+     * @param citizens number of citizens
+     * @param cases    total cases
+     * @param cases7   cases within the last 7 days
+     */
+    public void set(int row, String id, String name, int stateId, int citizens, int cases, int cases7) {
+        this.ids[row] = id;
+        this.names[row] = name;
+        this.stateIds[row] = stateId;
+        this.citizens[row] = citizens;
+        this.cases[row] = cases;
+        this.cases7[row] = cases7;
+    }
+
+    /**
+     * Completes the table after all rows have been set. Calculates the incidence and the rank of every district
+     * and builds the index of the district ids.
+     *
+     * @param rows number of rows that have been set, all rows below have to be set
+     * @return this table
+     */
+    public RKIDistrictTable complete(int rows) {
+        Integer[] order = new Integer[rows];
+
+        if (rows > capacity()) {
+            throw new IllegalArgumentException("The table can not hold " + rows + " districts!");
+        }
+        size = rows;
+        rowById = new HashMap<>(rows * 2);
+        ranks = new int[rows];
+        rowsByRank = new int[rows];
+
+        for (int row = 0; row < rows; row++) {
+            if (ids[row] == null) {
+                throw new IllegalStateException("Row " + row + " of the district table has not been set!");
+            }
+            incidence[row] = citizens[row] == 0 ? 0 : ((double) cases7[row]) / citizens[row] * 100000;
+            rowById.put(ids[row], row);
+            order[row] = row;
+        }
+        // Highest incidence first, equal incidences in the order of the official keys.
+        Arrays.sort(order, Comparator.comparingDouble((Integer row) -> -incidence[row]).thenComparing(row -> ids[row]));
+        for (int rank = 0; rank < rows; rank++) {
+            rowsByRank[rank] = order[rank];
+            ranks[order[rank]] = rank + 1;
+        }
+        return this;
+    }
+
+    /**
+     * Returns the number of districts
+     *
+     * @return number of districts
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds a district by its official key in constant time.
+     *
+     * @param id Official key of the district, e.g. "09162"
+     * @return row of the district, -1 if no district matches
+     */
+    public int indexOf(String id) {
+        Integer row = rowById.get(id);
+
+        return row == null ? -1 : row;
+    }
+
+    /**
+     * Returns the district of a rank.
+     *
+     * @param rank rank by incidence, 1 is the highest incidence
+     * @return row of the district
+     */
+    public int getRowByRank(int rank) {
+        return rowsByRank[rank - 1];
+    }
+
+    /**
+     * Basic getter to return the official key of a district
+     *
+     * @param row row of the district
+     * @return official key
+     */
+    public String getId(int row) {
+        return ids[row];
+    }
+
+    /**
+     * Basic getter to return the name of a district
+     *
+     * @param row row of the district
+     * @return name
+     */
+    public String getName(int row) {
+        return names[row];
+    }
+
+    /**
+     * Basic getter to return the federal state of a district
+     *
+     * @param row row of the district
+     * @return number of the federal state
+     */
+    public int getStateId(int row) {
+        return stateIds[row];
+    }
+
+    /**
+     * Basic getter to return the citizens of a district
+     *
+     * @param row row of the district
+     * @return number of citizens
+     */
+    public int getCitizens(int row) {
+        return citizens[row];
+    }
+
+    /**
+     * Basic getter to return the total cases of a district
+     *
+     * @param row row of the district
+     * @return total cases
+     */
+    public int getCases(int row) {
+        return cases[row];
+    }
+
+    /**
+     * Basic getter to return the cases of a district within the last 7 days
+     *
+     * @param row row of the district
+     * @return cases within 7 days
+     */
+    public int getCases7(int row) {
+        return cases7[row];
+    }
+
+    /**
+     * Basic getter to return the 7 day incidence of a district
+     *
+     * @param row row of the district
+     * @return cases within 7 days per 100000 citizens
+     */
+    public double getIncidence(int row) {
+        return incidence[row];
+    }
+
+    /**
+     * Basic getter to return the rank of a district
+     *
+     * @param row row of the district
+     * @return rank by incidence, 1 is the highest incidence
+     */
+    public int getRank(int row) {
+        return ranks[row];
+    }
+
+    /**
+     * Checks whether another completed table holds the same districts with the same figures in the same rows.
+     * The incidences and ranks are derived from the rows, so they are not compared.
+     *
+     * @param other the other table
+     * @return true if all rows are equal
+     */
+    public boolean hasSameRows(RKIDistrictTable other) {
+        if (other.size != size) {
+            return false;
+        }
+        for (int row = 0; row < size; row++) {
+            if (!ids[row].equals(other.ids[row]) || !names[row].equals(other.names[row]) || stateIds[row] != other.stateIds[row]
+                    || citizens[row] != other.citizens[row] || cases[row] != other.cases[row] || cases7[row] != other.cases7[row]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
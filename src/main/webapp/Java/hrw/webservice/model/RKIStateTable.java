@@ -0,0 +1,159 @@
+package hrw.webservice.model;
+
+/**
+ * Immutable table of the daily data of the Robert Koch Institute per federal state (Bundesland).
+ * The figures are held in one primitive array per attribute, indexed by the position of the state in the
+ * features of the RKI feature service. The number of states is taken from the feature service.
+ *
+ * @author Lars Karbach, Philip Klein
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public final class RKIStateTable {
+
+    /**
+     * Table that is used as long as no RKI data has been ingested.
+     */
+    public static final RKIStateTable EMPTY = new RKIStateTable(new String[0], new String[0], new int[0], new int[0], new int[0]);
+
+    /**
+     * Official key of each state (LAN_ew_AGS), e.g. "09" for Bayern.
+     */
+    private final String[] ids;
+
+    /**
+     * Name of each state (LAN_ew_GEN).
+     */
+    private final String[] names;
+
+    /**
+     * Cases of each state within the last 7 days (cases7_bl).
+     */
+    private final int[] cases7;
+
+    /**
+     * Total cases of each state (Fallzahl).
+     */
+    private final int[] cases;
+
+    /**
+     * Number of citizens of each state (LAN_ew_EWZ).
+     */
+    private final int[] citizens;
+
+    /**
+     * 7 day incidence of each state, calculated when the table is built.
+     */
+    private final double[] incidence;
+
+    /**
+     * Constructor of the table. All arrays need the same length and must not be modified afterwards.
+     *
+     * @param ids      Official key of each state
+     * @param names    Name of each state
+     * @param cases7   Cases of each state within the last 7 days
+     * @param cases    Total cases of each state
+     * @param citizens Number of citizens of each state
+     */
+    public RKIStateTable(String[] ids, String[] names, int[] cases7, int[] cases, int[] citizens) {
+        if (names.length != ids.length || cases7.length != ids.length || cases.length != ids.length
+                || citizens.length != ids.length) {
+            throw new IllegalArgumentException("All columns of the state table need the same length!");
+        }
+        this.ids = ids;
+        this.names = names;
+        this.cases7 = cases7;
+        this.cases = cases;
+        this.citizens = citizens;
+        this.incidence = new double[ids.length];
+
+        for (int state = 0; state < ids.length; state++) {
+            incidence[state] = citizens[state] == 0 ? 0 : ((double) cases7[state]) / citizens[state] * 100000;
+        }
+    }
+
+    /**
+     * Returns the number of states
+     *
+     * @return number of states
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Finds a state by its official key or its name, the name is compared case-insensitively.
+     *
+     * @param id Official key, e.g. "09" or "9", or name of the state, e.g. "Bayern"
+     * @return index of the state, -1 if no state matches
+     */
+    public int indexOf(String id) {
+        for (int state = 0; state < ids.length; state++) {
+            if (ids[state].equals(id) || names[state].equalsIgnoreCase(id)
+                    || (id.length() == 1 && ids[state].equals("0" + id))) {
+                return state;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Basic getter to return the official key of a state
+     *
+     * @param state index of the state
+     * @return official key
+     */
+    public String getId(int state) {
+        return ids[state];
+    }
+
+    /**
+     * Basic getter to return the name of a state
+     *
+     * @param state index of the state
+     * @return name
+     */
+    public String getName(int state) {
+        return names[state];
+    }
+
+    /**
+     * Basic getter to return the cases of a state within the last 7 days
+     *
+     * @param state index of the state
+     * @return cases within 7 days
+     */
+    public int getCases7(int state) {
+        return cases7[state];
+    }
+
+    /**
+     * Basic getter to return the total cases of a state
+     *
+     * @param state index of the state
+     * @return total cases
+     */
+    public int getCases(int state) {
+        return cases[state];
+    }
+
+    /**
+     * Basic getter to return the citizens of a state
+     *
+     * @param state index of the state
+     * @return number of citizens
+     */
+    public int getCitizens(int state) {
+        return citizens[state];
+    }
+
+    /**
+     * Basic getter to return the 7 day incidence of a state
+     *
+     * @param state index of the state
+     * @return cases within 7 days per 100000 citizens
+     */
+    public double getIncidence(int state) {
+        return incidence[state];
+    }
+}
@@ -0,0 +1,158 @@
+package hrw.webservice.model.endpoint;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * REST endpoint model of the RKI figures of a single district with the description for the Swagger-UI.
+ *
+ * @author Lars Karbach, Furkan Kilic
+ * @version 1.0
+ * @since 2021-02-16
+ */
+@ApiModel(description = "RKI figures of a district")
+public class DistrictEndpointModel {
+    /**
+     * Holds the official key of the district.
+     */
+    @ApiModelProperty(notes = "official key of the district (RS)")
+    private String id;
+
+    /**
+     * Holds the name of the district.
+     */
+    @ApiModelProperty(notes = "name of the district")
+    private String name;
+
+    /**
+     * Holds the number of the federal state of the district.
+     */
+    @ApiModelProperty(notes = "number of the federal state")
+    private int stateId;
+
+    /**
+     * Holds the 7 day incidence of the district.
+     */
+    @ApiModelProperty(notes = "incidence")
+    private double incidence;
+
+    /**
+     * Holds the rank of the district by incidence.
+     */
+    @ApiModelProperty(notes = "rank by incidence, 1 is the highest incidence")
+    private int rank;
+
+    /**
+     * Holds the cases of the district within the last 7 days.
+     */
+    @ApiModelProperty(notes = "cases within the last 7 days")
+    private int cases7Days;
+
+    /**
+     * Holds the total cases of the district.
+     */
+    @ApiModelProperty(notes = "total cases")
+    private int totalCases;
+
+    /**
+     * Holds the number of citizens of the district.
+     */
+    @ApiModelProperty(notes = "citizens")
+    private int citizens;
+
+    /**
+     * Constructor that creates a DistrictEndpointModel.
+     *
+     * @param id         official key of the district
+     * @param name       name of the district
+     * @param stateId    number of the federal state
+     * @param incidence  7 day incidence
+     * @param rank       rank by incidence
+     * @param cases7Days cases within the last 7 days
+     * @param totalCases total cases
+     * @param citizens   number of citizens
+     */
+    public DistrictEndpointModel(String id, String name, int stateId, double incidence, int rank, int cases7Days,
+                                 int totalCases, int citizens) {
+        this.id = id;
+        this.name = name;
+        this.stateId = stateId;
+        this.incidence = incidence;
+        this.rank = rank;
+        this.cases7Days = cases7Days;
+        this.totalCases = totalCases;
+        this.citizens = citizens;
+    }
+
+    /**
+     * Basic getter to return the official key
+     *
+     * @return id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Basic getter to return the name
+     *
+     * @return name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Basic getter to return the number of the federal state
+     *
+     * @return stateId
+     */
+    public int getStateId() {
+        return stateId;
+    }
+
+    /**
+     * Basic getter to return the incidence
+     *
+     * @return incidence
+     */
+    public double getIncidence() {
+        return incidence;
+    }
+
+    /**
+     * Basic getter to return the rank
+     *
+     * @return rank
+     */
+    public int getRank() {
+        return rank;
+    }
+
+    /**
+     * Basic getter to return the cases within the last 7 days
+     *
+     * @return cases7Days
+     */
+    public int getCases7Days() {
+        return cases7Days;
+    }
+
+    /**
+     * Basic getter to return the total cases
+     *
+     * @return totalCases
+     */
+    public int getTotalCases() {
+        return totalCases;
+    }
+
+    /**
+     * Basic getter to return the citizens
+     *
+     * @return citizens
+     */
+    public int getCitizens() {
+        return citizens;
+    }
+}
@@ -1,35 +1,38 @@
 package hrw.webservice.model.endpoint;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import io.swagger.annotations.ApiModel;
 import io.swagger.annotations.ApiModelProperty;
 
 /**
  * REST endpoint model with the description for the Swagger-UI.
  * Model holds all values that the web service can return.
+ * The figures of the Robert Koch Institute only exist for Germany, for other countries they are null and omitted.
  *
  * @author Lars Karbach, Furkan Kilic
  * @version 1.0
  * @since 2021-02-16
  */
 @ApiModel(description = "Details about the Endpoints")
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class RestEndpointModel {
     /**
      * Holds the calculated incidence value.
      */
-    @ApiModelProperty(notes = "Incidences")
-    private double incidence;
+    @ApiModelProperty(notes = "Incidences, only for Germany")
+    private Double incidence;
 
     /**
      * Holds the calculated target infection.
      */
-    @ApiModelProperty(notes = "target infection")
-    private double targetInfection;
+    @ApiModelProperty(notes = "target infection, only for Germany")
+    private Double targetInfection;
 
     /**
      * Holds the calculated number of remaining lockdown days.
      */
-    @ApiModelProperty(notes = "remaining lockdown days")
-    private double remainingLockdown;
+    @ApiModelProperty(notes = "remaining lockdown days, only for Germany")
+    private Double remainingLockdown;
 
     /**
      * Holds the calculated number of new infections in the last 24 hours.
@@ -74,9 +77,9 @@ public class RestEndpointModel {
     /**
      * Basic getter to return incidence
      *
-     * @return incidence
+     * @return incidence, null if not available for the country
      */
-    public double getIncidence() {
+    public Double getIncidence() {
         return incidence;
     }
 
@@ -85,7 +88,7 @@ public class RestEndpointModel {
      *
      * @param incidence calculated incidence value.
      */
-    public void setIncidence(double incidence) {
+    public void setIncidence(Double incidence) {
         this.incidence = incidence;
     }
 
@@ -94,7 +97,7 @@ public class RestEndpointModel {
      *
      * @return target infection
      */
-    public double getTargetInfection() {
+    public Double getTargetInfection() {
         return targetInfection;
     }
 
@@ -103,7 +106,7 @@ public class RestEndpointModel {
      *
      * @param targetInfection calculated target infections value.
      */
-    public void setTargetInfection(double targetInfection) {
+    public void setTargetInfection(Double targetInfection) {
         this.targetInfection = targetInfection;
     }
 
@@ -112,7 +115,7 @@ public class RestEndpointModel {
      *
      * @return remaining lockdown days
      */
-    public double getRemainingLockdown() {
+    public Double getRemainingLockdown() {
         return remainingLockdown;
     }
 
@@ -121,7 +124,7 @@ public class RestEndpointModel {
      *
      * @param remainingLockdown calculated number of remaining lockdown days.
      */
-    public void setRemainingLockdown(double remainingLockdown) {
+    public void setRemainingLockdown(Double remainingLockdown) {
         this.remainingLockdown = remainingLockdown;
     }
 
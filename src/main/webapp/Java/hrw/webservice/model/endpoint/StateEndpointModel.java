@@ -0,0 +1,123 @@
+package hrw.webservice.model.endpoint;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * REST endpoint model of the RKI figures of a single federal state with the description for the Swagger-UI.
+ *
+ * @author Lars Karbach, Furkan Kilic
+ * @version 1.0
+ * @since 2021-02-16
+ */
+@ApiModel(description = "RKI figures of a federal state")
+public class StateEndpointModel {
+    /**
+     * Holds the official key of the state.
+     */
+    @ApiModelProperty(notes = "official key of the state (AGS)")
+    private String id;
+
+    /**
+     * Holds the name of the state.
+     */
+    @ApiModelProperty(notes = "name of the state")
+    private String name;
+
+    /**
+     * Holds the 7 day incidence of the state.
+     */
+    @ApiModelProperty(notes = "incidence")
+    private double incidence;
+
+    /**
+     * Holds the cases of the state within the last 7 days.
+     */
+    @ApiModelProperty(notes = "cases within the last 7 days")
+    private int cases7Days;
+
+    /**
+     * Holds the total cases of the state.
+     */
+    @ApiModelProperty(notes = "total cases")
+    private int totalCases;
+
+    /**
+     * Holds the number of citizens of the state.
+     */
+    @ApiModelProperty(notes = "citizens")
+    private int citizens;
+
+    /**
+     * Constructor that creates a StateEndpointModel.
+     *
+     * @param id         official key of the state
+     * @param name       name of the state
+     * @param incidence  7 day incidence
+     * @param cases7Days cases within the last 7 days
+     * @param totalCases total cases
+     * @param citizens   number of citizens
+     */
+    public StateEndpointModel(String id, String name, double incidence, int cases7Days, int totalCases, int citizens) {
+        this.id = id;
+        this.name = name;
+        this.incidence = incidence;
+        this.cases7Days = cases7Days;
+        this.totalCases = totalCases;
+        this.citizens = citizens;
+    }
+
+    /**
+     * Basic getter to return the official key
+     *
+     * @return id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Basic getter to return the name
+     *
+     * @return name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Basic getter to return the incidence
+     *
+     * @return incidence
+     */
+    public double getIncidence() {
+        return incidence;
+    }
+
+    /**
+     * Basic getter to return the cases within the last 7 days
+     *
+     * @return cases7Days
+     */
+    public int getCases7Days() {
+        return cases7Days;
+    }
+
+    /**
+     * Basic getter to return the total cases
+     *
+     * @return totalCases
+     */
+    public int getTotalCases() {
+        return totalCases;
+    }
+
+    /**
+     * Basic getter to return the citizens
+     *
+     * @return citizens
+     */
+    public int getCitizens() {
+        return citizens;
+    }
+}
@@ -0,0 +1,151 @@
+package hrw.webservice.rest.consumption;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Paged query of an ArcGIS feature service.
+ * Feature services return at most a fixed number of records per request, larger layers have to be fetched in pages
+ * using resultOffset and resultRecordCount. The query first requests the number of records and then requests all
+ * pages concurrently, every page is decoded as soon as it has arrived.
+ *
+ * @author Lars Karbach
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class ArcGisPagedQuery {
+
+    /**
+     * Decodes the body of a page.
+     */
+    @FunctionalInterface
+    public interface PageDecoder {
+        /**
+         * Decodes the records of a page.
+         *
+         * @param body   body of the page
+         * @param offset index of the first record of the page
+         * @param limit  maximum number of records of the page
+         * @return number of decoded records
+         * @throws IOException Throws an IO exception if the page can not be decoded.
+         */
+        int decode(byte[] body, int offset, int limit) throws IOException;
+    }
+
+    /**
+     * Decodes the body of the count request.
+     */
+    @FunctionalInterface
+    public interface CountDecoder {
+        /**
+         * Decodes the number of records.
+         *
+         * @param body body of the count request
+         * @return number of records of the query
+         * @throws IOException Throws an IO exception if the body can not be decoded.
+         */
+        int decode(byte[] body) throws IOException;
+    }
+
+    /**
+     * REST consumption that sends the requests.
+     */
+    private final RestConsumption restConsumption;
+
+    /**
+     * URL of the query without paging parameters. The query has to order the records, otherwise the pages may overlap.
+     */
+    private final String queryUrl;
+
+    /**
+     * Number of records requested per page, at most the maximum record count of the feature service.
+     */
+    private final int pageSize;
+
+    /**
+     * Maximum duration of every single request.
+     */
+    private final Duration timeout;
+
+    /**
+     * Constructor to create a paged query.
+     *
+     * @param restConsumption REST consumption that sends the requests
+     * @param queryUrl        URL of the ordered query without paging parameters
+     * @param pageSize        Number of records requested per page
+     * @param timeout         Maximum duration of every single request
+     */
+    public ArcGisPagedQuery(RestConsumption restConsumption, String queryUrl, int pageSize, Duration timeout) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("The page size has to be at least 1!");
+        }
+        this.restConsumption = restConsumption;
+        this.queryUrl = queryUrl;
+        this.pageSize = pageSize;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Requests the number of records of the query.
+     *
+     * @param decoder Decodes the count from the response
+     * @return Future of the number of records
+     */
+    public CompletableFuture<Integer> fetchCount(CountDecoder decoder) {
+        return restConsumption.sendRequestAsync(queryUrl + "&returnCountOnly=true", timeout)
+                .thenApply(body -> {
+                    try {
+                        return decoder.decode(body);
+                    } catch (IOException ioException) {
+                        throw new CompletionException(ioException);
+                    }
+                });
+    }
+
+    /**
+     * Requests all pages of the query concurrently and decodes them as they arrive.
+     * Every page has to contain exactly the expected number of records. If the layer changes while it is paged,
+     * the future completes exceptionally, so that no partial data is published.
+     *
+     * @param count   Number of records of the query, see fetchCount
+     * @param decoder Decodes a page, pages are decoded concurrently
+     * @return Future of the number of decoded records
+     */
+    public CompletableFuture<Integer> fetchPages(int count, PageDecoder decoder) {
+        int pages = (count + pageSize - 1) / pageSize;
+        @SuppressWarnings("unchecked")
+        CompletableFuture<Integer>[] pageFutures = new CompletableFuture[pages];
+
+        for (int page = 0; page < pages; page++) {
+            int offset = page * pageSize;
+            int expected = Math.min(pageSize, count - offset);
+
+            pageFutures[page] = restConsumption.sendRequestAsync(queryUrl + "&resultOffset=" + offset
+                    + "&resultRecordCount=" + pageSize, timeout)
+                    .thenApply(body -> {
+                        try {
+                            int records = decoder.decode(body, offset, expected);
+
+                            if (records != expected) {
+                                throw new IOException("ArcGIS page at offset " + offset + " contains " + records
+                                        + " instead of " + expected + " records!");
+                            }
+                            return records;
+                        } catch (IOException ioException) {
+                            throw new CompletionException(ioException);
+                        }
+                    });
+        }
+        return CompletableFuture.allOf(pageFutures).thenApply(done -> {
+            int records = 0;
+
+            for (CompletableFuture<Integer> pageFuture : pageFutures) {
+                records += pageFuture.join();
+            }
+            System.out.println("ArcGIS query: " + records + " records in " + pages + " pages");
+            return records;
+        });
+    }
+}
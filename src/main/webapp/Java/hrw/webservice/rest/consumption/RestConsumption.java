@@ -2,8 +2,19 @@ package hrw.webservice.rest.consumption;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Consumption for the REST Services
@@ -15,6 +26,48 @@ import java.net.URL;
 
 public class RestConsumption {
 
+    /**
+     * Timeout to establish a connection to one of the institutes.
+     */
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+
+    /**
+     * Timeout of a request if no request specific timeout is given.
+     */
+    private static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(60);
+
+    /**
+     * HTTP status code of a response without changes
+     */
+    private static final int HTTP_NOT_MODIFIED = 304;
+
+    /**
+     * HTTP status code of a successful response
+     */
+    private static final int HTTP_OK = 200;
+
+    /**
+     * The HTTP client is shared by all requests, so that connections are reused and
+     * requests to the institutes can be executed concurrently without blocking a thread per request.
+     */
+    private final HttpClient httpClient;
+
+    /**
+     * Holds the validators of the last successfully fetched response per URL.
+     * They are sent with the next request of the same URL so that unchanged data is not transferred and ingested again.
+     */
+    private final Map<String, Validators> validatorsByUrl = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor to create the REST consumption with its HTTP client.
+     */
+    public RestConsumption() {
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(CONNECT_TIMEOUT)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
     /**
      * @param url the needed URL for RKI and JH
      * @return response stream
@@ -22,16 +75,164 @@ public class RestConsumption {
      */
     public InputStream sendRestRequest(String url) throws IOException {
         try {
-            InputStream responseStream;
-            URL restEndpoint = new URL(url);
-            HttpURLConnection connection = (HttpURLConnection) restEndpoint.openConnection();
-            connection.setRequestProperty("accept", "application/json"); // Request Property regulation for JSON
-
-            responseStream = connection.getInputStream();
+            HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                    .timeout(DEFAULT_REQUEST_TIMEOUT)
+                    .header("accept", "application/json") // Request Property regulation for JSON
+                    .build();
 
-            return responseStream;
+            return httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream()).body();
         } catch (Exception ex) {
             return null;
         }
     }
+
+    /**
+     * Sends a conditional request to the URL and waits for the response.
+     *
+     * @param url the needed URL for RKI and JH
+     * @return The response body, or null if the data has not changed since the last request.
+     * @throws IOException Throws an IO exception if the request fails or the server responds with an error.
+     * @see #sendConditionalRequestAsync(String, Duration)
+     */
+    public byte[] sendConditionalRequest(String url) throws IOException {
+        try {
+            return sendConditionalRequestAsync(url, DEFAULT_REQUEST_TIMEOUT).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Request to " + url + " was interrupted!", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw new IOException("Request to " + url + " failed!", ex.getCause());
+        }
+    }
+
+    /**
+     * Sends a conditional request to the URL without blocking the calling thread. The ETag and Last-Modified
+     * validators of the last response are sent as If-None-Match and If-Modified-Since. If the server sends no
+     * validators, the SHA-256 hash of the last body is compared with the hash of the new body instead.
+     *
+     * @param url     the needed URL for RKI and JH
+     * @param timeout Maximum duration of the request including the transfer of the body
+     * @return Future of the response body, which completes with null if the data has not changed since the last request.
+     * The future completes exceptionally with an IOException if the request fails or the server responds with an error,
+     * and with a TimeoutException if the timeout elapses.
+     */
+    public CompletableFuture<byte[]> sendConditionalRequestAsync(String url, Duration timeout) {
+        Validators previous = validatorsByUrl.get(url);
+        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder(URI.create(url))
+                .timeout(timeout)
+                .header("accept", "application/json"); // Request Property regulation for JSON
+
+        if (previous != null && previous.eTag != null) {
+            requestBuilder.header("If-None-Match", previous.eTag);
+        }
+        if (previous != null && previous.lastModified != null) {
+            requestBuilder.header("If-Modified-Since", previous.lastModified);
+        }
+
+        return httpClient.sendAsync(requestBuilder.build(), HttpResponse.BodyHandlers.ofByteArray())
+                .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .thenApply(response -> handleConditionalResponse(url, previous, response));
+    }
+
+    /**
+     * Sends an unconditional request to the URL without blocking the calling thread.
+     * Used for paged queries, whose pages have to be fetched completely to assemble the data.
+     *
+     * @param url     the requested URL
+     * @param timeout Maximum duration of the request including the transfer of the body
+     * @return Future of the response body. The future completes exceptionally with an IOException if the request
+     * fails or the server responds with an error, and with a TimeoutException if the timeout elapses.
+     */
+    public CompletableFuture<byte[]> sendRequestAsync(String url, Duration timeout) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(timeout)
+                .header("accept", "application/json") // Request Property regulation for JSON
+                .build();
+
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .thenApply(response -> {
+                    if (response.statusCode() != HTTP_OK) {
+                        throw new CompletionException(new IOException("Request to " + url + " failed with status " + response.statusCode() + "!"));
+                    }
+                    return response.body();
+                });
+    }
+
+    /**
+     * Forgets the validators of the URL, so that the next request fetches the complete data again.
+     * Has to be called if the fetched data could not be ingested.
+     *
+     * @param url the URL whose validators are removed
+     */
+    public void resetValidators(String url) {
+        validatorsByUrl.remove(url);
+    }
+
+    /**
+     * Evaluates the response of a conditional request and remembers its validators.
+     *
+     * @param url      the requested URL
+     * @param previous validators sent with the request, may be null
+     * @param response response of the request
+     * @return The response body, or null if the data has not changed since the last request.
+     */
+    private byte[] handleConditionalResponse(String url, Validators previous, HttpResponse<byte[]> response) {
+        byte[] contentHash;
+
+        if (response.statusCode() == HTTP_NOT_MODIFIED) {
+            return null;
+        }
+        if (response.statusCode() != HTTP_OK) {
+            throw new CompletionException(new IOException("Request to " + url + " failed with status " + response.statusCode() + "!"));
+        }
+
+        contentHash = hash(response.body());
+        if (previous != null && MessageDigest.isEqual(previous.contentHash, contentHash)) {
+            return null;
+        }
+        validatorsByUrl.put(url, new Validators(response.headers().firstValue("ETag").orElse(null),
+                response.headers().firstValue("Last-Modified").orElse(null), contentHash));
+
+        return response.body();
+    }
+
+    /**
+     * Calculates the SHA-256 hash of the response body.
+     *
+     * @param body response body
+     * @return hash of the body
+     */
+    private byte[] hash(byte[] body) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(body);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not supported by the JVM!", ex);
+        }
+    }
+
+    /**
+     * Validators of a response, used to detect unchanged data.
+     */
+    private static class Validators {
+        private final String eTag;
+        private final String lastModified;
+        private final byte[] contentHash;
+
+        /**
+         * Basic constructor
+         *
+         * @param eTag         ETag header of the response, may be null
+         * @param lastModified Last-Modified header of the response, may be null
+         * @param contentHash  hash of the response body
+         */
+        private Validators(String eTag, String lastModified, byte[] contentHash) {
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.contentHash = contentHash;
+        }
+    }
 }
@@ -0,0 +1,451 @@
+package hrw.webservice.rest.distribution;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache of pre-serialized REST responses.
+ * The responses of the REST endpoints only change when a new dataset is published, so every body is
+ * serialized once per dataset version and kept as ready-to-write UTF-8 bytes, keyed by endpoint and parameters.
+ * Publishing a dataset replaces the whole generation of cached bodies in one atomic step.
+ * Only validated parameters may be used as keys, so the number of entries stays bounded.
+ * Concurrent misses of the same key within a generation are coalesced: the first request renders the body,
+ * the others wait for its result instead of rendering it again, so a refresh does not cause a rendering spike.
+ * Nothing is cached before the first dataset has been published.
+ * Every cached body can also be sent gzip-compressed or in a binary format, see ResponseFormat. Each variant is created
+ * with the first request that asks for it and is then kept with the body, so identical bytes are never compressed
+ * or transcoded twice.
+ *
+ * @author Lars Karbach, Furkan Kilic
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class ResponseCache {
+
+    /**
+     * Bodies smaller than this number of bytes are always sent uncompressed, the gzip header would outweigh the savings.
+     */
+    public static final int MIN_COMPRESS_SIZE = 1024;
+
+    /**
+     * The current generation of cached bodies.
+     */
+    private final AtomicReference<Generation> generation = new AtomicReference<>(new Generation(0, 0));
+
+    /**
+     * Renders the body of a response if it is not cached.
+     */
+    @FunctionalInterface
+    public interface Renderer {
+
+        /**
+         * Renders the body of a response
+         *
+         * @return JSON string of the response
+         * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
+         *                                 serialization/deserialization.
+         */
+        String render() throws JsonProcessingException;
+    }
+
+    /**
+     * Returns the cached response. If the response is not cached yet, it is rendered and stored
+     * for the current dataset version. If another request is already rendering it, its result is returned.
+     *
+     * @param key      Endpoint and parameters of the request, e.g. "data?days=7"
+     * @param renderer Renders the body if it is not cached
+     * @return cached response
+     * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
+     *                                 serialization/deserialization.
+     */
+    public Entry get(String key, Renderer renderer) throws JsonProcessingException {
+        Generation current = generation.get();
+        Entry entry = current.entries.get(key);
+        CompletableFuture<Entry> flight;
+        CompletableFuture<Entry> leader;
+
+        if (entry != null) {
+            return entry;
+        }
+        if (current.version == 0) {
+            return new Entry(current.version, current.publishedAt, key, renderer.render().getBytes(StandardCharsets.UTF_8));
+        }
+        flight = new CompletableFuture<>();
+        leader = current.inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            return await(leader);
+        }
+        try {
+            // The previous flight of the key may have finished between the lookup and the registration.
+            entry = current.entries.get(key);
+            if (entry == null) {
+                entry = new Entry(current.version, current.publishedAt, key, renderer.render().getBytes(StandardCharsets.UTF_8));
+                current.entries.put(key, entry);
+            }
+            flight.complete(entry);
+            return entry;
+        } catch (JsonProcessingException | RuntimeException exception) {
+            flight.completeExceptionally(exception);
+            throw exception;
+        } finally {
+            current.inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * Waits for the rendering of another request and takes over its result or its exception.
+     *
+     * @param leader Flight of the request that renders the body
+     * @return cached response
+     * @throws JsonProcessingException Throws the JSON processing exception of the rendering request.
+     */
+    private Entry await(CompletableFuture<Entry> leader) throws JsonProcessingException {
+        try {
+            return leader.join();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof JsonProcessingException) {
+                throw (JsonProcessingException) exception.getCause();
+            } else if (exception.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exception.getCause();
+            }
+            throw exception;
+        }
+    }
+
+    /**
+     * Checks whether an If-None-Match header names an ETag.
+     *
+     * @param ifNoneMatch Value of the If-None-Match header, may be null
+     * @param eTag        quoted ETag of the variant the request would receive
+     * @return true if the header names the ETag or is "*"
+     */
+    public static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String candidate = tag.trim();
+
+            // If-None-Match uses the weak comparison, a CDN may have weakened the tag.
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Discards all cached bodies. Has to be called after a new dataset has been published,
+     * bodies rendered from then on are stored for the new version.
+     *
+     * @param version     The version of the published dataset
+     * @param publishedAt Time of the ingest in milliseconds since the epoch
+     */
+    public void invalidate(long version, long publishedAt) {
+        generation.set(new Generation(version, publishedAt));
+    }
+
+    /**
+     * Basic getter to return the dataset version of the cached bodies
+     *
+     * @return dataset version
+     */
+    public long getVersion() {
+        return generation.get().version;
+    }
+
+    /**
+     * Basic getter to return the number of cached bodies
+     *
+     * @return number of cached bodies
+     */
+    public int size() {
+        return generation.get().entries.size();
+    }
+
+    /**
+     * Creates the strong ETag of a response from the dataset version and the parameters.
+     *
+     * @param version Dataset version
+     * @param key     Endpoint and parameters of the request
+     * @return quoted ETag
+     */
+    static String eTag(long version, String key) {
+        return "\"" + version + "-" + Integer.toHexString(key.hashCode()) + "\"";
+    }
+
+    /**
+     * Creates the ETag of the gzip-compressed variant of a response. Both variants need different strong ETags,
+     * because their bytes differ.
+     *
+     * @param eTag quoted ETag of the uncompressed response
+     * @return quoted ETag of the compressed response
+     */
+    static String gzipETag(String eTag) {
+        return variantETag(eTag, "-gzip");
+    }
+
+    /**
+     * Creates the ETag of a variant of a response by appending a suffix within the quotes.
+     *
+     * @param eTag   quoted ETag of the JSON response
+     * @param suffix suffix of the variant, e.g. "-cbor"
+     * @return quoted ETag of the variant
+     */
+    static String variantETag(String eTag, String suffix) {
+        return eTag.substring(0, eTag.length() - 1) + suffix + "\"";
+    }
+
+    /**
+     * Checks whether a client accepts gzip-compressed responses. Encodings with a quality of 0 are refused.
+     *
+     * @param acceptEncoding Value of the Accept-Encoding header, may be null
+     * @return true if gzip is accepted explicitly or via "*"
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        boolean wildcard = false;
+
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            String name = parameters[0].trim().toLowerCase();
+            boolean accepted = true;
+
+            for (int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].trim();
+
+                if (parameter.startsWith("q=")) {
+                    try {
+                        accepted = Double.parseDouble(parameter.substring(2).trim()) > 0;
+                    } catch (NumberFormatException exception) {
+                        accepted = false;
+                    }
+                }
+            }
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                return accepted;
+            } else if (name.equals("*")) {
+                wildcard = accepted;
+            }
+        }
+        return wildcard;
+    }
+
+    /**
+     * Compresses a body with the highest compression level, the body is compressed only once per dataset version.
+     *
+     * @param body uncompressed body
+     * @return gzip-compressed body
+     */
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4 + 32);
+
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(body);
+        } catch (IOException ioException) {
+            // Writing to memory does not fail.
+            throw new UncheckedIOException(ioException);
+        }
+        return compressed.toByteArray();
+    }
+
+    /**
+     * A cached response with its validators.
+     */
+    public static final class Entry {
+
+        /**
+         * The dataset version the body was rendered for, 0 if nothing has been published yet
+         */
+        private final long version;
+
+        /**
+         * Time of the ingest in milliseconds since the epoch
+         */
+        private final long publishedAt;
+
+        /**
+         * Strong ETag of the response
+         */
+        private final String eTag;
+
+        /**
+         * UTF-8 encoded body, null if only the validators are needed
+         */
+        private final byte[] body;
+
+        /**
+         * gzip-compressed body, null until it is requested for the first time
+         */
+        private volatile byte[] gzipBody;
+
+        /**
+         * Bodies transcoded into the binary formats by ordinal of the format, null until requested for the first time
+         */
+        private final byte[][] encodedBodies = new byte[ResponseFormat.values().length][];
+
+        /**
+         * Constructor of a cached response
+         *
+         * @param version     The dataset version the body was rendered for
+         * @param publishedAt Time of the ingest in milliseconds since the epoch
+         * @param key         Endpoint and parameters of the request
+         * @param body        UTF-8 encoded body, null if only the validators are needed
+         */
+        private Entry(long version, long publishedAt, String key, byte[] body) {
+            this.version = version;
+            this.publishedAt = publishedAt;
+            this.eTag = eTag(version, key);
+            this.body = body;
+        }
+
+        /**
+         * Basic getter to return the dataset version
+         *
+         * @return dataset version, 0 if nothing has been published yet
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Basic getter to return the time of the ingest
+         *
+         * @return time of the ingest in milliseconds since the epoch
+         */
+        public long getPublishedAt() {
+            return publishedAt;
+        }
+
+        /**
+         * Basic getter to return the ETag
+         *
+         * @return quoted ETag
+         */
+        public String getETag() {
+            return eTag;
+        }
+
+        /**
+         * Basic getter to return the body
+         *
+         * @return UTF-8 encoded body, null if only the validators are needed
+         */
+        public byte[] getBody() {
+            return body;
+        }
+
+        /**
+         * Returns the gzip-compressed body. The body is compressed with the first call, later calls return the same bytes.
+         *
+         * @return gzip-compressed body, null if the body is smaller than MIN_COMPRESS_SIZE or only the validators are needed
+         */
+        public byte[] getGzipBody() {
+            byte[] compressed = gzipBody;
+
+            if (compressed == null && body != null && body.length >= MIN_COMPRESS_SIZE) {
+                synchronized (this) {
+                    if (gzipBody == null) {
+                        gzipBody = gzip(body);
+                    }
+                    compressed = gzipBody;
+                }
+            }
+            return compressed;
+        }
+
+        /**
+         * Basic getter to return the ETag of the gzip-compressed body
+         *
+         * @return quoted ETag of the compressed body
+         */
+        public String getGzipETag() {
+            return gzipETag(eTag);
+        }
+
+        /**
+         * Returns the body encoded in a format. The body is transcoded with the first call, later calls return the
+         * same bytes.
+         *
+         * @param format the negotiated format
+         * @return encoded body, null if only the validators are needed
+         */
+        public byte[] getBody(ResponseFormat format) {
+            if (format == ResponseFormat.JSON || body == null) {
+                return body;
+            }
+            synchronized (encodedBodies) {
+                if (encodedBodies[format.ordinal()] == null) {
+                    encodedBodies[format.ordinal()] = format.encode(body);
+                }
+                return encodedBodies[format.ordinal()];
+            }
+        }
+
+        /**
+         * Returns the ETag of the body encoded in a format.
+         *
+         * @param format the negotiated format
+         * @return quoted ETag of the encoded body
+         */
+        public String getETag(ResponseFormat format) {
+            return variantETag(eTag, format.getETagSuffix());
+        }
+    }
+
+    /**
+     * All responses cached for one dataset version.
+     */
+    private static final class Generation {
+
+        /**
+         * The dataset version the bodies are rendered from
+         */
+        private final long version;
+
+        /**
+         * Time of the ingest in milliseconds since the epoch
+         */
+        private final long publishedAt;
+
+        /**
+         * The cached responses by endpoint and parameters
+         */
+        private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+        /**
+         * Renderings in progress by endpoint and parameters, later requests of the same key wait for them
+         */
+        private final ConcurrentHashMap<String, CompletableFuture<Entry>> inFlight = new ConcurrentHashMap<>();
+
+        /**
+         * Constructor of an empty generation
+         *
+         * @param version     The dataset version the bodies are rendered from
+         * @param publishedAt Time of the ingest in milliseconds since the epoch
+         */
+        private Generation(long version, long publishedAt) {
+            this.version = version;
+            this.publishedAt = publishedAt;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package hrw.webservice.rest.distribution;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Formats the REST responses can be encoded in, negotiated by the Accept header.
+ * The bodies are rendered as JSON, the binary formats are transcoded from the JSON body token by token, so every
+ * endpoint supports all formats without own serialization code.
+ *
+ * @author Lars Karbach, Furkan Kilic
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public enum ResponseFormat {
+
+    /**
+     * JSON, the default format
+     */
+    JSON("application/json", "", new JsonFactory()),
+
+    /**
+     * Concise Binary Object Representation, RFC 8949
+     */
+    CBOR("application/cbor", "-cbor", new CBORFactory()),
+
+    /**
+     * Jackson's binary JSON format Smile
+     */
+    SMILE("application/x-jackson-smile", "-smile", new SmileFactory());
+
+    /**
+     * Factory used to read the JSON bodies.
+     */
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * Media type of the format
+     */
+    private final MediaType mediaType;
+
+    /**
+     * Media type of the format as string
+     */
+    private final String mediaTypeValue;
+
+    /**
+     * Suffix that distinguishes the ETag of the format from the ETag of the JSON body
+     */
+    private final String eTagSuffix;
+
+    /**
+     * Factory of the generators of the format
+     */
+    private final JsonFactory factory;
+
+    /**
+     * Constructor of a format
+     *
+     * @param mediaTypeValue Media type of the format
+     * @param eTagSuffix     Suffix of the ETag
+     * @param factory        Factory of the generators of the format
+     */
+    ResponseFormat(String mediaTypeValue, String eTagSuffix, JsonFactory factory) {
+        this.mediaType = MediaType.parseMediaType(mediaTypeValue);
+        this.mediaTypeValue = mediaTypeValue;
+        this.eTagSuffix = eTagSuffix;
+        this.factory = factory;
+    }
+
+    /**
+     * Selects the format with the highest quality in an Accept header.
+     * Media ranges with a quality of 0 are refused, on equal quality the first range wins.
+     * JSON is returned if the header is missing or names none of the formats, as before the negotiation existed.
+     *
+     * @param accept Value of the Accept header, may be null
+     * @return the negotiated format
+     */
+    public static ResponseFormat fromAccept(String accept) {
+        ResponseFormat best = JSON;
+        double bestQuality = 0;
+
+        if (accept == null) {
+            return JSON;
+        }
+        for (String range : accept.split(",")) {
+            String[] parameters = range.split(";");
+            String type = parameters[0].trim().toLowerCase();
+            double quality = 1;
+
+            for (int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].trim();
+
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException exception) {
+                        quality = 0;
+                    }
+                }
+            }
+            for (ResponseFormat format : values()) {
+                if (quality > bestQuality && (format.mediaTypeValue.equals(type)
+                        || format == JSON && (type.equals("*/*") || type.equals("application/*")))) {
+                    best = format;
+                    bestQuality = quality;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Transcodes a JSON body into the format.
+     *
+     * @param json UTF-8 encoded JSON body
+     * @return the body encoded in the format, the passed array for JSON
+     */
+    public byte[] encode(byte[] json) {
+        ByteArrayOutputStream encoded;
+
+        if (this == JSON) {
+            return json;
+        }
+        encoded = new ByteArrayOutputStream(json.length / 2 + 16);
+        try (JsonParser parser = JSON_FACTORY.createParser(json);
+             JsonGenerator generator = factory.createGenerator(encoded)) {
+            while (parser.nextToken() != null) {
+                generator.copyCurrentEvent(parser);
+            }
+        } catch (IOException ioException) {
+            // The bodies are rendered by Jackson, so they are always valid JSON.
+            throw new UncheckedIOException(ioException);
+        }
+        return encoded.toByteArray();
+    }
+
+    /**
+     * Basic getter to return the media type
+     *
+     * @return media type of the format
+     */
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Basic getter to return the ETag suffix
+     *
+     * @return suffix of the ETag, empty for JSON
+     */
+    public String getETagSuffix() {
+        return eTagSuffix;
+    }
+
+    /**
+     * Basic getter to return the factory
+     *
+     * @return factory of the parsers and generators of the format
+     */
+    public JsonFactory getFactory() {
+        return factory;
+    }
+}
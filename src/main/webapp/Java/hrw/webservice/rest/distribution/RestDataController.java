@@ -2,15 +2,53 @@ package hrw.webservice.rest.distribution;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import hrw.webservice.logic.Covid19WebService;
+import hrw.webservice.logic.GenerateException;
+import hrw.webservice.logic.MetricQuery;
+import hrw.webservice.logic.PrecomputeKeyFigures;
 import hrw.webservice.logic.WebServiceEndpointHandler;
+import hrw.webservice.model.DatasetSnapshot;
+import hrw.webservice.model.JHTimeSeries;
+import hrw.webservice.model.KeyFigureTable;
+import hrw.webservice.model.RKIDistrictTable;
+import hrw.webservice.model.RKIStateTable;
+import hrw.webservice.model.endpoint.DistrictEndpointModel;
 import hrw.webservice.model.endpoint.ErrorResponseModel;
 import hrw.webservice.model.endpoint.RestEndpointModel;
+import hrw.webservice.model.endpoint.StateEndpointModel;
+import hrw.webservice.threads.UpdateBroadcaster;
 import io.swagger.annotations.*;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * REST Data Controller with Swagger-UI description
  * Annotation in Spring boot and Swagger documentation
+ * The bodies of valid requests are taken from the response cache of the web service, so they are serialized
+ * only once per published dataset. Cached responses carry an ETag, Last-Modified and a Cache-Control max-age up to
+ * the next scheduled refresh. A matching If-None-Match header is answered with 304 without invoking the handler.
+ * Every endpoint takes an optional country, Germany by default. The figures of the Robert Koch Institute
+ * (incidence, target infection and lockdown forecast) only exist for Germany.
+ * The figures of the federal states and districts are rendered right after every ingest, see precomputeRegionResponses.
+ * Cached responses are sent as JSON, CBOR or Smile as negotiated by the Accept header, see ResponseFormat.
+ * The daily series are not cached, they are streamed row by row from the published dataset.
+ * Views that need several figures request them at once from data/batch, which reads them from one dataset.
+ * Instead of polling, clients may subscribe to updates, which pushes the key figures of every published dataset.
  *
  * @author Lars Karbach, Furkan Kilic
  * @version 1.0
@@ -26,6 +64,32 @@ import org.springframework.web.bind.annotation.*;
 @RestController
 @RequestMapping("/covid")
 public class RestDataController {
+    /**
+     * Cache key of the figures of all federal states, the key of a single state appends its official key.
+     */
+    private static final String STATES_KEY = "data/states";
+
+    /**
+     * Cache key of the figures of the districts, the key of a single district appends its official key.
+     */
+    private static final String DISTRICTS_KEY = "data/districts";
+
+    /**
+     * Media type of newline-delimited JSON
+     */
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    /**
+     * Media type of CSV
+     */
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
+    /**
+     * Time after which a subscription of the update stream is closed, the clients reconnect on their own.
+     * Can be changed with the system property covid19.updates.timeout (ISO-8601 duration, default PT1H).
+     */
+    private static final long UPDATES_TIMEOUT = Duration.parse(System.getProperty("covid19.updates.timeout", "PT1H")).toMillis();
+
     private Covid19WebService webService;
 
     /**Basic constructor
@@ -36,7 +100,11 @@ public class RestDataController {
     }
 
     /**
-     * @param days A parameter that determines the day
+     * @param days        A parameter that determines the day
+     * @param country     Name of the country, Germany by default
+     * @param ifNoneMatch ETag of the response the client already holds
+     * @param acceptEncoding Value of the Accept-Encoding header, may be null
+     * @param accept         Value of the Accept header, may be null
      * @return all Covid-19 data
      * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
      *                                 *                                 *                                 serialization/deserialization.
@@ -44,16 +112,27 @@ public class RestDataController {
     @GetMapping(value = "data")
     @ApiOperation(value = "Get all Covid-19 data", response = RestEndpointModel.class)
     @ResponseBody
-    public String getAllData(@ApiParam(value = "Get all Covid-19 data on choosen day", required = true) @RequestParam int days) throws JsonProcessingException {
-        if (days >= 1) {
-            return webService.getHandler().generateAllData(days);
+    public ResponseEntity<byte[]> getAllData(@ApiParam(value = "Get all Covid-19 data on choosen day", required = true) @RequestParam int days,
+                                             @ApiParam(value = "Country as named by John Hopkins University", example = "Germany") @RequestParam(defaultValue = DatasetSnapshot.DEFAULT_COUNTRY) String country,
+                                             @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                             @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) throws JsonProcessingException {
+        if (!isKnownCountry(country)) {
+            return error(400, "Unknown country " + country);
+        } else if (days >= 1) {
+            return cached("data?country=" + country + "&days=" + days, isCacheableWindow(country, days), ifNoneMatch, acceptEncoding, accept,
+                    () -> webService.getHandler().generateAllData(country, days));
         } else {
-            return webService.getJacksonObjMapper().objectToString(new ErrorResponseModel(400, "Client sent an invalid request"));
+            return error(400, "Client sent an invalid request");
         }
     }
 
     /**
-     * @param filter A request parameter that determines latest, target and total
+     * @param filter      A request parameter that determines latest, target and total
+     * @param country     Name of the country, Germany by default
+     * @param ifNoneMatch ETag of the response the client already holds
+     * @param acceptEncoding Value of the Accept-Encoding header, may be null
+     * @param accept         Value of the Accept header, may be null
      * @return infections by latest, target or total
      * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
      *                                 *                                 *                                 serialization/deserialization.
@@ -61,31 +140,45 @@ public class RestDataController {
     @GetMapping(value = "data/infections")
     @ApiOperation(value = "Filter infections by latest, target & total", response = RestEndpointModel.class)
     @ResponseBody
-    public String getInfectionsData(@ApiParam(value = "Requires a filter value -> latest, target & total", example = "latest", required = true) @RequestParam String filter) throws JsonProcessingException {
-        String responseJson;
+    public ResponseEntity<byte[]> getInfectionsData(@ApiParam(value = "Requires a filter value -> latest, target & total", example = "latest", required = true) @RequestParam String filter,
+                                                    @ApiParam(value = "Country as named by John Hopkins University", example = "Germany") @RequestParam(defaultValue = DatasetSnapshot.DEFAULT_COUNTRY) String country,
+                                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                    @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                                    @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) throws JsonProcessingException {
+        ResponseCache.Renderer renderer;
 
         try {
+            if (!isKnownCountry(country)) {
+                return error(400, "Unknown country " + country);
+            }
             switch (filter) {
                 case "latest":
-                    responseJson = webService.getHandler().generateLatestInfections();
+                    renderer = () -> webService.getHandler().generateLatestInfections(country);
                     break;
                 case "target":
-                    responseJson = webService.getHandler().generateTargetInfections();
+                    if (!isRkiCountry(country)) {
+                        return error(400, "The target infection is only available for " + PrecomputeKeyFigures.RKI_COUNTRY);
+                    }
+                    renderer = () -> webService.getHandler().generateTargetInfections(country);
                     break;
                 case "total":
-                    responseJson = webService.getHandler().generateTrueInfections();
+                    renderer = () -> webService.getHandler().generateTrueInfections(country);
                     break;
                 default:
-                    return webService.getJacksonObjMapper().objectToString(new ErrorResponseModel(400, "Client sent an invalid request"));
+                    return error(400, "Client sent an invalid request");
             }
-            return responseJson;
+            return cached("data/infections?country=" + country + "&filter=" + filter, true, ifNoneMatch, acceptEncoding, accept, renderer);
         } catch (Exception e) {
-            return webService.getJacksonObjMapper().objectToString(new ErrorResponseModel(500, "A generic error occurred on the server"));
+            return error(500, "A generic error occurred on the server");
         }
     }
 
     /**
-     * @param days A parameter that determines the day
+     * @param days        A parameter that determines the day
+     * @param country     Name of the country, Germany by default
+     * @param ifNoneMatch ETag of the response the client already holds
+     * @param acceptEncoding Value of the Accept-Encoding header, may be null
+     * @param accept         Value of the Accept header, may be null
      * @return infections last 24 hours or average raise by "n" days
      * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
      *                                 *                                 *                                 serialization/deserialization.
@@ -95,41 +188,468 @@ public class RestDataController {
             "\n Days with input == 1 will response raised infections last 24 hours", response = RestEndpointModel.class)
 
     @ResponseBody
-    public String getAvgRaisedInfections(int days) throws JsonProcessingException {
-        String responseJson;
+    public ResponseEntity<byte[]> getAvgRaisedInfections(int days,
+                                                         @ApiParam(value = "Country as named by John Hopkins University", example = "Germany") @RequestParam(defaultValue = DatasetSnapshot.DEFAULT_COUNTRY) String country,
+                                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                         @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                                         @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) throws JsonProcessingException {
         try {
-            if (days > 1) {
-                responseJson = webService.getHandler().generateAvgInfectionRaise(days);
+            if (!isKnownCountry(country)) {
+                return error(400, "Unknown country " + country);
+            } else if (days > 1) {
+                return cached("data/infections/raised?country=" + country + "&days=" + days, isCacheableWindow(country, days), ifNoneMatch, acceptEncoding, accept,
+                        () -> webService.getHandler().generateAvgInfectionRaise(country, days));
             } else if (days == 1) {
-                responseJson = webService.getHandler().generateDailyInfectionsRaise();
+                return cached("data/infections/raised?country=" + country + "&days=1", true, ifNoneMatch, acceptEncoding, accept,
+                        () -> webService.getHandler().generateDailyInfectionsRaise(country));
             } else {
-                return webService.getJacksonObjMapper().objectToString(new ErrorResponseModel(400, "Client sent an invalid request"));
+                return error(400, "Client sent an invalid request");
             }
         } catch (Exception e) {
-            return webService.getJacksonObjMapper().objectToString(new ErrorResponseModel(500, "A generic error occurred on the server"));
+            return error(500, "A generic error occurred on the server");
         }
-        return responseJson;
     }
 
     /**
+     * @param country     Name of the country, only Germany is supported
+     * @param ifNoneMatch ETag of the response the client already holds
+     * @param acceptEncoding Value of the Accept-Encoding header, may be null
+     * @param accept         Value of the Accept header, may be null
      * @return incidence in Germany
      * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
      *                                 *                                 *                                 serialization/deserialization.
      */
     @GetMapping("data/incidences")
     @ApiOperation(value = "Get incidence", response = RestEndpointModel.class)
-    public String getIncidences() throws JsonProcessingException {
-        return webService.getHandler().generateIncidences();
+    public ResponseEntity<byte[]> getIncidences(@ApiParam(value = "Country as named by John Hopkins University", example = "Germany") @RequestParam(defaultValue = DatasetSnapshot.DEFAULT_COUNTRY) String country,
+                                                @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                                @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) throws JsonProcessingException {
+        if (!isRkiCountry(country)) {
+            return error(400, "The incidence is only available for " + PrecomputeKeyFigures.RKI_COUNTRY);
+        }
+        return cached("data/incidences", true, ifNoneMatch, acceptEncoding, accept, () -> webService.getHandler().generateIncidences());
     }
 
     /**
+     * @param country     Name of the country, only Germany is supported
+     * @param ifNoneMatch ETag of the response the client already holds
+     * @param acceptEncoding Value of the Accept-Encoding header, may be null
+     * @param accept         Value of the Accept header, may be null
      * @return forecast for remainign Lockdown days
      * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
      *                                 *                                 *                                 serialization/deserialization.
      */
     @GetMapping("data/forecast")
     @ApiOperation(value = "Get the lockdown forecast", response = RestEndpointModel.class)
-    public String getLockdownForecast() throws JsonProcessingException {
-        return webService.getHandler().generateForecast();
+    public ResponseEntity<byte[]> getLockdownForecast(@ApiParam(value = "Country as named by John Hopkins University", example = "Germany") @RequestParam(defaultValue = DatasetSnapshot.DEFAULT_COUNTRY) String country,
+                                                      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                                      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) throws JsonProcessingException {
+        if (!isRkiCountry(country)) {
+            return error(400, "The lockdown forecast is only available for " + PrecomputeKeyFigures.RKI_COUNTRY);
+        }
+        return cached("data/forecast", true, ifNoneMatch, acceptEncoding, accept, () -> webService.getHandler().generateForecast());
+    }
+
+    /**
+     * @param metrics     Requested metrics, comma separated or repeated, see MetricQuery
+     * @param country     Name of the country, Germany by default
+     * @param ifNoneMatch ETag of the response the client already holds
+     * @param accept      Value of the Accept header, may be null
+     * @return all requested metrics of the country from one dataset
+     * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
+     *                                 serialization/deserialization.
+     */
+    @GetMapping("data/batch")
+    @ApiOperation(value = "Get several metrics of a country from one dataset",
+            notes = "Metrics: newInfections24H, totalInfections, raisedInfections, averageRaise:<days>, incidence, targetInfection, remainingLockdown." +
+                    "\n The average raise may be requested for several windows, e.g. metrics=averageRaise:7,averageRaise:14")
+    public ResponseEntity<byte[]> getBatch(@ApiParam(value = "Requested metrics", example = "newInfections24H,totalInfections,averageRaise:7", required = true) @RequestParam List<String> metrics,
+                                           @ApiParam(value = "Country as named by John Hopkins University", example = "Germany") @RequestParam(defaultValue = DatasetSnapshot.DEFAULT_COUNTRY) String country,
+                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                           @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) throws JsonProcessingException {
+        DatasetSnapshot dataset = webService.getDataset();
+        KeyFigureTable keyFigures = dataset.getKeyFigures(country);
+        ResponseFormat format = ResponseFormat.fromAccept(accept);
+        MetricQuery query;
+        String eTag;
+        byte[] body;
+
+        try {
+            query = MetricQuery.parse(metrics);
+        } catch (IllegalArgumentException exception) {
+            return error(400, exception.getMessage());
+        }
+        if (!isKnownCountry(country)) {
+            return error(400, "Unknown country " + country);
+        } else if (query.requiresRki() && !isRkiCountry(country)) {
+            return error(400, "The figures of the Robert Koch Institute are only available for " + PrecomputeKeyFigures.RKI_COUNTRY);
+        } else if (keyFigures.isJohnHopkinsAvailable() && query.getMaxDays() > keyFigures.getMaxDays()) {
+            return error(400, "The average raise is available for at most " + keyFigures.getMaxDays() + " days");
+        }
+        // The combinations of metrics are unbounded, so the body is not cached. It is a few lookups only,
+        // clients that hold the version of the snapshot are still answered with 304.
+        eTag = ResponseCache.variantETag(ResponseCache.eTag(dataset.getVersion(),
+                "data/batch?country=" + country + "&metrics=" + query.getKey()), format.getETagSuffix());
+        if (dataset.getVersion() != 0 && ResponseCache.matches(ifNoneMatch, eTag)) {
+            return withValidators(ResponseEntity.status(HttpStatus.NOT_MODIFIED), dataset.getPublishedAt(), eTag).build();
+        }
+        try {
+            body = format.encode(webService.getHandler().generateBatch(country, query, dataset).getBytes(StandardCharsets.UTF_8));
+        } catch (GenerateException exception) {
+            return error(500, exception.getMessage());
+        }
+        if (dataset.getVersion() == 0) {
+            return ResponseEntity.ok().contentType(format.getMediaType()).body(body);
+        }
+        return withValidators(ResponseEntity.ok(), dataset.getPublishedAt(), eTag)
+                .contentType(format.getMediaType()).body(body);
+    }
+
+    /**
+     * @param ifNoneMatch ETag of the response the client already holds
+     * @param acceptEncoding Value of the Accept-Encoding header, may be null
+     * @param accept         Value of the Accept header, may be null
+     * @return RKI figures of all federal states
+     * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
+     *                                 serialization/deserialization.
+     */
+    @GetMapping("data/states")
+    @ApiOperation(value = "Get the RKI figures of all federal states", response = StateEndpointModel.class, responseContainer = "List")
+    public ResponseEntity<byte[]> getStates(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) throws JsonProcessingException {
+        return cached(STATES_KEY, true, ifNoneMatch, acceptEncoding, accept, () -> webService.getHandler().generateStates());
+    }
+
+    /**
+     * @param id          Official key or name of the federal state
+     * @param ifNoneMatch ETag of the response the client already holds
+     * @param acceptEncoding Value of the Accept-Encoding header, may be null
+     * @param accept         Value of the Accept header, may be null
+     * @return RKI figures of the federal state
+     * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
+     *                                 serialization/deserialization.
+     */
+    @GetMapping("data/states/{id}")
+    @ApiOperation(value = "Get the RKI figures of a federal state", response = StateEndpointModel.class)
+    public ResponseEntity<byte[]> getState(@ApiParam(value = "Official key (AGS) or name of the federal state", example = "09", required = true) @PathVariable String id,
+                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                           @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                           @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) throws JsonProcessingException {
+        RKIStateTable states = webService.getDataset().getRkiStates();
+        int state = states.indexOf(id);
+
+        if (state < 0) {
+            return error(400, "Unknown federal state " + id);
+        }
+        // The official key is used for the cache, so that the key and the name of a state share one entry.
+        String stateId = states.getId(state);
+        return cached(STATES_KEY + "/" + stateId, true, ifNoneMatch, acceptEncoding, accept, () -> webService.getHandler().generateState(stateId));
+    }
+
+    /**
+     * @param top         Number of districts with the highest incidence, all districts by default
+     * @param ifNoneMatch ETag of the response the client already holds
+     * @param acceptEncoding Value of the Accept-Encoding header, may be null
+     * @param accept         Value of the Accept header, may be null
+     * @return RKI figures of the districts ordered by incidence
+     * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
+     *                                 serialization/deserialization.
+     */
+    @GetMapping("data/districts")
+    @ApiOperation(value = "Get the RKI figures of the districts ordered by incidence", response = DistrictEndpointModel.class, responseContainer = "List")
+    public ResponseEntity<byte[]> getDistricts(@ApiParam(value = "Number of districts with the highest incidence", example = "10") @RequestParam(required = false) Integer top,
+                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                               @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                               @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) throws JsonProcessingException {
+        int size = webService.getDataset().getRkiDistricts().size();
+
+        if (top == null || top >= size) {
+            return cached(DISTRICTS_KEY, true, ifNoneMatch, acceptEncoding, accept, () -> webService.getHandler().generateDistricts(Integer.MAX_VALUE));
+        } else if (top >= 1) {
+            return cached(DISTRICTS_KEY + "?top=" + top, true, ifNoneMatch, acceptEncoding, accept, () -> webService.getHandler().generateDistricts(top));
+        } else {
+            return error(400, "Client sent an invalid request");
+        }
+    }
+
+    /**
+     * @param id          Official key of the district
+     * @param ifNoneMatch ETag of the response the client already holds
+     * @param acceptEncoding Value of the Accept-Encoding header, may be null
+     * @param accept         Value of the Accept header, may be null
+     * @return RKI figures of the district
+     * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
+     *                                 serialization/deserialization.
+     */
+    @GetMapping("data/districts/{id}")
+    @ApiOperation(value = "Get the RKI figures of a district", response = DistrictEndpointModel.class)
+    public ResponseEntity<byte[]> getDistrict(@ApiParam(value = "Official key (RS) of the district", example = "09162", required = true) @PathVariable String id,
+                                              @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                              @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                              @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) throws JsonProcessingException {
+        if (webService.getDataset().getRkiDistricts().indexOf(id) < 0) {
+            return error(400, "Unknown district " + id);
+        }
+        return cached(DISTRICTS_KEY + "/" + id, true, ifNoneMatch, acceptEncoding, accept, () -> webService.getHandler().generateDistrict(id));
+    }
+
+    /**
+     * @param country     Name of the country, Germany by default
+     * @param from        First day as ISO date, the first recorded day by default
+     * @param to          Last day as ISO date, the last recorded day by default
+     * @param format      "ndjson" (default) or "csv"
+     * @param ifNoneMatch ETag of the response the client already holds
+     * @return the daily series of the country within the range, streamed row by row
+     * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
+     *                                 serialization/deserialization.
+     */
+    @GetMapping(value = "series")
+    @ApiOperation(value = "Stream the daily John Hopkins series of a country as NDJSON or CSV",
+            notes = "One row per day with the cumulative confirmed, death and recovered cases")
+    public ResponseEntity<StreamingResponseBody> getSeries(@ApiParam(value = "Country as named by John Hopkins University", example = "Germany") @RequestParam(defaultValue = DatasetSnapshot.DEFAULT_COUNTRY) String country,
+                                                           @ApiParam(value = "First day", example = "2021-01-01") @RequestParam(required = false) String from,
+                                                           @ApiParam(value = "Last day", example = "2021-01-31") @RequestParam(required = false) String to,
+                                                           @ApiParam(value = "Output format", allowableValues = "ndjson, csv", example = "ndjson") @RequestParam(defaultValue = "ndjson") String format,
+                                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) throws JsonProcessingException {
+        DatasetSnapshot dataset = webService.getDataset();
+        JHTimeSeries series = dataset.getJHStore().get(country);
+        SeriesWriter writer = new SeriesWriter(webService.getJacksonObjMapper().getObjectMapper().getFactory());
+        String eTag;
+        int fromDay;
+        int toDay;
+
+        if (series == null) {
+            return streamedError(400, "Unknown country " + country);
+        } else if (!format.equals("ndjson") && !format.equals("csv")) {
+            return streamedError(400, "Unknown format " + format);
+        }
+        try {
+            fromDay = from == null ? 0 : SeriesWriter.indexOfFirstDay(series, LocalDate.parse(from).toEpochDay());
+            toDay = to == null ? series.size() : SeriesWriter.indexOfFirstDay(series, LocalDate.parse(to).toEpochDay() + 1);
+        } catch (DateTimeParseException exception) {
+            return streamedError(400, "Dates have to be ISO dates, e.g. 2021-02-16");
+        }
+        if (toDay < fromDay) {
+            return streamedError(400, "The range ends before it starts");
+        }
+        // The rows are streamed from the snapshot, so the snapshot also decides whether the client holds them.
+        eTag = ResponseCache.eTag(dataset.getVersion(), "series?country=" + country + "&from=" + from + "&to=" + to + "&format=" + format);
+        if (ResponseCache.matches(ifNoneMatch, eTag)) {
+            return withValidators(ResponseEntity.status(HttpStatus.NOT_MODIFIED), dataset.getPublishedAt(), eTag).build();
+        }
+        if (format.equals("csv")) {
+            return withValidators(ResponseEntity.ok(), dataset.getPublishedAt(), eTag)
+                    .contentType(TEXT_CSV).body(outputStream -> writer.writeCsv(country, series, fromDay, toDay, outputStream));
+        }
+        return withValidators(ResponseEntity.ok(), dataset.getPublishedAt(), eTag)
+                .contentType(APPLICATION_NDJSON).body(outputStream -> writer.writeNdjson(country, series, fromDay, toDay, outputStream));
+    }
+
+    /**
+     * @param lastEventId Version of the dataset a reconnecting client already holds
+     * @param request     The request, its response is continued asynchronously as stream of Server-Sent Events
+     * @param response    The response, one event per published dataset
+     * @throws IOException Throws an IO exception if the response can not be opened.
+     */
+    @GetMapping(value = "updates", produces = "text/event-stream")
+    @ApiOperation(value = "Subscribe to the key figures of Germany as Server-Sent Events",
+            notes = "An event named \"dataset\" is sent for the current dataset and for every dataset published afterwards. " +
+                    "\n The event ID is the version of the dataset, the data has the format of data/batch")
+    public void getUpdates(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                           HttpServletRequest request, HttpServletResponse response) throws IOException {
+        UpdateStream.open(request, response, webService.getUpdateBroadcaster(), lastEventId, UPDATES_TIMEOUT);
+    }
+
+    /**
+     * @return whether an ingest has been triggered, 202 if it has been triggered and 409 if it has been refused
+     * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
+     *                                 serialization/deserialization.
+     */
+    @PostMapping("refresh")
+    @ApiOperation(value = "Trigger a retrieval of the RKI and John Hopkins data", notes = "Rejected with 409 while a retrieval is in progress or within a minute after the last one")
+    public ResponseEntity<byte[]> triggerRefresh() throws JsonProcessingException {
+        if (!webService.getIngestionScheduler().triggerNow()) {
+            byte[] body = webService.getJacksonObjMapper().objectToString(new ErrorResponseModel(409,
+                    "A retrieval is in progress or has just finished")).getBytes(StandardCharsets.UTF_8);
+
+            return ResponseEntity.status(HttpStatus.CONFLICT).contentType(MediaType.APPLICATION_JSON).body(body);
+        }
+        byte[] body = webService.getJacksonObjMapper().objectToString(Collections.singletonMap("triggered", true)).getBytes(StandardCharsets.UTF_8);
+
+        return ResponseEntity.status(HttpStatus.ACCEPTED).contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Renders the responses of all federal states and districts into the response cache.
+     * Called once after every published dataset, so that requests for regions never render a body themselves.
+     * Regions without data, e.g. the districts before their first ingest, are skipped, their requests are answered
+     * with an error response that is not cached.
+     */
+    public void precomputeRegionResponses() {
+        ResponseCache cache = webService.getResponseCache();
+        RKIStateTable states = webService.getDataset().getRkiStates();
+        RKIDistrictTable districts = webService.getDataset().getRkiDistricts();
+
+        try {
+            if (states.size() > 0) {
+                cache.get(STATES_KEY, () -> webService.getHandler().generateStates());
+                for (int state = 0; state < states.size(); state++) {
+                    String stateId = states.getId(state);
+                    cache.get(STATES_KEY + "/" + stateId, () -> webService.getHandler().generateState(stateId));
+                }
+            }
+            if (districts.size() > 0) {
+                cache.get(DISTRICTS_KEY, () -> webService.getHandler().generateDistricts(Integer.MAX_VALUE));
+                for (int row = 0; row < districts.size(); row++) {
+                    String districtId = districts.getId(row);
+                    cache.get(DISTRICTS_KEY + "/" + districtId, () -> webService.getHandler().generateDistrict(districtId));
+                }
+            }
+        } catch (JsonProcessingException | GenerateException exception) {
+            // The responses are rendered with the first request instead.
+            System.out.println("An exception occurred when trying to render the region responses! " + exception);
+        }
+    }
+
+    /**
+     * Creates a response whose body is taken from the response cache.
+     * If the client already holds the current version, 304 Not Modified is returned without rendering the body.
+     * The format is negotiated by the Accept header, see ResponseFormat. Clients that accept gzip receive the
+     * compressed variant of a JSON body. Every variant is created only once per dataset version.
+     * A body that can not be rendered is answered with an error response, which is neither cached nor sent with
+     * validators.
+     *
+     * @param key            Endpoint and validated parameters of the request
+     * @param cacheable      Whether the parameters are within the bounded key space of the cache
+     * @param ifNoneMatch    Value of the If-None-Match header, may be null
+     * @param acceptEncoding Value of the Accept-Encoding header, may be null
+     * @param accept         Value of the Accept header, may be null
+     * @param renderer       Renders the JSON body if it is not cached
+     * @return response in the negotiated format
+     * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
+     *                                 serialization/deserialization.
+     */
+    private ResponseEntity<byte[]> cached(String key, boolean cacheable, String ifNoneMatch, String acceptEncoding, String accept,
+                                          ResponseCache.Renderer renderer) throws JsonProcessingException {
+        ResponseCache cache = webService.getResponseCache();
+        ResponseFormat format = ResponseFormat.fromAccept(accept);
+        ResponseCache.Entry entry;
+        byte[] gzipBody;
+        String eTag;
+
+        try {
+            if (!cacheable) {
+                return ResponseEntity.ok().contentType(format.getMediaType())
+                        .body(format.encode(renderer.render().getBytes(StandardCharsets.UTF_8)));
+            }
+            entry = cache.get(key, renderer);
+        } catch (GenerateException exception) {
+            return error(500, exception.getMessage());
+        }
+        if (entry.getVersion() == 0) {
+            return ResponseEntity.ok().contentType(format.getMediaType()).body(entry.getBody(format));
+        }
+        // The variant is negotiated first, small bodies never have a compressed variant.
+        gzipBody = format == ResponseFormat.JSON && ResponseCache.acceptsGzip(acceptEncoding) ? entry.getGzipBody() : null;
+        eTag = gzipBody != null ? entry.getGzipETag() : entry.getETag(format);
+        if (ResponseCache.matches(ifNoneMatch, eTag)) {
+            return withValidators(ResponseEntity.status(HttpStatus.NOT_MODIFIED), entry.getPublishedAt(), eTag).build();
+        }
+        if (gzipBody != null) {
+            return withValidators(ResponseEntity.ok(), entry.getPublishedAt(), eTag)
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .contentType(MediaType.APPLICATION_JSON).body(gzipBody);
+        }
+        return withValidators(ResponseEntity.ok(), entry.getPublishedAt(), eTag)
+                .contentType(format.getMediaType()).body(entry.getBody(format));
+    }
+
+    /**
+     * Adds the ETag, Last-Modified, Cache-Control and Vary headers of a cached response.
+     * The response may be cached by clients until the next scheduled refresh of the data. Only bodies that have
+     * been rendered from the data get validators, error responses are created by error().
+     * Caches have to keep the variants of the formats and encodings apart, so Vary names the Accept and
+     * Accept-Encoding headers.
+     *
+     * @param builder     Builder of the response
+     * @param publishedAt Time of the ingest of the data in milliseconds since the epoch
+     * @param eTag        ETag of the variant that is sent
+     * @return the passed builder
+     */
+    private ResponseEntity.BodyBuilder withValidators(ResponseEntity.BodyBuilder builder, long publishedAt, String eTag) {
+        long maxAge = Math.max(0, webService.getNextRefreshAt() - System.currentTimeMillis());
+
+        return builder.eTag(eTag)
+                .lastModified(publishedAt)
+                .cacheControl(CacheControl.maxAge(maxAge, TimeUnit.MILLISECONDS).cachePublic())
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+    }
+
+    /**
+     * Creates a JSON response containing an error model. Error responses are not cached, neither by the response
+     * cache nor by clients or a CDN, so they carry no validators and Cache-Control: no-store.
+     *
+     * @param status  Indicates the status code
+     * @param message The specific error message
+     * @return JSON response
+     * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
+     *                                 serialization/deserialization.
+     */
+    private ResponseEntity<byte[]> error(int status, String message) throws JsonProcessingException {
+        byte[] body = webService.getJacksonObjMapper().objectToString(new ErrorResponseModel(status, message)).getBytes(StandardCharsets.UTF_8);
+
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).cacheControl(CacheControl.noStore()).body(body);
+    }
+
+    /**
+     * Creates an error response for endpoints that stream their body, see error.
+     *
+     * @param status  Indicates the status code
+     * @param message The specific error message
+     * @return JSON response
+     * @throws JsonProcessingException Throws a JSON processing exception if an error occurs during
+     *                                 serialization/deserialization.
+     */
+    private ResponseEntity<StreamingResponseBody> streamedError(int status, String message) throws JsonProcessingException {
+        byte[] body = error(status, message).getBody();
+
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).cacheControl(CacheControl.noStore())
+                .body(outputStream -> outputStream.write(body));
+    }
+
+    /**
+     * Checks whether an average raise window is precomputed for the country in the published dataset.
+     * Other windows are answered with an error and are not cached, so the keys of the cache stay bounded.
+     *
+     * @param country Name of the country
+     * @param days    Number of days of the window
+     * @return true if the window may be cached
+     */
+    private boolean isCacheableWindow(String country, int days) {
+        return days <= webService.getDataset().getKeyFigures(country).getMaxDays();
+    }
+
+    /**
+     * Checks whether the published dataset contains the country. The default country is always accepted,
+     * before the first ingest its requests are answered with the usual error of the handler.
+     *
+     * @param country Name of the country
+     * @return true if the country is known
+     */
+    private boolean isKnownCountry(String country) {
+        return DatasetSnapshot.DEFAULT_COUNTRY.equals(country) || webService.getDataset().hasCountry(country);
+    }
+
+    /**
+     * Checks whether the figures of the Robert Koch Institute exist for the country.
+     *
+     * @param country Name of the country
+     * @return true for Germany
+     */
+    private boolean isRkiCountry(String country) {
+        return PrecomputeKeyFigures.RKI_COUNTRY.equals(country);
     }
-}
\ No newline at end of file
+}
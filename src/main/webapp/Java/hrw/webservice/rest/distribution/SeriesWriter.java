@@ -0,0 +1,150 @@
+package hrw.webservice.rest.distribution;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import hrw.webservice.model.JHTimeSeries;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Writes the days of a John Hopkins series directly into an output stream, one row per day.
+ * The rows are read from the published series and written through a small buffer, so the memory needed does not
+ * depend on the number of days that are written.
+ *
+ * @author Lars Karbach, Furkan Kilic
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class SeriesWriter {
+
+    /**
+     * Header line of the CSV format.
+     */
+    public static final String CSV_HEADER = "country,date,confirmed,deaths,recovered";
+
+    /**
+     * Size of the write buffer in bytes.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Factory of the streaming JSON generators.
+     */
+    private final JsonFactory jsonFactory;
+
+    /**
+     * Constructor to create the writer.
+     *
+     * @param jsonFactory Factory of the streaming JSON generators
+     */
+    public SeriesWriter(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    /**
+     * Writes the days as newline-delimited JSON, one object per line,
+     * e.g. {"country":"Germany","date":"2021-02-16","confirmed":2338987,"deaths":65076,"recovered":2146000}
+     *
+     * @param country      Name of the country
+     * @param series       Series of the country
+     * @param fromDay      Index of the first day
+     * @param toDay        Index after the last day
+     * @param outputStream Stream the rows are written to, it is flushed but not closed
+     * @throws IOException Throws an IO exception if the stream can not be written, e.g. if the client disconnected.
+     */
+    public void writeNdjson(String country, JHTimeSeries series, int fromDay, int toDay, OutputStream outputStream) throws IOException {
+        JsonGenerator generator = jsonFactory.createGenerator(new BufferedWriter(
+                new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE));
+
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(new SerializedString("\n"));
+        for (int day = fromDay; day < toDay; day++) {
+            generator.writeStartObject();
+            generator.writeStringField("country", country);
+            generator.writeStringField("date", LocalDate.ofEpochDay(series.getEpochDay(day)).toString());
+            generator.writeNumberField("confirmed", series.getConfirmed(day));
+            generator.writeNumberField("deaths", series.getDeaths(day));
+            generator.writeNumberField("recovered", series.getRecovered(day));
+            generator.writeEndObject();
+        }
+        if (toDay > fromDay) {
+            generator.writeRaw('\n');
+        }
+        generator.close();
+        outputStream.flush();
+    }
+
+    /**
+     * Writes the days as CSV with a header line, see CSV_HEADER.
+     *
+     * @param country      Name of the country
+     * @param series       Series of the country
+     * @param fromDay      Index of the first day
+     * @param toDay        Index after the last day
+     * @param outputStream Stream the rows are written to, it is flushed but not closed
+     * @throws IOException Throws an IO exception if the stream can not be written, e.g. if the client disconnected.
+     */
+    public void writeCsv(String country, JHTimeSeries series, int fromDay, int toDay, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        String quotedCountry = quoteCsv(country);
+
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        for (int day = fromDay; day < toDay; day++) {
+            writer.write(quotedCountry);
+            writer.write(',');
+            writer.write(LocalDate.ofEpochDay(series.getEpochDay(day)).toString());
+            writer.write(',');
+            writer.write(Integer.toString(series.getConfirmed(day)));
+            writer.write(',');
+            writer.write(Integer.toString(series.getDeaths(day)));
+            writer.write(',');
+            writer.write(Integer.toString(series.getRecovered(day)));
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    /**
+     * Finds the index of the first day at or after a date. The days of a series are in ascending order.
+     *
+     * @param series   Series of a country
+     * @param epochDay Date as epoch day
+     * @return index of the first day at or after the date, the size of the series if there is none
+     */
+    public static int indexOfFirstDay(JHTimeSeries series, long epochDay) {
+        int low = 0;
+        int high = series.size();
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (series.getEpochDay(middle) < epochDay) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Quotes a CSV field if it contains a separator, a quote or a line break.
+     *
+     * @param field Value of the field
+     * @return field as written to the CSV
+     */
+    static String quoteCsv(String field) {
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0 && field.indexOf('\r') < 0) {
+            return field;
+        }
+        return "\"" + field.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -0,0 +1,175 @@
+package hrw.webservice.rest.distribution;
+
+import hrw.webservice.threads.UpdateBroadcaster;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * An open Server-Sent Events connection of the updates endpoint.
+ * The response is asynchronous and written with non-blocking output, so a client that stops reading never holds a
+ * writer thread of the broadcaster. An event is refused while the connection is not ready, the broadcaster keeps it
+ * pending and is resumed by the write listener once the connection is ready again.
+ *
+ * @author Lars Karbach
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class UpdateStream implements UpdateBroadcaster.Subscriber, WriteListener, AsyncListener {
+
+    /**
+     * The broadcaster the connection is subscribed to
+     */
+    private final UpdateBroadcaster broadcaster;
+
+    /**
+     * Context of the asynchronous response
+     */
+    private final AsyncContext asyncContext;
+
+    /**
+     * Output stream of the response, in non-blocking mode
+     */
+    private final ServletOutputStream outputStream;
+
+    /**
+     * Constructor of the connection
+     *
+     * @param broadcaster  The broadcaster the connection is subscribed to
+     * @param asyncContext Context of the asynchronous response
+     * @param outputStream Output stream of the response
+     */
+    private UpdateStream(UpdateBroadcaster broadcaster, AsyncContext asyncContext, ServletOutputStream outputStream) {
+        this.broadcaster = broadcaster;
+        this.asyncContext = asyncContext;
+        this.outputStream = outputStream;
+    }
+
+    /**
+     * Starts the asynchronous response of a request and subscribes it to the broadcaster.
+     *
+     * @param request     The request of the updates endpoint
+     * @param response    The response of the request
+     * @param broadcaster The broadcaster of the datasets
+     * @param lastEventId Value of the Last-Event-ID header of a reconnecting client, may be null
+     * @param timeout     Time in milliseconds after which the connection is closed, the client reconnects then
+     * @return the connection
+     * @throws IOException Throws an IO exception if the output stream of the response can not be opened.
+     */
+    public static UpdateStream open(HttpServletRequest request, HttpServletResponse response,
+                                    UpdateBroadcaster broadcaster, String lastEventId, long timeout) throws IOException {
+        AsyncContext asyncContext;
+        UpdateStream stream;
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType("text/event-stream");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+        asyncContext = request.startAsync(request, response);
+        asyncContext.setTimeout(timeout);
+        stream = new UpdateStream(broadcaster, asyncContext, response.getOutputStream());
+        asyncContext.addListener(stream);
+        // The output has to be non-blocking before the broadcaster writes the first event.
+        stream.outputStream.setWriteListener(stream);
+        broadcaster.subscribe(stream, lastEventId);
+        return stream;
+    }
+
+    /**
+     * Writes an event if the connection is ready. The event is flushed right away, unless the connection has become
+     * busy with it, then the container writes the rest on its own.
+     *
+     * @param event the event as SSE bytes
+     * @return true if the event has been written, false if the connection is not ready
+     * @throws IOException Throws an IO exception if the client has disconnected.
+     */
+    @Override
+    public boolean send(byte[] event) throws IOException {
+        if (!outputStream.isReady()) {
+            return false;
+        }
+        outputStream.write(event);
+        if (outputStream.isReady()) {
+            outputStream.flush();
+        }
+        return true;
+    }
+
+    /**
+     * Closes the connection after the client has stopped reading, so that it reconnects.
+     */
+    @Override
+    public void close() {
+        try {
+            asyncContext.complete();
+        } catch (IllegalStateException exception) {
+            // The connection has been closed in the meantime.
+        }
+    }
+
+    /**
+     * Resumes the broadcaster once the connection can take events again.
+     */
+    @Override
+    public void onWritePossible() {
+        broadcaster.resume(this);
+    }
+
+    /**
+     * Unsubscribes the connection after a failed non-blocking write.
+     *
+     * @param throwable The cause of the failure
+     */
+    @Override
+    public void onError(Throwable throwable) {
+        broadcaster.unsubscribe(this);
+        close();
+    }
+
+    /**
+     * Unsubscribes the connection once the response is complete.
+     *
+     * @param event The event of the asynchronous response
+     */
+    @Override
+    public void onComplete(AsyncEvent event) {
+        broadcaster.unsubscribe(this);
+    }
+
+    /**
+     * Unsubscribes and closes the connection after the timeout of the updates endpoint.
+     *
+     * @param event The event of the asynchronous response
+     */
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        broadcaster.unsubscribe(this);
+        close();
+    }
+
+    /**
+     * Unsubscribes and closes the connection after an error of the asynchronous response.
+     *
+     * @param event The event of the asynchronous response
+     */
+    @Override
+    public void onError(AsyncEvent event) {
+        broadcaster.unsubscribe(this);
+        close();
+    }
+
+    /**
+     * Nothing to do, the response is not started again.
+     *
+     * @param event The event of the asynchronous response
+     */
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+    }
+}
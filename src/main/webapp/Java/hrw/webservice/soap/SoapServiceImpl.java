@@ -2,6 +2,7 @@ package hrw.webservice.soap;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import hrw.webservice.logic.Covid19WebService;
+import hrw.webservice.logic.GenerateException;
 import hrw.webservice.logic.WebServiceEndpointHandler;
 import hrw.webservice.model.endpoint.ErrorResponseModel;
 
@@ -50,7 +51,11 @@ public class SoapServiceImpl implements SoapServiceInterface {
      */
     @Override
     public String getTotalDataJHRKI(int days) throws JsonProcessingException {
-        return webService.getHandler().generateAllData(days);
+        try {
+            return webService.getHandler().generateAllData(days);
+        } catch (GenerateException exception) {
+            return webService.getHandler().generateError(exception);
+        }
     }
 
     /**
@@ -62,7 +67,11 @@ public class SoapServiceImpl implements SoapServiceInterface {
      */
     @Override
     public String getNewInfectionsLast24h() throws JsonProcessingException {
-        return webService.getHandler().generateLatestInfections();
+        try {
+            return webService.getHandler().generateLatestInfections();
+        } catch (GenerateException exception) {
+            return webService.getHandler().generateError(exception);
+        }
     }
 
     /**
@@ -74,7 +83,11 @@ public class SoapServiceImpl implements SoapServiceInterface {
      */
     @Override
     public String getTotalInfections() throws JsonProcessingException {
-        return webService.getHandler().generateTrueInfections();
+        try {
+            return webService.getHandler().generateTrueInfections();
+        } catch (GenerateException exception) {
+            return webService.getHandler().generateError(exception);
+        }
     }
 
     /**
@@ -86,7 +99,11 @@ public class SoapServiceImpl implements SoapServiceInterface {
      */
     @Override
     public String getIncInfections24h() throws JsonProcessingException {
-        return webService.getHandler().generateDailyInfectionsRaise();
+        try {
+            return webService.getHandler().generateDailyInfectionsRaise();
+        } catch (GenerateException exception) {
+            return webService.getHandler().generateError(exception);
+        }
     }
 
     /**
@@ -119,7 +136,11 @@ public class SoapServiceImpl implements SoapServiceInterface {
      */
     @Override
     public String getIncidence() throws JsonProcessingException {
-        return webService.getHandler().generateIncidences();
+        try {
+            return webService.getHandler().generateIncidences();
+        } catch (GenerateException exception) {
+            return webService.getHandler().generateError(exception);
+        }
     }
 
     /**
@@ -131,7 +152,11 @@ public class SoapServiceImpl implements SoapServiceInterface {
      */
     @Override
     public String getTargetInfections() throws JsonProcessingException {
-        return webService.getHandler().generateTargetInfections();
+        try {
+            return webService.getHandler().generateTargetInfections();
+        } catch (GenerateException exception) {
+            return webService.getHandler().generateError(exception);
+        }
     }
 
     /**
@@ -143,6 +168,10 @@ public class SoapServiceImpl implements SoapServiceInterface {
      */
     @Override
     public String getForecastLockdown() throws JsonProcessingException {
-        return webService.getHandler().generateForecast();
+        try {
+            return webService.getHandler().generateForecast();
+        } catch (GenerateException exception) {
+            return webService.getHandler().generateError(exception);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,104 @@
+package hrw.webservice.source;
+
+import hrw.webservice.mapper.JsonObjectMapper;
+import hrw.webservice.model.RKIDistrictTable;
+import hrw.webservice.rest.consumption.ArcGisPagedQuery;
+import hrw.webservice.rest.consumption.RestConsumption;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Data source of the RKI district data, fetched from the ArcGIS feature service in concurrent pages.
+ * The paged queries can not be made conditional, so the completed table is compared with the table of the last
+ * fetch instead. An unchanged table is not published again.
+ *
+ * @author Lars Karbach, Philip Klein
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class ArcGisDistrictSource implements DataSource<RKIDistrictTable> {
+
+    /**
+     * Paged query of the district data.
+     */
+    private final ArcGisPagedQuery districtQuery;
+
+    /**
+     * The Jackson Mapper object is used to stream the pages.
+     */
+    private final JsonObjectMapper jacksonObjMapper;
+
+    /**
+     * Table of the last fetch, null if there has been none since the start or the last reset.
+     */
+    private volatile RKIDistrictTable lastFetched;
+
+    /**
+     * Constructor to create the source.
+     *
+     * @param restConsumption  REST consumption that sends the requests
+     * @param queryUrl         URL of the ordered query without paging parameters
+     * @param pageSize         Number of districts requested per page
+     * @param timeout          Maximum duration of every single request
+     * @param jacksonObjMapper Mapper used to stream the pages
+     */
+    public ArcGisDistrictSource(RestConsumption restConsumption, String queryUrl, int pageSize, Duration timeout,
+                                JsonObjectMapper jacksonObjMapper) {
+        this.districtQuery = new ArcGisPagedQuery(restConsumption, queryUrl, pageSize, timeout);
+        this.jacksonObjMapper = jacksonObjMapper;
+    }
+
+    /**
+     * Basic getter to return the name of the source
+     *
+     * @return name of the source
+     */
+    @Override
+    public String getName() {
+        return "RKI district";
+    }
+
+    /**
+     * Fetches the data of all districts. The number of districts is requested first, then all pages are requested
+     * concurrently and decoded directly into the rows of the district table.
+     *
+     * @return Future of the completed district table, completed with null if the districts have not changed
+     */
+    @Override
+    public CompletableFuture<RKIDistrictTable> fetch() {
+        return districtQuery.fetchCount(body -> jacksonObjMapper.getArcGisCountFromInputStream(new ByteArrayInputStream(body)))
+                .thenCompose(count -> {
+                    RKIDistrictTable districts = new RKIDistrictTable(count);
+
+                    return districtQuery.fetchPages(count, (body, offset, limit) -> jacksonObjMapper
+                            .readDistrictPage(new ByteArrayInputStream(body), districts, offset, limit))
+                            .thenApply(rows -> changed(districts.complete(rows)));
+                });
+    }
+
+    /**
+     * Forgets the table of the last fetch, so that the next fetch returns the complete table again.
+     */
+    @Override
+    public void reset() {
+        lastFetched = null;
+    }
+
+    /**
+     * Compares a completed table with the table of the last fetch.
+     *
+     * @param districts the completed table
+     * @return the table, null if it holds the same rows as the table of the last fetch
+     */
+    private RKIDistrictTable changed(RKIDistrictTable districts) {
+        RKIDistrictTable last = lastFetched;
+
+        if (last != null && districts.hasSameRows(last)) {
+            return null;
+        }
+        lastFetched = districts;
+        return districts;
+    }
+}
@@ -0,0 +1,38 @@
+package hrw.webservice.source;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Provider of the data of an institute.
+ * A data source owns the fetch, the decoding and the validation of its data, so the ingest only combines the
+ * results of its sources. Besides the HTTP sources of the institutes there are sources that replay recorded payloads
+ * or generate synthetic data, so that the ingest can run and be load-tested without network.
+ *
+ * @param <T> Type of the decoded data
+ * @author Lars Karbach
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public interface DataSource<T> {
+
+    /**
+     * Returns the name of the source used in log messages, e.g. "John Hopkins".
+     *
+     * @return name of the source
+     */
+    String getName();
+
+    /**
+     * Fetches, decodes and validates the data. The future fails if the data could not be fetched or is invalid.
+     *
+     * @return Future of the decoded data, completed with null if the data has not changed since the last fetch
+     */
+    CompletableFuture<T> fetch();
+
+    /**
+     * Forgets the state of previous fetches, so that the next fetch returns the complete data again.
+     * Called after a fetch or the publication of its data has failed.
+     */
+    default void reset() {
+    }
+}
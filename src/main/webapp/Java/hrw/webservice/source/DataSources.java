@@ -0,0 +1,202 @@
+package hrw.webservice.source;
+
+import hrw.webservice.mapper.JsonObjectMapper;
+import hrw.webservice.model.CountrySeriesStore;
+import hrw.webservice.model.RKIDistrictTable;
+import hrw.webservice.model.RKIStateTable;
+import hrw.webservice.rest.consumption.RestConsumption;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * The data sources of all institutes that are ingested together.
+ *
+ * @author Lars Karbach
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class DataSources {
+
+    /**
+     * URL of the John Hopkins timeseries
+     */
+    public static final String JH_URL = "https://pomber.github.io/covid19/timeseries.json";
+
+    /**
+     * URL of the RKI ArcGIS feature service with the data of the federal states
+     */
+    public static final String RKI_URL = "https://services7.arcgis.com/mOBPykOjAyBO2ZKk/arcgis/rest/services/Coronaf%C3%A4lle_in_den_Bundesl%C3%A4ndern/FeatureServer/0/query?where=1%3D1&outFields=LAN_ew_AGS,LAN_ew_GEN,cases7_bl,Fallzahl,LAN_ew_EWZ&returnGeometry=false&outSR=4326&f=json";
+
+    /**
+     * URL of the RKI ArcGIS feature service with the data of the districts, ordered so that the pages do not overlap
+     */
+    public static final String RKI_DISTRICT_URL = "https://services7.arcgis.com/mOBPykOjAyBO2ZKk/arcgis/rest/services/RKI_Landkreisdaten/FeatureServer/0/query?where=1%3D1&outFields=RS,GEN,BL_ID,EWZ,cases,cases7_lk&orderByFields=RS&returnGeometry=false&f=json";
+
+    /**
+     * Number of districts requested per page, the pages are requested concurrently.
+     */
+    private static final int RKI_DISTRICT_PAGE_SIZE = 100;
+
+    /**
+     * Maximum duration of the John Hopkins query, the timeseries of all countries is several megabytes large.
+     */
+    private static final Duration JH_TIMEOUT = Duration.ofSeconds(90);
+
+    /**
+     * Maximum duration of the RKI queries.
+     */
+    private static final Duration RKI_TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * Source of the John Hopkins series of all countries.
+     */
+    private final DataSource<CountrySeriesStore> johnHopkins;
+
+    /**
+     * Source of the RKI data per federal state.
+     */
+    private final DataSource<RKIStateTable> rkiStates;
+
+    /**
+     * Source of the RKI data per district.
+     */
+    private final DataSource<RKIDistrictTable> rkiDistricts;
+
+    /**
+     * Constructor to combine the sources.
+     *
+     * @param johnHopkins  Source of the John Hopkins series of all countries
+     * @param rkiStates    Source of the RKI data per federal state
+     * @param rkiDistricts Source of the RKI data per district
+     */
+    public DataSources(DataSource<CountrySeriesStore> johnHopkins, DataSource<RKIStateTable> rkiStates,
+                       DataSource<RKIDistrictTable> rkiDistricts) {
+        this.johnHopkins = johnHopkins;
+        this.rkiStates = rkiStates;
+        this.rkiDistricts = rkiDistricts;
+    }
+
+    /**
+     * Creates the HTTP sources of the institutes.
+     *
+     * @param restConsumption  REST consumption that sends the requests
+     * @param jacksonObjMapper Mapper used to decode the payloads
+     * @param currentStore     Returns the currently published John Hopkins series
+     * @return the sources
+     */
+    public static DataSources http(RestConsumption restConsumption, JsonObjectMapper jacksonObjMapper,
+                                   Supplier<CountrySeriesStore> currentStore) {
+        return new DataSources(
+                new HttpDataSource<>("John Hopkins", restConsumption, JH_URL, JH_TIMEOUT, new JohnHopkinsDecoder(jacksonObjMapper, currentStore)),
+                new HttpDataSource<>("RKI", restConsumption, RKI_URL, RKI_TIMEOUT, new RKIStateDecoder(jacksonObjMapper)),
+                new ArcGisDistrictSource(restConsumption, RKI_DISTRICT_URL, RKI_DISTRICT_PAGE_SIZE, RKI_TIMEOUT, jacksonObjMapper));
+    }
+
+    /**
+     * Creates sources that replay recordings from the subdirectories "jh", "rki" and "districts" of a directory.
+     * The recordings are the unmodified, unpaged responses of the institutes.
+     *
+     * @param directory        Directory of the recordings
+     * @param bytesPerSecond   Transfer rate of the replay in bytes per second, 0 for no limit
+     * @param jacksonObjMapper Mapper used to decode the payloads
+     * @param currentStore     Returns the currently published John Hopkins series
+     * @return the sources
+     * @throws IOException Throws an IO exception if a subdirectory can not be listed.
+     */
+    public static DataSources replay(Path directory, long bytesPerSecond, JsonObjectMapper jacksonObjMapper,
+                                     Supplier<CountrySeriesStore> currentStore) throws IOException {
+        return new DataSources(
+                new ReplayDataSource<>("John Hopkins", directory.resolve("jh"), new JohnHopkinsDecoder(jacksonObjMapper, currentStore), bytesPerSecond),
+                new ReplayDataSource<>("RKI", directory.resolve("rki"), new RKIStateDecoder(jacksonObjMapper), bytesPerSecond),
+                new ReplayDataSource<>("RKI district", directory.resolve("districts"), new RKIDistrictDecoder(jacksonObjMapper), bytesPerSecond));
+    }
+
+    /**
+     * Creates sources that generate synthetic data.
+     *
+     * @param countries        Number of John Hopkins countries
+     * @param days             Number of John Hopkins days of the first run
+     * @param states           Number of federal states
+     * @param districts        Number of districts
+     * @param jacksonObjMapper Mapper used to decode the payloads
+     * @param currentStore     Returns the currently published John Hopkins series
+     * @return the sources
+     */
+    public static DataSources synthetic(int countries, int days, int states, int districts,
+                                        JsonObjectMapper jacksonObjMapper, Supplier<CountrySeriesStore> currentStore) {
+        return new DataSources(
+                new SyntheticDataSource<>("John Hopkins", SyntheticDataSource.johnHopkinsTimeseries(countries, days), new JohnHopkinsDecoder(jacksonObjMapper, currentStore)),
+                new SyntheticDataSource<>("RKI", SyntheticDataSource.rkiStates(states), new RKIStateDecoder(jacksonObjMapper)),
+                new SyntheticDataSource<>("RKI district", SyntheticDataSource.rkiDistricts(districts), new RKIDistrictDecoder(jacksonObjMapper)));
+    }
+
+    /**
+     * Creates the sources configured by the system property covid19.source:
+     * "http" (default) queries the institutes,
+     * "replay" replays the recordings of covid19.source.replay.dir (default data/replay) at
+     * covid19.source.replay.bytesPerSecond (default 0, no limit),
+     * "synthetic" generates covid19.source.synthetic.countries (default 190) countries with
+     * covid19.source.synthetic.days (default 400) days, covid19.source.synthetic.states (default 16) federal states
+     * and covid19.source.synthetic.districts (default 401) districts.
+     *
+     * @param restConsumption  REST consumption that sends the requests of the HTTP sources
+     * @param jacksonObjMapper Mapper used to decode the payloads
+     * @param currentStore     Returns the currently published John Hopkins series
+     * @return the sources
+     */
+    public static DataSources fromSystemProperties(RestConsumption restConsumption, JsonObjectMapper jacksonObjMapper,
+                                                   Supplier<CountrySeriesStore> currentStore) {
+        String mode = System.getProperty("covid19.source", "http");
+
+        switch (mode) {
+            case "http":
+                return http(restConsumption, jacksonObjMapper, currentStore);
+            case "replay":
+                try {
+                    return replay(Paths.get(System.getProperty("covid19.source.replay.dir", "data/replay")),
+                            Long.getLong("covid19.source.replay.bytesPerSecond", 0), jacksonObjMapper, currentStore);
+                } catch (IOException ioException) {
+                    throw new UncheckedIOException(ioException);
+                }
+            case "synthetic":
+                return synthetic(Integer.getInteger("covid19.source.synthetic.countries", 190),
+                        Integer.getInteger("covid19.source.synthetic.days", 400),
+                        Integer.getInteger("covid19.source.synthetic.states", 16),
+                        Integer.getInteger("covid19.source.synthetic.districts", 401), jacksonObjMapper, currentStore);
+            default:
+                throw new IllegalArgumentException("Unknown data source " + mode + "!");
+        }
+    }
+
+    /**
+     * Basic getter to return the source of the John Hopkins series
+     *
+     * @return source of the John Hopkins series of all countries
+     */
+    public DataSource<CountrySeriesStore> getJohnHopkins() {
+        return johnHopkins;
+    }
+
+    /**
+     * Basic getter to return the source of the RKI state data
+     *
+     * @return source of the RKI data per federal state
+     */
+    public DataSource<RKIStateTable> getRkiStates() {
+        return rkiStates;
+    }
+
+    /**
+     * Basic getter to return the source of the RKI district data
+     *
+     * @return source of the RKI data per district
+     */
+    public DataSource<RKIDistrictTable> getRkiDistricts() {
+        return rkiDistricts;
+    }
+}
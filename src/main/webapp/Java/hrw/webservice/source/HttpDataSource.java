@@ -0,0 +1,100 @@
+package hrw.webservice.source;
+
+import hrw.webservice.rest.consumption.RestConsumption;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Data source that fetches the payload of an institute with a conditional HTTP request.
+ * Payloads that have not changed since the last fetch are neither transferred nor decoded again.
+ *
+ * @param <T> Type of the decoded data
+ * @author Lars Karbach
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class HttpDataSource<T> implements DataSource<T> {
+
+    /**
+     * Name of the source used in log messages.
+     */
+    private final String name;
+
+    /**
+     * REST consumption that sends the requests.
+     */
+    private final RestConsumption restConsumption;
+
+    /**
+     * URL of the payload.
+     */
+    private final String url;
+
+    /**
+     * Maximum duration of the request.
+     */
+    private final Duration timeout;
+
+    /**
+     * Decoder of the payload.
+     */
+    private final PayloadDecoder<T> decoder;
+
+    /**
+     * Constructor to create the source.
+     *
+     * @param name            Name of the source used in log messages
+     * @param restConsumption REST consumption that sends the requests
+     * @param url             URL of the payload
+     * @param timeout         Maximum duration of the request
+     * @param decoder         Decoder of the payload
+     */
+    public HttpDataSource(String name, RestConsumption restConsumption, String url, Duration timeout, PayloadDecoder<T> decoder) {
+        this.name = name;
+        this.restConsumption = restConsumption;
+        this.url = url;
+        this.timeout = timeout;
+        this.decoder = decoder;
+    }
+
+    /**
+     * Basic getter to return the name of the source
+     *
+     * @return name of the source
+     */
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Fetches the payload conditionally and decodes it.
+     *
+     * @return Future of the decoded data, completed with null if the payload has not changed
+     */
+    @Override
+    public CompletableFuture<T> fetch() {
+        return restConsumption.sendConditionalRequestAsync(url, timeout).thenApply(payload -> {
+            if (payload == null) {
+                System.out.println(name + " data unchanged, ingest skipped.");
+                return null;
+            }
+            try {
+                return decoder.decode(payload);
+            } catch (IOException ioException) {
+                throw new UncheckedIOException(ioException);
+            }
+        });
+    }
+
+    /**
+     * Resets the validators of the URL, so that the next fetch transfers the complete payload.
+     */
+    @Override
+    public void reset() {
+        restConsumption.resetValidators(url);
+    }
+}
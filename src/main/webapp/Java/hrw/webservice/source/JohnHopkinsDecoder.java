@@ -0,0 +1,57 @@
+package hrw.webservice.source;
+
+import hrw.webservice.logic.IncrementalSeriesIngest;
+import hrw.webservice.mapper.JsonObjectMapper;
+import hrw.webservice.model.CountrySeriesStore;
+
+import java.io.IOException;
+import java.util.function.Supplier;
+
+/**
+ * Decodes the John Hopkins timeseries of all countries.
+ * The payload is merged into the currently published series, so only new and recently revised days are decoded.
+ *
+ * @author Lars Karbach
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class JohnHopkinsDecoder implements PayloadDecoder<CountrySeriesStore> {
+
+    /**
+     * Merges new John Hopkins data into the current series.
+     */
+    private final IncrementalSeriesIngest jhIngest;
+
+    /**
+     * Returns the currently published series of all countries.
+     */
+    private final Supplier<CountrySeriesStore> currentStore;
+
+    /**
+     * Constructor to create the decoder.
+     *
+     * @param jacksonObjMapper Mapper used to stream the timeseries
+     * @param currentStore     Returns the currently published series, may return null
+     */
+    public JohnHopkinsDecoder(JsonObjectMapper jacksonObjMapper, Supplier<CountrySeriesStore> currentStore) {
+        this.jhIngest = new IncrementalSeriesIngest(jacksonObjMapper);
+        this.currentStore = currentStore;
+    }
+
+    /**
+     * Decodes the new days of the timeseries and appends them to the current series of the countries.
+     *
+     * @param payload The John Hopkins timeseries JSON
+     * @return The series of all countries
+     * @throws IOException Throws an IO exception if the timeseries can not be decoded or contains no country.
+     */
+    @Override
+    public CountrySeriesStore decode(byte[] payload) throws IOException {
+        CountrySeriesStore store = jhIngest.ingest(currentStore.get(), payload);
+
+        if (store.size() == 0) {
+            throw new IOException("John Hopkins timeseries contains no country!");
+        }
+        return store;
+    }
+}
@@ -0,0 +1,25 @@
+package hrw.webservice.source;
+
+import java.io.IOException;
+
+/**
+ * Decodes and validates the payload of an institute, independent of whether the payload has been fetched via HTTP,
+ * replayed from a recording or generated.
+ *
+ * @param <T> Type of the decoded data
+ * @author Lars Karbach
+ * @version 1.0
+ * @since 2021-02-16
+ */
+@FunctionalInterface
+public interface PayloadDecoder<T> {
+
+    /**
+     * Decodes a payload.
+     *
+     * @param payload payload in the format of the institute
+     * @return decoded data
+     * @throws IOException Throws an IO exception if the payload can not be decoded or is invalid.
+     */
+    T decode(byte[] payload) throws IOException;
+}
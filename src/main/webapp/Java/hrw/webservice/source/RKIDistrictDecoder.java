@@ -0,0 +1,50 @@
+package hrw.webservice.source;
+
+import hrw.webservice.mapper.JsonObjectMapper;
+import hrw.webservice.model.RKIDistrictTable;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+/**
+ * Decodes a complete, unpaged ArcGIS response with the RKI data of all districts, as recorded for a replay or
+ * generated synthetically. The features are counted first, then decoded directly into the rows of the district table.
+ *
+ * @author Lars Karbach, Philip Klein
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class RKIDistrictDecoder implements PayloadDecoder<RKIDistrictTable> {
+
+    /**
+     * The Jackson Mapper object is used to stream the features.
+     */
+    private final JsonObjectMapper jacksonObjMapper;
+
+    /**
+     * Constructor to create the decoder.
+     *
+     * @param jacksonObjMapper Mapper used to stream the features
+     */
+    public RKIDistrictDecoder(JsonObjectMapper jacksonObjMapper) {
+        this.jacksonObjMapper = jacksonObjMapper;
+    }
+
+    /**
+     * Decodes all districts of the response.
+     *
+     * @param payload ArcGIS response with the features of all districts
+     * @return The completed district table
+     * @throws IOException Throws an IO exception if the response can not be decoded or contains no features.
+     */
+    @Override
+    public RKIDistrictTable decode(byte[] payload) throws IOException {
+        int count = jacksonObjMapper.countArcGisFeatures(new ByteArrayInputStream(payload));
+        RKIDistrictTable districts = new RKIDistrictTable(count);
+
+        if (count == 0) {
+            throw new IOException("RKI district response contains no features!");
+        }
+        return districts.complete(jacksonObjMapper.readDistrictPage(new ByteArrayInputStream(payload), districts, 0, count));
+    }
+}
@@ -0,0 +1,73 @@
+package hrw.webservice.source;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import hrw.webservice.mapper.JsonObjectMapper;
+import hrw.webservice.model.RKIStateTable;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+/**
+ * Decodes the RKI data of the federal states into a state table.
+ *
+ * @author Lars Karbach, Philip Klein
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class RKIStateDecoder implements PayloadDecoder<RKIStateTable> {
+
+    /**
+     * The Jackson Mapper object is used to read the features.
+     */
+    private final JsonObjectMapper jacksonObjMapper;
+
+    /**
+     * Constructor to create the decoder.
+     *
+     * @param jacksonObjMapper Mapper used to read the features
+     */
+    public RKIStateDecoder(JsonObjectMapper jacksonObjMapper) {
+        this.jacksonObjMapper = jacksonObjMapper;
+    }
+
+    /**
+     * Decodes the features of the ArcGIS response. The number of states is taken from the features of the response.
+     *
+     * @param payload ArcGIS response with the data of the federal states
+     * @return The data of all federal states
+     * @throws IOException Throws an IO exception if the response can not be decoded or contains no features.
+     */
+    @Override
+    public RKIStateTable decode(byte[] payload) throws IOException {
+        JsonNode tmpNode = jacksonObjMapper.getSpecificNodeFromInputStream(new ByteArrayInputStream(payload), "features");
+        JsonNode itemNode;
+        String[] ids;
+        String[] names;
+        int[] cases7;
+        int[] cases;
+        int[] citizens;
+
+        if (tmpNode == null || !tmpNode.isArray() || tmpNode.size() == 0) {
+            throw new IOException("RKI response contains no features!");
+        }
+
+        ids = new String[tmpNode.size()];
+        names = new String[tmpNode.size()];
+        cases7 = new int[tmpNode.size()];
+        cases = new int[tmpNode.size()];
+        citizens = new int[tmpNode.size()];
+
+        for (int i = 0; i < tmpNode.size(); i++) {
+            itemNode = tmpNode.get(i).path("attributes");
+            if (!itemNode.has("cases7_bl") || !itemNode.has("Fallzahl") || !itemNode.has("LAN_ew_EWZ")) {
+                throw new IOException("RKI feature " + i + " is incomplete!");
+            }
+            ids[i] = itemNode.path("LAN_ew_AGS").asText(String.format("%02d", i + 1));
+            names[i] = itemNode.path("LAN_ew_GEN").asText(ids[i]);
+            cases7[i] = itemNode.get("cases7_bl").asInt();
+            cases[i] = itemNode.get("Fallzahl").asInt();
+            citizens[i] = itemNode.get("LAN_ew_EWZ").asInt();
+        }
+        return new RKIStateTable(ids, names, cases7, cases, citizens);
+    }
+}
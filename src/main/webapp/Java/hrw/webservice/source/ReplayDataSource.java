@@ -0,0 +1,150 @@
+package hrw.webservice.source;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Data source that replays recorded payloads of an institute from a directory, so that the ingest can run offline.
+ * Every fetch returns the next recording in the order of the file names, after the last recording the data is
+ * reported as unchanged. The transfer rate of the recordings can be limited to simulate a slow connection.
+ *
+ * @param <T> Type of the decoded data
+ * @author Lars Karbach
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class ReplayDataSource<T> implements DataSource<T> {
+
+    /**
+     * Name of the source used in log messages.
+     */
+    private final String name;
+
+    /**
+     * Recordings in the order of the file names.
+     */
+    private final List<Path> recordings;
+
+    /**
+     * Decoder of the recordings.
+     */
+    private final PayloadDecoder<T> decoder;
+
+    /**
+     * Transfer rate of the replay in bytes per second, 0 for no limit.
+     */
+    private final long bytesPerSecond;
+
+    /**
+     * Index of the next recording.
+     */
+    private int next;
+
+    /**
+     * Constructor to create the source, the directory is listed once.
+     *
+     * @param name           Name of the source used in log messages
+     * @param directory      Directory of the recordings
+     * @param decoder        Decoder of the recordings
+     * @param bytesPerSecond Transfer rate of the replay in bytes per second, 0 for no limit
+     * @throws IOException Throws an IO exception if the directory can not be listed.
+     */
+    public ReplayDataSource(String name, Path directory, PayloadDecoder<T> decoder, long bytesPerSecond) throws IOException {
+        if (bytesPerSecond < 0) {
+            throw new IllegalArgumentException("The transfer rate must not be negative!");
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            this.recordings = files.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        this.name = name;
+        this.decoder = decoder;
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * Basic getter to return the name of the source
+     *
+     * @return name of the source
+     */
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Reads and decodes the next recording.
+     *
+     * @return Future of the decoded data, completed with null after the last recording
+     */
+    @Override
+    public CompletableFuture<T> fetch() {
+        Path recording = nextRecording();
+
+        if (recording == null) {
+            System.out.println(name + " replay finished, data unchanged.");
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                byte[] payload = Files.readAllBytes(recording);
+
+                throttle(payload.length);
+                System.out.println("Replaying " + name + " recording " + recording.getFileName());
+                return decoder.decode(payload);
+            } catch (IOException ioException) {
+                throw new UncheckedIOException(ioException);
+            }
+        });
+    }
+
+    /**
+     * Replays the last recording once more with the next fetch if the replay has finished,
+     * otherwise every fetch returns a complete recording anyway.
+     */
+    @Override
+    public synchronized void reset() {
+        if (next == recordings.size() && next > 0) {
+            next--;
+        }
+    }
+
+    /**
+     * Returns the number of recordings that have not been replayed yet.
+     *
+     * @return number of remaining recordings
+     */
+    public synchronized int getRemaining() {
+        return recordings.size() - next;
+    }
+
+    /**
+     * Takes the next recording.
+     *
+     * @return the next recording, null after the last recording
+     */
+    private synchronized Path nextRecording() {
+        return next < recordings.size() ? recordings.get(next++) : null;
+    }
+
+    /**
+     * Waits as long as the transfer of the payload would take at the configured rate.
+     *
+     * @param bytes size of the payload
+     */
+    private void throttle(long bytes) {
+        if (bytesPerSecond == 0) {
+            return;
+        }
+        try {
+            Thread.sleep(bytes * 1000 / bytesPerSecond);
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
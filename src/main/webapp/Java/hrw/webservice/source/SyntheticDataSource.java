@@ -0,0 +1,176 @@
+package hrw.webservice.source;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntFunction;
+
+/**
+ * Data source that generates payloads in the format of an institute, so that the ingest and the calculations can be
+ * load-tested with any amount of data and without network. The payloads are decoded by the same decoders as the
+ * payloads of the institutes. The figures are deterministic and grow linearly, so they fit into the int columns of
+ * the tables even for very long series. Every run of the John Hopkins generator adds one day.
+ *
+ * @param <T> Type of the decoded data
+ * @author Lars Karbach
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class SyntheticDataSource<T> implements DataSource<T> {
+
+    /**
+     * First day of the generated John Hopkins timeseries, the first day of the real timeseries.
+     */
+    private static final LocalDate FIRST_DAY = LocalDate.of(2020, 1, 22);
+
+    /**
+     * Name of the source used in log messages.
+     */
+    private final String name;
+
+    /**
+     * Generates the payload of a run.
+     */
+    private final IntFunction<byte[]> generator;
+
+    /**
+     * Decoder of the payloads.
+     */
+    private final PayloadDecoder<T> decoder;
+
+    /**
+     * Number of the next run.
+     */
+    private int run;
+
+    /**
+     * Constructor to create the source.
+     *
+     * @param name      Name of the source used in log messages
+     * @param generator Generates the payload of a run, starting with run 0
+     * @param decoder   Decoder of the payloads
+     */
+    public SyntheticDataSource(String name, IntFunction<byte[]> generator, PayloadDecoder<T> decoder) {
+        this.name = name;
+        this.generator = generator;
+        this.decoder = decoder;
+    }
+
+    /**
+     * Basic getter to return the name of the source
+     *
+     * @return name of the source
+     */
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Generates and decodes the payload of the next run.
+     *
+     * @return Future of the decoded data
+     */
+    @Override
+    public CompletableFuture<T> fetch() {
+        int currentRun = nextRun();
+
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return decoder.decode(generator.apply(currentRun));
+            } catch (IOException ioException) {
+                throw new UncheckedIOException(ioException);
+            }
+        });
+    }
+
+    /**
+     * Generates a John Hopkins timeseries. The first country is the default country "Germany", the others are named
+     * "Country 2", "Country 3" and so on.
+     *
+     * @param countries Number of countries, at least 1
+     * @param days      Number of days of the first run, every further run adds one day
+     * @return generator of the timeseries JSON
+     */
+    public static IntFunction<byte[]> johnHopkinsTimeseries(int countries, int days) {
+        return run -> {
+            StringBuilder json = new StringBuilder(countries * (days + run) * 64 + 2).append('{');
+
+            for (int country = 0; country < countries; country++) {
+                json.append(country == 0 ? "\"Germany\":[" : ",\"Country " + (country + 1) + "\":[");
+                for (int day = 0; day < days + run; day++) {
+                    LocalDate date = FIRST_DAY.plusDays(day);
+                    int confirmed = (country % 10 + 1) * 100 * day;
+
+                    json.append(day == 0 ? "{\"date\":\"" : ",{\"date\":\"").append(date.getYear()).append('-')
+                            .append(date.getMonthValue()).append('-').append(date.getDayOfMonth())
+                            .append("\",\"confirmed\":").append(confirmed)
+                            .append(",\"deaths\":").append(confirmed / 50)
+                            .append(",\"recovered\":").append(confirmed * 9 / 10).append('}');
+                }
+                json.append(']');
+            }
+            return json.append('}').toString().getBytes(StandardCharsets.UTF_8);
+        };
+    }
+
+    /**
+     * Generates an ArcGIS response with the data of the federal states.
+     *
+     * @param states Number of federal states, at least 1
+     * @return generator of the ArcGIS response
+     */
+    public static IntFunction<byte[]> rkiStates(int states) {
+        return run -> {
+            StringBuilder json = new StringBuilder(states * 160 + 16).append("{\"features\":[");
+
+            for (int state = 1; state <= states; state++) {
+                int citizens = 1000000 + state * 250000;
+
+                json.append(state == 1 ? "" : ",")
+                        .append("{\"attributes\":{\"LAN_ew_AGS\":\"").append(String.format("%02d", state))
+                        .append("\",\"LAN_ew_GEN\":\"State ").append(state)
+                        .append("\",\"cases7_bl\":").append(citizens / 2000 + run * state)
+                        .append(",\"Fallzahl\":").append(citizens / 20 + run * state * 10)
+                        .append(",\"LAN_ew_EWZ\":").append(citizens).append("}}");
+            }
+            return json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+        };
+    }
+
+    /**
+     * Generates an unpaged ArcGIS response with the data of the districts, spread over 16 federal states.
+     *
+     * @param districts Number of districts, at least 1
+     * @return generator of the ArcGIS response
+     */
+    public static IntFunction<byte[]> rkiDistricts(int districts) {
+        return run -> {
+            StringBuilder json = new StringBuilder(districts * 160 + 16).append("{\"features\":[");
+
+            for (int district = 1; district <= districts; district++) {
+                int citizens = 50000 + district % 97 * 10000;
+
+                json.append(district == 1 ? "" : ",")
+                        .append("{\"attributes\":{\"RS\":\"").append(String.format("%05d", district))
+                        .append("\",\"GEN\":\"District ").append(district)
+                        .append("\",\"BL_ID\":\"").append(district % 16 + 1)
+                        .append("\",\"EWZ\":").append(citizens)
+                        .append(",\"cases\":").append(citizens / 20 + run * 10)
+                        .append(",\"cases7_lk\":").append(district % 251 + run).append("}}");
+            }
+            return json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+        };
+    }
+
+    /**
+     * Takes the number of the next run.
+     *
+     * @return number of the run
+     */
+    private synchronized int nextRun() {
+        return run++;
+    }
+}
@@ -0,0 +1,339 @@
+package hrw.webservice.threads;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Schedules the ingest of the institute data on a single background thread.
+ * After every run the delay of the next run is calculated anew:
+ * Within the poll window, the time the institutes usually publish their daily data, the ingest runs at the short
+ * poll cadence, otherwise at the regular cadence, but never later than the start of the next poll window.
+ * A failed run is retried with an exponential backoff, starting at the initial backoff and capped at the regular
+ * cadence. Every delay is spread by a random jitter, so that several instances do not query the institutes at once.
+ * An exception of a run is caught, so it never stops the schedule. A run can also be triggered manually.
+ *
+ * @author Lars Karbach
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class IngestionScheduler {
+
+    /**
+     * Delay of the first run after the start.
+     */
+    private static final Duration INITIAL_DELAY = Duration.ofSeconds(1);
+
+    /**
+     * Minimum time between the end of a run and a manual trigger, so that triggers can not flood the institutes.
+     */
+    private static final Duration MIN_TRIGGER_INTERVAL = Duration.ofMinutes(1);
+
+    /**
+     * The ingest, returns false if it failed.
+     */
+    private final BooleanSupplier ingest;
+
+    /**
+     * Interval of the runs outside of the poll window.
+     */
+    private final Duration cadence;
+
+    /**
+     * Interval of the runs within the poll window.
+     */
+    private final Duration pollCadence;
+
+    /**
+     * Start of the poll window, local time of the zone.
+     */
+    private final LocalTime pollWindowStart;
+
+    /**
+     * End of the poll window, local time of the zone.
+     */
+    private final LocalTime pollWindowEnd;
+
+    /**
+     * Time zone of the poll window.
+     */
+    private final ZoneId zone;
+
+    /**
+     * Share of a delay by which it is randomly extended or shortened, e.g. 0.1 for 10 %.
+     */
+    private final double jitter;
+
+    /**
+     * Delay after the first failed run, doubled with every further failure.
+     */
+    private final Duration initialBackoff;
+
+    /**
+     * Executor of the runs, a single thread so that runs never overlap.
+     */
+    private final ScheduledExecutorService executor;
+
+    /**
+     * The next scheduled run, null before the start.
+     */
+    private ScheduledFuture<?> nextRun;
+
+    /**
+     * Incremented with every scheduled run. A run only proceeds if it is still the latest scheduled run,
+     * so a run replaced by a manual trigger can never start a second schedule.
+     */
+    private long generation;
+
+    /**
+     * Whether a run is in progress.
+     */
+    private boolean inProgress;
+
+    /**
+     * End of the last run in milliseconds since the epoch, 0 before the first run.
+     */
+    private long lastRunEndedAt;
+
+    /**
+     * Number of failed runs since the last successful run.
+     */
+    private volatile int consecutiveFailures;
+
+    /**
+     * Time of the next scheduled run in milliseconds since the epoch.
+     */
+    private volatile long nextRunAt;
+
+    /**
+     * Constructor to create the scheduler, nothing is scheduled before start() is called.
+     *
+     * @param ingest          The ingest, returns false if it failed
+     * @param cadence         Interval of the runs outside of the poll window
+     * @param pollCadence     Interval of the runs within the poll window
+     * @param pollWindowStart Start of the poll window
+     * @param pollWindowEnd   End of the poll window, may be before the start if the window spans midnight
+     * @param zone            Time zone of the poll window
+     * @param jitter          Share of a delay by which it is randomly extended or shortened, from 0 to 1
+     * @param initialBackoff  Delay after the first failed run
+     */
+    public IngestionScheduler(BooleanSupplier ingest, Duration cadence, Duration pollCadence, LocalTime pollWindowStart,
+                              LocalTime pollWindowEnd, ZoneId zone, double jitter, Duration initialBackoff) {
+        if (cadence.isNegative() || cadence.isZero() || pollCadence.isNegative() || pollCadence.isZero()
+                || initialBackoff.isNegative() || initialBackoff.isZero()) {
+            throw new IllegalArgumentException("Cadences and backoff have to be positive!");
+        }
+        if (jitter < 0 || jitter > 1) {
+            throw new IllegalArgumentException("The jitter has to be between 0 and 1!");
+        }
+        this.ingest = ingest;
+        this.cadence = cadence;
+        this.pollCadence = pollCadence;
+        this.pollWindowStart = pollWindowStart;
+        this.pollWindowEnd = pollWindowEnd;
+        this.zone = zone;
+        this.jitter = jitter;
+        this.initialBackoff = initialBackoff;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "covid-ingest");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates a scheduler configured by system properties:
+     * covid19.refresh.cadence (regular cadence, ISO-8601 duration, default PT3H),
+     * covid19.refresh.pollCadence (cadence within the poll window, default PT15M),
+     * covid19.refresh.pollWindow (poll window as start and end, default 03:00-08:00),
+     * covid19.refresh.zone (time zone of the poll window, default Europe/Berlin),
+     * covid19.refresh.jitter (default 0.1) and covid19.refresh.backoff (initial backoff, default PT1M).
+     *
+     * @param ingest The ingest, returns false if it failed
+     * @return the scheduler
+     */
+    public static IngestionScheduler fromSystemProperties(BooleanSupplier ingest) {
+        String[] pollWindow = System.getProperty("covid19.refresh.pollWindow", "03:00-08:00").split("-");
+
+        return new IngestionScheduler(ingest,
+                Duration.parse(System.getProperty("covid19.refresh.cadence", "PT3H")),
+                Duration.parse(System.getProperty("covid19.refresh.pollCadence", "PT15M")),
+                LocalTime.parse(pollWindow[0].trim()), LocalTime.parse(pollWindow[1].trim()),
+                ZoneId.of(System.getProperty("covid19.refresh.zone", "Europe/Berlin")),
+                Double.parseDouble(System.getProperty("covid19.refresh.jitter", "0.1")),
+                Duration.parse(System.getProperty("covid19.refresh.backoff", "PT1M")));
+    }
+
+    /**
+     * Schedules the first run shortly after the start.
+     */
+    public synchronized void start() {
+        schedule(INITIAL_DELAY.toMillis());
+    }
+
+    /**
+     * Triggers a run right away, replacing the scheduled run. The regular schedule continues after the triggered run.
+     * No run is triggered while a run is in progress or within a minute after the last run.
+     *
+     * @return true if a run has been triggered, false if a run is in progress or has just finished
+     */
+    public synchronized boolean triggerNow() {
+        if (inProgress || System.currentTimeMillis() - lastRunEndedAt < MIN_TRIGGER_INTERVAL.toMillis()) {
+            return false;
+        }
+        if (nextRun != null) {
+            nextRun.cancel(false);
+        }
+        schedule(0);
+        return true;
+    }
+
+    /**
+     * Stops the scheduler, a run in progress is interrupted.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Basic getter to return the time of the next scheduled run
+     *
+     * @return time of the next run in milliseconds since the epoch
+     */
+    public long getNextRunAt() {
+        return nextRunAt;
+    }
+
+    /**
+     * Basic getter to return the number of failed runs since the last successful run
+     *
+     * @return number of consecutive failures
+     */
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * Calculates the delay until the next run, without jitter.
+     *
+     * @param now                 current time
+     * @param consecutiveFailures number of failed runs since the last successful run
+     * @return delay until the next run
+     */
+    public Duration calcDelay(ZonedDateTime now, int consecutiveFailures) {
+        Duration untilWindow;
+
+        if (consecutiveFailures > 0) {
+            // 2^(failures - 1) times the initial backoff, the shift is limited so that it can not overflow.
+            Duration backoff = initialBackoff.multipliedBy(1L << Math.min(consecutiveFailures - 1, 30));
+            return backoff.compareTo(cadence) < 0 ? backoff : cadence;
+        }
+        if (isInPollWindow(now.withZoneSameInstant(zone).toLocalTime())) {
+            return pollCadence;
+        }
+        untilWindow = Duration.between(now, nextPollWindowStart(now));
+        return untilWindow.compareTo(cadence) < 0 ? untilWindow : cadence;
+    }
+
+    /**
+     * Spreads a delay by a random share of at most the jitter.
+     *
+     * @param delay delay without jitter
+     * @return delay with jitter in milliseconds, at least 0
+     */
+    long applyJitter(Duration delay) {
+        double factor = 1 + jitter * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+
+        return Math.max(0, Math.round(delay.toMillis() * factor));
+    }
+
+    /**
+     * Checks whether a time lies within the poll window.
+     *
+     * @param time local time of the zone
+     * @return true within the poll window
+     */
+    private boolean isInPollWindow(LocalTime time) {
+        if (pollWindowStart.isBefore(pollWindowEnd)) {
+            return !time.isBefore(pollWindowStart) && time.isBefore(pollWindowEnd);
+        }
+        // The window spans midnight.
+        return !time.isBefore(pollWindowStart) || time.isBefore(pollWindowEnd);
+    }
+
+    /**
+     * Calculates the next start of the poll window.
+     *
+     * @param now current time
+     * @return next start of the poll window after now
+     */
+    private ZonedDateTime nextPollWindowStart(ZonedDateTime now) {
+        ZonedDateTime local = now.withZoneSameInstant(zone);
+        ZonedDateTime start = local.with(pollWindowStart);
+
+        return start.isAfter(local) ? start : start.plusDays(1).with(pollWindowStart);
+    }
+
+    /**
+     * Schedules the next run, replacing the previously scheduled run. Has to be called while holding the lock.
+     *
+     * @param delay delay in milliseconds
+     */
+    private void schedule(long delay) {
+        long scheduledGeneration = ++generation;
+
+        nextRunAt = System.currentTimeMillis() + delay;
+        nextRun = executor.schedule(() -> runAndReschedule(scheduledGeneration), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs the ingest and schedules the next run. Exceptions count as failed runs.
+     * Runs that have been replaced by a manual trigger are skipped.
+     *
+     * @param scheduledGeneration generation of the run, see schedule
+     */
+    private void runAndReschedule(long scheduledGeneration) {
+        boolean succeeded = false;
+
+        synchronized (this) {
+            if (scheduledGeneration != generation) {
+                return;
+            }
+            inProgress = true;
+        }
+        try {
+            succeeded = ingest.getAsBoolean();
+        } catch (RuntimeException exception) {
+            System.out.println("An exception occurred during the ingest! " + exception);
+        } finally {
+            // Rescheduled even after an error, so the schedule never stops.
+            reschedule(succeeded);
+        }
+    }
+
+    /**
+     * Schedules the run after a finished run.
+     *
+     * @param succeeded whether the finished run succeeded
+     */
+    private synchronized void reschedule(boolean succeeded) {
+        long delay;
+
+        consecutiveFailures = succeeded ? 0 : consecutiveFailures + 1;
+        delay = applyJitter(calcDelay(ZonedDateTime.now(zone), consecutiveFailures));
+        System.out.println("Ingest " + (succeeded ? "succeeded" : "failed " + consecutiveFailures + " times in a row")
+                + ", next run in " + delay / 1000 + " s");
+        inProgress = false;
+        lastRunEndedAt = System.currentTimeMillis();
+        if (!executor.isShutdown()) {
+            schedule(delay);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package hrw.webservice.threads;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates the executors that run the requests of the web service.
+ * By default Tomcat runs the requests on its bounded worker pool, so a slow client or a stalled handler holds
+ * one of its threads. With the system property covid19.threads.virtual=true every request runs on its own virtual
+ * thread instead, so blocked requests no longer exhaust a pool. Virtual threads need a Java 21 runtime. They are
+ * looked up at runtime, so the service is still built for Java 11 and falls back to the pool on older runtimes.
+ *
+ * @author Lars Karbach
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public final class RequestExecutors {
+
+    /**
+     * Factory method of the virtual thread executor, null if the runtime does not support virtual threads.
+     */
+    private static final Method NEW_VIRTUAL_THREAD_EXECUTOR = findVirtualThreadFactory();
+
+    /**
+     * The class only holds static methods.
+     */
+    private RequestExecutors() {
+    }
+
+    /**
+     * Checks whether the runtime supports virtual threads.
+     *
+     * @return true on Java 21 or newer
+     */
+    public static boolean isVirtualThreadsSupported() {
+        return NEW_VIRTUAL_THREAD_EXECUTOR != null;
+    }
+
+    /**
+     * Checks whether requests are to run on virtual threads.
+     *
+     * @param enabled Value of the property covid19.threads.virtual
+     * @return true if virtual threads are enabled and supported by the runtime
+     */
+    public static boolean useVirtualThreads(boolean enabled) {
+        if (enabled && !isVirtualThreadsSupported()) {
+            System.out.println("Virtual threads need Java 21, requests run on the worker pool of the container.");
+        }
+        return enabled && isVirtualThreadsSupported();
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for every task.
+     *
+     * @return the executor
+     * @throws UnsupportedOperationException if the runtime does not support virtual threads
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (!isVirtualThreadsSupported()) {
+            throw new UnsupportedOperationException("Virtual threads need Java 21!");
+        }
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invoke(null);
+        } catch (ReflectiveOperationException exception) {
+            throw new UnsupportedOperationException("Virtual threads can not be created!", exception);
+        }
+    }
+
+    /**
+     * Looks up Executors.newVirtualThreadPerTaskExecutor.
+     *
+     * @return the method, null on runtimes before Java 21
+     */
+    private static Method findVirtualThreadFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException exception) {
+            return null;
+        }
+    }
+}
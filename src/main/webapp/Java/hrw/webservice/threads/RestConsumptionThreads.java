@@ -1,78 +1,144 @@
 package hrw.webservice.threads;
 
-import com.fasterxml.jackson.databind.JavaType;
-import com.fasterxml.jackson.databind.JsonNode;
 import hrw.webservice.logic.Covid19WebService;
-import hrw.webservice.model.Attributes;
-import hrw.webservice.model.JohnHDailyInfos;
-import hrw.webservice.rest.consumption.RestConsumption;
+import hrw.webservice.model.CountrySeriesStore;
+import hrw.webservice.model.RKIDistrictTable;
+import hrw.webservice.model.RKIStateTable;
+import hrw.webservice.source.DataSource;
+import hrw.webservice.source.DataSources;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Consumes RKI and John Hopkins Data and saves them in Lists.
+ * The data is fetched, decoded and validated by the data sources of the institutes.
  *
  * @author Lars Karbach
  * @version 1.0
  * @since 2021-02-16
  */
-public class RestConsumptionThreads extends TimerTask {
-    private final Covid19WebService webService;
-    private final RestConsumption restConsumption;
+public class RestConsumptionThreads implements Runnable {
 
     /**
-     * Constructor to create the class that takes care of consuming the data
-     *
-     * @param restConsumption Object reference that performs queries to the individual institutes
-     * @param webService      Object reference that initializes the program
+     * Receiver of the results of a run, e.g. Covid19WebService.publishDataset.
      */
-    public RestConsumptionThreads(RestConsumption restConsumption, Covid19WebService webService) {
-        this.restConsumption = restConsumption;
-        this.webService = webService;
+    public interface DatasetPublisher {
+
+        /**
+         * Publishes the results of a run as one new dataset snapshot.
+         *
+         * @param jHStore      The new John Hopkins series of all countries or null if unchanged
+         * @param rkiStates    The new RKI data per federal state or null if unchanged
+         * @param rkiDistricts The new RKI data per district or null if unchanged
+         */
+        void publishDataset(CountrySeriesStore jHStore, RKIStateTable rkiStates, RKIDistrictTable rkiDistricts);
     }
 
     /**
-     * Thread that takes over the query and storage of the institute data
+     * Receiver of the results
      */
-    @Override
-    public void run() {
-        JsonNode tmpNode;
-        JsonNode itemNode;
-        List<JohnHDailyInfos> johnHDailyList;
-        List<Attributes> rkiDailyList;
-
-        try {
-
-            InputStream inputStream = restConsumption.sendRestRequest("https://pomber.github.io/covid19/timeseries.json");
+    private final DatasetPublisher publisher;
 
-            tmpNode = webService.getJacksonObjMapper().getSpecificNodeFromInputStream(inputStream, "Germany");
+    /**
+     * Sources of the institute data.
+     */
+    private final DataSources sources;
 
-            JavaType type = webService.getJacksonObjMapper().getObjectMapper().getTypeFactory().
-                    constructCollectionType(List.class, JohnHDailyInfos.class);
+    /**
+     * Constructor to create the class that takes care of consuming the data
+     *
+     * @param sources    Sources of the institute data
+     * @param webService Object reference that initializes the program
+     */
+    public RestConsumptionThreads(DataSources sources, Covid19WebService webService) {
+        this(sources, webService::publishDataset);
+    }
 
-            johnHDailyList = webService.getJacksonObjMapper().getObjectMapper().convertValue(tmpNode, type);
+    /**
+     * Constructor to create the class that takes care of consuming the data
+     *
+     * @param sources   Sources of the institute data
+     * @param publisher Receiver of the results
+     */
+    public RestConsumptionThreads(DataSources sources, DatasetPublisher publisher) {
+        this.sources = sources;
+        this.publisher = publisher;
+    }
 
-            webService.setJHDailyInfosList(johnHDailyList);
-            webService.getCalcJHKeyFigures().updateKeyFigures(webService.getJHDailyInfosList());
+    /**
+     * Thread that takes over the query and storage of the institute data.
+     * All sources are fetched and decoded concurrently, so that the run takes about as long as the slowest source.
+     * The results are then published together.
+     * Data that has not changed since the last run is neither parsed nor calculated again.
+     *
+     * @return true if all sources have been fetched successfully, false if any source or the publication failed
+     */
+    public boolean ingest() {
+        AtomicBoolean failed = new AtomicBoolean();
+        CompletableFuture<CountrySeriesStore> johnHopkinsFuture = fetch(sources.getJohnHopkins(), failed);
+        CompletableFuture<RKIStateTable> rkiFuture = fetch(sources.getRkiStates(), failed);
+        CompletableFuture<RKIDistrictTable> districtFuture = fetch(sources.getRkiDistricts(), failed);
 
-            inputStream = restConsumption.sendRestRequest("https://services7.arcgis.com/mOBPykOjAyBO2ZKk/arcgis/rest/services/Coronaf%C3%A4lle_in_den_Bundesl%C3%A4ndern/FeatureServer/0/query?where=1%3D1&outFields=cases7_bl,Fallzahl,LAN_ew_EWZ&returnGeometry=false&outSR=4326&f=json");
+        return publish(johnHopkinsFuture.join(), rkiFuture.join(), districtFuture.join()) && !failed.get();
+    }
 
-            tmpNode = webService.getJacksonObjMapper().getSpecificNodeFromInputStream(inputStream, "features");
+    /**
+     * Runs an ingest, see ingest().
+     */
+    @Override
+    public void run() {
+        ingest();
+    }
 
-            rkiDailyList = new ArrayList<>();
+    /**
+     * Publishes the results of a run as one new dataset snapshot.
+     * Sources without changes or with errors are passed as null and keep their data.
+     *
+     * @param jHStore      The new John Hopkins series of all countries or null
+     * @param rkiStates    The new RKI data per federal state or null
+     * @param rkiDistricts The new RKI data per district or null
+     * @return false if the dataset could not be published
+     */
+    private boolean publish(CountrySeriesStore jHStore, RKIStateTable rkiStates, RKIDistrictTable rkiDistricts) {
+        if (jHStore == null && rkiStates == null && rkiDistricts == null) {
+            return true;
+        }
+        try {
+            publisher.publishDataset(jHStore, rkiStates, rkiDistricts);
+            return true;
+        } catch (RuntimeException exception) {
+            // The snapshot could not be built, all sources are fetched completely with the next run.
+            sources.getJohnHopkins().reset();
+            sources.getRkiStates().reset();
+            sources.getRkiDistricts().reset();
+            System.out.println("An exception occurred when trying to publish the dataset! " + exception);
+            return false;
+        }
+    }
 
-            for (int i = 0; i < 16; i++) {
-                itemNode = tmpNode.get(i).get("attributes");
-                rkiDailyList.add(new Attributes(itemNode.get("cases7_bl").asInt(), itemNode.get("Fallzahl").asInt(), itemNode.get("LAN_ew_EWZ").asInt()));
-            }
-            webService.getRkiTotalData().add(webService.getCalcRKIKeyFigures().preCalcRkiValues(rkiDailyList));
+    /**
+     * Fetches a source. A failure is logged and resets the source, so that the next run fetches the complete data again.
+     *
+     * @param source Source of an institute
+     * @param failed Flag of the run, set to signal the failure
+     * @param <T>    Type of the decoded data
+     * @return Future of the decoded data, completed with null if the data has not changed or the fetch failed
+     */
+    private <T> CompletableFuture<T> fetch(DataSource<T> source, AtomicBoolean failed) {
+        CompletableFuture<T> future;
 
-        } catch (IOException ioException) {
-            System.out.println("An exception occurred when trying to consume endpoints!");
+        try {
+            future = source.fetch();
+        } catch (RuntimeException exception) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(exception);
         }
+        return future.exceptionally(throwable -> {
+            failed.set(true);
+            source.reset();
+            System.out.println("An exception occurred when trying to consume the " + source.getName() + " endpoint! " + throwable);
+            return null;
+        });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,496 @@
+package hrw.webservice.threads;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pushes every published dataset to the subscribed clients as a Server-Sent Event.
+ * The event of an update is serialized once and the same bytes are handed to all subscribers. The subscribers are
+ * not bound to a thread, the writes are done by a small pool of writer threads. A subscriber that is still busy
+ * with a previous event only receives the latest one, so it never queues up events. The writes do not block: a
+ * subscriber whose connection can not take an event keeps it pending and the writer thread moves on. The subscriber
+ * resumes once its connection is writable again, so a client that stops reading never holds a writer thread.
+ * A subscriber that has not taken its pending event within the send timeout is dropped and closed, a subscriber
+ * whose write fails is removed.
+ * A comment is sent to all idle subscribers at the heartbeat interval, so that proxies keep the connections open
+ * and closed connections are detected.
+ *
+ * @author Lars Karbach
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class UpdateBroadcaster {
+
+    /**
+     * Name of the events that carry a dataset.
+     */
+    public static final String EVENT_NAME = "dataset";
+
+    /**
+     * SSE comment sent as heartbeat, ignored by the clients.
+     */
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Receiver of the events, e.g. an open SSE connection.
+     */
+    public interface Subscriber {
+
+        /**
+         * Writes a complete event to the client without blocking. The array is shared by all subscribers and must not
+         * be modified. If the connection can not take the event, the subscriber has to call
+         * {@link UpdateBroadcaster#resume(Subscriber)} once it is writable again.
+         *
+         * @param event the event as SSE bytes
+         * @return true if the event has been written, false if the connection can not take it yet
+         * @throws IOException if the connection is closed
+         */
+        boolean send(byte[] event) throws IOException;
+
+        /**
+         * Closes the connection after the subscriber has been dropped because it has not taken an event within the
+         * send timeout. Called on the heartbeat thread, so it must not block.
+         */
+        default void close() {
+        }
+    }
+
+    /**
+     * Subscribers with their pending event, by subscriber.
+     */
+    private final Map<Subscriber, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+    /**
+     * The latest dataset, null as long as nothing has been published.
+     */
+    private final AtomicReference<Dataset> latest = new AtomicReference<>();
+
+    /**
+     * Pool of the writer threads
+     */
+    private final ExecutorService writers;
+
+    /**
+     * Time a subscriber may keep an event pending because its connection is not writable, in nanoseconds.
+     */
+    private final long sendTimeout;
+
+    /**
+     * Single thread of the heartbeat.
+     */
+    private final ScheduledExecutorService heartbeat;
+
+    /**
+     * Constructor of the broadcaster with a send timeout of 10 seconds
+     *
+     * @param writerThreads     Number of threads that write the events
+     * @param heartbeatInterval Interval of the heartbeat comments
+     */
+    public UpdateBroadcaster(int writerThreads, Duration heartbeatInterval) {
+        this(writerThreads, heartbeatInterval, Duration.ofSeconds(10));
+    }
+
+    /**
+     * Constructor of the broadcaster
+     *
+     * @param writerThreads     Number of threads that write the events
+     * @param heartbeatInterval Interval of the heartbeat comments
+     * @param sendTimeout       Time a subscriber may not be writable before it is dropped
+     */
+    public UpdateBroadcaster(int writerThreads, Duration heartbeatInterval, Duration sendTimeout) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        long checkInterval;
+
+        if (writerThreads < 1 || heartbeatInterval.isNegative() || heartbeatInterval.isZero()
+                || sendTimeout.isNegative() || sendTimeout.isZero()) {
+            throw new IllegalArgumentException("The broadcaster needs a writer thread, a positive heartbeat interval and send timeout!");
+        }
+        this.sendTimeout = sendTimeout.toNanos();
+        this.writers = Executors.newFixedThreadPool(writerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "covid-updates-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "covid-updates-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleAtFixedRate(this::sendHeartbeat, heartbeatInterval.toMillis(), heartbeatInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        // A stalled subscriber is detected within half the send timeout after it expired.
+        checkInterval = Math.max(1, sendTimeout.toMillis() / 2);
+        heartbeat.scheduleAtFixedRate(this::expireSends, checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a broadcaster configured by system properties:
+     * covid19.updates.writerThreads (default 2),
+     * covid19.updates.heartbeat (ISO-8601 duration, default PT30S) and
+     * covid19.updates.sendTimeout (ISO-8601 duration, default PT10S).
+     *
+     * @return the broadcaster
+     */
+    public static UpdateBroadcaster fromSystemProperties() {
+        return new UpdateBroadcaster(Integer.getInteger("covid19.updates.writerThreads", 2),
+                Duration.parse(System.getProperty("covid19.updates.heartbeat", "PT30S")),
+                Duration.parse(System.getProperty("covid19.updates.sendTimeout", "PT10S")));
+    }
+
+    /**
+     * Creates the SSE bytes of an event.
+     *
+     * @param version Version of the dataset, sent as event ID
+     * @param json    Data of the event, a JSON document without line breaks
+     * @return the event
+     */
+    public static byte[] toEvent(long version, String json) {
+        return ("id:" + version + "\nevent:" + EVENT_NAME + "\ndata:" + json + "\n\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Serializes the data of a published dataset once and pushes it to all subscribers.
+     *
+     * @param version Version of the dataset
+     * @param json    Data of the event, a JSON document without line breaks
+     */
+    public void publish(long version, String json) {
+        Dataset dataset = new Dataset(version, toEvent(version, json));
+        long start = System.nanoTime();
+
+        latest.set(dataset);
+        for (Subscription subscription : subscriptions.values()) {
+            subscription.offer(dataset);
+        }
+        System.out.println("Dataset " + version + " pushed to " + subscriptions.size() + " subscribers, "
+                + dataset.event.length + " bytes, " + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+
+    /**
+     * Adds a subscriber. The latest dataset is sent right away, unless the client already holds it.
+     * The subscription is registered before the latest dataset is read, so a dataset published concurrently is
+     * either read here or pushed by publish. A subscriber never receives a dataset older than one it has received.
+     *
+     * @param subscriber  The subscriber
+     * @param lastEventId Value of the Last-Event-ID header of a reconnecting client, may be null
+     */
+    public void subscribe(Subscriber subscriber, String lastEventId) {
+        Subscription subscription = new Subscription(subscriber, parseVersion(lastEventId));
+        Dataset dataset;
+
+        subscriptions.put(subscriber, subscription);
+        dataset = latest.get();
+        if (dataset != null) {
+            subscription.offer(dataset);
+        }
+    }
+
+    /**
+     * Parses the Last-Event-ID header of a reconnecting client.
+     *
+     * @param lastEventId Value of the header, may be null
+     * @return the version the client holds, 0 if the header is missing or no version
+     */
+    private static long parseVersion(String lastEventId) {
+        if (lastEventId == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException exception) {
+            return 0;
+        }
+    }
+
+    /**
+     * Continues writing to a subscriber whose connection can take events again, e.g. from the write listener of the
+     * connection. Unknown subscribers are ignored.
+     *
+     * @param subscriber The subscriber
+     */
+    public void resume(Subscriber subscriber) {
+        Subscription subscription = subscriptions.get(subscriber);
+
+        if (subscription != null) {
+            subscription.resume();
+        }
+    }
+
+    /**
+     * Removes a subscriber, e.g. when its connection has been closed. A pending event is dropped.
+     *
+     * @param subscriber The subscriber
+     */
+    public void unsubscribe(Subscriber subscriber) {
+        subscriptions.remove(subscriber);
+    }
+
+    /**
+     * Returns the number of subscribers
+     *
+     * @return number of subscribers
+     */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Stops the writer and heartbeat threads, pending events are dropped.
+     */
+    public void stop() {
+        heartbeat.shutdownNow();
+        writers.shutdownNow();
+    }
+
+    /**
+     * Sends the heartbeat comment to all subscribers without a pending event.
+     */
+    private void sendHeartbeat() {
+        for (Subscription subscription : subscriptions.values()) {
+            subscription.offerHeartbeat();
+        }
+    }
+
+    /**
+     * Drops and closes the subscribers that have not been writable within the send timeout. Runs on the heartbeat
+     * thread.
+     */
+    private void expireSends() {
+        long now = System.nanoTime();
+
+        for (Subscription subscription : subscriptions.values()) {
+            if (subscription.expire(now)) {
+                subscriptions.remove(subscription.subscriber, subscription);
+                subscription.subscriber.close();
+                System.out.println("Subscriber dropped, it has not been writable for " + sendTimeout / 1000000 + " ms.");
+            }
+        }
+    }
+
+    /**
+     * A published dataset with its event. Version and event are replaced together, so they always match.
+     */
+    private static final class Dataset {
+
+        /**
+         * Version of the dataset
+         */
+        private final long version;
+
+        /**
+         * The event of the dataset as SSE bytes
+         */
+        private final byte[] event;
+
+        /**
+         * Constructor of the dataset
+         *
+         * @param version Version of the dataset
+         * @param event   The event of the dataset as SSE bytes
+         */
+        private Dataset(long version, byte[] event) {
+            this.version = version;
+            this.event = event;
+        }
+    }
+
+    /**
+     * A subscriber with the event that is still to be written to it.
+     */
+    private final class Subscription {
+
+        /**
+         * State of a subscription that is written to or idle
+         */
+        private static final int READY = 0;
+
+        /**
+         * State of a subscription whose connection can not take the pending event
+         */
+        private static final int WAITING = 1;
+
+        /**
+         * State of a subscription whose connection has become writable while an event was written
+         */
+        private static final int WRITABLE = 2;
+
+        /**
+         * State of a subscription that has been dropped by the send timeout
+         */
+        private static final int CLOSED = 3;
+
+        /**
+         * The subscriber
+         */
+        private final Subscriber subscriber;
+
+        /**
+         * Event that is still to be written, null if there is none.
+         */
+        private final AtomicReference<byte[]> pending = new AtomicReference<>();
+
+        /**
+         * Whether a writer thread has been scheduled for the subscriber.
+         */
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        /**
+         * Whether the connection can take the pending event, one of READY, WAITING, WRITABLE and CLOSED.
+         * While it is WAITING, the subscription stays scheduled without holding a writer thread.
+         */
+        private final AtomicInteger state = new AtomicInteger(READY);
+
+        /**
+         * Time in nanoseconds at which the connection could not take the pending event.
+         */
+        private volatile long waitingSince;
+
+        /**
+         * Latest version offered to the subscriber or held by the client. Guarded by the subscription.
+         */
+        private long offeredVersion;
+
+        /**
+         * Constructor of the subscription
+         *
+         * @param subscriber  The subscriber
+         * @param heldVersion Version the client already holds, 0 if none
+         */
+        private Subscription(Subscriber subscriber, long heldVersion) {
+            this.subscriber = subscriber;
+            this.offeredVersion = heldVersion;
+        }
+
+        /**
+         * Hands the event of a dataset to the subscriber and replaces a pending event. Datasets that are not newer
+         * than the latest offered one are skipped, e.g. when publish and subscribe offer the same dataset.
+         *
+         * @param dataset The dataset
+         */
+        private void offer(Dataset dataset) {
+            synchronized (this) {
+                if (dataset.version <= offeredVersion) {
+                    return;
+                }
+                offeredVersion = dataset.version;
+                pending.set(dataset.event);
+            }
+            schedule();
+        }
+
+        /**
+         * Hands the heartbeat to the subscriber unless an event is pending, a heartbeat never replaces an event.
+         */
+        private void offerHeartbeat() {
+            if (pending.compareAndSet(null, HEARTBEAT)) {
+                schedule();
+            }
+        }
+
+        /**
+         * Schedules a writer thread for the subscriber unless one has been scheduled already.
+         */
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                writers.execute(this::drain);
+            }
+        }
+
+        /**
+         * Writes the pending events until there is none or the connection can not take one. Runs on a writer thread,
+         * at most once per subscriber at a time.
+         */
+        private void drain() {
+            while (true) {
+                byte[] event = pending.getAndSet(null);
+                boolean written;
+
+                if (event == null) {
+                    scheduled.set(false);
+                    // An event offered between the check and the reset would not be written otherwise.
+                    if (pending.get() == null || !scheduled.compareAndSet(false, true)) {
+                        return;
+                    }
+                    continue;
+                }
+                try {
+                    written = subscriber.send(event);
+                } catch (IOException | RuntimeException exception) {
+                    subscriptions.remove(subscriber, this);
+                    return;
+                }
+                if (!written) {
+                    putBack(event);
+                    waitingSince = System.nanoTime();
+                    // The subscription stays scheduled, resume hands it to a writer thread again.
+                    if (state.compareAndSet(READY, WAITING)) {
+                        return;
+                    }
+                    // The connection has become writable in the meantime, the event is written again right away.
+                    state.compareAndSet(WRITABLE, READY);
+                }
+            }
+        }
+
+        /**
+         * Makes an event that the connection could not take pending again. An event offered in the meantime is newer
+         * and is kept, only a heartbeat is replaced.
+         *
+         * @param event The event that has not been written
+         */
+        private void putBack(byte[] event) {
+            byte[] current;
+
+            do {
+                current = pending.get();
+                if (current != null && (current != HEARTBEAT || event == HEARTBEAT)) {
+                    return;
+                }
+            } while (!pending.compareAndSet(current, event));
+        }
+
+        /**
+         * Continues writing once the connection is writable again. If the writer thread has not yet noticed that the
+         * connection was not writable, it writes the event again instead.
+         */
+        private void resume() {
+            while (true) {
+                int current = state.get();
+
+                if (current == WAITING) {
+                    if (state.compareAndSet(WAITING, READY)) {
+                        writers.execute(this::drain);
+                        return;
+                    }
+                } else if (current == READY) {
+                    if (state.compareAndSet(READY, WRITABLE)) {
+                        return;
+                    }
+                } else {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Closes the subscription if its connection has not been writable within the send timeout.
+         *
+         * @param now Current time in nanoseconds
+         * @return true if the subscription has timed out, the subscriber has to be dropped then
+         */
+        private boolean expire(long now) {
+            return state.get() == WAITING && now - waitingSince >= sendTimeout
+                    && state.compareAndSet(WAITING, CLOSED);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local fixture server that replays a paged ArcGIS feature service, so the district ingest can be tested offline.
+ * The server answers returnCountOnly queries with the number of features and returns the features of a page
+ * according to resultOffset and resultRecordCount. Like a real feature service, a page holds at most maxRecordCount
+ * features and sets exceededTransferLimit if more features follow.
+ *
+ * @author Lars Karbach
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class ArcGisFixtureServer implements AutoCloseable {
+
+    /**
+     * Path of the query, the base URL of the fixture ends with it.
+     */
+    private static final String QUERY_PATH = "/FeatureServer/0/query";
+
+    /**
+     * The local server
+     */
+    private final HttpServer server;
+
+    /**
+     * Features of the layer as JSON objects, in the order of the query
+     */
+    private final List<String> features;
+
+    /**
+     * Maximum number of features per page
+     */
+    private final int maxRecordCount;
+
+    /**
+     * Delay of every page in milliseconds, so that concurrent page requests overlap
+     */
+    private final long pageDelay;
+
+    /**
+     * Number of page requests
+     */
+    private final AtomicInteger pageRequests = new AtomicInteger();
+
+    /**
+     * Number of page requests currently in progress
+     */
+    private final AtomicInteger pagesInProgress = new AtomicInteger();
+
+    /**
+     * Highest number of page requests that were in progress at the same time
+     */
+    private final AtomicInteger maxPagesInProgress = new AtomicInteger();
+
+    /**
+     * Body returned instead of the features, e.g. an ArcGIS error, null for none
+     */
+    private volatile String errorBody;
+
+    /**
+     * Constructor that starts the fixture server on a free local port.
+     *
+     * @param features       Features of the layer as JSON objects
+     * @param maxRecordCount Maximum number of features per page
+     * @param pageDelay      Delay of every page in milliseconds
+     * @throws IOException Throws an IO exception if the server can not be started.
+     */
+    public ArcGisFixtureServer(List<String> features, int maxRecordCount, long pageDelay) throws IOException {
+        this.features = features;
+        this.maxRecordCount = maxRecordCount;
+        this.pageDelay = pageDelay;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        this.server.createContext(QUERY_PATH, this::handle);
+        this.server.setExecutor(Executors.newCachedThreadPool());
+        this.server.start();
+    }
+
+    /**
+     * Creates the JSON object of a district feature of the RKI Landkreis layer.
+     *
+     * @param id       official key of the district
+     * @param name     name of the district
+     * @param stateId  number of the federal state
+     * @param citizens number of citizens
+     * @param cases    total cases
+     * @param cases7   cases within the last 7 days
+     * @return feature JSON
+     */
+    public static String districtFeature(String id, String name, int stateId, int citizens, int cases, int cases7) {
+        return "{\"attributes\":{\"RS\":\"" + id + "\",\"GEN\":\"" + name + "\",\"BL_ID\":\"" + stateId + "\",\"EWZ\":"
+                + citizens + ",\"cases\":" + cases + ",\"cases7_lk\":" + cases7 + "}}";
+    }
+
+    /**
+     * Returns the URL of the query without paging parameters.
+     *
+     * @return query URL
+     */
+    public String getQueryUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + QUERY_PATH + "?where=1%3D1&orderByFields=RS&f=json";
+    }
+
+    /**
+     * Basic getter to return the number of page requests
+     *
+     * @return number of page requests
+     */
+    public int getPageRequests() {
+        return pageRequests.get();
+    }
+
+    /**
+     * Basic getter to return the highest number of concurrent page requests
+     *
+     * @return highest number of page requests in progress at the same time
+     */
+    public int getMaxPagesInProgress() {
+        return maxPagesInProgress.get();
+    }
+
+    /**
+     * Basic setter to replace the responses by an error body
+     *
+     * @param errorBody body returned for all queries, null to return the features again
+     */
+    public void setErrorBody(String errorBody) {
+        this.errorBody = errorBody;
+    }
+
+    /**
+     * Stops the fixture server.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    /**
+     * Answers a count or page query.
+     *
+     * @param exchange current exchange
+     * @throws IOException Throws an IO exception if the response can not be written.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = parameters(exchange.getRequestURI().getRawQuery());
+
+        try {
+            if (errorBody != null) {
+                send(exchange, errorBody);
+            } else if ("true".equals(parameters.get("returnCountOnly"))) {
+                send(exchange, "{\"count\":" + features.size() + "}");
+            } else {
+                sendPage(exchange, Integer.parseInt(parameters.getOrDefault("resultOffset", "0")),
+                        Integer.parseInt(parameters.getOrDefault("resultRecordCount", String.valueOf(maxRecordCount))));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Sends a page of features.
+     *
+     * @param exchange    current exchange
+     * @param offset      index of the first feature
+     * @param recordCount requested number of features
+     * @throws IOException Throws an IO exception if the response can not be written.
+     */
+    private void sendPage(HttpExchange exchange, int offset, int recordCount) throws IOException {
+        int end = Math.min(features.size(), offset + Math.min(recordCount, maxRecordCount));
+        StringBuilder body = new StringBuilder("{\"objectIdFieldName\":\"ObjectId\",\"features\":[");
+
+        maxPagesInProgress.accumulateAndGet(pagesInProgress.incrementAndGet(), Math::max);
+        pageRequests.incrementAndGet();
+        try {
+            Thread.sleep(pageDelay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (int feature = offset; feature < end; feature++) {
+            body.append(feature == offset ? "" : ",").append(features.get(feature));
+        }
+        body.append("],\"exceededTransferLimit\":").append(end < features.size()).append('}');
+        pagesInProgress.decrementAndGet();
+        send(exchange, body.toString());
+    }
+
+    /**
+     * Splits the query string of a request.
+     *
+     * @param query raw query string, may be null
+     * @return parameters by name
+     */
+    private static Map<String, String> parameters(String query) {
+        Map<String, String> parameters = new HashMap<>();
+
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                int separator = parameter.indexOf('=');
+
+                if (separator > 0) {
+                    parameters.put(parameter.substring(0, separator),
+                            URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * Sends a JSON body with status 200.
+     *
+     * @param exchange current exchange
+     * @param body     JSON body
+     * @throws IOException Throws an IO exception if the response can not be written.
+     */
+    private static void send(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+}
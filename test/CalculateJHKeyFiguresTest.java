@@ -1,4 +1,5 @@
 import hrw.webservice.logic.CalculateJHKeyFigures;
+import hrw.webservice.model.JHTimeSeries;
 import hrw.webservice.model.JohnHDailyInfos;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -51,4 +52,28 @@ public class CalculateJHKeyFiguresTest {
         assertEquals(5297.5, result);
     }
 
+    /**
+     * This method tests that the window averages calculated from the first and the last day of the window equal the day by day calculation
+     * for every window size
+     */
+    @Test
+    @DisplayName("testCalcAvgWindows")
+    public void testCalcAvgWindows() {
+        JHTimeSeries series = new JHTimeSeries();
+        CalculateJHKeyFigures testCalcJHKeyFigures = new CalculateJHKeyFigures();
+
+        for (int day = 0; day < 400; day++) {
+            series.append(18283 + day, day * day * 3 + (day % 7) * 1000, day * 5, day * day * 2);
+        }
+        for (int days = 1; days < series.size(); days++) {
+            long raisedSum = 0;
+            for (int day = series.size() - days; day < series.size(); day++) {
+                raisedSum += series.getTrueInfected(day) - series.getTrueInfected(day - 1);
+            }
+            assertEquals(((double) raisedSum) / days, testCalcJHKeyFigures.calcAvgRaiseN(series, days));
+            assertEquals(((double) -raisedSum) / days, testCalcJHKeyFigures.calcAvgDecrease(series, days));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> testCalcJHKeyFigures.calcAvgRaiseN(series, series.size()));
+        assertThrows(IndexOutOfBoundsException.class, () -> testCalcJHKeyFigures.calcAvgDecrease(series, 0));
+    }
 }
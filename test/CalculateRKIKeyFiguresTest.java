@@ -1,5 +1,6 @@
 import hrw.webservice.logic.CalculateRKIKeyFigures;
 import hrw.webservice.model.Attributes;
+import hrw.webservice.model.RKIStateTable;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -8,6 +9,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
  * Test class for RKI key figure calculation
@@ -64,6 +66,31 @@ public class CalculateRKIKeyFiguresTest {
 
     }
 
+    /**
+     * This method tests that the state table keeps the figures of every state and sums up to the same total
+     */
+    @Test
+    @DisplayName("Test pre-calculate RKI values per state")
+    public void testPreCalcStateValues() {
+
+        RKIStateTable states = new RKIStateTable(new String[]{"01", "09", "11"}, new String[]{"Schleswig-Holstein", "Bayern", "Berlin"},
+                new int[]{1000, 6500, 2300}, new int[]{40000, 420000, 130000}, new int[]{2900000, 13100000, 3660000});
+        List<Attributes> dailyStateList = new ArrayList<>();
+
+        for (int state = 0; state < states.size(); state++) {
+            dailyStateList.add(new Attributes(states.getCases7(state), states.getCases(state), states.getCitizens(state)));
+        }
+
+        assertEquals(calc.preCalcRkiValues(dailyStateList).getIncidenceGermany(), calc.preCalcRkiValues(states).getIncidenceGermany());
+        assertEquals(6500 / 131.0, states.getIncidence(1), 1e-9);
+        assertEquals(1, states.indexOf("09"));
+        assertEquals(1, states.indexOf("9"));
+        assertEquals(2, states.indexOf("berlin"));
+        assertEquals(-1, states.indexOf("Hessen"));
+        assertThrows(IllegalArgumentException.class, () -> new RKIStateTable(new String[1], new String[1], new int[1], new int[0], new int[1]));
+
+    }
+
     /**
      * This method tests the remaining lockdown calculation
      */
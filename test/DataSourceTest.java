@@ -0,0 +1,123 @@
+import hrw.webservice.mapper.JsonObjectMapper;
+import hrw.webservice.model.CountrySeriesStore;
+import hrw.webservice.model.RKIDistrictTable;
+import hrw.webservice.model.RKIStateTable;
+import hrw.webservice.source.DataSources;
+import hrw.webservice.source.ReplayDataSource;
+import hrw.webservice.source.RKIStateDecoder;
+import hrw.webservice.source.SyntheticDataSource;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for the offline data sources
+ *
+ * @author Lars Karbach
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class DataSourceTest {
+
+    /**
+     * This method tests that the recordings are replayed in order and reported as unchanged afterwards
+     *
+     * @throws IOException Throws an IO exception if the recordings can not be written.
+     */
+    @Test
+    @DisplayName("Test replaying recordings")
+    public void testReplay() throws IOException {
+        Path directory = Files.createTempDirectory("replay");
+        AtomicReference<CountrySeriesStore> published = new AtomicReference<>();
+        DataSources sources;
+
+        record(directory.resolve("jh"), "2021-02-16.json", SyntheticDataSource.johnHopkinsTimeseries(3, 20).apply(0));
+        record(directory.resolve("jh"), "2021-02-17.json", SyntheticDataSource.johnHopkinsTimeseries(3, 20).apply(1));
+        record(directory.resolve("rki"), "2021-02-16.json", SyntheticDataSource.rkiStates(16).apply(0));
+        record(directory.resolve("districts"), "2021-02-16.json", SyntheticDataSource.rkiDistricts(401).apply(0));
+        sources = DataSources.replay(directory, 0, new JsonObjectMapper(), published::get);
+
+        published.set(sources.getJohnHopkins().fetch().join());
+        assertEquals(20, published.get().get("Germany").size());
+        published.set(sources.getJohnHopkins().fetch().join());
+        assertEquals(21, published.get().get("Germany").size());
+        assertNull(sources.getJohnHopkins().fetch().join());
+
+        sources.getJohnHopkins().reset();
+        assertEquals(21, sources.getJohnHopkins().fetch().join().get("Germany").size());
+
+        assertEquals(16, sources.getRkiStates().fetch().join().size());
+        assertEquals(401, sources.getRkiDistricts().fetch().join().size());
+        assertNull(sources.getRkiDistricts().fetch().join());
+    }
+
+    /**
+     * This method tests that invalid payloads fail the fetch
+     *
+     * @throws IOException Throws an IO exception if the recordings can not be written.
+     */
+    @Test
+    @DisplayName("Test invalid recordings")
+    public void testInvalidRecording() throws IOException {
+        Path directory = Files.createTempDirectory("replay");
+        ReplayDataSource<RKIStateTable> source;
+        CompletionException exception;
+
+        record(directory, "1.json", "{\"features\":[]}".getBytes(StandardCharsets.UTF_8));
+        record(directory, "2.json", "{\"features\":[{\"attributes\":{\"LAN_ew_AGS\":\"01\"}}]}".getBytes(StandardCharsets.UTF_8));
+        source = new ReplayDataSource<>("RKI", directory, new RKIStateDecoder(new JsonObjectMapper()), 0);
+
+        exception = assertThrows(CompletionException.class, () -> source.fetch().join());
+        assertTrue(exception.getCause() instanceof UncheckedIOException);
+        exception = assertThrows(CompletionException.class, () -> source.fetch().join());
+        assertTrue(exception.getCause() instanceof UncheckedIOException);
+        assertEquals(0, source.getRemaining());
+    }
+
+    /**
+     * This method tests the synthetic sources, every run adds one day to the John Hopkins series
+     */
+    @Test
+    @DisplayName("Test synthetic sources")
+    public void testSynthetic() {
+        AtomicReference<CountrySeriesStore> published = new AtomicReference<>();
+        DataSources sources = DataSources.synthetic(5, 30, 16, 401, new JsonObjectMapper(), published::get);
+        RKIDistrictTable districts = sources.getRkiDistricts().fetch().join();
+
+        published.set(sources.getJohnHopkins().fetch().join());
+        assertEquals(5, published.get().size());
+        assertEquals(30, published.get().get("Country 5").size());
+        published.set(sources.getJohnHopkins().fetch().join());
+        assertEquals(31, published.get().get("Germany").size());
+        assertEquals(100 * 30, published.get().get("Germany").getConfirmed(30));
+
+        assertEquals(16, sources.getRkiStates().fetch().join().size());
+        assertEquals(401, districts.size());
+        assertEquals(1, districts.getRank(districts.getRowByRank(1)));
+    }
+
+    /**
+     * Writes a recording.
+     *
+     * @param directory directory of the recording, created if necessary
+     * @param name      file name
+     * @param payload   recorded payload
+     * @throws IOException Throws an IO exception if the recording can not be written.
+     */
+    private void record(Path directory, String name, byte[] payload) throws IOException {
+        Files.createDirectories(directory);
+        Files.write(directory.resolve(name), payload);
+    }
+}
@@ -0,0 +1,174 @@
+import hrw.webservice.logic.CalculateJHKeyFigures;
+import hrw.webservice.logic.CalculateRKIKeyFigures;
+import hrw.webservice.logic.DatasetSnapshotFile;
+import hrw.webservice.logic.PrecomputeKeyFigures;
+import hrw.webservice.model.CountrySeriesStore;
+import hrw.webservice.model.DatasetSnapshot;
+import hrw.webservice.model.JHTimeSeries;
+import hrw.webservice.model.KeyFigureTable;
+import hrw.webservice.model.RKIDailyInfosTotal;
+import hrw.webservice.model.RKIDistrictTable;
+import hrw.webservice.model.RKIStateTable;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test class for the binary dataset snapshot file used for the warm start
+ *
+ * @author Lars Karbach
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class DatasetSnapshotFileTest {
+
+    /**
+     * Number of countries of the test dataset
+     */
+    private static final int COUNTRIES = 190;
+
+    /**
+     * Number of days per country of the test dataset
+     */
+    private static final int DAYS = 700;
+
+    /**
+     * This method tests that a written snapshot is loaded with the same figures
+     *
+     * @throws IOException Throws an IO exception if the snapshot file can not be written or read.
+     */
+    @Test
+    @DisplayName("Test writing and loading a snapshot")
+    public void testWriteAndLoad() throws IOException {
+        DatasetSnapshotFile file = new DatasetSnapshotFile(Files.createTempDirectory("snapshot").resolve("dataset.bin"));
+        DatasetSnapshot written = createSnapshot();
+        DatasetSnapshot loaded;
+
+        file.write(written);
+        loaded = file.read();
+
+        assertEquals(written.getVersion(), loaded.getVersion());
+        assertEquals(written.getPublishedAt(), loaded.getPublishedAt());
+        assertEquals(written.getJHStore().getCountries(), loaded.getJHStore().getCountries());
+        for (String country : written.getJHStore().getCountries()) {
+            JHTimeSeries expected = written.getJHStore().get(country);
+            JHTimeSeries actual = loaded.getJHStore().get(country);
+            KeyFigureTable expectedFigures = written.getKeyFigures(country);
+            KeyFigureTable actualFigures = loaded.getKeyFigures(country);
+
+            assertEquals(expected.size(), actual.size());
+            assertEquals(expected.getEpochDay(DAYS - 1), actual.getEpochDay(DAYS - 1));
+            assertEquals(expected.getTrueInfected(DAYS - 1), actual.getTrueInfected(DAYS - 1));
+            assertEquals(expectedFigures.getTrueInfected(), actualFigures.getTrueInfected());
+            assertEquals(expectedFigures.getMaxDays(), actualFigures.getMaxDays());
+            assertEquals(expectedFigures.getAverageRaise(30), actualFigures.getAverageRaise(30));
+        }
+        assertEquals(written.getKeyFigures().getIncidence(), loaded.getKeyFigures().getIncidence());
+        assertEquals(written.getKeyFigures().getTargetInfection(), loaded.getKeyFigures().getTargetInfection());
+        assertEquals(written.getRkiTotal().getSumCases(), loaded.getRkiTotal().getSumCases());
+        assertEquals("Bayern", loaded.getRkiStates().getName(loaded.getRkiStates().indexOf("09")));
+        assertEquals(1, loaded.getRkiDistricts().getRank(loaded.getRkiDistricts().indexOf("09162")));
+    }
+
+    /**
+     * This method tests that a missing file is reported as null and a damaged file is rejected
+     *
+     * @throws IOException Throws an IO exception if the snapshot file can not be written.
+     */
+    @Test
+    @DisplayName("Test missing and damaged snapshot files")
+    public void testMissingAndDamagedFile() throws IOException {
+        Path path = Files.createTempDirectory("snapshot").resolve("dataset.bin");
+        DatasetSnapshotFile file = new DatasetSnapshotFile(path);
+
+        assertNull(file.read());
+
+        file.write(createSnapshot());
+        try (RandomAccessFile damaged = new RandomAccessFile(path.toFile(), "rw")) {
+            damaged.seek(damaged.length() / 2);
+            damaged.write(damaged.read() ^ 0xFF);
+        }
+        assertThrows(IOException.class, file::read);
+    }
+
+    /**
+     * This method tests that two services writing the same snapshot file at once leave a complete file
+     *
+     * @throws Exception Throws an exception if the snapshot file can not be written or a thread fails.
+     */
+    @Test
+    @DisplayName("Test concurrent writers of a snapshot file")
+    public void testConcurrentWriters() throws Exception {
+        Path path = Files.createTempDirectory("snapshot").resolve("dataset.bin");
+        DatasetSnapshot snapshot = createSnapshot();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<Future<?>> writers = new ArrayList<>();
+
+        try {
+            for (int writer = 0; writer < 2; writer++) {
+                DatasetSnapshotFile file = new DatasetSnapshotFile(path);
+                writers.add(executor.submit(() -> {
+                    for (int run = 0; run < 5; run++) {
+                        file.write(snapshot);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(42, new DatasetSnapshotFile(path).read().getVersion());
+        try (Stream<Path> files = Files.list(path.getParent())) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    /**
+     * Creates a snapshot with the series of all countries, the RKI data and the key figures.
+     *
+     * @return dataset snapshot
+     */
+    private DatasetSnapshot createSnapshot() {
+        Map<String, JHTimeSeries> seriesByCountry = new LinkedHashMap<>();
+        RKIDailyInfosTotal rkiTotal = new RKIDailyInfosTotal(57.3, 2346876);
+        RKIStateTable states = new RKIStateTable(new String[]{"09", "11"}, new String[]{"Bayern", "Berlin"},
+                new int[]{6500, 2300}, new int[]{420000, 130000}, new int[]{13100000, 3660000});
+        RKIDistrictTable districts = new RKIDistrictTable(2);
+        CountrySeriesStore store;
+
+        for (int country = 0; country < COUNTRIES; country++) {
+            JHTimeSeries series = new JHTimeSeries(DAYS);
+
+            for (int day = 0; day < DAYS; day++) {
+                series.append(18283 + day, day * (100 + country), day * 2, day * (50 + country % 13));
+            }
+            seriesByCountry.put(country == 0 ? "Germany" : "Country " + country, series);
+        }
+        store = new CountrySeriesStore(seriesByCountry);
+        districts.set(0, "09162", "München", 9, 1488000, 60000, 1500);
+        districts.set(1, "11000", "Berlin", 11, 3660000, 130000, 2300);
+
+        return new DatasetSnapshot(42, 1613469600000L, store, districts.complete(2), states, rkiTotal,
+                new PrecomputeKeyFigures(new CalculateJHKeyFigures(), new CalculateRKIKeyFigures()).precomputeAll(store, rkiTotal));
+    }
+}
@@ -0,0 +1,104 @@
+import hrw.webservice.logic.IncrementalSeriesIngest;
+import hrw.webservice.mapper.JsonObjectMapper;
+import hrw.webservice.model.CountrySeriesStore;
+import hrw.webservice.model.JHTimeSeries;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test class for the incremental ingest of the John Hopkins series of all countries
+ *
+ * @author Lars Karbach
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class IncrementalSeriesIngestTest {
+
+    /**
+     * Date format of the John Hopkins timeseries
+     */
+    private static final DateTimeFormatter JH_DATE = DateTimeFormatter.ofPattern("yyyy-M-d");
+
+    /**
+     * This method tests that new days are appended and historic days are taken over unchanged
+     *
+     * @throws IOException Throws an IO exception if an error occurs while reading the JSON stream.
+     */
+    @Test
+    @DisplayName("Test appending new days")
+    public void testAppendNewDays() throws IOException {
+        IncrementalSeriesIngest ingest = new IncrementalSeriesIngest(new JsonObjectMapper());
+        CountrySeriesStore initialStore = ingest.ingest(null, timeseries(100, -1));
+        CountrySeriesStore mergedStore = ingest.ingest(initialStore, timeseries(103, -1));
+        JHTimeSeries initial = initialStore.get("Germany");
+        JHTimeSeries merged = mergedStore.get("Germany");
+
+        assertEquals(100, initial.size());
+        assertEquals(103, merged.size());
+        assertEquals(initial.getEpochDay(0), merged.getEpochDay(0));
+        assertEquals(initial.getConfirmed(50), merged.getConfirmed(50));
+        assertEquals(10200, merged.getConfirmed(102));
+        assertEquals(merged.getDate(102), ingest.getLastIngestedDate());
+        assertEquals(2, mergedStore.size());
+        assertEquals(1, mergedStore.get("Austria").size());
+    }
+
+    /**
+     * This method tests that revisions within the trailing window are patched
+     *
+     * @throws IOException Throws an IO exception if an error occurs while reading the JSON stream.
+     */
+    @Test
+    @DisplayName("Test patching revised days")
+    public void testPatchRevisedDays() throws IOException {
+        IncrementalSeriesIngest ingest = new IncrementalSeriesIngest(new JsonObjectMapper());
+        CountrySeriesStore initial = ingest.ingest(null, timeseries(100, -1));
+        JHTimeSeries merged = ingest.ingest(initial, timeseries(101, 95)).get("Germany");
+
+        assertEquals(101, merged.size());
+        assertEquals(9500 + 1, merged.getConfirmed(95));
+        assertEquals(9400, merged.getConfirmed(94));
+    }
+
+    /**
+     * This method tests that a series that can not be aligned is rebuilt completely
+     *
+     * @throws IOException Throws an IO exception if an error occurs while reading the JSON stream.
+     */
+    @Test
+    @DisplayName("Test rebuilding a reshaped series")
+    public void testRebuildReshapedSeries() throws IOException {
+        IncrementalSeriesIngest ingest = new IncrementalSeriesIngest(new JsonObjectMapper());
+        CountrySeriesStore initial = ingest.ingest(null, timeseries(100, -1));
+        JHTimeSeries merged = ingest.ingest(initial, timeseries(50, -1)).get("Germany");
+
+        assertEquals(50, merged.size());
+    }
+
+    /**
+     * Creates a timeseries with a second country in front of Germany.
+     *
+     * @param days       number of days
+     * @param revisedDay day whose confirmed cases are increased by one, -1 for none
+     * @return timeseries JSON
+     */
+    private byte[] timeseries(int days, int revisedDay) {
+        StringBuilder json = new StringBuilder("{\"Austria\":[{\"date\":\"2020-1-22\",\"confirmed\":1,\"deaths\":0,\"recovered\":0}],\"Germany\":[");
+
+        for (int day = 0; day < days; day++) {
+            json.append(day == 0 ? "" : ",")
+                    .append("{\"date\":\"").append(LocalDate.of(2020, 1, 22).plusDays(day).format(JH_DATE))
+                    .append("\",\"confirmed\":").append(day * 100 + (day == revisedDay ? 1 : 0))
+                    .append(",\"deaths\":").append(day)
+                    .append(",\"recovered\":").append(day * 10).append('}');
+        }
+        return json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
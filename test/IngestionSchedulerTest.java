@@ -0,0 +1,156 @@
+import hrw.webservice.threads.IngestionScheduler;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for the scheduling of the ingest
+ *
+ * @author Lars Karbach
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class IngestionSchedulerTest {
+
+    /**
+     * Time zone of the poll window
+     */
+    private static final ZoneId ZONE = ZoneId.of("Europe/Berlin");
+
+    /**
+     * This method tests the delay within and outside of the poll window
+     */
+    @Test
+    @DisplayName("Test the delay around the poll window")
+    public void testCalcDelayPollWindow() {
+        IngestionScheduler scheduler = scheduler(() -> true, 0, Duration.ofMinutes(1));
+
+        assertEquals(Duration.ofMinutes(15), scheduler.calcDelay(at(3, 0), 0));
+        assertEquals(Duration.ofMinutes(15), scheduler.calcDelay(at(7, 59), 0));
+        assertEquals(Duration.ofHours(3), scheduler.calcDelay(at(8, 0), 0));
+        assertEquals(Duration.ofMinutes(30), scheduler.calcDelay(at(2, 30), 0));
+        assertEquals(Duration.ofHours(3), scheduler.calcDelay(at(23, 0), 0));
+        assertEquals(Duration.ofHours(2), scheduler.calcDelay(at(1, 0), 0));
+    }
+
+    /**
+     * This method tests that the backoff doubles and is capped at the regular cadence
+     */
+    @Test
+    @DisplayName("Test the backoff after failed runs")
+    public void testCalcDelayBackoff() {
+        IngestionScheduler scheduler = scheduler(() -> true, 0, Duration.ofMinutes(1));
+
+        assertEquals(Duration.ofMinutes(1), scheduler.calcDelay(at(12, 0), 1));
+        assertEquals(Duration.ofMinutes(2), scheduler.calcDelay(at(12, 0), 2));
+        assertEquals(Duration.ofMinutes(64), scheduler.calcDelay(at(4, 0), 7));
+        assertEquals(Duration.ofMinutes(128), scheduler.calcDelay(at(12, 0), 8));
+        assertEquals(Duration.ofHours(3), scheduler.calcDelay(at(12, 0), 9));
+        assertEquals(Duration.ofHours(3), scheduler.calcDelay(at(12, 0), 1000));
+    }
+
+    /**
+     * This method tests that failed runs and exceptions are retried and do not stop the schedule
+     *
+     * @throws InterruptedException Throws an interrupted exception if the test is interrupted while waiting.
+     */
+    @Test
+    @DisplayName("Test retrying failed runs")
+    public void testRetryAfterFailure() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch succeeded = new CountDownLatch(1);
+        IngestionScheduler scheduler = scheduler(() -> {
+            int run = runs.incrementAndGet();
+
+            if (run == 1) {
+                throw new IllegalStateException("upstream down");
+            }
+            if (run == 2) {
+                return false;
+            }
+            succeeded.countDown();
+            return true;
+        }, 0.5, Duration.ofMillis(20));
+
+        try {
+            scheduler.start();
+            assertTrue(succeeded.await(10, TimeUnit.SECONDS));
+            assertEquals(3, runs.get());
+            Thread.sleep(100);
+            assertEquals(0, scheduler.getConsecutiveFailures());
+            assertTrue(scheduler.getNextRunAt() > System.currentTimeMillis());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    /**
+     * This method tests the manual trigger, which is rejected while a run is in progress
+     *
+     * @throws InterruptedException Throws an interrupted exception if the test is interrupted while waiting.
+     */
+    @Test
+    @DisplayName("Test triggering a run manually")
+    public void testTriggerNow() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        IngestionScheduler scheduler = scheduler(() -> {
+            runs.incrementAndGet();
+            started.countDown();
+            try {
+                return release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException exception) {
+                return false;
+            }
+        }, 0, Duration.ofMinutes(1));
+
+        try {
+            assertTrue(scheduler.triggerNow());
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            assertFalse(scheduler.triggerNow());
+            release.countDown();
+            Thread.sleep(100);
+            assertFalse(scheduler.triggerNow());
+            assertEquals(1, runs.get());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    /**
+     * Creates a scheduler with a cadence of 3 hours and a poll window from 03:00 to 08:00 polled every 15 minutes.
+     *
+     * @param ingest         the ingest
+     * @param jitter         jitter of the delays
+     * @param initialBackoff delay after the first failed run
+     * @return the scheduler, not started
+     */
+    private IngestionScheduler scheduler(BooleanSupplier ingest, double jitter, Duration initialBackoff) {
+        return new IngestionScheduler(ingest, Duration.ofHours(3), Duration.ofMinutes(15), LocalTime.of(3, 0),
+                LocalTime.of(8, 0), ZONE, jitter, initialBackoff);
+    }
+
+    /**
+     * Creates a time of a fixed day in the zone of the poll window.
+     *
+     * @param hour   hour of the day
+     * @param minute minute of the hour
+     * @return the time
+     */
+    private ZonedDateTime at(int hour, int minute) {
+        return ZonedDateTime.of(2021, 2, 16, hour, minute, 0, 0, ZONE);
+    }
+}
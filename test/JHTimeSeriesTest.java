@@ -0,0 +1,121 @@
+import hrw.webservice.logic.CalculateJHKeyFigures;
+import hrw.webservice.model.JHTimeSeries;
+import hrw.webservice.model.JohnHDailyInfos;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test class for the columnar John Hopkins series.
+ * Besides the basic operations, a window scan over the series is compared with a list of JohnHDailyInfos objects.
+ * The heap retained by both is measured in the benchmark harness, see benchmark/Covid19Benchmark.
+ *
+ * @author Lars Karbach
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class JHTimeSeriesTest {
+
+    /**
+     * Number of countries of the window scan.
+     */
+    private static final int COUNTRIES = 10;
+
+    /**
+     * Number of days per country.
+     */
+    private static final int DAYS = 100;
+
+    /**
+     * This method tests the conversion of John Hopkins dates
+     */
+    @Test
+    @DisplayName("Test parsing of dates")
+    public void testParseDate() {
+        char[] chars = "x2021-2-15x".toCharArray();
+
+        assertEquals(LocalDate.of(2020, 1, 22).toEpochDay(), JHTimeSeries.parseDate("2020-1-22"));
+        assertEquals(LocalDate.of(2021, 12, 3).toEpochDay(), JHTimeSeries.parseDate("2021-12-3"));
+        assertEquals(LocalDate.of(2021, 2, 15).toEpochDay(), JHTimeSeries.parseDate(chars, 1, 9));
+        assertThrows(IllegalArgumentException.class, () -> JHTimeSeries.parseDate("2021-2"));
+        assertThrows(IllegalArgumentException.class, () -> JHTimeSeries.parseDate("2021/2/15"));
+    }
+
+    /**
+     * This method tests appending, copying and the bounds of the series
+     */
+    @Test
+    @DisplayName("Test append and copy")
+    public void testAppendAndCopy() {
+        JHTimeSeries series = new JHTimeSeries(2);
+        JHTimeSeries copy;
+
+        for (int day = 0; day < 10; day++) {
+            series.append(18283 + day, day * 100, day, day * 10);
+        }
+        copy = series.copyOf(5, 6);
+        copy.append(0, 1, 2, 3);
+
+        assertEquals(10, series.size());
+        assertEquals("2020-1-22", series.getDate(0));
+        assertEquals(900 - 90 - 9, series.getTrueInfected(9));
+        assertEquals(6, copy.size());
+        assertEquals(1, copy.getConfirmed(5));
+        assertEquals(500, series.getConfirmed(5));
+        assertThrows(IndexOutOfBoundsException.class, () -> series.getConfirmed(10));
+        assertThrows(IndexOutOfBoundsException.class, () -> series.copyOf(11, 11));
+    }
+
+    /**
+     * This method checks that a window scan over the series returns the same result as over a list of daily objects
+     */
+    @Test
+    @DisplayName("Test window scan of series against list")
+    public void testWindowScanAgainstList() {
+        CalculateJHKeyFigures calculator = new CalculateJHKeyFigures();
+        List<List<JohnHDailyInfos>> lists = new ArrayList<>();
+        double listResult, seriesResult = 0;
+
+        for (int country = 0; country < COUNTRIES; country++) {
+            List<JohnHDailyInfos> list = new ArrayList<>();
+            JHTimeSeries series = new JHTimeSeries(DAYS);
+            for (int day = 0; day < DAYS; day++) {
+                list.add(new JohnHDailyInfos(LocalDate.ofEpochDay(18283 + day).toString(), day * 100 + country, day * 2, day * 50 + day * day % 7));
+                series.append(18283 + day, day * 100 + country, day * 2, day * 50 + day * day % 7);
+            }
+            lists.add(list);
+            seriesResult += calculator.calcAvgDecrease(series, DAYS - 1);
+        }
+        listResult = scanList(lists);
+
+        assertEquals(listResult, seriesResult, 1e-6);
+    }
+
+    /**
+     * Scans the lists the way the key figures were calculated before the columnar series.
+     *
+     * @param lists lists of all countries
+     * @return sum of the average decrease of all countries
+     */
+    private double scanList(List<List<JohnHDailyInfos>> lists) {
+        double result = 0;
+
+        for (List<JohnHDailyInfos> list : lists) {
+            double sum = 0;
+            for (int i = list.size() - DAYS + 1; i < list.size(); i++) {
+                JohnHDailyInfos day = list.get(i);
+                JohnHDailyInfos previous = list.get(i - 1);
+                sum += (double) (previous.getConfirmed() - previous.getRecovered() - previous.getDeaths())
+                        - (day.getConfirmed() - day.getRecovered() - day.getDeaths());
+            }
+            result += sum / (DAYS - 1);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,135 @@
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import hrw.webservice.mapper.JsonObjectMapper;
+import hrw.webservice.model.JHTimeSeries;
+import hrw.webservice.model.JohnHDailyInfos;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test class for the streaming John Hopkins timeseries parser.
+ * The decoded series is compared with the former tree based path, the heap and time of both are
+ * measured in the benchmark harness, see benchmark/Covid19Benchmark.
+ *
+ * @author Lars Karbach
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class JsonObjectMapperTest {
+
+    /**
+     * Number of countries of the synthetic timeseries, roughly the size of the real feed.
+     */
+    private static final int COUNTRIES = 190;
+
+    /**
+     * Number of days per country of the synthetic timeseries.
+     */
+    private static final int DAYS = 700;
+
+    /**
+     * Date format of the John Hopkins timeseries
+     */
+    private static final DateTimeFormatter JH_DATE = DateTimeFormatter.ofPattern("yyyy-M-d");
+
+    /**
+     * Instance of JsonObjectMapper
+     */
+    private static JsonObjectMapper mapper;
+
+    /**
+     * Synthetic timeseries in the format of https://pomber.github.io/covid19/timeseries.json
+     */
+    private static byte[] timeseries;
+
+    /**
+     * This method creates the mapper and the synthetic timeseries.
+     * It must be called before any tests are run.
+     */
+    @BeforeAll
+    public static void createTimeseries() {
+        StringBuilder json = new StringBuilder();
+
+        mapper = new JsonObjectMapper();
+        json.append('{');
+        for (int country = 0; country < COUNTRIES; country++) {
+            json.append(country == 0 ? "" : ",").append('"').append(country == COUNTRIES / 2 ? "Germany" : "Country" + country).append("\":[");
+            for (int day = 0; day < DAYS; day++) {
+                json.append(day == 0 ? "" : ",")
+                        .append("{\"date\":\"").append(LocalDate.of(2020, 1, 22).plusDays(day).format(JH_DATE))
+                        .append("\",\"confirmed\":").append(day * 100 + country)
+                        .append(",\"deaths\":").append(day * 2)
+                        .append(",\"recovered\":").append(day * 50).append('}');
+            }
+            json.append(']');
+        }
+        json.append('}');
+        timeseries = json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * This method tests that the streaming parser decodes the same series as the tree based path
+     *
+     * @throws IOException Throws an IO exception if an error occurs while reading the JSON stream.
+     */
+    @Test
+    @DisplayName("Test streaming parser equals tree parser")
+    public void testStreamingEqualsTree() throws IOException {
+        JHTimeSeries streamed = parseStreaming();
+        List<JohnHDailyInfos> tree = parseTree();
+
+        assertEquals(DAYS, streamed.size());
+        assertEquals(tree.size(), streamed.size());
+        for (int i = 0; i < tree.size(); i++) {
+            assertEquals(JHTimeSeries.parseDate(tree.get(i).getDate()), streamed.getEpochDay(i));
+            assertEquals(tree.get(i).getDate(), streamed.getDate(i));
+            assertEquals(tree.get(i).getConfirmed(), streamed.getConfirmed(i));
+            assertEquals(tree.get(i).getDeaths(), streamed.getDeaths(i));
+            assertEquals(tree.get(i).getRecovered(), streamed.getRecovered(i));
+        }
+    }
+
+    /**
+     * This method tests that an unknown country results in an empty series
+     *
+     * @throws IOException Throws an IO exception if an error occurs while reading the JSON stream.
+     */
+    @Test
+    @DisplayName("Test streaming parser with unknown country")
+    public void testUnknownCountry() throws IOException {
+        assertEquals(0, mapper.getCountrySeriesFromInputStream(new ByteArrayInputStream(timeseries), "Atlantis").size());
+    }
+
+    /**
+     * Parses the German series with the streaming parser.
+     *
+     * @return German series
+     * @throws IOException Throws an IO exception if an error occurs while reading the JSON stream.
+     */
+    private JHTimeSeries parseStreaming() throws IOException {
+        return mapper.getCountrySeriesFromInputStream(new ByteArrayInputStream(timeseries), "Germany");
+    }
+
+    /**
+     * Parses the German series with the former tree based path.
+     *
+     * @return German series
+     * @throws IOException Throws an IO exception if an error occurs while reading the JSON tree.
+     */
+    private List<JohnHDailyInfos> parseTree() throws IOException {
+        JsonNode node = mapper.getSpecificNodeFromInputStream(new ByteArrayInputStream(timeseries), "Germany");
+        JavaType type = mapper.getObjectMapper().getTypeFactory().constructCollectionType(List.class, JohnHDailyInfos.class);
+
+        return mapper.getObjectMapper().convertValue(node, type);
+    }
+}
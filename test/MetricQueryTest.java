@@ -0,0 +1,138 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hrw.webservice.logic.MetricQuery;
+import hrw.webservice.model.CountrySeriesStore;
+import hrw.webservice.model.DatasetSnapshot;
+import hrw.webservice.model.KeyFigureTable;
+import hrw.webservice.model.RKIDistrictTable;
+import hrw.webservice.model.RKIStateTable;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for the metric queries of the batch endpoint
+ *
+ * @author Lars Karbach
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class MetricQueryTest {
+
+    /**
+     * Mapper used to read the rendered responses
+     */
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * This method tests that several metrics, including several windows, are parsed in the order of the query
+     */
+    @Test
+    @DisplayName("Test parsing metrics")
+    public void testParse() {
+        MetricQuery query = MetricQuery.parse(Arrays.asList("newInfections24H", " averageRaise:7", "averageRaise:14",
+                "newInfections24H", ""));
+
+        assertEquals(Arrays.asList("newInfections24H", "averageRaise:7", "averageRaise:14"), query.getSpecs());
+        assertEquals("newInfections24H,averageRaise:7,averageRaise:14", query.getKey());
+        assertEquals(14, query.getMaxDays());
+        assertFalse(query.requiresRki());
+        assertTrue(MetricQuery.parse(Collections.singletonList("incidence")).requiresRki());
+    }
+
+    /**
+     * This method tests that invalid metrics are rejected
+     */
+    @Test
+    @DisplayName("Test rejecting invalid metrics")
+    public void testParseInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> MetricQuery.parse(Collections.emptyList()));
+        assertThrows(IllegalArgumentException.class, () -> MetricQuery.parse(Collections.singletonList("deaths")));
+        assertThrows(IllegalArgumentException.class, () -> MetricQuery.parse(Collections.singletonList("averageRaise")));
+        assertThrows(IllegalArgumentException.class, () -> MetricQuery.parse(Collections.singletonList("averageRaise:0")));
+        assertThrows(IllegalArgumentException.class, () -> MetricQuery.parse(Collections.singletonList("averageRaise:x")));
+        assertThrows(IllegalArgumentException.class, () -> MetricQuery.parse(Collections.singletonList("incidence:7")));
+        assertThrows(IllegalArgumentException.class, () -> MetricQuery.parse(windows(MetricQuery.MAX_METRICS + 1)));
+        assertEquals(MetricQuery.MAX_METRICS, MetricQuery.parse(windows(MetricQuery.MAX_METRICS)).getSpecs().size());
+    }
+
+    /**
+     * This method tests that all metrics are rendered from one snapshot
+     *
+     * @throws IOException Throws an IO exception if an error occurs while writing the JSON.
+     */
+    @Test
+    @DisplayName("Test rendering metrics from one snapshot")
+    public void testRender() throws IOException {
+        MetricQuery query = MetricQuery.parse(Arrays.asList("newInfections24H", "totalInfections", "raisedInfections",
+                "averageRaise:1", "averageRaise:2", "incidence", "targetInfection", "remainingLockdown"));
+        JsonNode response = objectMapper.readTree(query.render(objectMapper.getFactory(), "Germany", snapshot()));
+        JsonNode metrics = response.get("metrics");
+
+        assertEquals("Germany", response.get("country").asText());
+        assertEquals(1613433600000L, response.get("publishedAt").asLong());
+        assertEquals(8, metrics.size());
+        assertEquals(100, metrics.get("newInfections24H").asInt());
+        assertEquals(2000, metrics.get("totalInfections").asInt());
+        assertEquals(-5, metrics.get("raisedInfections").asInt());
+        assertEquals(10.5, metrics.get("averageRaise:1").asDouble());
+        assertEquals(20.5, metrics.get("averageRaise:2").asDouble());
+        assertEquals(57.3, metrics.get("incidence").asDouble());
+        assertEquals(1500.0, metrics.get("targetInfection").asDouble());
+        assertEquals(12.0, metrics.get("remainingLockdown").asDouble());
+    }
+
+    /**
+     * This method tests that figures which are not available are not rendered
+     */
+    @Test
+    @DisplayName("Test rendering unavailable figures")
+    public void testRenderUnavailableWindow() {
+        MetricQuery query = MetricQuery.parse(Collections.singletonList("averageRaise:3"));
+
+        assertThrows(IndexOutOfBoundsException.class, () -> query.render(objectMapper.getFactory(), "Germany", snapshot()));
+        assertThrows(IllegalStateException.class, () -> MetricQuery.parse(Collections.singletonList("newInfections24H"))
+                .render(objectMapper.getFactory(), "Germany", DatasetSnapshot.EMPTY));
+    }
+
+    /**
+     * Creates a snapshot holding key figures of Germany.
+     *
+     * @return snapshot
+     */
+    private DatasetSnapshot snapshot() {
+        Map<String, KeyFigureTable> keyFigures = new HashMap<>();
+
+        keyFigures.put("Germany", new KeyFigureTable(true, 100, 2000, -5, new double[]{0, 10.5, 20.5},
+                true, 57.3, true, 1500, true, 12));
+        return new DatasetSnapshot(1, 1613433600000L, CountrySeriesStore.EMPTY, RKIDistrictTable.EMPTY,
+                RKIStateTable.EMPTY, null, keyFigures);
+    }
+
+    /**
+     * Creates a list of average raises of different windows.
+     *
+     * @param count number of windows
+     * @return metrics averageRaise:1 to averageRaise:count
+     */
+    private List<String> windows(int count) {
+        List<String> specs = new ArrayList<>();
+
+        for (int days = 1; days <= count; days++) {
+            specs.add("averageRaise:" + days);
+        }
+        return specs;
+    }
+}
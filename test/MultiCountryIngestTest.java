@@ -0,0 +1,103 @@
+import hrw.webservice.logic.CalculateJHKeyFigures;
+import hrw.webservice.logic.CalculateRKIKeyFigures;
+import hrw.webservice.logic.IncrementalSeriesIngest;
+import hrw.webservice.logic.PrecomputeKeyFigures;
+import hrw.webservice.mapper.JsonObjectMapper;
+import hrw.webservice.model.CountrySeriesStore;
+import hrw.webservice.model.JHTimeSeries;
+import hrw.webservice.model.KeyFigureTable;
+import hrw.webservice.model.RKIDailyInfosTotal;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the ingest of all countries and their key figures.
+ * The heap retained by the series of all countries and the refresh time are measured in the benchmark
+ * harness, see benchmark/Covid19Benchmark.
+ *
+ * @author Lars Karbach
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class MultiCountryIngestTest {
+
+    /**
+     * Number of countries of the synthetic timeseries, roughly the size of the real feed.
+     */
+    private static final int COUNTRIES = 190;
+
+    /**
+     * Number of days per country of the synthetic timeseries.
+     */
+    private static final int DAYS = 700;
+
+    /**
+     * Date format of the John Hopkins timeseries
+     */
+    private static final DateTimeFormatter JH_DATE = DateTimeFormatter.ofPattern("yyyy-M-d");
+
+    /**
+     * Synthetic timeseries in the format of https://pomber.github.io/covid19/timeseries.json
+     */
+    private static byte[] timeseries;
+
+    /**
+     * This method creates the synthetic timeseries.
+     * It must be called before any tests are run.
+     */
+    @BeforeAll
+    public static void createTimeseries() {
+        StringBuilder json = new StringBuilder("{");
+
+        for (int country = 0; country < COUNTRIES; country++) {
+            json.append(country == 0 ? "" : ",").append('"').append(country == COUNTRIES / 2 ? "Germany" : "Country" + country).append("\":[");
+            for (int day = 0; day < DAYS; day++) {
+                json.append(day == 0 ? "" : ",")
+                        .append("{\"date\":\"").append(LocalDate.of(2020, 1, 22).plusDays(day).format(JH_DATE))
+                        .append("\",\"confirmed\":").append(day * (100 + country))
+                        .append(",\"deaths\":").append(day * 2)
+                        .append(",\"recovered\":").append(day * (50 + country % 13)).append('}');
+            }
+            json.append(']');
+        }
+        timeseries = json.append('}').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * This method tests that all countries are ingested and that the parallel key figures equal the
+     * calculation of a single country
+     *
+     * @throws IOException Throws an IO exception if an error occurs while reading the JSON stream.
+     */
+    @Test
+    @DisplayName("Test key figures of all countries")
+    public void testKeyFiguresOfAllCountries() throws IOException {
+        CalculateJHKeyFigures calcJH = new CalculateJHKeyFigures();
+        PrecomputeKeyFigures precompute = new PrecomputeKeyFigures(calcJH, new CalculateRKIKeyFigures());
+        CountrySeriesStore store = new IncrementalSeriesIngest(new JsonObjectMapper()).ingest(null, timeseries);
+        Map<String, KeyFigureTable> tables = precompute.precomputeAll(store, new RKIDailyInfosTotal(57.3, 2346876));
+
+        assertEquals(COUNTRIES, store.size());
+        assertEquals((long) COUNTRIES * DAYS, store.getTotalDays());
+        assertEquals(COUNTRIES, tables.size());
+        for (String country : store.getCountries()) {
+            JHTimeSeries series = store.get(country);
+            KeyFigureTable table = tables.get(country);
+
+            assertEquals(calcJH.calcNewInf24H(series, 1), table.getNewInf24H());
+            assertEquals(calcJH.calcTrueInfected(series, 1), table.getTrueInfected());
+            assertEquals(calcJH.calcAvgRaiseN(series, 30), table.getAverageRaise(30));
+        }
+        assertEquals(57.3, tables.get("Germany").getIncidence());
+        assertThrows(IllegalStateException.class, () -> tables.get("Country1").getIncidence());
+    }
+}
@@ -0,0 +1,105 @@
+import hrw.webservice.logic.CalculateJHKeyFigures;
+import hrw.webservice.logic.CalculateRKIKeyFigures;
+import hrw.webservice.logic.PrecomputeKeyFigures;
+import hrw.webservice.model.JHTimeSeries;
+import hrw.webservice.model.KeyFigureTable;
+import hrw.webservice.model.RKIDailyInfosTotal;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the precomputed key figure table
+ *
+ * @author Lars Karbach, Philip Klein
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class PrecomputeKeyFiguresTest {
+
+    /**
+     * This method tests that the table holds the same figures as the direct calculation
+     */
+    @Test
+    @DisplayName("testPrecomputeEqualsCalculation")
+    public void testPrecomputeEqualsCalculation() {
+        CalculateJHKeyFigures calcJH = new CalculateJHKeyFigures();
+        CalculateRKIKeyFigures calcRKI = new CalculateRKIKeyFigures();
+        JHTimeSeries series = createSeries(365);
+        RKIDailyInfosTotal rkiTotal = new RKIDailyInfosTotal(57.3, 2346876);
+        KeyFigureTable table = new PrecomputeKeyFigures(calcJH, calcRKI).precompute(series, rkiTotal);
+        int trueInfected = calcJH.calcTrueInfected(series, 1);
+        double targetInfection = calcRKI.calcTargetInfection(trueInfected, 57.3);
+
+        assertEquals(calcJH.calcNewInf24H(series, 1), table.getNewInf24H());
+        assertEquals(trueInfected, table.getTrueInfected());
+        assertEquals(calcJH.calcRaisedInf24H(series, 1), table.getRaisedInf24H());
+        assertEquals(57.3, table.getIncidence());
+        assertEquals(targetInfection, table.getTargetInfection());
+        assertEquals(calcRKI.calcRemLockdown(calcJH.calcAvgDecrease(series, 7), targetInfection, trueInfected),
+                table.getRemainingLockdown());
+        assertEquals(364, table.getMaxDays());
+        for (int days = 1; days <= table.getMaxDays(); days++) {
+            assertEquals(calcJH.calcAvgRaiseN(series, days), table.getAverageRaise(days));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> table.getAverageRaise(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> table.getAverageRaise(365));
+    }
+
+    /**
+     * This method tests that figures without source data are reported as unavailable
+     */
+    @Test
+    @DisplayName("testPartialData")
+    public void testPartialData() {
+        PrecomputeKeyFigures precompute = new PrecomputeKeyFigures(new CalculateJHKeyFigures(), new CalculateRKIKeyFigures());
+        KeyFigureTable onlyJH = precompute.precompute(createSeries(30), null);
+        KeyFigureTable onlyRKI = precompute.precompute(null, new RKIDailyInfosTotal(57.3, 2346876));
+
+        assertEquals(29, onlyJH.getMaxDays());
+        assertThrows(IllegalStateException.class, onlyJH::getIncidence);
+        assertThrows(IllegalStateException.class, onlyJH::getRemainingLockdown);
+        assertEquals(57.3, onlyRKI.getIncidence());
+        assertThrows(IllegalStateException.class, onlyRKI::getTrueInfected);
+        assertThrows(IllegalStateException.class, onlyRKI::getTargetInfection);
+        assertThrows(IndexOutOfBoundsException.class, () -> KeyFigureTable.EMPTY.getAverageRaise(1));
+    }
+
+    /**
+     * This method tests that a calculated remaining lockdown that is not a number is still available
+     */
+    @Test
+    @DisplayName("testUndefinedLockdown")
+    public void testUndefinedLockdown() {
+        PrecomputeKeyFigures precompute = new PrecomputeKeyFigures(new CalculateJHKeyFigures(), new CalculateRKIKeyFigures());
+        JHTimeSeries flat = new JHTimeSeries();
+        KeyFigureTable table;
+
+        for (int day = 0; day < 30; day++) {
+            flat.append(18283 + day, 5000, 100, 3000);
+        }
+        // No decrease and the target is the current number of infected persons, so the lockdown is 0 / 0.
+        table = precompute.precompute(flat, new RKIDailyInfosTotal(35, 2346876));
+
+        assertTrue(table.isRemainingLockdownAvailable());
+        assertTrue(Double.isNaN(table.getRemainingLockdown()));
+        assertTrue(table.isTargetInfectionAvailable());
+        assertFalse(KeyFigureTable.EMPTY.isRemainingLockdownAvailable());
+    }
+
+    /**
+     * Creates a series with a growing number of cases
+     *
+     * @param days number of days
+     * @return series
+     */
+    private JHTimeSeries createSeries(int days) {
+        JHTimeSeries series = new JHTimeSeries();
+
+        for (int day = 0; day < days; day++) {
+            series.append(18283 + day, day * day * 40 + (day % 7) * 300, day * 12, day * day * 30);
+        }
+        return series;
+    }
+}
@@ -0,0 +1,192 @@
+import hrw.webservice.mapper.JsonObjectMapper;
+import hrw.webservice.model.RKIDistrictTable;
+import hrw.webservice.rest.consumption.ArcGisPagedQuery;
+import hrw.webservice.rest.consumption.RestConsumption;
+import hrw.webservice.source.ArcGisDistrictSource;
+import hrw.webservice.source.DataSource;
+import hrw.webservice.source.DataSources;
+import hrw.webservice.threads.RestConsumptionThreads;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for the paged ingest of the RKI district data.
+ * The ArcGIS feature service is replayed by a local fixture server, so the tests run offline.
+ *
+ * @author Lars Karbach, Philip Klein
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class RKIDistrictIngestTest {
+
+    /**
+     * Number of districts of the fixture, about the number of German districts
+     */
+    private static final int DISTRICTS = 401;
+
+    /**
+     * Maximum number of features per page of the fixture
+     */
+    private static final int MAX_RECORD_COUNT = 100;
+
+    /**
+     * This method tests that all pages are fetched concurrently and decoded into one district table
+     *
+     * @throws IOException Throws an IO exception if the fixture server can not be started.
+     */
+    @Test
+    @DisplayName("Test paged district ingest")
+    public void testPagedDistrictIngest() throws IOException {
+        try (ArcGisFixtureServer fixture = new ArcGisFixtureServer(districtFeatures(), MAX_RECORD_COUNT, 100)) {
+            RKIDistrictTable districts = fetchDistricts(fixture, MAX_RECORD_COUNT);
+            int muenchen = districts.indexOf("09162");
+
+            assertEquals(DISTRICTS, districts.size());
+            assertEquals(5, fixture.getPageRequests());
+            assertTrue(fixture.getMaxPagesInProgress() > 1);
+
+            assertEquals("Muenchen", districts.getName(muenchen));
+            assertEquals(9, districts.getStateId(muenchen));
+            assertEquals(1500 / 14.88, districts.getIncidence(muenchen), 1e-9);
+            assertEquals(-1, districts.indexOf("99999"));
+
+            for (int rank = 1; rank < DISTRICTS; rank++) {
+                assertTrue(districts.getIncidence(districts.getRowByRank(rank)) >= districts.getIncidence(districts.getRowByRank(rank + 1)));
+                assertEquals(rank, districts.getRank(districts.getRowByRank(rank)));
+            }
+        }
+    }
+
+    /**
+     * This method tests that pages that do not contain the expected number of districts fail the ingest
+     *
+     * @throws IOException Throws an IO exception if the fixture server can not be started.
+     */
+    @Test
+    @DisplayName("Test page size above the limit of the service")
+    public void testPageSizeAboveLimit() throws IOException {
+        try (ArcGisFixtureServer fixture = new ArcGisFixtureServer(districtFeatures(), MAX_RECORD_COUNT, 0)) {
+            CompletionException exception = assertThrows(CompletionException.class, () -> fetchDistricts(fixture, 150));
+
+            assertTrue(exception.getCause() instanceof IOException);
+        }
+    }
+
+    /**
+     * This method tests that an error of the feature service fails the ingest
+     *
+     * @throws IOException Throws an IO exception if the fixture server can not be started.
+     */
+    @Test
+    @DisplayName("Test ArcGIS error response")
+    public void testArcGisError() throws IOException {
+        try (ArcGisFixtureServer fixture = new ArcGisFixtureServer(districtFeatures(), MAX_RECORD_COUNT, 0)) {
+            fixture.setErrorBody("{\"error\":{\"code\":400,\"message\":\"Invalid query parameters\"}}");
+
+            assertThrows(CompletionException.class, () -> fetchDistricts(fixture, MAX_RECORD_COUNT));
+        }
+    }
+
+    /**
+     * This method tests that an ingest of unchanged districts does not publish a new dataset version
+     *
+     * @throws IOException Throws an IO exception if the fixture server can not be started.
+     */
+    @Test
+    @DisplayName("Test unchanged district ingest")
+    public void testUnchangedDistrictIngest() throws IOException {
+        try (ArcGisFixtureServer fixture = new ArcGisFixtureServer(districtFeatures(), MAX_RECORD_COUNT, 0)) {
+            ArcGisDistrictSource districtSource = new ArcGisDistrictSource(new RestConsumption(), fixture.getQueryUrl(),
+                    MAX_RECORD_COUNT, Duration.ofSeconds(10), new JsonObjectMapper());
+            AtomicLong version = new AtomicLong();
+            RestConsumptionThreads consumption = new RestConsumptionThreads(new DataSources(unchanged(), unchanged(), districtSource),
+                    (jHStore, rkiStates, rkiDistricts) -> {
+                        assertNotNull(rkiDistricts);
+                        version.incrementAndGet();
+                    });
+
+            assertTrue(consumption.ingest());
+            assertTrue(consumption.ingest());
+            assertEquals(1, version.get());
+            assertEquals(10, fixture.getPageRequests());
+
+            // After a reset, e.g. a failed publication, the districts are published again.
+            districtSource.reset();
+            assertTrue(consumption.ingest());
+            assertEquals(2, version.get());
+        }
+    }
+
+    /**
+     * Creates a source whose data never changes.
+     *
+     * @param <T> Type of the data
+     * @return the source
+     */
+    private <T> DataSource<T> unchanged() {
+        return new DataSource<T>() {
+            @Override
+            public String getName() {
+                return "unchanged";
+            }
+
+            @Override
+            public CompletableFuture<T> fetch() {
+                return CompletableFuture.completedFuture(null);
+            }
+        };
+    }
+
+    /**
+     * Fetches the districts of the fixture the same way the consumption thread does.
+     *
+     * @param fixture  fixture server
+     * @param pageSize number of districts per page
+     * @return completed district table
+     */
+    private RKIDistrictTable fetchDistricts(ArcGisFixtureServer fixture, int pageSize) {
+        JsonObjectMapper mapper = new JsonObjectMapper();
+        ArcGisPagedQuery query = new ArcGisPagedQuery(new RestConsumption(), fixture.getQueryUrl(), pageSize, Duration.ofSeconds(10));
+
+        return query.fetchCount(body -> mapper.getArcGisCountFromInputStream(new ByteArrayInputStream(body)))
+                .thenCompose(count -> {
+                    RKIDistrictTable districts = new RKIDistrictTable(count);
+
+                    return query.fetchPages(count, (body, offset, limit) -> mapper.readDistrictPage(new ByteArrayInputStream(body), districts, offset, limit))
+                            .thenApply(districts::complete);
+                }).join();
+    }
+
+    /**
+     * Creates the features of the fixture, München is contained with its real key.
+     *
+     * @return district features ordered by official key
+     */
+    private List<String> districtFeatures() {
+        List<String> features = new ArrayList<>();
+
+        for (int district = 0; district < DISTRICTS; district++) {
+            if (district == 200) {
+                features.add(ArcGisFixtureServer.districtFeature("09162", "Muenchen", 9, 1488000, 60000, 1500));
+            } else {
+                features.add(ArcGisFixtureServer.districtFeature(String.format("%05d", 1001 + district * 10), "District " + district,
+                        1 + district % 16, 50000 + district * 1000, 2000 + district, (district * 37) % 300));
+            }
+        }
+        return features;
+    }
+}
@@ -0,0 +1,189 @@
+import hrw.webservice.logic.RKIHistory;
+import hrw.webservice.model.RKIDailyInfosTotal;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for the bounded and persistent history of the daily RKI totals
+ *
+ * @author Lars Karbach, Philip Klein
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class RKIHistoryTest {
+
+    /**
+     * This method tests that the oldest totals are overwritten once the capacity is reached
+     *
+     * @throws IOException Throws an IO exception if the history can not be written.
+     */
+    @Test
+    @DisplayName("Test ring buffer capacity")
+    public void testCapacity() throws IOException {
+        RKIHistory history = new RKIHistory(3);
+
+        assertNull(history.getLatest());
+        for (int day = 1; day <= 5; day++) {
+            history.append(day, new RKIDailyInfosTotal(day * 10.0, day * 1000));
+        }
+
+        assertEquals(3, history.size());
+        assertEquals(3, history.getRecordedAt(0));
+        assertEquals(30.0, history.get(0).getIncidenceGermany());
+        assertEquals(5000, history.getLatest().getSumCases());
+        assertEquals(3, history.toList().size());
+    }
+
+    /**
+     * This method tests that the totals are replayed from the file and a torn record is ignored
+     *
+     * @throws IOException Throws an IO exception if the history can not be written.
+     */
+    @Test
+    @DisplayName("Test replay after restart")
+    public void testReplay() throws IOException {
+        Path file = Files.createTempDirectory("rki-history").resolve("history.bin");
+
+        try (RKIHistory history = new RKIHistory(file, 10)) {
+            history.append(1000, new RKIDailyInfosTotal(57.3, 2346876));
+            history.append(2000, new RKIDailyInfosTotal(55.1, 2356000));
+        }
+        // A crash while appending leaves an incomplete record at the end of the file.
+        Files.write(file, new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+
+        try (RKIHistory history = new RKIHistory(file, 10)) {
+            assertEquals(2, history.size());
+            assertEquals(2000, history.getRecordedAt(1));
+            assertEquals(55.1, history.getLatest().getIncidenceGermany());
+            assertEquals(2356000, history.getLatest().getSumCases());
+
+            history.append(3000, new RKIDailyInfosTotal(50.0, 2360000));
+        }
+        try (RKIHistory history = new RKIHistory(file, 10)) {
+            assertEquals(3, history.size());
+            assertEquals(50.0, history.getLatest().getIncidenceGermany());
+        }
+    }
+
+    /**
+     * This method tests that the file is compacted, so that it does not grow with the uptime
+     *
+     * @throws IOException Throws an IO exception if the history can not be written.
+     */
+    @Test
+    @DisplayName("Test compaction of the history file")
+    public void testCompaction() throws IOException {
+        Path file = Files.createTempDirectory("rki-history").resolve("history.bin");
+
+        try (RKIHistory history = new RKIHistory(file, 5)) {
+            for (int day = 1; day <= 1000; day++) {
+                history.append(day, new RKIDailyInfosTotal(day, day));
+            }
+            assertTrue(Files.size(file) < 2 * 5 * 24);
+        }
+        try (RKIHistory history = new RKIHistory(file, 5)) {
+            assertEquals(5, history.size());
+            assertEquals(996, history.getRecordedAt(0));
+            assertEquals(1000, history.getLatest().getSumCases());
+        }
+    }
+
+    /**
+     * This method tests that histories sharing a file, e.g. of two instances of the service, keep all records
+     *
+     * @throws Exception Throws an exception if the history can not be written or a thread fails.
+     */
+    @Test
+    @DisplayName("Test histories sharing a file")
+    public void testSharedFile() throws Exception {
+        Path file = Files.createTempDirectory("rki-history").resolve("history.bin");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try (RKIHistory first = new RKIHistory(file, 100); RKIHistory second = new RKIHistory(file, 100)) {
+            Future<?> firstAppends = executor.submit(() -> append(first, 0));
+            Future<?> secondAppends = executor.submit(() -> append(second, 1));
+
+            firstAppends.get(30, TimeUnit.SECONDS);
+            secondAppends.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdown();
+        }
+        try (RKIHistory history = new RKIHistory(file, 200)) {
+            Set<Long> times = new HashSet<>();
+
+            for (int index = 0; index < history.size(); index++) {
+                times.add(history.getRecordedAt(index));
+                assertEquals(history.getRecordedAt(index), history.get(index).getSumCases());
+            }
+            assertEquals(100, history.size());
+            assertEquals(100, times.size());
+        }
+        try (Stream<Path> files = Files.list(file.getParent())) {
+            assertEquals(2, files.count());
+        }
+    }
+
+    /**
+     * This method tests that histories sharing a file append a total ingested by both of them only once
+     *
+     * @throws IOException Throws an IO exception if the history can not be written.
+     */
+    @Test
+    @DisplayName("Test the same total of histories sharing a file")
+    public void testSharedFileWithSameTotals() throws IOException {
+        Path file = Files.createTempDirectory("rki-history").resolve("history.bin");
+        long day = 24L * 60 * 60 * 1000;
+
+        try (RKIHistory first = new RKIHistory(file, 10); RKIHistory second = new RKIHistory(file, 10)) {
+            // Both instances of the service ingest the same totals at slightly different times.
+            first.append(1000, new RKIDailyInfosTotal(57.3, 2346876));
+            second.append(1500, new RKIDailyInfosTotal(57.3, 2346876));
+            second.append(day + 1000, new RKIDailyInfosTotal(55.1, 2356000));
+            first.append(day + 1500, new RKIDailyInfosTotal(55.1, 2356000));
+            // The same figures on the next day are a new total.
+            first.append(2 * day + 1000, new RKIDailyInfosTotal(55.1, 2356000));
+            second.append(2 * day + 1500, new RKIDailyInfosTotal(55.1, 2356000));
+
+            assertEquals(3, first.size());
+            assertEquals(3, second.size());
+        }
+        try (RKIHistory history = new RKIHistory(file, 10)) {
+            assertEquals(3, history.size());
+            assertEquals(1000, history.getRecordedAt(0));
+            assertEquals(day + 1000, history.getRecordedAt(1));
+            assertEquals(2 * day + 1000, history.getRecordedAt(2));
+            assertEquals(2356000, history.getLatest().getSumCases());
+        }
+    }
+
+    /**
+     * Appends 50 totals whose time equals their sum of cases.
+     *
+     * @param history history to append to
+     * @param offset  0 or 1, the totals of the two histories alternate between even and odd times
+     * @return null
+     * @throws IOException Throws an IO exception if the history can not be written.
+     */
+    private Void append(RKIHistory history, int offset) throws IOException {
+        for (int day = 0; day < 50; day++) {
+            history.append(2 * day + offset, new RKIDailyInfosTotal(day, 2 * day + offset));
+        }
+        return null;
+    }
+}
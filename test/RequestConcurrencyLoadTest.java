@@ -0,0 +1,335 @@
+import hrw.webservice.logic.Covid19WebService;
+import hrw.webservice.threads.RequestExecutors;
+import org.apache.tomcat.util.threads.ThreadPoolExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Load test of the embedded Tomcat with its worker pool and with virtual threads, see ThreadConfig.
+ * The web service is started on a random port with a worker pool of a few threads. Stalled requests, e.g. handlers
+ * waiting for an upstream, block until the test releases them. A fast request sent while they are blocked has to
+ * wait for a worker thread on the pool, but is answered right away on virtual threads.
+ * The test waits for states instead of measuring times, so it does not depend on the speed of the machine.
+ * The virtual threads are only tested on a Java 21 runtime.
+ *
+ * @author Lars Karbach
+ * @version 1.0
+ * @since 2021-02-16
+ */
+@SpringBootTest(classes = {Covid19WebService.class, RequestConcurrencyLoadTest.StallController.class},
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"server.tomcat.threads.max=" + RequestConcurrencyLoadTest.POOL_THREADS,
+                "server.tomcat.threads.min-spare=1"})
+public class RequestConcurrencyLoadTest {
+
+    /**
+     * Number of threads of the worker pool
+     */
+    static final int POOL_THREADS = 4;
+
+    /**
+     * Number of stalled requests, more than the pool has threads
+     */
+    private static final int STALLED_REQUESTS = 3 * POOL_THREADS;
+
+    /**
+     * Time the test waits for a state of the server, only reached if the server does not respond
+     */
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    static {
+        // The service ingests generated data and keeps its files in a temporary directory.
+        try {
+            Path directory = Files.createTempDirectory("covid19-load");
+
+            System.setProperty("covid19.source", "synthetic");
+            System.setProperty("covid19.source.synthetic.countries", "2");
+            System.setProperty("covid19.source.synthetic.days", "30");
+            System.setProperty("covid19.source.synthetic.states", "2");
+            System.setProperty("covid19.source.synthetic.districts", "2");
+            System.setProperty("covid19.snapshot", directory.resolve("dataset-snapshot.bin").toString());
+            System.setProperty("covid19.rki.history", directory.resolve("rki-history.bin").toString());
+        } catch (IOException ioException) {
+            throw new UncheckedIOException(ioException);
+        }
+    }
+
+    /**
+     * Client of the requests, HTTP/1.1 opens a connection per concurrent request
+     */
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(TIMEOUT).build();
+
+    /**
+     * Requests run on the worker pool of Tomcat, the default. The context is shared with the enclosing class.
+     */
+    @Nested
+    public class WorkerPool {
+
+        /**
+         * Context of the started web service
+         */
+        @Autowired
+        private ServletWebServerApplicationContext context;
+
+        /**
+         * Port of the started web service
+         */
+        @LocalServerPort
+        private int port;
+
+        /**
+         * This method tests that stalled requests hold the worker pool and a fast request waits for them
+         *
+         * @throws Exception if a request fails or the test is interrupted
+         */
+        @Test
+        @DisplayName("Test stalled requests on the worker pool")
+        public void testStalledRequests() throws Exception {
+            List<CompletableFuture<HttpResponse<String>>> stalled;
+            CompletableFuture<HttpResponse<String>> fast;
+
+            assertTrue(connectorExecutor(context) instanceof ThreadPoolExecutor);
+            stalled = send(port, "stall", STALLED_REQUESTS);
+            assertTrue(StallController.awaitStalled(POOL_THREADS));
+            fast = send(port, "fast", 1).get(0);
+
+            // Every worker thread is held by a stalled request, the fast request can not be answered.
+            Thread.sleep(200);
+            assertFalse(fast.isDone());
+            assertTrue(StallController.getPeak() <= POOL_THREADS);
+
+            StallController.releaseAll();
+            assertEquals("platform", fast.get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS).body());
+            assertAnswered(stalled);
+            assertTrue(StallController.getPeak() <= POOL_THREADS);
+        }
+    }
+
+    /**
+     * Requests run on virtual threads.
+     */
+    @Nested
+    @TestPropertySource(properties = "covid19.threads.virtual=true")
+    public class VirtualThreads {
+
+        /**
+         * Context of the started web service
+         */
+        @Autowired
+        private ServletWebServerApplicationContext context;
+
+        /**
+         * Port of the started web service
+         */
+        @LocalServerPort
+        private int port;
+
+        /**
+         * This method tests that stalled requests do not hold up a fast request on virtual threads
+         *
+         * @throws Exception if a request fails or the test is interrupted
+         */
+        @Test
+        @DisplayName("Test stalled requests on virtual threads")
+        public void testStalledRequests() throws Exception {
+            List<CompletableFuture<HttpResponse<String>>> stalled;
+
+            assumeTrue(RequestExecutors.isVirtualThreadsSupported(), "virtual threads need Java 21");
+            assertFalse(connectorExecutor(context) instanceof ThreadPoolExecutor);
+            stalled = send(port, "stall", STALLED_REQUESTS);
+
+            // All stalled requests are handled at the same time, more than the pool would have threads.
+            assertTrue(StallController.awaitStalled(STALLED_REQUESTS));
+            assertEquals("virtual", send(port, "fast", 1).get(0).get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS).body());
+            assertEquals(STALLED_REQUESTS, StallController.getPeak());
+
+            StallController.releaseAll();
+            assertAnswered(stalled);
+        }
+    }
+
+    /**
+     * Resets the stalled requests before each test.
+     */
+    @BeforeEach
+    public void resetStalled() {
+        StallController.reset();
+    }
+
+    /**
+     * Releases the stalled requests, so that a failed test does not leave them blocked.
+     */
+    @AfterEach
+    public void releaseStalled() {
+        StallController.releaseAll();
+    }
+
+    /**
+     * Returns the executor of the connector of the embedded Tomcat.
+     *
+     * @param context Context of the started web service
+     * @return the executor the requests run on
+     */
+    private static Executor connectorExecutor(ServletWebServerApplicationContext context) {
+        TomcatWebServer webServer = (TomcatWebServer) context.getWebServer();
+
+        return webServer.getTomcat().getConnector().getProtocolHandler().getExecutor();
+    }
+
+    /**
+     * Sends requests to an endpoint of the StallController without waiting for the responses.
+     *
+     * @param port     Port of the web service
+     * @param endpoint Endpoint below /test
+     * @param requests Number of requests
+     * @return the responses
+     */
+    private List<CompletableFuture<HttpResponse<String>>> send(int port, String endpoint, int requests) {
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/test/" + endpoint))
+                .timeout(TIMEOUT).build();
+
+        for (int i = 0; i < requests; i++) {
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+        return responses;
+    }
+
+    /**
+     * Checks that the stalled requests have been answered after they were released.
+     *
+     * @param stalled The responses of the stalled requests
+     * @throws Exception if a request fails or the test is interrupted
+     */
+    private static void assertAnswered(List<CompletableFuture<HttpResponse<String>>> stalled) throws Exception {
+        for (CompletableFuture<HttpResponse<String>> response : stalled) {
+            assertEquals(200, response.get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS).statusCode());
+        }
+    }
+
+    /**
+     * Controller with a stalled and a fast endpoint, added to the web service for the test.
+     */
+    @RestController
+    public static class StallController {
+
+        /**
+         * Stalled requests that are currently handled
+         */
+        private static final AtomicInteger IN_FLIGHT = new AtomicInteger();
+
+        /**
+         * Largest number of stalled requests handled at the same time
+         */
+        private static final AtomicInteger PEAK = new AtomicInteger();
+
+        /**
+         * One permit per stalled request that has started
+         */
+        private static volatile Semaphore started = new Semaphore(0);
+
+        /**
+         * Blocks the stalled requests until it is released
+         */
+        private static volatile CountDownLatch release = new CountDownLatch(1);
+
+        /**
+         * Blocks until the test releases the stalled requests, like a handler waiting for an upstream.
+         *
+         * @return "stalled"
+         * @throws InterruptedException if the request thread is interrupted
+         */
+        @GetMapping("/test/stall")
+        public String stall() throws InterruptedException {
+            PEAK.accumulateAndGet(IN_FLIGHT.incrementAndGet(), Math::max);
+            started.release();
+            try {
+                release.await(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+                return "stalled";
+            } finally {
+                IN_FLIGHT.decrementAndGet();
+            }
+        }
+
+        /**
+         * Answers right away with the kind of the request thread.
+         *
+         * @return "virtual" or "platform"
+         */
+        @GetMapping("/test/fast")
+        public String fast() {
+            return Thread.currentThread().toString().startsWith("VirtualThread") ? "virtual" : "platform";
+        }
+
+        /**
+         * Waits until a number of stalled requests have started.
+         *
+         * @param requests Number of stalled requests
+         * @return true if they have started
+         * @throws InterruptedException if the test is interrupted while waiting
+         */
+        static boolean awaitStalled(int requests) throws InterruptedException {
+            return started.tryAcquire(requests, TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Returns the largest number of stalled requests handled at the same time
+         *
+         * @return the peak
+         */
+        static int getPeak() {
+            return PEAK.get();
+        }
+
+        /**
+         * Releases all stalled requests.
+         */
+        static void releaseAll() {
+            release.countDown();
+        }
+
+        /**
+         * Resets the counters for the next test.
+         */
+        static void reset() {
+            PEAK.set(0);
+            started = new Semaphore(0);
+            release = new CountDownLatch(1);
+        }
+    }
+}
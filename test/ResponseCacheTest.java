@@ -0,0 +1,316 @@
+import hrw.webservice.logic.GenerateException;
+import hrw.webservice.rest.distribution.ResponseCache;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the cache of pre-serialized REST responses
+ *
+ * @author Lars Karbach, Furkan Kilic
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class ResponseCacheTest {
+
+    /**
+     * This method tests that a body is rendered once per dataset version
+     *
+     * @throws Exception Throws an exception if rendering fails
+     */
+    @Test
+    @DisplayName("Test rendering once per version")
+    public void testRenderOncePerVersion() throws Exception {
+        ResponseCache cache = new ResponseCache();
+        AtomicInteger renders = new AtomicInteger();
+        ResponseCache.Renderer renderer = () -> "{\"incidence\":" + renders.incrementAndGet() + "}";
+
+        cache.invalidate(1, 1000);
+        ResponseCache.Entry first = cache.get("data/incidences", renderer);
+        ResponseCache.Entry second = cache.get("data/incidences", renderer);
+
+        assertSame(first, second);
+        assertEquals("{\"incidence\":1}", new String(first.getBody(), StandardCharsets.UTF_8));
+        assertEquals(1000, first.getPublishedAt());
+        assertEquals(1, renders.get());
+        assertEquals(1, cache.size());
+
+        cache.invalidate(2, 2000);
+        assertEquals(0, cache.size());
+        assertEquals("{\"incidence\":2}", new String(cache.get("data/incidences", renderer).getBody(), StandardCharsets.UTF_8));
+        assertEquals(2, cache.getVersion());
+    }
+
+    /**
+     * This method tests that nothing is cached before the first dataset has been published
+     *
+     * @throws Exception Throws an exception if rendering fails
+     */
+    @Test
+    @DisplayName("Test no caching before the first dataset")
+    public void testNoCachingBeforeFirstDataset() throws Exception {
+        ResponseCache cache = new ResponseCache();
+        AtomicInteger renders = new AtomicInteger();
+
+        cache.get("data/forecast", () -> "{\"status\":" + renders.incrementAndGet() + "}");
+        cache.get("data/forecast", () -> "{\"status\":" + renders.incrementAndGet() + "}");
+
+        assertEquals(2, renders.get());
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * This method tests that a body that could not be rendered gets no entry and therefore no ETag, the next request
+     * renders it again and only the rendered body is validated
+     *
+     * @throws Exception Throws an exception if rendering fails
+     */
+    @Test
+    @DisplayName("Test no caching of a failed rendering")
+    public void testNoCachingOfFailedRendering() throws Exception {
+        ResponseCache cache = new ResponseCache();
+        AtomicInteger renders = new AtomicInteger();
+        ResponseCache.Entry entry;
+
+        cache.invalidate(1, 1000);
+        assertThrows(GenerateException.class, () -> cache.get("data/states", () -> {
+            renders.incrementAndGet();
+            throw new GenerateException("generateStates", new IllegalStateException("No RKI data has been ingested yet."));
+        }));
+        assertEquals(0, cache.size());
+
+        entry = cache.get("data/states", () -> "[{\"id\":1}]");
+        assertEquals(1, renders.get());
+        assertEquals(1, cache.size());
+        assertTrue(entry.getETag().startsWith("\"1-"));
+        assertEquals("[{\"id\":1}]", new String(entry.getBody(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * This method tests the ETag validation of If-None-Match headers
+     *
+     * @throws Exception Throws an exception if rendering fails
+     */
+    @Test
+    @DisplayName("Test If-None-Match validation")
+    public void testIfNoneMatch() throws Exception {
+        ResponseCache cache = new ResponseCache();
+        AtomicInteger renders = new AtomicInteger();
+        String eTag;
+
+        cache.invalidate(1, 1000);
+        eTag = cache.get("data?days=7", () -> "{\"averageRaise\":" + renders.incrementAndGet() + "}").getETag();
+
+        assertTrue(eTag.startsWith("\"1-"));
+        assertNotEquals(eTag, cache.get("data?days=8", () -> "{}").getETag());
+        assertTrue(ResponseCache.matches(eTag, eTag));
+        assertTrue(ResponseCache.matches("\"0-0\", W/" + eTag, eTag));
+        assertTrue(ResponseCache.matches("*", eTag));
+        assertFalse(ResponseCache.matches(null, eTag));
+        assertFalse(ResponseCache.matches(eTag, cache.get("data?days=8", () -> "{}").getETag()));
+
+        cache.invalidate(2, 2000);
+        ResponseCache.Entry current = cache.get("data?days=7", () -> "{\"averageRaise\":" + renders.incrementAndGet() + "}");
+        assertFalse(ResponseCache.matches(eTag, current.getETag()));
+        assertEquals(2000, current.getPublishedAt());
+        assertEquals(2, renders.get());
+    }
+
+    /**
+     * This method tests that the gzip variant is compressed once and validated with its own ETag
+     *
+     * @throws Exception Throws an exception if rendering or decompressing fails
+     */
+    @Test
+    @DisplayName("Test gzip variant")
+    public void testGzipVariant() throws Exception {
+        ResponseCache cache = new ResponseCache();
+        StringBuilder json = new StringBuilder("[");
+        ResponseCache.Entry entry;
+        ResponseCache.Entry small;
+
+        for (int day = 0; day < 500; day++) {
+            json.append(day == 0 ? "" : ",").append("{\"day\":").append(day).append(",\"confirmed\":").append(day * 100).append('}');
+        }
+        cache.invalidate(1, 1000);
+        entry = cache.get("data?days=500", () -> json.append(']').toString());
+        small = cache.get("data/forecast", () -> "{\"status\":\"ok\"}");
+
+        assertSame(entry.getGzipBody(), cache.get("data?days=500", () -> "{}").getGzipBody());
+        assertTrue(entry.getGzipBody().length < entry.getBody().length / 4);
+        assertArrayEquals(entry.getBody(), gunzip(entry.getGzipBody()));
+        assertNull(small.getGzipBody());
+
+        assertNotEquals(entry.getETag(), entry.getGzipETag());
+        assertTrue(ResponseCache.matches(entry.getGzipETag(), entry.getGzipETag()));
+        assertTrue(ResponseCache.matches("W/" + entry.getGzipETag(), entry.getGzipETag()));
+        // A client holding the compressed variant needs the uncompressed bytes if it no longer accepts gzip.
+        assertFalse(ResponseCache.matches(entry.getGzipETag(), entry.getETag()));
+        assertFalse(ResponseCache.matches(entry.getETag(), entry.getGzipETag()));
+    }
+
+    /**
+     * This method tests the negotiation of the gzip encoding
+     */
+    @Test
+    @DisplayName("Test Accept-Encoding negotiation")
+    public void testAcceptsGzip() {
+        assertTrue(ResponseCache.acceptsGzip("gzip, deflate, br"));
+        assertTrue(ResponseCache.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+        assertTrue(ResponseCache.acceptsGzip("*"));
+        assertFalse(ResponseCache.acceptsGzip(null));
+        assertFalse(ResponseCache.acceptsGzip("identity"));
+        assertFalse(ResponseCache.acceptsGzip("gzip;q=0"));
+        assertFalse(ResponseCache.acceptsGzip("*, gzip;q=0"));
+        assertFalse(ResponseCache.acceptsGzip("gzip;q=0.0, *;q=1"));
+    }
+
+    /**
+     * This method tests that concurrent misses of the same key render the body only once
+     *
+     * @throws Exception Throws an exception if rendering fails or the test is interrupted
+     */
+    @Test
+    @DisplayName("Test coalesced rendering")
+    public void testCoalescedRendering() throws Exception {
+        ResponseCache cache = new ResponseCache();
+        AtomicInteger renders = new AtomicInteger();
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Future<ResponseCache.Entry>> requests = new ArrayList<>();
+
+        cache.invalidate(1, 1000);
+        try {
+            for (int i = 0; i < 16; i++) {
+                requests.add(executor.submit(() -> cache.get("data?days=7", () -> {
+                    renders.incrementAndGet();
+                    rendering.countDown();
+                    await(release);
+                    return "{\"averageRaise\":1.5}";
+                })));
+            }
+            assertTrue(rendering.await(10, TimeUnit.SECONDS));
+            // Another key is not blocked by the rendering in progress.
+            assertEquals("{}", new String(cache.get("data/forecast", () -> "{}").getBody(), StandardCharsets.UTF_8));
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<ResponseCache.Entry> request : requests) {
+                assertSame(requests.get(0).get(10, TimeUnit.SECONDS), request.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(1, renders.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * This method tests that a failed rendering is passed to the waiting requests without rendering again and is
+     * not cached
+     *
+     * @throws Exception Throws an exception if the test is interrupted
+     */
+    @Test
+    @DisplayName("Test coalesced failure")
+    public void testCoalescedFailure() throws Exception {
+        ResponseCache cache = new ResponseCache();
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicReference<Thread> waiter = new AtomicReference<>();
+        AtomicInteger renders = new AtomicInteger();
+        ResponseCache.Renderer renderer = () -> "{\"incidence\":" + renders.incrementAndGet() + ".0}";
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<ResponseCache.Entry> first;
+        Future<ResponseCache.Entry> second;
+
+        cache.invalidate(1, 1000);
+        try {
+            first = executor.submit(() -> cache.get("data/incidences", () -> {
+                rendering.countDown();
+                await(release);
+                throw new IllegalStateException("rendering failed");
+            }));
+            assertTrue(rendering.await(10, TimeUnit.SECONDS));
+            second = executor.submit(() -> {
+                waiter.set(Thread.currentThread());
+                started.countDown();
+                return cache.get("data/incidences", renderer);
+            });
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            // The second request waits for the rendering of the first one before it fails.
+            assertTrue(awaitParked(waiter.get()));
+            release.countDown();
+
+            assertTrue(assertThrows(ExecutionException.class, () -> first.get(10, TimeUnit.SECONDS)).getCause() instanceof IllegalStateException);
+            assertTrue(assertThrows(ExecutionException.class, () -> second.get(10, TimeUnit.SECONDS)).getCause() instanceof IllegalStateException);
+            assertEquals(0, renders.get());
+
+            // The failure is not cached, the next request renders the body.
+            assertEquals("{\"incidence\":1.0}", new String(cache.get("data/incidences", renderer).getBody(), StandardCharsets.UTF_8));
+            assertEquals(1, renders.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Waits for a latch within a renderer, which may not throw an interrupted exception.
+     *
+     * @param latch latch to wait for
+     */
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits until a thread is parked, e.g. while it waits for the rendering of another request.
+     *
+     * @param thread thread to wait for
+     * @return true if the thread is parked
+     */
+    private boolean awaitParked(Thread thread) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+
+        while (thread.getState() != Thread.State.WAITING) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.yield();
+        }
+        return true;
+    }
+
+    /**
+     * Decompresses a gzip-compressed body.
+     *
+     * @param compressed compressed body
+     * @return uncompressed body
+     * @throws IOException Throws an IO exception if the body is not gzip-compressed.
+     */
+    private byte[] gunzip(byte[] compressed) throws IOException {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return gzip.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hrw.webservice.rest.distribution.ResponseCache;
+import hrw.webservice.rest.distribution.ResponseFormat;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the binary response formats
+ *
+ * @author Lars Karbach, Furkan Kilic
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class ResponseFormatTest {
+
+    /**
+     * This method tests the negotiation of the format by the Accept header
+     */
+    @Test
+    @DisplayName("Test Accept negotiation")
+    public void testFromAccept() {
+        assertEquals(ResponseFormat.JSON, ResponseFormat.fromAccept(null));
+        assertEquals(ResponseFormat.JSON, ResponseFormat.fromAccept("*/*"));
+        assertEquals(ResponseFormat.JSON, ResponseFormat.fromAccept("text/html"));
+        assertEquals(ResponseFormat.CBOR, ResponseFormat.fromAccept("application/cbor"));
+        assertEquals(ResponseFormat.SMILE, ResponseFormat.fromAccept("application/json;q=0.5, application/x-jackson-smile"));
+        assertEquals(ResponseFormat.CBOR, ResponseFormat.fromAccept("application/cbor, application/x-jackson-smile"));
+        assertEquals(ResponseFormat.JSON, ResponseFormat.fromAccept("application/cbor;q=0, */*;q=0.1"));
+    }
+
+    /**
+     * This method tests that the binary formats decode to the same tree as the JSON body
+     *
+     * @throws IOException Throws an IO exception if a body can not be decoded.
+     */
+    @Test
+    @DisplayName("Test transcoding round trip")
+    public void testRoundTrip() throws IOException {
+        byte[] json = districtsJson(401);
+        JsonNode expected = new ObjectMapper().readTree(json);
+
+        for (ResponseFormat format : ResponseFormat.values()) {
+            byte[] encoded = format.encode(json);
+
+            assertEquals(expected, new ObjectMapper(format.getFactory()).readTree(encoded), format.name());
+            assertTrue(encoded.length <= json.length, format.name());
+        }
+        assertSame(json, ResponseFormat.JSON.encode(json));
+    }
+
+    /**
+     * This method tests that every format is transcoded once per version and has its own ETag
+     *
+     * @throws Exception Throws an exception if rendering fails
+     */
+    @Test
+    @DisplayName("Test cached format variants")
+    public void testCachedVariants() throws Exception {
+        ResponseCache cache = new ResponseCache();
+        String json = new String(districtsJson(10), StandardCharsets.UTF_8);
+        ResponseCache.Entry entry;
+
+        cache.invalidate(3, 3000);
+        entry = cache.get("data/districts", () -> json);
+
+        assertSame(entry.getBody(ResponseFormat.CBOR), entry.getBody(ResponseFormat.CBOR));
+        assertSame(entry.getBody(), entry.getBody(ResponseFormat.JSON));
+        assertEquals(entry.getETag(), entry.getETag(ResponseFormat.JSON));
+        assertNotEquals(entry.getETag(ResponseFormat.CBOR), entry.getETag(ResponseFormat.SMILE));
+        assertFalse(ResponseCache.matches(entry.getETag(ResponseFormat.SMILE), entry.getETag(ResponseFormat.CBOR)));
+        assertFalse(ResponseCache.matches(entry.getETag(ResponseFormat.SMILE), entry.getETag(ResponseFormat.JSON)));
+        assertFalse(ResponseCache.matches("\"3-0-cbor\"", entry.getETag(ResponseFormat.CBOR)));
+    }
+
+    /**
+     * Creates a JSON body like the district endpoint.
+     *
+     * @param districts Number of districts
+     * @return UTF-8 encoded JSON array
+     * @throws IOException Throws an IO exception if the body can not be serialized.
+     */
+    private byte[] districtsJson(int districts) throws IOException {
+        List<Map<String, Object>> list = new ArrayList<>();
+
+        for (int district = 1; district <= districts; district++) {
+            Map<String, Object> model = new LinkedHashMap<>();
+
+            model.put("id", String.format("%05d", district));
+            model.put("name", "District " + district);
+            model.put("stateId", district % 16 + 1);
+            model.put("citizens", 50000 + district * 700);
+            model.put("cases", 2500 + district * 13);
+            model.put("cases7", district % 251);
+            model.put("incidence", (district % 251) * 100000.0 / (50000 + district * 700));
+            model.put("rank", district);
+            list.add(model);
+        }
+        return new ObjectMapper().writeValueAsBytes(list);
+    }
+}
@@ -0,0 +1,157 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import hrw.webservice.rest.consumption.RestConsumption;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for the conditional requests of the REST consumption.
+ * A local server simulates an upstream with ETag validators and an upstream without any validators.
+ *
+ * @author Lars Karbach
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class RestConsumptionTest {
+
+    /**
+     * Local server simulating the upstream services
+     */
+    private static HttpServer server;
+
+    /**
+     * Base URL of the local server
+     */
+    private static String baseUrl;
+
+    /**
+     * Body returned by the upstream without validators, can be changed by the tests
+     */
+    private static volatile String plainBody = "{\"features\":[]}";
+
+    /**
+     * This method starts the local upstream server.
+     * It must be called before any tests are run.
+     *
+     * @throws IOException Throws an IO exception if the server can not be started.
+     */
+    @BeforeAll
+    public static void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/etag", exchange -> {
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                exchange.getResponseHeaders().add("ETag", "\"v1\"");
+                send(exchange, "{\"Germany\":[]}");
+            }
+            exchange.close();
+        });
+        server.createContext("/plain", exchange -> {
+            send(exchange, plainBody);
+            exchange.close();
+        });
+        server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            send(exchange, plainBody);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * This method stops the local upstream server.
+     */
+    @AfterAll
+    public static void stopServer() {
+        server.stop(0);
+    }
+
+    /**
+     * This method tests that an unchanged resource is detected by its ETag
+     *
+     * @throws IOException Throws an IO exception if the request fails.
+     */
+    @Test
+    @DisplayName("Test conditional request with ETag")
+    public void testETag() throws IOException {
+        RestConsumption consumption = new RestConsumption();
+
+        assertNotNull(consumption.sendConditionalRequest(baseUrl + "/etag"));
+        assertNull(consumption.sendConditionalRequest(baseUrl + "/etag"));
+
+        consumption.resetValidators(baseUrl + "/etag");
+        assertNotNull(consumption.sendConditionalRequest(baseUrl + "/etag"));
+    }
+
+    /**
+     * This method tests that an unchanged resource without validators is detected by its content hash
+     *
+     * @throws IOException Throws an IO exception if the request fails.
+     */
+    @Test
+    @DisplayName("Test conditional request with content hash")
+    public void testContentHash() throws IOException {
+        RestConsumption consumption = new RestConsumption();
+
+        assertNotNull(consumption.sendConditionalRequest(baseUrl + "/plain"));
+        assertNull(consumption.sendConditionalRequest(baseUrl + "/plain"));
+
+        plainBody = "{\"features\":[{}]}";
+        assertNotNull(consumption.sendConditionalRequest(baseUrl + "/plain"));
+    }
+
+    /**
+     * This method tests that a hanging upstream is aborted after the request timeout
+     */
+    @Test
+    @DisplayName("Test asynchronous request timeout")
+    public void testTimeout() {
+        RestConsumption consumption = new RestConsumption();
+        long start = System.nanoTime();
+        ExecutionException exception = assertThrows(ExecutionException.class,
+                () -> consumption.sendConditionalRequestAsync(baseUrl + "/slow", Duration.ofMillis(200)).get());
+
+        assertTrue(exception.getCause() instanceof HttpTimeoutException || exception.getCause() instanceof TimeoutException);
+        assertTrue(System.nanoTime() - start < 1_500_000_000L);
+    }
+
+    /**
+     * Sends a JSON body with status 200.
+     *
+     * @param exchange current exchange
+     * @param body     JSON body
+     * @throws IOException Throws an IO exception if the response can not be written.
+     */
+    private static void send(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+}
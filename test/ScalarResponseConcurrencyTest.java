@@ -0,0 +1,115 @@
+import hrw.webservice.logic.WebServiceEndpointHandler;
+import hrw.webservice.mapper.JsonObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for the single-value responses of the endpoint handler, which is shared by all request threads
+ *
+ * @author Lars Karbach, Furkan Kilic
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class ScalarResponseConcurrencyTest {
+
+    /**
+     * Number of concurrent request threads
+     */
+    private static final int THREADS = 16;
+
+    /**
+     * Number of responses per thread
+     */
+    private static final int RESPONSES = 50000;
+
+    /**
+     * This method tests that the responses equal the former serialization of a map
+     *
+     * @throws Exception Throws an exception if the map can not be serialized.
+     */
+    @Test
+    @DisplayName("Test output equals map serialization")
+    public void testEqualsMapSerialization() throws Exception {
+        JsonObjectMapper mapper = new JsonObjectMapper();
+        int[] ints = {0, -1, 11869, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        double[] doubles = {0, -0.0, 57.3, 1e-7, 1e21, 1.0 / 3, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+
+        for (int value : ints) {
+            HashMap<String, Integer> map = new HashMap<>();
+
+            map.put("newInfections24H", value);
+            assertEquals(mapper.getJsonFromIntMap(map), mapper.getJsonFromInt("newInfections24H", value));
+        }
+        for (double value : doubles) {
+            HashMap<String, Double> map = new HashMap<>();
+
+            map.put("incidence", value);
+            assertEquals(mapper.getJsonFromDoubleMap(map), mapper.getJsonFromDouble("incidence", value));
+        }
+    }
+
+    /**
+     * This method tests that responses written concurrently by many threads never get mixed up
+     *
+     * @throws Exception Throws an exception if a thread fails or the test is interrupted.
+     */
+    @Test
+    @DisplayName("Test concurrent responses")
+    public void testConcurrentResponses() throws Exception {
+        JsonObjectMapper mapper = new JsonObjectMapper();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch startGate = new CountDownLatch(1);
+        List<Future<Integer>> mismatches = new ArrayList<>();
+
+        try {
+            for (int thread = 0; thread < THREADS; thread++) {
+                String field = "field" + thread;
+                int base = thread * RESPONSES;
+
+                mismatches.add(executor.submit(() -> {
+                    int mixedUp = 0;
+
+                    startGate.await();
+                    for (int i = 0; i < RESPONSES; i++) {
+                        if (!mapper.getJsonFromInt(field, base + i).equals("{\"" + field + "\":" + (base + i) + "}")
+                                || !mapper.getJsonFromDouble(field, base + i + 0.5).equals("{\"" + field + "\":" + (base + i + 0.5) + "}")) {
+                            mixedUp++;
+                        }
+                    }
+                    return mixedUp;
+                }));
+            }
+            startGate.countDown();
+            for (Future<Integer> mixedUp : mismatches) {
+                assertEquals(0, (int) mixedUp.get(60, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * This method tests that the handler shared by all threads holds no mutable state
+     */
+    @Test
+    @DisplayName("Test handler without mutable state")
+    public void testHandlerWithoutMutableState() {
+        for (Field field : WebServiceEndpointHandler.class.getDeclaredFields()) {
+            assertTrue(Modifier.isFinal(field.getModifiers()), field.getName() + " is not final");
+        }
+    }
+}
@@ -0,0 +1,166 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hrw.webservice.model.JHTimeSeries;
+import hrw.webservice.rest.distribution.SeriesWriter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for the streaming of the daily series
+ *
+ * @author Lars Karbach, Furkan Kilic
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class SeriesWriterTest {
+
+    /**
+     * First day of the test series
+     */
+    private static final LocalDate FIRST_DAY = LocalDate.of(2020, 1, 22);
+
+    /**
+     * This method tests the NDJSON rows of a range
+     *
+     * @throws IOException Throws an IO exception if the rows can not be written.
+     */
+    @Test
+    @DisplayName("Test NDJSON output")
+    public void testNdjson() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        JHTimeSeries series = series(30);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int from = SeriesWriter.indexOfFirstDay(series, LocalDate.of(2020, 2, 1).toEpochDay());
+        int to = SeriesWriter.indexOfFirstDay(series, LocalDate.of(2020, 2, 5).toEpochDay() + 1);
+        String[] lines;
+        JsonNode first;
+
+        new SeriesWriter(mapper.getFactory()).writeNdjson("Korea, \"South\"", series, from, to, out);
+        lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        first = mapper.readTree(lines[0]);
+
+        assertEquals(5, lines.length);
+        assertEquals("Korea, \"South\"", first.get("country").asText());
+        assertEquals("2020-02-01", first.get("date").asText());
+        assertEquals(1000, first.get("confirmed").asInt());
+        assertEquals(10, first.get("deaths").asInt());
+        assertEquals("2020-02-05", mapper.readTree(lines[4]).get("date").asText());
+
+        out.reset();
+        new SeriesWriter(mapper.getFactory()).writeNdjson("Germany", series, 3, 3, out);
+        assertEquals(0, out.size());
+    }
+
+    /**
+     * This method tests the CSV output and the quoting of country names
+     *
+     * @throws IOException Throws an IO exception if the rows can not be written.
+     */
+    @Test
+    @DisplayName("Test CSV output")
+    public void testCsv() throws IOException {
+        JHTimeSeries series = series(3);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        new SeriesWriter(new ObjectMapper().getFactory()).writeCsv("Korea, South", series, 0, series.size(), out);
+
+        assertEquals(SeriesWriter.CSV_HEADER + "\n"
+                        + "\"Korea, South\",2020-01-22,0,0,0\n"
+                        + "\"Korea, South\",2020-01-23,100,1,50\n"
+                        + "\"Korea, South\",2020-01-24,200,2,100\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * This method tests the lookup of the range boundaries
+     */
+    @Test
+    @DisplayName("Test range lookup")
+    public void testIndexOfFirstDay() {
+        JHTimeSeries series = series(10);
+
+        assertEquals(0, SeriesWriter.indexOfFirstDay(series, FIRST_DAY.minusDays(100).toEpochDay()));
+        assertEquals(4, SeriesWriter.indexOfFirstDay(series, FIRST_DAY.plusDays(4).toEpochDay()));
+        assertEquals(10, SeriesWriter.indexOfFirstDay(series, FIRST_DAY.plusDays(10).toEpochDay()));
+        assertEquals(0, SeriesWriter.indexOfFirstDay(new JHTimeSeries(), 0));
+    }
+
+    /**
+     * This method tests that a long series is passed to the client in small pieces while it is written
+     *
+     * @throws IOException Throws an IO exception if the rows can not be written.
+     */
+    @Test
+    @DisplayName("Test streaming a long series")
+    public void testLongSeries() throws IOException {
+        JHTimeSeries series = series(50000);
+        CountingOutputStream out = new CountingOutputStream();
+
+        new SeriesWriter(new ObjectMapper().getFactory()).writeNdjson("Germany", series, 0, series.size(), out);
+
+        assertTrue(out.count > 50000L * 80);
+        assertTrue(out.largestWrite <= 16 * 1024);
+        assertTrue(out.flushes > 0);
+    }
+
+    /**
+     * Creates a series with linearly growing figures.
+     *
+     * @param days number of days
+     * @return series starting at 2020-01-22
+     */
+    private JHTimeSeries series(int days) {
+        JHTimeSeries series = new JHTimeSeries(days);
+
+        for (int day = 0; day < days; day++) {
+            series.append((int) FIRST_DAY.plusDays(day).toEpochDay(), day * 100, day, day * 50);
+        }
+        return series;
+    }
+
+    /**
+     * Output stream that only counts the written bytes, like a client that consumes the rows immediately.
+     */
+    private static final class CountingOutputStream extends OutputStream {
+
+        /**
+         * Number of written bytes
+         */
+        private long count;
+
+        /**
+         * Largest number of bytes passed in one write
+         */
+        private int largestWrite;
+
+        /**
+         * Number of flushes
+         */
+        private int flushes;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+            largestWrite = Math.max(largestWrite, len);
+        }
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+    }
+}
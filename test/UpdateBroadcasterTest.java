@@ -0,0 +1,333 @@
+import hrw.webservice.threads.UpdateBroadcaster;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for the push of published datasets to the subscribers of the update stream
+ *
+ * @author Lars Karbach
+ * @version 1.0
+ * @since 2021-02-16
+ */
+public class UpdateBroadcasterTest {
+
+    /**
+     * Number of simulated subscribers of the fan-out test
+     */
+    private static final int SUBSCRIBERS = 50000;
+
+    /**
+     * Heartbeat interval of the tests that do not test the heartbeat
+     */
+    private static final Duration NO_HEARTBEAT = Duration.ofHours(1);
+
+    /**
+     * This method tests that one serialized event reaches tens of thousands of subscribers on a few writer threads
+     *
+     * @throws InterruptedException if the test is interrupted while waiting for the subscribers
+     */
+    @Test
+    @DisplayName("Test fan-out to many subscribers")
+    public void testFanOut() throws InterruptedException {
+        UpdateBroadcaster broadcaster = new UpdateBroadcaster(2, NO_HEARTBEAT);
+        CountDownLatch received = new CountDownLatch(SUBSCRIBERS);
+        Set<byte[]> distinctEvents = ConcurrentHashMap.newKeySet();
+        Set<String> writerThreads = ConcurrentHashMap.newKeySet();
+
+        try {
+            for (int i = 0; i < SUBSCRIBERS; i++) {
+                broadcaster.subscribe(event -> {
+                    distinctEvents.add(event);
+                    writerThreads.add(Thread.currentThread().getName());
+                    received.countDown();
+                    return true;
+                }, null);
+            }
+            broadcaster.publish(1, "{\"country\":\"Germany\"}");
+
+            assertTrue(received.await(30, TimeUnit.SECONDS));
+            assertEquals(1, distinctEvents.size());
+            assertTrue(writerThreads.size() <= 2);
+            assertEquals(SUBSCRIBERS, broadcaster.getSubscriberCount());
+        } finally {
+            broadcaster.stop();
+        }
+    }
+
+    /**
+     * This method tests that a new subscriber receives the current dataset unless it already holds it
+     *
+     * @throws InterruptedException if the test is interrupted while waiting for the subscribers
+     */
+    @Test
+    @DisplayName("Test the current dataset on subscribe")
+    public void testCurrentDatasetOnSubscribe() throws InterruptedException {
+        UpdateBroadcaster broadcaster = new UpdateBroadcaster(1, NO_HEARTBEAT);
+        RecordingSubscriber fresh = new RecordingSubscriber(1);
+        RecordingSubscriber reconnected = new RecordingSubscriber(1);
+
+        try {
+            broadcaster.publish(7, "{}");
+            broadcaster.subscribe(fresh, null);
+            broadcaster.subscribe(reconnected, "7");
+
+            assertTrue(fresh.await());
+            assertEquals("id:7\nevent:dataset\ndata:{}\n\n", fresh.events.get(0));
+            broadcaster.publish(8, "{}");
+            assertTrue(reconnected.await());
+            assertEquals(1, reconnected.events.size());
+            assertTrue(reconnected.events.get(0).startsWith("id:8\n"));
+        } finally {
+            broadcaster.stop();
+        }
+    }
+
+    /**
+     * This method tests that a slow subscriber only receives the latest of the events published while it was busy
+     *
+     * @throws InterruptedException if the test is interrupted while waiting for the subscribers
+     */
+    @Test
+    @DisplayName("Test a slow subscriber")
+    public void testSlowSubscriber() throws InterruptedException {
+        UpdateBroadcaster broadcaster = new UpdateBroadcaster(1, NO_HEARTBEAT);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingSubscriber slow = new RecordingSubscriber(2) {
+            @Override
+            public boolean send(byte[] event) throws IOException {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException exception) {
+                    throw new IOException(exception);
+                }
+                return super.send(event);
+            }
+        };
+
+        try {
+            broadcaster.subscribe(slow, null);
+            broadcaster.publish(1, "{}");
+            assertTrue(writing.await(10, TimeUnit.SECONDS));
+            broadcaster.publish(2, "{}");
+            broadcaster.publish(3, "{}");
+            release.countDown();
+
+            assertTrue(slow.await());
+            assertTrue(slow.events.get(0).startsWith("id:1\n"));
+            assertTrue(slow.events.get(1).startsWith("id:3\n"));
+            // The skipped dataset 2 does not follow later.
+            assertFalse(slow.awaitFurtherEvent());
+        } finally {
+            broadcaster.stop();
+        }
+    }
+
+    /**
+     * This method tests that a subscriber whose connection is closed is removed
+     *
+     * @throws InterruptedException if the test is interrupted while waiting for the subscribers
+     */
+    @Test
+    @DisplayName("Test removing a closed subscriber")
+    public void testClosedSubscriber() throws InterruptedException {
+        UpdateBroadcaster broadcaster = new UpdateBroadcaster(1, NO_HEARTBEAT);
+        RecordingSubscriber open = new RecordingSubscriber(1);
+
+        try {
+            broadcaster.subscribe(event -> {
+                throw new IOException("Connection closed");
+            }, null);
+            broadcaster.subscribe(open, null);
+            broadcaster.publish(1, "{}");
+
+            assertTrue(open.await());
+            for (int i = 0; i < 100 && broadcaster.getSubscriberCount() > 1; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, broadcaster.getSubscriberCount());
+            broadcaster.unsubscribe(open);
+            assertEquals(0, broadcaster.getSubscriberCount());
+        } finally {
+            broadcaster.stop();
+        }
+    }
+
+    /**
+     * This method tests that a subscriber whose connection is never writable holds no writer thread and is dropped
+     * and closed after the send timeout
+     *
+     * @throws InterruptedException if the test is interrupted while waiting for the subscribers
+     */
+    @Test
+    @DisplayName("Test a stalled subscriber")
+    public void testStalledSubscriber() throws InterruptedException {
+        UpdateBroadcaster broadcaster = new UpdateBroadcaster(1, NO_HEARTBEAT, Duration.ofMillis(100));
+        CountDownLatch refused = new CountDownLatch(1);
+        CountDownLatch closed = new CountDownLatch(1);
+        RecordingSubscriber open = new RecordingSubscriber(1);
+
+        try {
+            broadcaster.subscribe(new UpdateBroadcaster.Subscriber() {
+                @Override
+                public boolean send(byte[] event) {
+                    // Like a client that has stopped reading, the connection never becomes writable.
+                    refused.countDown();
+                    return false;
+                }
+
+                @Override
+                public void close() {
+                    closed.countDown();
+                }
+            }, null);
+            broadcaster.publish(1, "{}");
+            assertTrue(refused.await(10, TimeUnit.SECONDS));
+
+            // The only writer thread is not held by the stalled subscriber.
+            broadcaster.subscribe(open, null);
+            assertTrue(open.await());
+            assertTrue(open.events.get(0).startsWith("id:1\n"));
+
+            assertTrue(closed.await(10, TimeUnit.SECONDS));
+            assertEquals(1, broadcaster.getSubscriberCount());
+        } finally {
+            broadcaster.stop();
+        }
+    }
+
+    /**
+     * This method tests that a subscriber whose connection becomes writable again receives the latest of the events
+     * published in the meantime
+     *
+     * @throws InterruptedException if the test is interrupted while waiting for the subscribers
+     */
+    @Test
+    @DisplayName("Test resuming a subscriber")
+    public void testResumedSubscriber() throws InterruptedException {
+        UpdateBroadcaster broadcaster = new UpdateBroadcaster(1, NO_HEARTBEAT);
+        AtomicBoolean writable = new AtomicBoolean();
+        CountDownLatch refused = new CountDownLatch(1);
+        RecordingSubscriber resumed = new RecordingSubscriber(1) {
+            @Override
+            public boolean send(byte[] event) throws IOException {
+                if (!writable.get()) {
+                    refused.countDown();
+                    return false;
+                }
+                return super.send(event);
+            }
+        };
+
+        try {
+            broadcaster.subscribe(resumed, null);
+            broadcaster.publish(1, "{}");
+            assertTrue(refused.await(10, TimeUnit.SECONDS));
+            broadcaster.publish(2, "{}");
+            broadcaster.publish(3, "{}");
+
+            writable.set(true);
+            broadcaster.resume(resumed);
+            assertTrue(resumed.await());
+            assertEquals(1, resumed.events.size());
+            assertTrue(resumed.events.get(0).startsWith("id:3\n"));
+        } finally {
+            broadcaster.stop();
+        }
+    }
+
+    /**
+     * This method tests that idle subscribers receive heartbeat comments
+     *
+     * @throws InterruptedException if the test is interrupted while waiting for the subscribers
+     */
+    @Test
+    @DisplayName("Test the heartbeat")
+    public void testHeartbeat() throws InterruptedException {
+        UpdateBroadcaster broadcaster = new UpdateBroadcaster(1, Duration.ofMillis(20));
+        RecordingSubscriber idle = new RecordingSubscriber(2);
+
+        try {
+            broadcaster.subscribe(idle, null);
+
+            assertTrue(idle.await());
+            assertEquals(":\n\n", idle.events.get(0));
+        } finally {
+            broadcaster.stop();
+        }
+    }
+
+    /**
+     * Subscriber that records the received events.
+     */
+    private static class RecordingSubscriber implements UpdateBroadcaster.Subscriber {
+
+        /**
+         * Received events
+         */
+        final List<String> events = new CopyOnWriteArrayList<>();
+
+        /**
+         * One permit per received event
+         */
+        private final Semaphore received = new Semaphore(0);
+
+        /**
+         * Number of events that are awaited
+         */
+        private final int expected;
+
+        /**
+         * Constructor of the subscriber
+         *
+         * @param expected Number of events that are awaited
+         */
+        RecordingSubscriber(int expected) {
+            this.expected = expected;
+        }
+
+        @Override
+        public boolean send(byte[] event) throws IOException {
+            events.add(new String(event, StandardCharsets.UTF_8));
+            received.release();
+            return true;
+        }
+
+        /**
+         * Waits for the expected events.
+         *
+         * @return true if the events have been received
+         * @throws InterruptedException if the thread is interrupted while waiting
+         */
+        boolean await() throws InterruptedException {
+            return received.tryAcquire(expected, 10, TimeUnit.SECONDS);
+        }
+
+        /**
+         * Waits a bounded time for an event after the awaited ones.
+         *
+         * @return true if a further event has been received
+         * @throws InterruptedException if the thread is interrupted while waiting
+         */
+        boolean awaitFurtherEvent() throws InterruptedException {
+            return received.tryAcquire(200, TimeUnit.MILLISECONDS);
+        }
+    }
+}